@@ -4,7 +4,16 @@ import io.micronaut.runtime.Micronaut;
 
 public class AccountFundsApplication {
 
+    /**
+     * If set, the application stops right after the startup (including the warm-up, if enabled).
+     * It's used to record the classes loaded on startup for the AppCDS archive.
+     */
+    private static final String APP_CDS_TRAINING_PROPERTY = "app-cds.training";
+
     public static void main(String[] args) {
-        Micronaut.run(AccountFundsApplication.class);
+        var applicationContext = Micronaut.run(AccountFundsApplication.class, args);
+        if (Boolean.getBoolean(APP_CDS_TRAINING_PROPERTY)) {
+            applicationContext.close();
+        }
     }
 }
@@ -1,38 +1,87 @@
 package com.revolut.challenge.api;
 
 import com.revolut.challenge.repositories.AccountFundsRepository;
+import com.revolut.challenge.service.BalanceReadModel;
+import com.revolut.challenge.service.ReadBulkhead;
 import com.revolut.challenge.service.model.AccountFunds;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
 import io.micronaut.http.MediaType;
 import io.micronaut.http.annotation.Body;
 import io.micronaut.http.annotation.Controller;
 import io.micronaut.http.annotation.Get;
+import io.micronaut.http.annotation.Header;
 import io.micronaut.http.annotation.Post;
+import io.micronaut.http.annotation.QueryValue;
 import io.micronaut.http.annotation.RequestAttribute;
 import io.micronaut.validation.Validated;
 import java.util.UUID;
 import javax.validation.Valid;
 
-@Controller("/api/v1/account-funds")
+@Controller(AccountFundsController.ACCOUNT_FUNDS_URI)
 @Validated
 public class AccountFundsController {
 
+    static final String ACCOUNT_FUNDS_URI = "/api/v1/account-funds";
+    static final String STALENESS_HEADER = "X-Balance-Staleness-Millis";
+
     public AccountFundsController(
-        AccountFundsRepository accountFundsRepository) {
+        AccountFundsRepository accountFundsRepository,
+        ReadBulkhead readBulkhead,
+        PartitionRouter partitionRouter,
+        BalanceReadModel balanceReadModel) {
         this.accountFundsRepository = accountFundsRepository;
+        this.readBulkhead = readBulkhead;
+        this.partitionRouter = partitionRouter;
+        this.balanceReadModel = balanceReadModel;
     }
 
     private final AccountFundsRepository accountFundsRepository;
+    private final ReadBulkhead readBulkhead;
+    private final PartitionRouter partitionRouter;
+    private final BalanceReadModel balanceReadModel;
 
     //for testing
     @Post(consumes = MediaType.APPLICATION_JSON, produces = MediaType.APPLICATION_JSON)
     public AccountFunds createAccountFunds(@Valid @Body AccountFunds accountFunds) {
+        var owner = partitionRouter.findRemoteOwner(accountFunds.getAccountId());
+        if (owner.isPresent()) {
+            return partitionRouter.forward(owner.get(),
+                HttpRequest.POST(ACCOUNT_FUNDS_URI, accountFunds), AccountFunds.class);
+        }
         return accountFundsRepository.save(accountFunds);
     }
 
-    //for testing
+    /**
+     * @param consistent whether to read the balance from the database of the transfers instead
+     * of the read model, which may lag behind by the number of milliseconds given in the
+     * staleness header, or, if there is no read model, from the read data source
+     * @param timeoutMillis how long the client waits for the response, see
+     * {@link RequestDeadlines#TIMEOUT_HEADER}
+     */
     @Get(value = "/{accountId}", produces = MediaType.APPLICATION_JSON)
-    public AccountFunds getAccountFunds(@Valid @RequestAttribute UUID accountId) {
-        return accountFundsRepository.getById(accountId);
+    public HttpResponse<AccountFunds> getAccountFunds(@Valid @RequestAttribute UUID accountId,
+        @QueryValue(defaultValue = "false") boolean consistent,
+        @Nullable @Header(RequestDeadlines.TIMEOUT_HEADER) Long timeoutMillis) {
+        var deadline = RequestDeadlines.fromTimeout(timeoutMillis);
+        var owner = partitionRouter.findRemoteOwner(accountId);
+        if (owner.isPresent()) {
+            return HttpResponse.ok(partitionRouter.forward(owner.get(),
+                HttpRequest.GET(ACCOUNT_FUNDS_URI + "/" + accountId + "?consistent=" + consistent),
+                deadline, AccountFunds.class));
+        }
+        if (consistent) {
+            return HttpResponse.ok(
+                readBulkhead.execute(deadline, () -> accountFundsRepository.getById(accountId)));
+        }
+        if (!balanceReadModel.isEnabled()) {
+            return HttpResponse.ok(readBulkhead.executeReadOnly(deadline,
+                () -> accountFundsRepository.getById(accountId)));
+        }
+        var balanceView = balanceReadModel.getById(accountId);
+        return HttpResponse.ok(balanceView.getAccountFunds())
+            .header(STALENESS_HEADER, Long.toString(balanceView.getStalenessMillis()));
     }
 
 }
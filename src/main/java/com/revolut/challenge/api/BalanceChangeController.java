@@ -0,0 +1,71 @@
+package com.revolut.challenge.api;
+
+import com.revolut.challenge.api.model.BalanceChangeEvent;
+import com.revolut.challenge.api.model.BalanceChangeEvent.BalanceChangeEventBuilder;
+import com.revolut.challenge.service.BalanceChangeHub;
+import com.revolut.challenge.service.model.BalanceChange;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.http.MediaType;
+import io.micronaut.http.annotation.Controller;
+import io.micronaut.http.annotation.Get;
+import io.micronaut.http.annotation.QueryValue;
+import io.micronaut.http.sse.Event;
+import io.micronaut.validation.Validated;
+import io.reactivex.Flowable;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+import javax.validation.ValidationException;
+import org.reactivestreams.Publisher;
+
+/**
+ * Streams the balance changes of the given accounts as server-sent events, so that clients don't
+ * have to poll the balances. The stream completes if the client falls too far behind, in which
+ * case it has to subscribe again and read the balances once.
+ */
+@Controller("/api/v1/balance-changes")
+@Validated
+public class BalanceChangeController {
+
+    static final String EVENT_NAME = "balance-change";
+
+    private final BalanceChangeHub balanceChangeHub;
+    private final PartitionRouter partitionRouter;
+    private final int maxAccounts;
+
+    public BalanceChangeController(
+        BalanceChangeHub balanceChangeHub,
+        PartitionRouter partitionRouter,
+        @Value("${balance-changes.max-accounts:100}") int maxAccounts
+    ) {
+        this.balanceChangeHub = balanceChangeHub;
+        this.partitionRouter = partitionRouter;
+        this.maxAccounts = maxAccounts;
+    }
+
+    @Get(produces = MediaType.TEXT_EVENT_STREAM)
+    public Publisher<Event<BalanceChangeEvent>> streamBalanceChanges(
+        @QueryValue("accountId") List<UUID> accountIds) {
+        var uniqueAccountIds = new HashSet<>(accountIds);
+        if (uniqueAccountIds.isEmpty() || uniqueAccountIds.size() > maxAccounts) {
+            throw new ValidationException(
+                "Between 1 and " + maxAccounts + " account IDs must be given");
+        }
+        //a stream isn't forwarded, the client has to subscribe at the owner of the accounts
+        if (partitionRouter.findRemoteOwner(uniqueAccountIds).isPresent()) {
+            throw new ValidationException(
+                "The accounts " + uniqueAccountIds + " are owned by another instance");
+        }
+        return Flowable.fromPublisher(balanceChangeHub.subscribe(uniqueAccountIds))
+            .map(change -> Event.of(toBalanceChangeEvent(change)).name(EVENT_NAME));
+    }
+
+    private static BalanceChangeEvent toBalanceChangeEvent(BalanceChange change) {
+        return new BalanceChangeEventBuilder<>()
+            .withAccountId(change.getAccountId())
+            .withOperationId(change.getOperationId())
+            .withValue(change.getAmount().toPlainString())
+            .withCurrency(change.getCurrency())
+            .build();
+    }
+}
@@ -0,0 +1,70 @@
+package com.revolut.challenge.api;
+
+import com.revolut.challenge.api.model.DailyRollupsResponse;
+import com.revolut.challenge.repositories.AccountFundsRepository;
+import com.revolut.challenge.service.DailyRollups;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.MediaType;
+import io.micronaut.http.annotation.Controller;
+import io.micronaut.http.annotation.Get;
+import io.micronaut.http.annotation.QueryValue;
+import io.micronaut.http.annotation.RequestAttribute;
+import io.micronaut.validation.Validated;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+import javax.validation.Valid;
+import javax.validation.ValidationException;
+
+/**
+ * The daily inflow, outflow and number of transfers of an account, read from the rollups kept by
+ * the owner of the account. The days are empty while the rollups are disabled.
+ */
+@Controller(DailyRollupController.DAILY_ROLLUP_URI)
+@Validated
+public class DailyRollupController {
+
+    static final String DAILY_ROLLUP_URI =
+        AccountFundsController.ACCOUNT_FUNDS_URI + "/{accountId}/daily-rollups";
+    private static final long MAX_DAYS = 366;
+
+    private final DailyRollups dailyRollups;
+    private final AccountFundsRepository accountFundsRepository;
+    private final TransferConverter transferConverter;
+    private final PartitionRouter partitionRouter;
+
+    public DailyRollupController(
+        DailyRollups dailyRollups,
+        AccountFundsRepository accountFundsRepository,
+        TransferConverter transferConverter,
+        PartitionRouter partitionRouter
+    ) {
+        this.dailyRollups = dailyRollups;
+        this.accountFundsRepository = accountFundsRepository;
+        this.transferConverter = transferConverter;
+        this.partitionRouter = partitionRouter;
+    }
+
+    /**
+     * @param from the first day in UTC
+     * @param to the last day in UTC, at most a year after the first one
+     */
+    @Get(produces = MediaType.APPLICATION_JSON)
+    public DailyRollupsResponse getDailyRollups(@Valid @RequestAttribute UUID accountId,
+        @QueryValue LocalDate from, @QueryValue LocalDate to) {
+        var days = ChronoUnit.DAYS.between(from, to) + 1;
+        if (days < 1 || days > MAX_DAYS) {
+            throw new ValidationException(
+                "The range must span from 1 to " + MAX_DAYS + " days, ending on or after its start");
+        }
+        var owner = partitionRouter.findRemoteOwner(accountId);
+        if (owner.isPresent()) {
+            return partitionRouter.forward(owner.get(),
+                HttpRequest.GET(DAILY_ROLLUP_URI.replace("{accountId}", accountId.toString())
+                    + "?from=" + from + "&to=" + to), DailyRollupsResponse.class);
+        }
+        var account = accountFundsRepository.getCachedById(accountId);
+        return transferConverter.toDailyRollupsResponse(account,
+            dailyRollups.getRollups(accountId, from, to));
+    }
+}
@@ -0,0 +1,134 @@
+package com.revolut.challenge.api;
+
+import com.revolut.challenge.api.model.HoldCaptureRequest;
+import com.revolut.challenge.api.model.HoldRequest;
+import com.revolut.challenge.api.model.HoldResponse;
+import com.revolut.challenge.service.HoldService;
+import com.revolut.challenge.service.model.Hold;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.MediaType;
+import io.micronaut.http.annotation.Body;
+import io.micronaut.http.annotation.Controller;
+import io.micronaut.http.annotation.Delete;
+import io.micronaut.http.annotation.Get;
+import io.micronaut.http.annotation.Post;
+import io.micronaut.http.annotation.RequestAttribute;
+import io.micronaut.validation.Validated;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import javax.validation.Valid;
+import javax.validation.ValidationException;
+
+/**
+ * Funds of an account reserved first and transferred later. The holds are kept by the owner of
+ * the account.
+ */
+@Controller(HoldController.HOLD_URI)
+@Validated
+public class HoldController {
+
+    static final String HOLD_URI = AccountFundsController.ACCOUNT_FUNDS_URI + "/{accountId}/holds";
+
+    private final HoldService holdService;
+    private final TransferConverter transferConverter;
+    private final PartitionRouter partitionRouter;
+
+    public HoldController(
+        HoldService holdService,
+        TransferConverter transferConverter,
+        PartitionRouter partitionRouter
+    ) {
+        this.holdService = holdService;
+        this.transferConverter = transferConverter;
+        this.partitionRouter = partitionRouter;
+    }
+
+    @Post(consumes = MediaType.APPLICATION_JSON, produces = MediaType.APPLICATION_JSON)
+    public HoldResponse authorizeHold(@Valid @RequestAttribute UUID accountId,
+        @Valid @Body HoldRequest holdRequest) {
+        var hold = transferConverter.fromHoldRequest(accountId, holdRequest);
+        validateAmount(hold.getAmount());
+        var owner = partitionRouter.findRemoteOwner(accountId);
+        if (owner.isPresent()) {
+            return partitionRouter.forward(owner.get(),
+                HttpRequest.POST(buildUri(accountId), holdRequest), HoldResponse.class);
+        }
+        return transferConverter.toHoldResponse(holdService.authorize(hold));
+    }
+
+    @Get(value = "/{holdId}", produces = MediaType.APPLICATION_JSON)
+    public HttpResponse<HoldResponse> getHold(@Valid @RequestAttribute UUID accountId,
+        @Valid @RequestAttribute UUID holdId) {
+        var owner = partitionRouter.findRemoteOwner(accountId);
+        if (owner.isPresent()) {
+            return HttpResponse.ok(partitionRouter.forward(owner.get(),
+                HttpRequest.GET(buildUri(accountId) + "/" + holdId), HoldResponse.class));
+        }
+        return toResponse(findOwnHold(accountId, holdId));
+    }
+
+    /**
+     * Transfers the captured value to the recipient, which must be owned by the same instance,
+     * and releases the rest of the hold.
+     */
+    @Post(value = "/{holdId}/capture", consumes = MediaType.APPLICATION_JSON,
+        produces = MediaType.APPLICATION_JSON)
+    public HttpResponse<HoldResponse> captureHold(@Valid @RequestAttribute UUID accountId,
+        @Valid @RequestAttribute UUID holdId, @Valid @Body HoldCaptureRequest captureRequest) {
+        var recipientAccountId = captureRequest.getTo().getId();
+        var amount = new BigDecimal(captureRequest.getValue());
+        validateAmount(amount);
+        var owner = partitionRouter.findRemoteOwner(List.of(accountId, recipientAccountId));
+        if (owner.isPresent()) {
+            return HttpResponse.ok(partitionRouter.forward(owner.get(),
+                HttpRequest.POST(buildUri(accountId) + "/" + holdId + "/capture",
+                    captureRequest), HoldResponse.class));
+        }
+        if (findOwnHold(accountId, holdId).isEmpty()) {
+            return HttpResponse.notFound();
+        }
+        return toResponse(holdService.capture(holdId, recipientAccountId, amount));
+    }
+
+    /**
+     * Releases the hold.
+     */
+    @Delete(value = "/{holdId}", produces = MediaType.APPLICATION_JSON)
+    public HttpResponse<HoldResponse> voidHold(@Valid @RequestAttribute UUID accountId,
+        @Valid @RequestAttribute UUID holdId) {
+        var owner = partitionRouter.findRemoteOwner(accountId);
+        if (owner.isPresent()) {
+            return HttpResponse.ok(partitionRouter.forward(owner.get(),
+                HttpRequest.DELETE(buildUri(accountId) + "/" + holdId), HoldResponse.class));
+        }
+        if (findOwnHold(accountId, holdId).isEmpty()) {
+            return HttpResponse.notFound();
+        }
+        return toResponse(holdService.voidHold(holdId));
+    }
+
+    private Optional<Hold> findOwnHold(UUID accountId, UUID holdId) {
+        return holdService.findById(holdId)
+            .filter(hold -> hold.getAccountId().equals(accountId));
+    }
+
+    private HttpResponse<HoldResponse> toResponse(Optional<Hold> hold) {
+        return hold
+            .map(transferConverter::toHoldResponse)
+            .map(HttpResponse::ok)
+            .orElseGet(HttpResponse::notFound);
+    }
+
+    private static void validateAmount(BigDecimal amount) {
+        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new ValidationException("Hold amount must exceed 0.00");
+        }
+    }
+
+    private static String buildUri(UUID accountId) {
+        return HOLD_URI.replace("{accountId}", accountId.toString());
+    }
+}
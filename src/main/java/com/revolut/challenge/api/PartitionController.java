@@ -0,0 +1,53 @@
+package com.revolut.challenge.api;
+
+import com.revolut.challenge.service.CrossPartitionTransferService;
+import com.revolut.challenge.service.model.PartitionTransfer;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.http.MediaType;
+import io.micronaut.http.annotation.Body;
+import io.micronaut.http.annotation.Controller;
+import io.micronaut.http.annotation.Get;
+import io.micronaut.http.annotation.PathVariable;
+import io.micronaut.http.annotation.Post;
+import io.micronaut.validation.Validated;
+import java.util.UUID;
+import javax.validation.Valid;
+
+/**
+ * The internal API the instances of a partitioned deployment use to transfer funds between
+ * their accounts, see {@link CrossPartitionTransferService}.
+ */
+@Controller("/internal/v1/partition")
+@Validated
+@Requires(property = "partitioning.enabled", value = "true")
+public class PartitionController {
+
+    private final CrossPartitionTransferService crossPartitionTransferService;
+
+    public PartitionController(CrossPartitionTransferService crossPartitionTransferService) {
+        this.crossPartitionTransferService = crossPartitionTransferService;
+    }
+
+    @Post(value = "/credits", consumes = MediaType.APPLICATION_JSON)
+    public void prepareCredit(@Valid @Body PartitionTransfer credit) {
+        crossPartitionTransferService.prepareCredit(credit);
+    }
+
+    @Post("/credits/{operationId}/commit")
+    public void commitCredit(@PathVariable UUID operationId) {
+        crossPartitionTransferService.commitCredit(operationId);
+    }
+
+    @Post("/credits/{operationId}/abort")
+    public void abortCredit(@PathVariable UUID operationId) {
+        crossPartitionTransferService.abortCredit(operationId);
+    }
+
+    /**
+     * @return the debit, or 404 if the coordinator has never started the transfer
+     */
+    @Get(value = "/debits/{operationId}", produces = MediaType.APPLICATION_JSON)
+    public PartitionTransfer getDebit(@PathVariable UUID operationId) {
+        return crossPartitionTransferService.findDebit(operationId).orElse(null);
+    }
+}
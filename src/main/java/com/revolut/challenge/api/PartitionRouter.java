@@ -0,0 +1,85 @@
+package com.revolut.challenge.api;
+
+import com.revolut.challenge.partitioning.PartitionClient;
+import com.revolut.challenge.partitioning.PartitionMap;
+import com.revolut.challenge.partitioning.PartitionRequestException;
+import com.revolut.challenge.service.Deadline;
+import com.revolut.challenge.service.DeadlineExceededException;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.MutableHttpRequest;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.inject.Singleton;
+
+/**
+ * Forwards the requests for accounts that the instance doesn't own to their owners.
+ */
+@Singleton
+@ParametersAreNonnullByDefault
+class PartitionRouter {
+
+    private final PartitionMap partitionMap;
+    private final PartitionClient partitionClient;
+
+    PartitionRouter(PartitionMap partitionMap, PartitionClient partitionClient) {
+        this.partitionMap = partitionMap;
+        this.partitionClient = partitionClient;
+    }
+
+    boolean isLocal(UUID accountId) {
+        return partitionMap.isLocal(accountId);
+    }
+
+    /**
+     * @return the owner of the account, unless it's the local instance
+     */
+    @NonNull
+    Optional<Integer> findRemoteOwner(UUID accountId) {
+        var owner = partitionMap.ownerOf(accountId);
+        return owner == partitionMap.getInstanceIndex() ? Optional.empty() : Optional.of(owner);
+    }
+
+    /**
+     * @return the owner of all accounts, unless it's the local instance
+     * @throws PartitionRequestException if the accounts are owned by different instances
+     */
+    @NonNull
+    Optional<Integer> findRemoteOwner(Collection<UUID> accountIds) {
+        var owners = accountIds.stream()
+            .map(partitionMap::ownerOf)
+            .collect(Collectors.toSet());
+        if (owners.size() > 1) {
+            throw new PartitionRequestException(HttpStatus.UNPROCESSABLE_ENTITY,
+                "The accounts " + accountIds + " belong to different partitions");
+        }
+        var owner = owners.iterator().next();
+        return owner == partitionMap.getInstanceIndex() ? Optional.empty() : Optional.of(owner);
+    }
+
+    /**
+     * Passes the time left until the deadline on to the owner.
+     *
+     * @throws DeadlineExceededException if the deadline has already expired
+     */
+    @NonNull
+    <T> T forward(int instance, MutableHttpRequest<?> request, Deadline deadline,
+        Class<T> responseType) {
+        if (deadline.isSet()) {
+            deadline.check(DeadlineExceededException.QUEUED);
+            request.header(RequestDeadlines.TIMEOUT_HEADER,
+                Long.toString(Math.max(1, deadline.remainingMillis())));
+        }
+        return forward(instance, request, responseType);
+    }
+
+    @NonNull
+    <T> T forward(int instance, MutableHttpRequest<?> request, Class<T> responseType) {
+        return partitionClient.exchange(instance, request, responseType)
+            .orElseThrow(() -> new PartitionRequestException(HttpStatus.BAD_GATEWAY,
+                "Instance " + instance + " answered without a body"));
+    }
+}
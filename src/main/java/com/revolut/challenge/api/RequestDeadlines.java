@@ -0,0 +1,33 @@
+package com.revolut.challenge.api;
+
+import com.revolut.challenge.service.Deadline;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.time.Duration;
+import javax.validation.ValidationException;
+
+/**
+ * Turns the time a client is willing to wait into the deadline of its request.
+ */
+final class RequestDeadlines {
+
+    /**
+     * The milliseconds the client waits for the response, counted from when the request is
+     * received. Without it, the request has no deadline.
+     */
+    static final String TIMEOUT_HEADER = "X-Request-Timeout-Millis";
+
+    private RequestDeadlines() {
+    }
+
+    @NonNull
+    static Deadline fromTimeout(@Nullable Long timeoutMillis) {
+        if (timeoutMillis == null) {
+            return Deadline.NONE;
+        }
+        if (timeoutMillis <= 0) {
+            throw new ValidationException(TIMEOUT_HEADER + " must exceed 0");
+        }
+        return Deadline.after(Duration.ofMillis(timeoutMillis));
+    }
+}
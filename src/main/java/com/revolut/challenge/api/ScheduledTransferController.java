@@ -0,0 +1,115 @@
+package com.revolut.challenge.api;
+
+import com.revolut.challenge.api.model.ScheduledTransferRequest;
+import com.revolut.challenge.api.model.ScheduledTransferResponse;
+import com.revolut.challenge.service.ScheduledTransferService;
+import com.revolut.challenge.service.model.ScheduledTransfer;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.MediaType;
+import io.micronaut.http.annotation.Body;
+import io.micronaut.http.annotation.Controller;
+import io.micronaut.http.annotation.Delete;
+import io.micronaut.http.annotation.Get;
+import io.micronaut.http.annotation.Post;
+import io.micronaut.http.annotation.RequestAttribute;
+import io.micronaut.validation.Validated;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import javax.validation.Valid;
+import javax.validation.ValidationException;
+
+/**
+ * The transfers from an account that are performed at a later time, once or repeatedly. They are
+ * kept by the owner of the sender account.
+ */
+@Controller(ScheduledTransferController.SCHEDULED_TRANSFER_URI)
+@Validated
+public class ScheduledTransferController {
+
+    static final String SCHEDULED_TRANSFER_URI =
+        AccountFundsController.ACCOUNT_FUNDS_URI + "/{accountId}/scheduled-transfers";
+
+    private final ScheduledTransferService scheduledTransferService;
+    private final TransferConverter transferConverter;
+    private final PartitionRouter partitionRouter;
+
+    public ScheduledTransferController(
+        ScheduledTransferService scheduledTransferService,
+        TransferConverter transferConverter,
+        PartitionRouter partitionRouter
+    ) {
+        this.scheduledTransferService = scheduledTransferService;
+        this.transferConverter = transferConverter;
+        this.partitionRouter = partitionRouter;
+    }
+
+    @Post(consumes = MediaType.APPLICATION_JSON, produces = MediaType.APPLICATION_JSON)
+    public ScheduledTransferResponse scheduleTransfer(@Valid @RequestAttribute UUID accountId,
+        @Valid @Body ScheduledTransferRequest scheduleRequest) {
+        var scheduledTransfer = transferConverter.fromScheduleRequest(accountId, scheduleRequest);
+        if (scheduledTransfer.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+            throw new ValidationException("Transfer amount must exceed 0.00");
+        }
+        //the runs are local transfers, so both accounts must be owned by the same instance
+        var owner = partitionRouter.findRemoteOwner(
+            List.of(accountId, scheduledTransfer.getRecipientAccountId()));
+        if (owner.isPresent()) {
+            return partitionRouter.forward(owner.get(),
+                HttpRequest.POST(buildUri(accountId), scheduleRequest),
+                ScheduledTransferResponse.class);
+        }
+        return transferConverter.toScheduledTransferResponse(
+            scheduledTransferService.schedule(scheduledTransfer));
+    }
+
+    @Get(value = "/{scheduleId}", produces = MediaType.APPLICATION_JSON)
+    public HttpResponse<ScheduledTransferResponse> getScheduledTransfer(
+        @Valid @RequestAttribute UUID accountId, @Valid @RequestAttribute UUID scheduleId) {
+        var owner = partitionRouter.findRemoteOwner(accountId);
+        if (owner.isPresent()) {
+            return HttpResponse.ok(partitionRouter.forward(owner.get(),
+                HttpRequest.GET(buildUri(accountId) + "/" + scheduleId),
+                ScheduledTransferResponse.class));
+        }
+        return toResponse(findOwnSchedule(accountId, scheduleId));
+    }
+
+    /**
+     * Stops the runs of the schedule. A run that has already started is completed.
+     */
+    @Delete(value = "/{scheduleId}", produces = MediaType.APPLICATION_JSON)
+    public HttpResponse<ScheduledTransferResponse> cancelScheduledTransfer(
+        @Valid @RequestAttribute UUID accountId, @Valid @RequestAttribute UUID scheduleId) {
+        var owner = partitionRouter.findRemoteOwner(accountId);
+        if (owner.isPresent()) {
+            return HttpResponse.ok(partitionRouter.forward(owner.get(),
+                HttpRequest.DELETE(buildUri(accountId) + "/" + scheduleId),
+                ScheduledTransferResponse.class));
+        }
+        if (findOwnSchedule(accountId, scheduleId).isEmpty()) {
+            return HttpResponse.notFound();
+        }
+        scheduledTransferService.cancel(scheduleId);
+        return toResponse(findOwnSchedule(accountId, scheduleId));
+    }
+
+    private Optional<ScheduledTransfer> findOwnSchedule(UUID accountId, UUID scheduleId) {
+        return scheduledTransferService.findById(scheduleId)
+            .filter(scheduledTransfer -> scheduledTransfer.getSenderAccountId().equals(accountId));
+    }
+
+    private HttpResponse<ScheduledTransferResponse> toResponse(
+        Optional<ScheduledTransfer> scheduledTransfer) {
+        return scheduledTransfer
+            .map(transferConverter::toScheduledTransferResponse)
+            .map(HttpResponse::ok)
+            .orElseGet(HttpResponse::notFound);
+    }
+
+    private static String buildUri(UUID accountId) {
+        return SCHEDULED_TRANSFER_URI.replace("{accountId}", accountId.toString());
+    }
+}
@@ -1,39 +1,98 @@
 package com.revolut.challenge.api;
 
+import com.revolut.challenge.api.model.MultiLegTransferRequest;
 import com.revolut.challenge.api.model.TransferRequest;
 import com.revolut.challenge.api.model.TransferResponse;
+import com.revolut.challenge.service.CrossPartitionTransferService;
+import com.revolut.challenge.service.MultiLegTransferService;
 import com.revolut.challenge.service.TransferService;
 import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import io.micronaut.http.HttpRequest;
 import io.micronaut.http.MediaType;
 import io.micronaut.http.annotation.Body;
 import io.micronaut.http.annotation.Controller;
+import io.micronaut.http.annotation.Header;
 import io.micronaut.http.annotation.Post;
 import io.micronaut.validation.Validated;
 import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.UUID;
 import javax.validation.Valid;
 import javax.validation.ValidationException;
 
-@Controller("/api/v1/transfer")
+@Controller(TransferController.TRANSFER_URI)
 @Validated
 public class TransferController {
 
+    static final String TRANSFER_URI = "/api/v1/transfer";
+
     private final TransferService transferService;
+    private final MultiLegTransferService multiLegTransferService;
+    private final CrossPartitionTransferService crossPartitionTransferService;
     private final TransferConverter transferConverter;
+    private final PartitionRouter partitionRouter;
 
     public TransferController(
         TransferService transferService,
-        TransferConverter transferConverter
+        MultiLegTransferService multiLegTransferService,
+        CrossPartitionTransferService crossPartitionTransferService,
+        TransferConverter transferConverter,
+        PartitionRouter partitionRouter
     ) {
         this.transferService = transferService;
+        this.multiLegTransferService = multiLegTransferService;
+        this.crossPartitionTransferService = crossPartitionTransferService;
         this.transferConverter = transferConverter;
+        this.partitionRouter = partitionRouter;
     }
 
+    /**
+     * @param timeoutMillis how long the client waits for the response, see
+     * {@link RequestDeadlines#TIMEOUT_HEADER}
+     */
     @Post(consumes = MediaType.APPLICATION_JSON, produces = MediaType.APPLICATION_JSON)
-    public TransferResponse transferFunds(@Valid @Body TransferRequest transferRequest) {
+    public TransferResponse transferFunds(@Valid @Body TransferRequest transferRequest,
+        @Nullable @Header(RequestDeadlines.TIMEOUT_HEADER) Long timeoutMillis) {
+        var deadline = RequestDeadlines.fromTimeout(timeoutMillis);
         var transfer = transferConverter.fromCreateRequest(transferRequest);
         validateAmount(transfer.getAmount());
+        //the owner of the sender account coordinates the transfer
+        var coordinator = partitionRouter.findRemoteOwner(transfer.getSenderAccountId());
+        if (coordinator.isPresent()) {
+            return partitionRouter.forward(coordinator.get(),
+                HttpRequest.POST(TRANSFER_URI, transferRequest), deadline,
+                TransferResponse.class);
+        }
+        if (!partitionRouter.isLocal(transfer.getRecipientAccountId())) {
+            return transferConverter.toTransferResponse(
+                crossPartitionTransferService.processTransfer(transfer, deadline));
+        }
+        return transferConverter.toTransferResponse(
+            transferService.processTransfer(transfer, deadline));
+    }
+
+    @Post(uri = "/multi-leg", consumes = MediaType.APPLICATION_JSON,
+        produces = MediaType.APPLICATION_JSON)
+    public TransferResponse transferFundsMultiLeg(
+        @Valid @Body MultiLegTransferRequest transferRequest,
+        @Nullable @Header(RequestDeadlines.TIMEOUT_HEADER) Long timeoutMillis) {
+        var deadline = RequestDeadlines.fromTimeout(timeoutMillis);
+        var transfer = transferConverter.fromCreateMultiLegRequest(transferRequest);
+        transfer.getLegs().forEach(leg -> validateAmount(leg.getAmount()));
+        var accountIds = new HashSet<UUID>();
+        transfer.getLegs().forEach(leg -> {
+            accountIds.add(leg.getSenderAccountId());
+            accountIds.add(leg.getRecipientAccountId());
+        });
+        var owner = partitionRouter.findRemoteOwner(accountIds);
+        if (owner.isPresent()) {
+            return partitionRouter.forward(owner.get(),
+                HttpRequest.POST(TRANSFER_URI + "/multi-leg", transferRequest), deadline,
+                TransferResponse.class);
+        }
         return transferConverter.toTransferResponse(
-            transferService.processTransfer(transfer));
+            multiLegTransferService.processTransfer(transfer, deadline));
     }
 
     private void validateAmount(@NonNull BigDecimal amount) {
@@ -1,13 +1,36 @@
 package com.revolut.challenge.api;
 
+import com.revolut.challenge.api.model.DailyRollupDay.DailyRollupDayBuilder;
+import com.revolut.challenge.api.model.DailyRollupsResponse;
+import com.revolut.challenge.api.model.DailyRollupsResponse.DailyRollupsResponseBuilder;
+import com.revolut.challenge.api.model.HoldRequest;
+import com.revolut.challenge.api.model.HoldResponse;
+import com.revolut.challenge.api.model.HoldResponse.HoldResponseBuilder;
+import com.revolut.challenge.api.model.MultiLegTransferRequest;
+import com.revolut.challenge.api.model.ScheduledTransferOutcome;
+import com.revolut.challenge.api.model.ScheduledTransferRequest;
+import com.revolut.challenge.api.model.ScheduledTransferResponse;
+import com.revolut.challenge.api.model.ScheduledTransferResponse.ScheduledTransferResponseBuilder;
 import com.revolut.challenge.api.model.TransferRequest;
 import com.revolut.challenge.api.model.TransferResponse;
 import com.revolut.challenge.api.model.TransferResponse.TransferResponseBuilder;
+import com.revolut.challenge.service.model.AccountFunds;
+import com.revolut.challenge.service.model.DailyRollup;
+import com.revolut.challenge.service.model.Hold;
+import com.revolut.challenge.service.model.HoldStatus;
+import com.revolut.challenge.service.model.MultiLegTransfer;
+import com.revolut.challenge.service.model.ScheduledTransfer;
+import com.revolut.challenge.service.model.ScheduledTransferStatus;
 import com.revolut.challenge.service.model.Transfer;
+import com.revolut.challenge.service.model.TransferLeg;
 import com.revolut.challenge.service.model.TransferStatus;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import io.micronaut.validation.Validated;
 import java.math.BigDecimal;
+import java.time.Period;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
 import javax.inject.Singleton;
 import javax.validation.Valid;
 
@@ -27,6 +50,23 @@ public class TransferConverter {
             .build();
     }
 
+    @NonNull
+    public MultiLegTransfer fromCreateMultiLegRequest(
+        @NonNull @Valid MultiLegTransferRequest transferRequest) {
+        return MultiLegTransfer.builder()
+            .operationId(transferRequest.getOperationId())
+            .currency(transferRequest.getCurrency().toUpperCase())
+            .legs(transferRequest.getLegs().stream()
+                .map(leg -> TransferLeg.builder()
+                    .senderAccountId(leg.getAccounts().getFrom().getId())
+                    .recipientAccountId(leg.getAccounts().getTo().getId())
+                    .amount(new BigDecimal(leg.getValue()))
+                    .build())
+                .collect(Collectors.toList()))
+            .status(TransferStatus.ACCEPTED)
+            .build();
+    }
+
     @NonNull
     public TransferResponse toTransferResponse(@NonNull @Valid Transfer transfer) {
         return new TransferResponseBuilder<>()
@@ -36,4 +76,90 @@ public class TransferConverter {
                 .fromValue(transfer.getStatus().toString()))
             .build();
     }
+
+    @NonNull
+    public TransferResponse toTransferResponse(@NonNull @Valid MultiLegTransfer transfer) {
+        return new TransferResponseBuilder<>()
+            .withCreatedAt(transfer.getCreatedAt())
+            .withTransferNumber(Long.toString(transfer.getId()))
+            .withStatus(com.revolut.challenge.api.model.TransferStatus
+                .fromValue(transfer.getStatus().toString()))
+            .build();
+    }
+
+    @NonNull
+    public ScheduledTransfer fromScheduleRequest(@NonNull UUID senderAccountId,
+        @NonNull @Valid ScheduledTransferRequest scheduleRequest) {
+        return ScheduledTransfer.builder()
+            .scheduleId(scheduleRequest.getScheduleId())
+            .senderAccountId(senderAccountId)
+            .recipientAccountId(scheduleRequest.getTo().getId())
+            .currency(scheduleRequest.getAmount().getCurrency().toUpperCase())
+            .amount(new BigDecimal(scheduleRequest.getAmount().getValue()))
+            .firstRunAt(scheduleRequest.getFirstRunAt())
+            .recurrence(scheduleRequest.getRepeatEvery() == null
+                ? null
+                : Period.parse(scheduleRequest.getRepeatEvery()))
+            .nextRunAt(scheduleRequest.getFirstRunAt())
+            .status(ScheduledTransferStatus.ACTIVE)
+            .build();
+    }
+
+    @NonNull
+    public ScheduledTransferResponse toScheduledTransferResponse(
+        @NonNull @Valid ScheduledTransfer scheduledTransfer) {
+        var active = scheduledTransfer.getStatus() == ScheduledTransferStatus.ACTIVE;
+        return new ScheduledTransferResponseBuilder<>()
+            .withScheduleId(scheduledTransfer.getScheduleId())
+            .withStatus(com.revolut.challenge.api.model.ScheduledTransferStatus
+                .fromValue(scheduledTransfer.getStatus().toString()))
+            .withNextRunAt(active ? scheduledTransfer.getNextRunAt() : null)
+            .withRuns(Math.toIntExact(scheduledTransfer.getExecutions()))
+            .withLastOutcome(scheduledTransfer.getLastOutcome() == null
+                ? null
+                : ScheduledTransferOutcome.fromValue(scheduledTransfer.getLastOutcome().toString()))
+            .build();
+    }
+
+    @NonNull
+    public Hold fromHoldRequest(@NonNull UUID accountId, @NonNull @Valid HoldRequest holdRequest) {
+        return Hold.builder()
+            .holdId(holdRequest.getHoldId())
+            .accountId(accountId)
+            .currency(holdRequest.getAmount().getCurrency().toUpperCase())
+            .amount(new BigDecimal(holdRequest.getAmount().getValue()))
+            .status(HoldStatus.AUTHORIZED)
+            .expiresAt(holdRequest.getExpiresAt())
+            .build();
+    }
+
+    @NonNull
+    public HoldResponse toHoldResponse(@NonNull @Valid Hold hold) {
+        return new HoldResponseBuilder<>()
+            .withHoldId(hold.getHoldId())
+            .withStatus(com.revolut.challenge.api.model.HoldStatus
+                .fromValue(hold.getStatus().toString()))
+            .withExpiresAt(hold.getExpiresAt())
+            .withCapturedValue(hold.getCapturedAmount() == null
+                ? null
+                : hold.getCapturedAmount().toPlainString())
+            .build();
+    }
+
+    @NonNull
+    public DailyRollupsResponse toDailyRollupsResponse(@NonNull AccountFunds account,
+        @NonNull List<DailyRollup> rollups) {
+        return new DailyRollupsResponseBuilder<>()
+            .withAccountId(account.getAccountId())
+            .withCurrency(account.getCurrency())
+            .withDays(rollups.stream()
+                .map(rollup -> new DailyRollupDayBuilder<>()
+                    .withDay(rollup.getDay())
+                    .withInflow(rollup.getInflow().toPlainString())
+                    .withOutflow(rollup.getOutflow().toPlainString())
+                    .withTransferCount(Math.toIntExact(rollup.getTransferCount()))
+                    .build())
+                .collect(Collectors.toList()))
+            .build();
+    }
 }
@@ -0,0 +1,58 @@
+package com.revolut.challenge.api.binary;
+
+import io.netty.buffer.ByteBuf;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import javax.annotation.ParametersAreNonnullByDefault;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+@ParametersAreNonnullByDefault
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class BinaryCodec {
+
+    private static final int CENTS_SCALE = 2;
+
+    static void writeUuid(ByteBuf buffer, UUID uuid) {
+        buffer.writeLong(uuid.getMostSignificantBits());
+        buffer.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    static UUID readUuid(ByteBuf buffer) {
+        return new UUID(buffer.readLong(), buffer.readLong());
+    }
+
+    static void writeCurrency(ByteBuf buffer, String currency) {
+        var bytes = currency.getBytes(StandardCharsets.US_ASCII);
+        if (bytes.length != BinaryProtocol.CURRENCY_LENGTH) {
+            throw new IllegalArgumentException("Currency must be a 3-letter code: " + currency);
+        }
+        buffer.writeBytes(bytes);
+    }
+
+    static String readCurrency(ByteBuf buffer) {
+        return buffer.readCharSequence(BinaryProtocol.CURRENCY_LENGTH, StandardCharsets.US_ASCII)
+            .toString();
+    }
+
+    static void writeMessage(ByteBuf buffer, String message) {
+        var bytes = message.getBytes(StandardCharsets.UTF_8);
+        var length = Math.min(bytes.length, BinaryProtocol.MAX_FRAME_LENGTH / 2);
+        buffer.writeShort(length);
+        buffer.writeBytes(bytes, 0, length);
+    }
+
+    static String readMessage(ByteBuf buffer) {
+        var length = buffer.readUnsignedShort();
+        return buffer.readCharSequence(length, StandardCharsets.UTF_8).toString();
+    }
+
+    static long toCents(BigDecimal amount) {
+        return amount.setScale(CENTS_SCALE).unscaledValue().longValueExact();
+    }
+
+    static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, CENTS_SCALE);
+    }
+}
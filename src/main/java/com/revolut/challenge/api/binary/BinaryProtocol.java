@@ -0,0 +1,46 @@
+package com.revolut.challenge.api.binary;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Constants of the binary transfer protocol.
+ *
+ * <p>Every frame is prefixed by a 4-byte big-endian length of the rest of the frame.
+ * The frame body starts with a 1-byte message type and an 8-byte correlation ID chosen by the
+ * client, which is echoed in the response. Responses can be returned in any order, so a client
+ * may pipeline as many requests over one connection as it wants.
+ *
+ * <pre>
+ * TRANSFER_REQUEST:  operationId(16) senderId(16) recipientId(16) amountInCents(8) currency(3)
+ * BALANCE_REQUEST:   accountId(16)
+ * TRANSFER_RESPONSE: status(1) [transferStatus(1) transferNumber(8) createdAtEpochMillis(8)]
+ * BALANCE_RESPONSE:  status(1) [accountId(16) balanceInCents(8) currency(3)]
+ * </pre>
+ * UUIDs are written as two raw longs (most significant bits first). If the response status is not
+ * {@link #STATUS_SUCCESS}, the rest of the response is a 2-byte length-prefixed UTF-8 message.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class BinaryProtocol {
+
+    public static final int MAX_FRAME_LENGTH = 1024;
+    public static final int LENGTH_FIELD_LENGTH = 4;
+    public static final int CURRENCY_LENGTH = 3;
+
+    public static final byte TRANSFER_REQUEST = 1;
+    public static final byte BALANCE_REQUEST = 2;
+    public static final byte TRANSFER_RESPONSE = 101;
+    public static final byte BALANCE_RESPONSE = 102;
+
+    public static final byte STATUS_SUCCESS = 0;
+    public static final byte STATUS_INVALID_REQUEST = 1;
+    public static final byte STATUS_NOT_FOUND = 2;
+    public static final byte STATUS_CURRENCY_MISMATCH = 3;
+    public static final byte STATUS_CONFLICT = 4;
+    public static final byte STATUS_INTERNAL_ERROR = 5;
+    public static final byte STATUS_OVERLOADED = 6;
+    public static final byte STATUS_NOT_ALLOWED = 7;
+
+    public static final byte TRANSFER_STATUS_OK = 0;
+    public static final byte TRANSFER_STATUS_REJECTED = 1;
+}
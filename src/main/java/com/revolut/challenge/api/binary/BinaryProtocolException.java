@@ -0,0 +1,16 @@
+package com.revolut.challenge.api.binary;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import lombok.Getter;
+
+@Getter
+@ParametersAreNonnullByDefault
+public class BinaryProtocolException extends RuntimeException {
+
+    private final byte status;
+
+    public BinaryProtocolException(byte status, String message) {
+        super(message);
+        this.status = status;
+    }
+}
@@ -0,0 +1,114 @@
+package com.revolut.challenge.api.binary;
+
+import com.revolut.challenge.repositories.AccountFundsRepository;
+import com.revolut.challenge.service.ReadBulkhead;
+import com.revolut.challenge.service.TransferService;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.runtime.event.annotation.EventListener;
+import io.micronaut.runtime.server.event.ServerStartupEvent;
+import io.micronaut.scheduling.TaskExecutors;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.codec.LengthFieldPrepender;
+import io.netty.util.AttributeKey;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PreDestroy;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A second Netty listener that serves the {@link BinaryProtocol} next to the HTTP server. It is
+ * meant for internal machine-to-machine clients and shares the {@link TransferService} with the
+ * HTTP API. It isn't partition-aware, so it refuses to start on a partitioned instance rather than
+ * transfer between accounts that other instances own.
+ */
+@Slf4j
+@Singleton
+@Requires(property = "binary-protocol.enabled", value = "true")
+public class BinaryProtocolServer {
+
+    static final AttributeKey<AtomicInteger> IN_FLIGHT = AttributeKey.valueOf("inFlight");
+
+    private final BinaryRequestHandler requestHandler;
+    private final int port;
+    private final EventLoopGroup bossGroup = new NioEventLoopGroup(1);
+    private final EventLoopGroup workerGroup;
+    private Channel serverChannel;
+
+    public BinaryProtocolServer(
+        TransferService transferService,
+        AccountFundsRepository accountFundsRepository,
+        ReadBulkhead readBulkhead,
+        @Named(TaskExecutors.IO) ExecutorService executorService,
+        @Value("${binary-protocol.port:8081}") int port,
+        @Value("${binary-protocol.worker-threads:0}") int workerThreads,
+        @Value("${binary-protocol.max-in-flight-per-connection:256}") int maxInFlight,
+        @Value("${partitioning.enabled:false}") boolean partitioned
+    ) {
+        if (partitioned) {
+            throw new IllegalStateException("The binary protocol isn't partition-aware, "
+                + "binary-protocol.enabled and partitioning.enabled can't be both set");
+        }
+        this.requestHandler = new BinaryRequestHandler(transferService, accountFundsRepository,
+            readBulkhead, executorService, maxInFlight);
+        this.port = port;
+        this.workerGroup = new NioEventLoopGroup(workerThreads);
+    }
+
+    @EventListener
+    synchronized void onServerStartup(ServerStartupEvent event) throws InterruptedException {
+        if (serverChannel != null) {
+            return;
+        }
+        serverChannel = new ServerBootstrap()
+            .group(bossGroup, workerGroup)
+            .channel(NioServerSocketChannel.class)
+            .childOption(ChannelOption.TCP_NODELAY, true)
+            .childHandler(new ChannelInitializer<SocketChannel>() {
+                @Override
+                protected void initChannel(SocketChannel channel) {
+                    channel.attr(IN_FLIGHT).set(new AtomicInteger());
+                    channel.pipeline()
+                        .addLast(new LengthFieldBasedFrameDecoder(BinaryProtocol.MAX_FRAME_LENGTH,
+                            0, BinaryProtocol.LENGTH_FIELD_LENGTH,
+                            0, BinaryProtocol.LENGTH_FIELD_LENGTH))
+                        .addLast(new LengthFieldPrepender(BinaryProtocol.LENGTH_FIELD_LENGTH))
+                        .addLast(requestHandler);
+                }
+            })
+            .bind(port)
+            .sync()
+            .channel();
+        log.info("Binary protocol server started on port {}", getPort());
+    }
+
+    /**
+     * @return the port the server is bound to, which is useful if it was configured as 0
+     */
+    public synchronized int getPort() {
+        if (serverChannel == null) {
+            throw new IllegalStateException("The binary protocol server hasn't started yet");
+        }
+        return ((InetSocketAddress) serverChannel.localAddress()).getPort();
+    }
+
+    @PreDestroy
+    synchronized void stop() {
+        if (serverChannel != null) {
+            serverChannel.close().syncUninterruptibly();
+        }
+        bossGroup.shutdownGracefully();
+        workerGroup.shutdownGracefully();
+    }
+}
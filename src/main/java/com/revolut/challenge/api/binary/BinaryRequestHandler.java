@@ -0,0 +1,186 @@
+package com.revolut.challenge.api.binary;
+
+import com.revolut.challenge.repositories.AccountFundsNotFoundException;
+import com.revolut.challenge.repositories.AccountFundsRepository;
+import com.revolut.challenge.service.ConflictingTransferException;
+import com.revolut.challenge.service.CurrencyMismatchException;
+import com.revolut.challenge.service.ReadBulkhead;
+import com.revolut.challenge.service.ServiceOverloadedException;
+import com.revolut.challenge.service.TransferNotAllowedException;
+import com.revolut.challenge.service.TransferService;
+import com.revolut.challenge.service.model.Transfer;
+import com.revolut.challenge.service.model.TransferStatus;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import java.math.BigDecimal;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.validation.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Decodes binary requests and executes them on a blocking executor, so that the event loop can
+ * keep reading pipelined requests while earlier ones are still being processed. Reading from a
+ * connection is suspended while it has too many requests in flight.
+ */
+@Slf4j
+@Sharable
+@ParametersAreNonnullByDefault
+class BinaryRequestHandler extends SimpleChannelInboundHandler<ByteBuf> {
+
+    private static final BigDecimal MAXIMUM_TRANSFER = new BigDecimal("9999999999999.99");
+
+    private final TransferService transferService;
+    private final AccountFundsRepository accountFundsRepository;
+    private final ReadBulkhead readBulkhead;
+    private final ExecutorService executorService;
+    private final int maxInFlightPerConnection;
+
+    BinaryRequestHandler(
+        TransferService transferService,
+        AccountFundsRepository accountFundsRepository,
+        ReadBulkhead readBulkhead,
+        ExecutorService executorService,
+        int maxInFlightPerConnection
+    ) {
+        this.transferService = transferService;
+        this.accountFundsRepository = accountFundsRepository;
+        this.readBulkhead = readBulkhead;
+        this.executorService = executorService;
+        this.maxInFlightPerConnection = maxInFlightPerConnection;
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, ByteBuf frame) {
+        var type = frame.readByte();
+        var correlationId = frame.readLong();
+        switch (type) {
+            case BinaryProtocol.TRANSFER_REQUEST:
+                var transfer = readTransfer(frame);
+                submit(ctx, () -> processTransfer(ctx, correlationId, transfer));
+                break;
+            case BinaryProtocol.BALANCE_REQUEST:
+                var accountId = BinaryCodec.readUuid(frame);
+                submit(ctx, () -> processBalance(ctx, correlationId, accountId));
+                break;
+            default:
+                log.warn("Closing connection {} after unknown message type {}",
+                    ctx.channel().remoteAddress(), type);
+                ctx.close();
+        }
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        log.warn("Closing connection {} after an error", ctx.channel().remoteAddress(), cause);
+        ctx.close();
+    }
+
+    private static Transfer readTransfer(ByteBuf frame) {
+        return Transfer.builder()
+            .operationId(BinaryCodec.readUuid(frame))
+            .senderAccountId(BinaryCodec.readUuid(frame))
+            .recipientAccountId(BinaryCodec.readUuid(frame))
+            .amount(BinaryCodec.fromCents(frame.readLong()))
+            .currency(BinaryCodec.readCurrency(frame).toUpperCase())
+            .status(TransferStatus.ACCEPTED)
+            .build();
+    }
+
+    private void submit(ChannelHandlerContext ctx, Runnable task) {
+        var inFlight = ctx.channel().attr(BinaryProtocolServer.IN_FLIGHT).get();
+        if (inFlight.incrementAndGet() >= maxInFlightPerConnection) {
+            ctx.channel().config().setAutoRead(false);
+        }
+        executorService.execute(() -> {
+            try {
+                task.run();
+            } finally {
+                release(ctx, inFlight);
+            }
+        });
+    }
+
+    private void release(ChannelHandlerContext ctx, AtomicInteger inFlight) {
+        if (inFlight.decrementAndGet() < maxInFlightPerConnection
+            && !ctx.channel().config().isAutoRead()) {
+            ctx.channel().config().setAutoRead(true);
+        }
+    }
+
+    private void processTransfer(ChannelHandlerContext ctx, long correlationId,
+        Transfer transfer) {
+        var response = ctx.alloc().buffer();
+        response.writeByte(BinaryProtocol.TRANSFER_RESPONSE);
+        response.writeLong(correlationId);
+        try {
+            validateAmount(transfer.getAmount());
+            var result = transferService.processTransfer(transfer);
+            response.writeByte(BinaryProtocol.STATUS_SUCCESS);
+            response.writeByte(result.getStatus() == TransferStatus.OK
+                ? BinaryProtocol.TRANSFER_STATUS_OK
+                : BinaryProtocol.TRANSFER_STATUS_REJECTED);
+            response.writeLong(result.getId());
+            response.writeLong(result.getCreatedAt().toInstant(ZoneOffset.UTC).toEpochMilli());
+        } catch (RuntimeException e) {
+            writeError(response, e);
+        }
+        ctx.writeAndFlush(response);
+    }
+
+    private void processBalance(ChannelHandlerContext ctx, long correlationId,
+        UUID accountId) {
+        var response = ctx.alloc().buffer();
+        response.writeByte(BinaryProtocol.BALANCE_RESPONSE);
+        response.writeLong(correlationId);
+        try {
+            var accountFunds = readBulkhead.execute(
+                () -> accountFundsRepository.getById(accountId));
+            var balance = BinaryCodec.toCents(accountFunds.getBalance());
+            response.writeByte(BinaryProtocol.STATUS_SUCCESS);
+            BinaryCodec.writeUuid(response, accountFunds.getAccountId());
+            response.writeLong(balance);
+            BinaryCodec.writeCurrency(response, accountFunds.getCurrency());
+        } catch (RuntimeException e) {
+            writeError(response, e);
+        }
+        ctx.writeAndFlush(response);
+    }
+
+    private static void validateAmount(BigDecimal amount) {
+        if (amount.compareTo(BigDecimal.ZERO) <= 0 || amount.compareTo(MAXIMUM_TRANSFER) > 0) {
+            throw new ValidationException(
+                "Transfer amount must exceed 0.00 and must not exceed " + MAXIMUM_TRANSFER);
+        }
+    }
+
+    private static void writeError(ByteBuf response, RuntimeException e) {
+        //the status byte is the first byte after the type and the correlation ID
+        response.writerIndex(1 + Long.BYTES);
+        response.writeByte(errorStatus(e));
+        BinaryCodec.writeMessage(response, String.valueOf(e.getMessage()));
+    }
+
+    private static byte errorStatus(RuntimeException e) {
+        if (e instanceof ValidationException || e instanceof ArithmeticException) {
+            return BinaryProtocol.STATUS_INVALID_REQUEST;
+        } else if (e instanceof AccountFundsNotFoundException) {
+            return BinaryProtocol.STATUS_NOT_FOUND;
+        } else if (e instanceof CurrencyMismatchException) {
+            return BinaryProtocol.STATUS_CURRENCY_MISMATCH;
+        } else if (e instanceof ConflictingTransferException) {
+            return BinaryProtocol.STATUS_CONFLICT;
+        } else if (e instanceof ServiceOverloadedException) {
+            return BinaryProtocol.STATUS_OVERLOADED;
+        } else if (e instanceof TransferNotAllowedException) {
+            return BinaryProtocol.STATUS_NOT_ALLOWED;
+        }
+        log.error("Unexpected error while processing a binary request", e);
+        return BinaryProtocol.STATUS_INTERNAL_ERROR;
+    }
+}
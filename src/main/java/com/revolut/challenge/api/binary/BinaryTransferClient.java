@@ -0,0 +1,178 @@
+package com.revolut.challenge.api.binary;
+
+import com.revolut.challenge.service.model.AccountFunds;
+import com.revolut.challenge.service.model.Transfer;
+import com.revolut.challenge.service.model.TransferStatus;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.codec.LengthFieldPrepender;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import javax.annotation.ParametersAreNonnullByDefault;
+
+/**
+ * A client of the {@link BinaryProtocol}. All requests are pipelined over a single connection
+ * and matched with their responses by correlation ID, so the client is safe to share between
+ * threads.
+ */
+@ParametersAreNonnullByDefault
+public class BinaryTransferClient implements AutoCloseable {
+
+    private final EventLoopGroup eventLoopGroup = new NioEventLoopGroup(1);
+    private final AtomicLong correlationIds = new AtomicLong();
+    private final Map<Long, PendingRequest<?>> pendingRequests = new ConcurrentHashMap<>();
+    private final Channel channel;
+
+    public BinaryTransferClient(String host, int port) throws InterruptedException {
+        channel = new Bootstrap()
+            .group(eventLoopGroup)
+            .channel(NioSocketChannel.class)
+            .option(ChannelOption.TCP_NODELAY, true)
+            .handler(new ChannelInitializer<SocketChannel>() {
+                @Override
+                protected void initChannel(SocketChannel channel) {
+                    channel.pipeline()
+                        .addLast(new LengthFieldBasedFrameDecoder(BinaryProtocol.MAX_FRAME_LENGTH,
+                            0, BinaryProtocol.LENGTH_FIELD_LENGTH,
+                            0, BinaryProtocol.LENGTH_FIELD_LENGTH))
+                        .addLast(new LengthFieldPrepender(BinaryProtocol.LENGTH_FIELD_LENGTH))
+                        .addLast(new ResponseHandler());
+                }
+            })
+            .connect(host, port)
+            .sync()
+            .channel();
+    }
+
+    /**
+     * Sends a transfer request. The returned future completes with the persisted transfer or
+     * with a {@link BinaryProtocolException} if the server reported an error.
+     */
+    @NonNull
+    public CompletableFuture<Transfer> transfer(Transfer transfer) {
+        return send(BinaryProtocol.TRANSFER_REQUEST,
+            buffer -> {
+                BinaryCodec.writeUuid(buffer, transfer.getOperationId());
+                BinaryCodec.writeUuid(buffer, transfer.getSenderAccountId());
+                BinaryCodec.writeUuid(buffer, transfer.getRecipientAccountId());
+                buffer.writeLong(BinaryCodec.toCents(transfer.getAmount()));
+                BinaryCodec.writeCurrency(buffer, transfer.getCurrency());
+            },
+            buffer -> transfer.toBuilder()
+                .status(buffer.readByte() == BinaryProtocol.TRANSFER_STATUS_OK
+                    ? TransferStatus.OK
+                    : TransferStatus.REJECTED)
+                .id(buffer.readLong())
+                .createdAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(buffer.readLong()),
+                    ZoneOffset.UTC))
+                .build());
+    }
+
+    @NonNull
+    public CompletableFuture<AccountFunds> getAccountFunds(UUID accountId) {
+        return send(BinaryProtocol.BALANCE_REQUEST,
+            buffer -> BinaryCodec.writeUuid(buffer, accountId),
+            buffer -> AccountFunds.builder()
+                .accountId(BinaryCodec.readUuid(buffer))
+                .balance(BinaryCodec.fromCents(buffer.readLong()))
+                .currency(BinaryCodec.readCurrency(buffer))
+                .build());
+    }
+
+    @Override
+    public void close() {
+        channel.close().syncUninterruptibly();
+        eventLoopGroup.shutdownGracefully();
+        var exception = new BinaryProtocolException(BinaryProtocol.STATUS_INTERNAL_ERROR,
+            "The client has been closed");
+        pendingRequests.values().forEach(request -> request.future.completeExceptionally(exception));
+        pendingRequests.clear();
+    }
+
+    private <T> CompletableFuture<T> send(byte type, RequestWriter writer,
+        Function<ByteBuf, T> responseReader) {
+        var correlationId = correlationIds.incrementAndGet();
+        var pendingRequest = new PendingRequest<>(responseReader);
+        pendingRequests.put(correlationId, pendingRequest);
+        var buffer = channel.alloc().buffer();
+        buffer.writeByte(type);
+        buffer.writeLong(correlationId);
+        writer.write(buffer);
+        channel.writeAndFlush(buffer).addListener(result -> {
+            if (!result.isSuccess()) {
+                pendingRequests.remove(correlationId);
+                pendingRequest.future.completeExceptionally(result.cause());
+            }
+        });
+        return pendingRequest.future;
+    }
+
+    @FunctionalInterface
+    private interface RequestWriter {
+
+        void write(ByteBuf buffer);
+    }
+
+    private static final class PendingRequest<T> {
+
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final Function<ByteBuf, T> responseReader;
+
+        private PendingRequest(Function<ByteBuf, T> responseReader) {
+            this.responseReader = responseReader;
+        }
+
+        private void complete(ByteBuf response) {
+            try {
+                var status = response.readByte();
+                if (status == BinaryProtocol.STATUS_SUCCESS) {
+                    future.complete(responseReader.apply(response));
+                } else {
+                    future.completeExceptionally(
+                        new BinaryProtocolException(status, BinaryCodec.readMessage(response)));
+                }
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private final class ResponseHandler extends SimpleChannelInboundHandler<ByteBuf> {
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, ByteBuf response) {
+            response.readByte(); //the response type is implied by the correlation ID
+            var pendingRequest = pendingRequests.remove(response.readLong());
+            if (pendingRequest != null) {
+                pendingRequest.complete(response);
+            }
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) {
+            var exception = new IOException("The connection has been closed");
+            pendingRequests.values()
+                .forEach(request -> request.future.completeExceptionally(exception));
+            pendingRequests.clear();
+        }
+    }
+}
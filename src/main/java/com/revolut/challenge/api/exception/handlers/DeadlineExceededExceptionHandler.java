@@ -0,0 +1,35 @@
+package com.revolut.challenge.api.exception.handlers;
+
+import com.revolut.challenge.api.model.ErrorResponse;
+import com.revolut.challenge.api.model.ErrorResponse.ErrorResponseBuilder;
+import com.revolut.challenge.service.DeadlineExceededException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.annotation.Produces;
+import io.micronaut.http.server.exceptions.ExceptionHandler;
+import javax.inject.Singleton;
+
+@Singleton
+@Produces
+public class DeadlineExceededExceptionHandler implements
+    ExceptionHandler<DeadlineExceededException, HttpResponse> {
+
+    private final MeterRegistry meterRegistry;
+
+    public DeadlineExceededExceptionHandler(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public HttpResponse<ErrorResponse> handle(HttpRequest request,
+        DeadlineExceededException exception) {
+        meterRegistry.counter("requests.deadline-exceeded", "stage", exception.getStage())
+            .increment();
+        return HttpResponse.<ErrorResponse>status(HttpStatus.GATEWAY_TIMEOUT)
+            .body(new ErrorResponseBuilder()
+                .withMessage(exception.getMessage())
+                .build());
+    }
+}
@@ -0,0 +1,25 @@
+package com.revolut.challenge.api.exception.handlers;
+
+import com.revolut.challenge.api.model.ErrorResponse;
+import com.revolut.challenge.api.model.ErrorResponse.ErrorResponseBuilder;
+import com.revolut.challenge.partitioning.PartitionRequestException;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.annotation.Produces;
+import io.micronaut.http.server.exceptions.ExceptionHandler;
+import javax.inject.Singleton;
+
+@Singleton
+@Produces
+public class PartitionRequestExceptionHandler implements
+    ExceptionHandler<PartitionRequestException, HttpResponse> {
+
+    @Override
+    public HttpResponse<ErrorResponse> handle(HttpRequest request,
+        PartitionRequestException exception) {
+        return HttpResponse.<ErrorResponse>status(exception.getStatus())
+            .body(new ErrorResponseBuilder()
+                .withMessage(exception.getMessage())
+                .build());
+    }
+}
@@ -0,0 +1,28 @@
+package com.revolut.challenge.api.exception.handlers;
+
+import com.revolut.challenge.api.model.ErrorResponse;
+import com.revolut.challenge.api.model.ErrorResponse.ErrorResponseBuilder;
+import com.revolut.challenge.service.ServiceOverloadedException;
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.annotation.Produces;
+import io.micronaut.http.server.exceptions.ExceptionHandler;
+import javax.inject.Singleton;
+
+@Singleton
+@Produces
+public class ServiceOverloadedExceptionHandler implements
+    ExceptionHandler<ServiceOverloadedException, HttpResponse> {
+
+    @Override
+    public HttpResponse<ErrorResponse> handle(HttpRequest request,
+        ServiceOverloadedException exception) {
+        return HttpResponse.<ErrorResponse>status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, Integer.toString(exception.getRetryAfterSeconds()))
+            .body(new ErrorResponseBuilder()
+                .withMessage(exception.getMessage())
+                .build());
+    }
+}
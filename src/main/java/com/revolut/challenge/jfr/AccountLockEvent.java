@@ -0,0 +1,47 @@
+package com.revolut.challenge.jfr;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import javax.annotation.ParametersAreNonnullByDefault;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Spans a {@code SELECT ... FOR UPDATE} of accounts, so it mostly measures how long a transfer
+ * waits for other transfers to release the accounts.
+ */
+@Name("com.revolut.challenge.AccountLock")
+@Label("Account Lock")
+@Description("Acquisition of account row locks")
+@Category({"Account Funds", "Database"})
+@ParametersAreNonnullByDefault
+public final class AccountLockEvent extends Event {
+
+    @Label("Account IDs")
+    String accountIds;
+
+    @Label("Account Count")
+    int accountCount;
+
+    public static AccountLockEvent begin(Collection<UUID> accountIds) {
+        var event = new AccountLockEvent();
+        if (event.isEnabled()) {
+            event.accountIds = accountIds.stream()
+                .map(UUID::toString)
+                .collect(Collectors.joining(","));
+            event.accountCount = accountIds.size();
+            event.begin();
+        }
+        return event;
+    }
+
+    public void complete() {
+        if (shouldCommit()) {
+            commit();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.revolut.challenge.jfr;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+import io.micronaut.http.MediaType;
+import io.micronaut.management.endpoint.annotation.Delete;
+import io.micronaut.management.endpoint.annotation.Endpoint;
+import io.micronaut.management.endpoint.annotation.Read;
+import io.micronaut.management.endpoint.annotation.Selector;
+import io.micronaut.management.endpoint.annotation.Write;
+import java.util.Map;
+import javax.annotation.ParametersAreNonnullByDefault;
+import lombok.AllArgsConstructor;
+
+/**
+ * {@code POST /jfr} starts a flight recording, {@code GET /jfr/recording} downloads what has been
+ * recorded so far and {@code DELETE /jfr} stops the recording.
+ */
+@Endpoint(id = "jfr")
+@ParametersAreNonnullByDefault
+@AllArgsConstructor
+public class JfrEndpoint {
+
+    private static final String RECORDING = "recording";
+
+    private final JfrRecorder jfrRecorder;
+
+    @Read
+    public Map<String, Object> getState() {
+        return jfrRecorder.getState();
+    }
+
+    /**
+     * @return nothing, i.e. 404, if no recording is running
+     */
+    @Nullable
+    @Read(produces = MediaType.APPLICATION_OCTET_STREAM)
+    public byte[] dump(@Selector String name) {
+        return RECORDING.equals(name) ? jfrRecorder.dump() : null;
+    }
+
+    @Write
+    public Map<String, Object> start() {
+        return jfrRecorder.start();
+    }
+
+    @Delete
+    public Map<String, Object> stop() {
+        jfrRecorder.stop();
+        return jfrRecorder.getState();
+    }
+}
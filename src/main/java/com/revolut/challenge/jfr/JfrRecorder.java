@@ -0,0 +1,127 @@
+package com.revolut.challenge.jfr;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.context.event.StartupEvent;
+import io.micronaut.runtime.event.annotation.EventListener;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.PreDestroy;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Singleton;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Manages an in-app flight recording with the JDK's default, low-overhead settings plus the
+ * events of this application. The recording keeps only the last
+ * {@code jfr.max-age}/{@code jfr.max-size} of data, so it can run all the time.
+ */
+@Slf4j
+@Singleton
+@ThreadSafe
+@ParametersAreNonnullByDefault
+public class JfrRecorder {
+
+    private static final String RECORDING_NAME = "account-funds";
+    private static final String SETTINGS = "default";
+
+    private final boolean startOnStartup;
+    private final Duration maxAge;
+    private final long maxSize;
+    //guarded by this
+    private Recording recording;
+
+    public JfrRecorder(
+        @Value("${jfr.start-on-startup:false}") boolean startOnStartup,
+        @Value("${jfr.max-age:1h}") Duration maxAge,
+        @Value("${jfr.max-size:104857600}") long maxSize
+    ) {
+        this.startOnStartup = startOnStartup;
+        this.maxAge = maxAge;
+        this.maxSize = maxSize;
+    }
+
+    @EventListener
+    void onStartup(StartupEvent event) {
+        if (startOnStartup) {
+            start();
+        }
+    }
+
+    /**
+     * Starts a recording unless one is running already.
+     *
+     * @return the state of the recording
+     */
+    public synchronized Map<String, Object> start() {
+        if (recording == null || recording.getState() == RecordingState.CLOSED) {
+            try {
+                recording = new Recording(Configuration.getConfiguration(SETTINGS));
+            } catch (IOException | ParseException e) {
+                throw new IllegalStateException("Can't read the JFR settings " + SETTINGS, e);
+            }
+            recording.setName(RECORDING_NAME);
+            recording.setMaxAge(maxAge);
+            recording.setMaxSize(maxSize);
+            recording.enable(TransferEvent.class);
+            recording.enable(TransferReplayEvent.class);
+            recording.enable(AccountLockEvent.class);
+            recording.enable(RepositoryCallEvent.class);
+            recording.start();
+            log.info("Started the flight recording {}", recording.getId());
+        }
+        return getState();
+    }
+
+    /**
+     * @return the data recorded so far in the JFR file format, or null if there is no recording
+     */
+    @Nullable
+    public synchronized byte[] dump() {
+        if (recording == null || recording.getState() != RecordingState.RUNNING) {
+            return null;
+        }
+        try {
+            var file = Files.createTempFile(RECORDING_NAME, ".jfr");
+            try {
+                recording.dump(file);
+                return Files.readAllBytes(file);
+            } finally {
+                Files.delete(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (recording != null) {
+            recording.close();
+            log.info("Stopped the flight recording {}", recording.getId());
+            recording = null;
+        }
+    }
+
+    public synchronized Map<String, Object> getState() {
+        var state = new LinkedHashMap<String, Object>();
+        if (recording == null) {
+            state.put("state", RecordingState.CLOSED);
+        } else {
+            state.put("id", recording.getId());
+            state.put("state", recording.getState());
+            state.put("startTime", recording.getStartTime());
+            state.put("size", recording.getSize());
+        }
+        return state;
+    }
+}
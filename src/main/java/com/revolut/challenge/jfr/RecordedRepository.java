@@ -0,0 +1,22 @@
+package com.revolut.challenge.jfr;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import io.micronaut.aop.Around;
+import io.micronaut.context.annotation.Type;
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Records a {@link RepositoryCallEvent} for every call of a public method of the annotated bean.
+ */
+@Documented
+@Retention(RUNTIME)
+@Target(TYPE)
+@Around
+@Type(RepositoryCallInterceptor.class)
+public @interface RecordedRepository {
+
+}
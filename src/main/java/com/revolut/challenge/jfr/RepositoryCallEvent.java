@@ -0,0 +1,41 @@
+package com.revolut.challenge.jfr;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Spans a call of a public repository method, including its SQL statements.
+ *
+ * @see RecordedRepository
+ */
+@Name("com.revolut.challenge.RepositoryCall")
+@Label("Repository Call")
+@Description("Call of a repository method and its SQL statements")
+@Category({"Account Funds", "Database"})
+@StackTrace(false)
+@ParametersAreNonnullByDefault
+public final class RepositoryCallEvent extends Event {
+
+    @Label("Repository")
+    String repository;
+
+    @Label("Method")
+    String method;
+
+    @Label("IDs")
+    @Description("The account and operation IDs among the arguments")
+    String ids;
+
+    @Label("Amount")
+    @Description("The first amount among the arguments")
+    String amount;
+
+    @Label("Failure")
+    @Description("The simple name of the exception thrown, if any")
+    String failure;
+}
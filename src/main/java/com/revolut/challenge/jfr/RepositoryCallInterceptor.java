@@ -0,0 +1,56 @@
+package com.revolut.challenge.jfr;
+
+import io.micronaut.aop.MethodInterceptor;
+import io.micronaut.aop.MethodInvocationContext;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.StringJoiner;
+import java.util.UUID;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.inject.Singleton;
+
+@Singleton
+@ParametersAreNonnullByDefault
+class RepositoryCallInterceptor implements MethodInterceptor<Object, Object> {
+
+    @Override
+    public Object intercept(MethodInvocationContext<Object, Object> context) {
+        var event = new RepositoryCallEvent();
+        if (!event.isEnabled()) {
+            return context.proceed();
+        }
+        event.begin();
+        try {
+            return context.proceed();
+        } catch (RuntimeException e) {
+            event.failure = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.repository = context.getDeclaringType().getSimpleName();
+                event.method = context.getMethodName();
+                fillArguments(event, context.getParameterValues());
+                event.commit();
+            }
+        }
+    }
+
+    private static void fillArguments(RepositoryCallEvent event, Object[] arguments) {
+        var ids = new StringJoiner(",");
+        for (var argument : arguments) {
+            if (argument instanceof UUID) {
+                ids.add(argument.toString());
+            } else if (argument instanceof Collection) {
+                for (var element : (Collection<?>) argument) {
+                    if (element instanceof UUID) {
+                        ids.add(element.toString());
+                    }
+                }
+            } else if (argument instanceof BigDecimal && event.amount == null) {
+                event.amount = argument.toString();
+            }
+        }
+        event.ids = ids.toString();
+    }
+}
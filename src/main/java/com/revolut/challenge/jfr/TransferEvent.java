@@ -0,0 +1,65 @@
+package com.revolut.challenge.jfr;
+
+import com.revolut.challenge.service.model.Transfer;
+import javax.annotation.ParametersAreNonnullByDefault;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Spans the processing of a transfer, from the admission by the concurrency limiter to the
+ * response.
+ */
+@Name("com.revolut.challenge.Transfer")
+@Label("Transfer")
+@Description("Processing of a transfer")
+@Category({"Account Funds", "Transfers"})
+@StackTrace(false)
+@ParametersAreNonnullByDefault
+public final class TransferEvent extends Event {
+
+    @Label("Operation ID")
+    String operationId;
+
+    @Label("Sender Account ID")
+    String senderAccountId;
+
+    @Label("Recipient Account ID")
+    String recipientAccountId;
+
+    @Label("Amount")
+    String amount;
+
+    @Label("Currency")
+    String currency;
+
+    @Label("Outcome")
+    @Description("The status of the transfer, or the simple name of the exception thrown")
+    String outcome;
+
+    /**
+     * @return a started event, its fields are only filled if the event is enabled
+     */
+    public static TransferEvent begin(Transfer transfer) {
+        var event = new TransferEvent();
+        if (event.isEnabled()) {
+            event.operationId = String.valueOf(transfer.getOperationId());
+            event.senderAccountId = String.valueOf(transfer.getSenderAccountId());
+            event.recipientAccountId = String.valueOf(transfer.getRecipientAccountId());
+            event.amount = String.valueOf(transfer.getAmount());
+            event.currency = transfer.getCurrency();
+            event.begin();
+        }
+        return event;
+    }
+
+    public void complete(String outcome) {
+        if (shouldCommit()) {
+            this.outcome = outcome;
+            commit();
+        }
+    }
+}
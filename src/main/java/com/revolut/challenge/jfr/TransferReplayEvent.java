@@ -0,0 +1,55 @@
+package com.revolut.challenge.jfr;
+
+import com.revolut.challenge.service.model.Transfer;
+import javax.annotation.ParametersAreNonnullByDefault;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Marks a transfer whose operation ID has already been used, and which has therefore been
+ * answered with the persisted outcome or rejected as conflicting.
+ */
+@Name("com.revolut.challenge.TransferReplay")
+@Label("Transfer Replay")
+@Description("Transfer with an operation ID that has already been used")
+@Category({"Account Funds", "Transfers"})
+@StackTrace(false)
+@ParametersAreNonnullByDefault
+public final class TransferReplayEvent extends Event {
+
+    @Label("Operation ID")
+    String operationId;
+
+    @Label("Sender Account ID")
+    String senderAccountId;
+
+    @Label("Recipient Account ID")
+    String recipientAccountId;
+
+    @Label("Amount")
+    String amount;
+
+    @Label("Currency")
+    String currency;
+
+    @Label("Conflicting")
+    @Description("Whether the transfer differs from the persisted one")
+    boolean conflicting;
+
+    public static void commit(Transfer transfer, boolean conflicting) {
+        var event = new TransferReplayEvent();
+        if (event.shouldCommit()) {
+            event.operationId = String.valueOf(transfer.getOperationId());
+            event.senderAccountId = String.valueOf(transfer.getSenderAccountId());
+            event.recipientAccountId = String.valueOf(transfer.getRecipientAccountId());
+            event.amount = String.valueOf(transfer.getAmount());
+            event.currency = transfer.getCurrency();
+            event.conflicting = conflicting;
+            event.commit();
+        }
+    }
+}
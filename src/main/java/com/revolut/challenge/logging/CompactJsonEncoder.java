@@ -0,0 +1,74 @@
+package com.revolut.challenge.logging;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.ThrowableProxyUtil;
+import ch.qos.logback.core.encoder.EncoderBase;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Encodes every event as a single line of JSON: the timestamp, the level, the thread, the logger,
+ * the message, the MDC entries, the fields of {@link StructuredArgument structured arguments}
+ * and the stack trace. The buffer is reused, and the message of an event with only structured
+ * arguments isn't formatted at all.
+ */
+public class CompactJsonEncoder extends EncoderBase<ILoggingEvent> {
+
+    private static final byte[] NO_BYTES = new byte[0];
+
+    private final ThreadLocal<JsonFieldWriter> writers =
+        ThreadLocal.withInitial(() -> new JsonFieldWriter(new StringBuilder(256)));
+
+    @Override
+    public byte[] headerBytes() {
+        return NO_BYTES;
+    }
+
+    @Override
+    public byte[] encode(ILoggingEvent event) {
+        var writer = writers.get();
+        writer.reset();
+        var json = writer.getJson().append('{');
+        writer.field("timestamp",
+            DateTimeFormatter.ISO_INSTANT.format(Instant.ofEpochMilli(event.getTimeStamp())))
+            .field("level", event.getLevel())
+            .field("thread", event.getThreadName())
+            .field("logger", event.getLoggerName());
+        if (hasOnlyStructuredArguments(event)) {
+            writer.field("message", event.getMessage());
+            for (var argument : event.getArgumentArray()) {
+                ((StructuredArgument) argument).writeFields(writer);
+            }
+        } else {
+            writer.field("message", event.getFormattedMessage());
+        }
+        var mdc = event.getMDCPropertyMap();
+        if (mdc != null) {
+            mdc.forEach(writer::field);
+        }
+        if (event.getThrowableProxy() != null) {
+            writer.field("exception", ThrowableProxyUtil.asString(event.getThrowableProxy()));
+        }
+        json.append('}').append('\n');
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public byte[] footerBytes() {
+        return NO_BYTES;
+    }
+
+    static boolean hasOnlyStructuredArguments(ILoggingEvent event) {
+        var arguments = event.getArgumentArray();
+        if (arguments == null || arguments.length == 0) {
+            return false;
+        }
+        for (var argument : arguments) {
+            if (!(argument instanceof StructuredArgument)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
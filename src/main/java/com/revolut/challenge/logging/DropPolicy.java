@@ -0,0 +1,22 @@
+package com.revolut.challenge.logging;
+
+/**
+ * What {@link NonBlockingAsyncAppender} does with an event when its queue is full.
+ */
+public enum DropPolicy {
+
+    /**
+     * Drops the event, so logging never waits.
+     */
+    DROP,
+
+    /**
+     * Drops the events below the WARN level, and waits for room for the rest.
+     */
+    DROP_BELOW_WARN,
+
+    /**
+     * Waits for room, so no event is lost.
+     */
+    BLOCK
+}
@@ -0,0 +1,90 @@
+package com.revolut.challenge.logging;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Appends the fields of a JSON object to a reusable buffer, escaping the strings as it goes.
+ */
+@NotThreadSafe
+@ParametersAreNonnullByDefault
+public final class JsonFieldWriter {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final StringBuilder json;
+    private boolean firstField = true;
+
+    JsonFieldWriter(StringBuilder json) {
+        this.json = json;
+    }
+
+    void reset() {
+        json.setLength(0);
+        firstField = true;
+    }
+
+    /**
+     * Writes nothing if the value is null.
+     */
+    public JsonFieldWriter field(String name, @Nullable Object value) {
+        if (value != null) {
+            appendName(name);
+            appendString(String.valueOf(value));
+        }
+        return this;
+    }
+
+    public JsonFieldWriter field(String name, long value) {
+        appendName(name);
+        json.append(value);
+        return this;
+    }
+
+    StringBuilder getJson() {
+        return json;
+    }
+
+    private void appendName(String name) {
+        if (!firstField) {
+            json.append(',');
+        }
+        firstField = false;
+        appendString(name);
+        json.append(':');
+    }
+
+    private void appendString(String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            var character = value.charAt(i);
+            switch (character) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (character < ' ') {
+                        json.append("\\u00")
+                            .append(HEX_DIGITS[character >> 4])
+                            .append(HEX_DIGITS[character & 0xF]);
+                    } else {
+                        json.append(character);
+                    }
+            }
+        }
+        json.append('"');
+    }
+}
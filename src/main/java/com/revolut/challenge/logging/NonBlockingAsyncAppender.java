@@ -0,0 +1,199 @@
+package com.revolut.challenge.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import ch.qos.logback.core.spi.AppenderAttachableImpl;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands the events over to a single worker thread through a {@link BoundedLockFreeQueue}, so
+ * that the logging threads neither take locks nor wait for the attached appenders. When the
+ * queue is full, the {@link DropPolicy} decides whether the event is dropped, and the worker
+ * reports the number of dropped events once it catches up.
+ *
+ * <p>Unlike logback's {@code AsyncAppender}, an event whose arguments are all
+ * {@link StructuredArgument structured} isn't formatted on the logging thread.
+ */
+public class NonBlockingAsyncAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
+    implements AppenderAttachable<ILoggingEvent> {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final AppenderAttachableImpl<ILoggingEvent> appenders =
+        new AppenderAttachableImpl<>();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private int capacity = 8192;
+    private DropPolicy dropPolicy = DropPolicy.DROP_BELOW_WARN;
+    private long maxFlushTime = 1000;
+    private BoundedLockFreeQueue<ILoggingEvent> queue;
+    private Thread worker;
+    private volatile boolean running;
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public void setDropPolicy(DropPolicy dropPolicy) {
+        this.dropPolicy = dropPolicy;
+    }
+
+    /**
+     * @param maxFlushTime how long the queued events are written on stop, in milliseconds
+     */
+    public void setMaxFlushTime(long maxFlushTime) {
+        this.maxFlushTime = maxFlushTime;
+    }
+
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    @Override
+    public void start() {
+        if (isStarted()) {
+            return;
+        }
+        if (!appenders.iteratorForAppenders().hasNext()) {
+            addError("No appender is attached to " + getName());
+            return;
+        }
+        queue = new BoundedLockFreeQueue<>(capacity);
+        running = true;
+        worker = new Thread(this::writeEvents, "async-log-" + getName());
+        worker.setDaemon(true);
+        worker.start();
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(maxFlushTime);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive()) {
+            addWarn("Not all queued events have been written in " + maxFlushTime + " ms");
+        }
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        prepareForDeferredProcessing(event);
+        if (queue.offer(event)) {
+            return;
+        }
+        if (dropPolicy == DropPolicy.DROP
+            || dropPolicy == DropPolicy.DROP_BELOW_WARN && !event.getLevel()
+            .isGreaterOrEqual(Level.WARN)) {
+            droppedEvents.incrementAndGet();
+            return;
+        }
+        while (!queue.offer(event)) {
+            if (!running) {
+                droppedEvents.incrementAndGet();
+                return;
+            }
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+    }
+
+    /**
+     * Captures what can't be read on the worker thread. The message is only formatted if some of
+     * the arguments aren't structured, since those might change before the worker gets to them.
+     */
+    private static void prepareForDeferredProcessing(ILoggingEvent event) {
+        if (CompactJsonEncoder.hasOnlyStructuredArguments(event)) {
+            event.getThreadName();
+            event.getMDCPropertyMap();
+        } else {
+            event.prepareForDeferredProcessing();
+        }
+    }
+
+    private void writeEvents() {
+        var reportedDroppedEvents = 0L;
+        while (running || !queue.isEmpty()) {
+            var event = queue.poll();
+            if (event != null) {
+                appenders.appendLoopOnAppenders(event);
+                continue;
+            }
+            reportedDroppedEvents = reportDroppedEvents(reportedDroppedEvents);
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+        reportDroppedEvents(reportedDroppedEvents);
+    }
+
+    /**
+     * @return the number of dropped events reported so far
+     */
+    private long reportDroppedEvents(long reportedDroppedEvents) {
+        var dropped = droppedEvents.get();
+        if (dropped > reportedDroppedEvents) {
+            appenders.appendLoopOnAppenders(
+                buildDroppedEventsEvent(dropped - reportedDroppedEvents));
+        }
+        return dropped;
+    }
+
+    private ILoggingEvent buildDroppedEventsEvent(long dropped) {
+        var logger = ((LoggerContext) getContext()).getLogger(NonBlockingAsyncAppender.class);
+        var event = new LoggingEvent(NonBlockingAsyncAppender.class.getName(), logger,
+            Level.WARN, "Dropped {} log events, the queue was full", null,
+            new Object[]{dropped});
+        event.prepareForDeferredProcessing();
+        return event;
+    }
+
+    @Override
+    public void addAppender(Appender<ILoggingEvent> appender) {
+        appenders.addAppender(appender);
+    }
+
+    @Override
+    public Iterator<Appender<ILoggingEvent>> iteratorForAppenders() {
+        return appenders.iteratorForAppenders();
+    }
+
+    @Override
+    public Appender<ILoggingEvent> getAppender(String name) {
+        return appenders.getAppender(name);
+    }
+
+    @Override
+    public boolean isAttached(Appender<ILoggingEvent> appender) {
+        return appenders.isAttached(appender);
+    }
+
+    @Override
+    public void detachAndStopAllAppenders() {
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    public boolean detachAppender(Appender<ILoggingEvent> appender) {
+        return appenders.detachAppender(appender);
+    }
+
+    @Override
+    public boolean detachAppender(String name) {
+        return appenders.detachAppender(name);
+    }
+}
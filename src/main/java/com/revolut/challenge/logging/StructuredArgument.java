@@ -0,0 +1,11 @@
+package com.revolut.challenge.logging;
+
+/**
+ * A logging argument that {@link CompactJsonEncoder} writes as fields of the JSON event instead
+ * of formatting it into the message. An event whose arguments are all structured isn't formatted
+ * on the logging thread, so such arguments have to be immutable.
+ */
+public interface StructuredArgument {
+
+    void writeFields(JsonFieldWriter writer);
+}
@@ -0,0 +1,62 @@
+package com.revolut.challenge.logging;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.Immutable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Logs a line per processed transfer to the {@code transfer-access} logger, which can be turned
+ * off like any other logger. The entry is a {@link StructuredArgument}, so the logging thread
+ * only allocates the entry and the logging event.
+ */
+@ParametersAreNonnullByDefault
+public final class TransferAccessLog {
+
+    private static final Logger ACCESS_LOG = LoggerFactory.getLogger("transfer-access");
+
+    private TransferAccessLog() {
+    }
+
+    /**
+     * @param outcome the status of the transfer, or the simple name of the exception thrown
+     */
+    public static void log(UUID operationId, String outcome, long startNanos) {
+        if (ACCESS_LOG.isInfoEnabled()) {
+            ACCESS_LOG.info("Transfer {}",
+                new Entry(operationId, outcome, System.nanoTime() - startNanos));
+        }
+    }
+
+    @Immutable
+    private static final class Entry implements StructuredArgument {
+
+        private final UUID operationId;
+        private final String outcome;
+        private final long latencyNanos;
+
+        private Entry(UUID operationId, String outcome, long latencyNanos) {
+            this.operationId = operationId;
+            this.outcome = outcome;
+            this.latencyNanos = latencyNanos;
+        }
+
+        @Override
+        public void writeFields(JsonFieldWriter writer) {
+            writer.field("operationId", operationId)
+                .field("status", outcome)
+                .field("latencyMicros", TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+        }
+
+        /**
+         * For the encoders that format the message.
+         */
+        @Override
+        public String toString() {
+            return operationId + " " + outcome + " in "
+                + TimeUnit.NANOSECONDS.toMicros(latencyNanos) + " us";
+        }
+    }
+}
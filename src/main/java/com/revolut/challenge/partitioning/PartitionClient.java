@@ -0,0 +1,81 @@
+package com.revolut.challenge.partitioning;
+
+import com.revolut.challenge.api.model.ErrorResponse;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import io.micronaut.core.type.Argument;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.MutableHttpRequest;
+import io.micronaut.http.client.RxHttpClient;
+import io.micronaut.http.client.exceptions.HttpClientException;
+import io.micronaut.http.client.exceptions.HttpClientResponseException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.PreDestroy;
+import javax.inject.Singleton;
+
+/**
+ * Sends requests to the other instances of a partitioned deployment, over one pooled HTTP client
+ * per instance.
+ */
+@Singleton
+@ParametersAreNonnullByDefault
+public class PartitionClient {
+
+    private final PartitionMap partitionMap;
+    private final Map<Integer, RxHttpClient> clients = new ConcurrentHashMap<>();
+
+    public PartitionClient(PartitionMap partitionMap) {
+        this.partitionMap = partitionMap;
+    }
+
+    /**
+     * @return the body of the response
+     * @throws PartitionRequestException if the instance answers with an error or doesn't answer
+     */
+    @NonNull
+    public <T> Optional<T> exchange(int instance, MutableHttpRequest<?> request,
+        Class<T> bodyType) {
+        try {
+            return getClient(instance).toBlocking()
+                .exchange(request, Argument.of(bodyType), Argument.of(ErrorResponse.class))
+                .getBody();
+        } catch (HttpClientResponseException e) {
+            var message = e.getResponse().getBody(ErrorResponse.class)
+                .map(ErrorResponse::getMessage)
+                .orElse(e.getMessage());
+            throw new PartitionRequestException(e.getStatus(), message, e);
+        } catch (HttpClientException e) {
+            throw new PartitionRequestException(HttpStatus.SERVICE_UNAVAILABLE,
+                "Instance " + instance + " is unavailable: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Sends a request that has no response body.
+     *
+     * @throws PartitionRequestException if the instance answers with an error or doesn't answer
+     */
+    public void send(int instance, MutableHttpRequest<?> request) {
+        exchange(instance, request, String.class);
+    }
+
+    @PreDestroy
+    void close() {
+        clients.values().forEach(RxHttpClient::close);
+    }
+
+    private RxHttpClient getClient(int instance) {
+        return clients.computeIfAbsent(instance, index -> {
+            try {
+                return RxHttpClient.create(new URL(partitionMap.getInstanceUrl(index)));
+            } catch (MalformedURLException e) {
+                throw new IllegalStateException(
+                    "Invalid URL of instance " + index + ": " + e.getMessage(), e);
+            }
+        });
+    }
+}
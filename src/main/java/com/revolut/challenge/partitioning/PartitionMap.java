@@ -0,0 +1,86 @@
+package com.revolut.challenge.partitioning;
+
+import io.micronaut.context.annotation.Value;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.Immutable;
+import javax.inject.Singleton;
+
+/**
+ * Tells which instance owns an account in the partitioned deployment mode.
+ *
+ * <p>The 32-bit hashes of the account IDs are split into as many equal ranges as there are
+ * instances in {@code partitioning.instances}, and every instance owns the accounts of one range
+ * and keeps them in its own database. All instances must be configured with the same list, each
+ * with its own {@code partitioning.instance-index} in it.
+ */
+@Singleton
+@Immutable
+@ParametersAreNonnullByDefault
+public class PartitionMap {
+
+    private final boolean enabled;
+    private final List<String> instanceUrls;
+    private final int instanceIndex;
+
+    public PartitionMap(
+        @Value("${partitioning.enabled:false}") boolean enabled,
+        @Value("${partitioning.instances:}") String[] instanceUrls,
+        @Value("${partitioning.instance-index:0}") int instanceIndex
+    ) {
+        this.enabled = enabled;
+        this.instanceUrls = Arrays.stream(instanceUrls)
+            .map(String::trim)
+            .filter(url -> !url.isEmpty())
+            .collect(Collectors.toUnmodifiableList());
+        this.instanceIndex = instanceIndex;
+        if (enabled && (instanceIndex < 0 || instanceIndex >= this.instanceUrls.size())) {
+            throw new IllegalArgumentException("Instance index " + instanceIndex
+                + " isn't in the list of " + this.instanceUrls.size() + " instances");
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getInstanceIndex() {
+        return instanceIndex;
+    }
+
+    public String getInstanceUrl(int instance) {
+        return instanceUrls.get(instance);
+    }
+
+    /**
+     * @return the index of the instance that owns the account, which is the local one unless
+     * the partitioning is enabled
+     */
+    public int ownerOf(UUID accountId) {
+        if (!enabled) {
+            return instanceIndex;
+        }
+        return (int) ((hash(accountId) & 0xFFFF_FFFFL) * instanceUrls.size() >>> 32);
+    }
+
+    public boolean isLocal(UUID accountId) {
+        return ownerOf(accountId) == instanceIndex;
+    }
+
+    /**
+     * The finalizer of MurmurHash3, so that the ranges stay even for IDs that aren't random.
+     */
+    private static int hash(UUID accountId) {
+        var hash = Long.hashCode(accountId.getMostSignificantBits())
+            ^ Long.hashCode(accountId.getLeastSignificantBits());
+        hash ^= hash >>> 16;
+        hash *= 0x85eb_ca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2_ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+}
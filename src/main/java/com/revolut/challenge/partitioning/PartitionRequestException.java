@@ -0,0 +1,28 @@
+package com.revolut.challenge.partitioning;
+
+import io.micronaut.http.HttpStatus;
+import javax.annotation.ParametersAreNonnullByDefault;
+
+/**
+ * Thrown when another instance answers a request with an error, or doesn't answer at all. The
+ * error is passed on to the client as is.
+ */
+@ParametersAreNonnullByDefault
+public class PartitionRequestException extends RuntimeException {
+
+    private final HttpStatus status;
+
+    public PartitionRequestException(HttpStatus status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    public PartitionRequestException(HttpStatus status, String message, Throwable cause) {
+        super(message, cause);
+        this.status = status;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+}
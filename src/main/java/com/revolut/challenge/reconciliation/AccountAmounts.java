@@ -0,0 +1,146 @@
+package com.revolut.challenge.reconciliation;
+
+import com.revolut.challenge.repositories.AccountAmountConsumer;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * A map from account IDs to amounts in cents, kept in primitive arrays with open addressing, so
+ * that millions of accounts take a few dozen bytes each and no objects per entry.
+ */
+@NotThreadSafe
+@ParametersAreNonnullByDefault
+final class AccountAmounts {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] msbs;
+    private long[] lsbs;
+    private long[] amounts;
+    private boolean[] used;
+    private int size;
+
+    AccountAmounts() {
+        this(MIN_CAPACITY);
+    }
+
+    private AccountAmounts(int capacity) {
+        msbs = new long[capacity];
+        lsbs = new long[capacity];
+        amounts = new long[capacity];
+        used = new boolean[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the amount of the account, 0 if it has none
+     */
+    long get(long msb, long lsb) {
+        var slot = findSlot(msbs, lsbs, used, msb, lsb);
+        return used[slot] ? amounts[slot] : 0;
+    }
+
+    void add(long msb, long lsb, long amount) {
+        var slot = findSlot(msbs, lsbs, used, msb, lsb);
+        if (used[slot]) {
+            amounts[slot] += amount;
+            return;
+        }
+        msbs[slot] = msb;
+        lsbs[slot] = lsb;
+        amounts[slot] = amount;
+        used[slot] = true;
+        //at most half full, so that the probe sequences stay short
+        if (++size > used.length / 2) {
+            grow();
+        }
+    }
+
+    /**
+     * Adds the amounts of the other map to this one.
+     */
+    void addAll(AccountAmounts other) {
+        other.forEach(this::add);
+    }
+
+    void forEach(AccountAmountConsumer consumer) {
+        for (int slot = 0; slot < used.length; slot++) {
+            if (used[slot]) {
+                consumer.accept(msbs[slot], lsbs[slot], amounts[slot]);
+            }
+        }
+    }
+
+    void writeTo(DataOutputStream output) throws IOException {
+        output.writeInt(size);
+        for (int slot = 0; slot < used.length; slot++) {
+            if (used[slot]) {
+                output.writeLong(msbs[slot]);
+                output.writeLong(lsbs[slot]);
+                output.writeLong(amounts[slot]);
+            }
+        }
+    }
+
+    static AccountAmounts readFrom(DataInputStream input) throws IOException {
+        var size = input.readInt();
+        var accountAmounts = new AccountAmounts(
+            Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, size)) << 2));
+        for (int i = 0; i < size; i++) {
+            accountAmounts.add(input.readLong(), input.readLong(), input.readLong());
+        }
+        return accountAmounts;
+    }
+
+    private void grow() {
+        var oldMsbs = msbs;
+        var oldLsbs = lsbs;
+        var oldAmounts = amounts;
+        var oldUsed = used;
+        var capacity = oldUsed.length * 2;
+        msbs = new long[capacity];
+        lsbs = new long[capacity];
+        amounts = new long[capacity];
+        used = new boolean[capacity];
+        for (int oldSlot = 0; oldSlot < oldUsed.length; oldSlot++) {
+            if (oldUsed[oldSlot]) {
+                var slot = findSlot(msbs, lsbs, used, oldMsbs[oldSlot], oldLsbs[oldSlot]);
+                msbs[slot] = oldMsbs[oldSlot];
+                lsbs[slot] = oldLsbs[oldSlot];
+                amounts[slot] = oldAmounts[oldSlot];
+                used[slot] = true;
+            }
+        }
+    }
+
+    /**
+     * @return the slot of the account, or the free slot where it belongs
+     */
+    private static int findSlot(long[] msbs, long[] lsbs, boolean[] used, long msb, long lsb) {
+        var mask = used.length - 1;
+        var slot = hash(msb, lsb) & mask;
+        while (used[slot] && (msbs[slot] != msb || lsbs[slot] != lsb)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * The finalizer of MurmurHash3, since the IDs of the accounts aren't necessarily random.
+     */
+    private static int hash(long msb, long lsb) {
+        var hash = msb ^ lsb;
+        hash ^= hash >>> 33;
+        hash *= 0xff51_afd7_ed55_8ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ce_b9fe_1a85_ec53L;
+        hash ^= hash >>> 33;
+        return (int) hash;
+    }
+}
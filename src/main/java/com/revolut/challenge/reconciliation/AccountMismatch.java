@@ -0,0 +1,26 @@
+package com.revolut.challenge.reconciliation;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import javax.annotation.concurrent.Immutable;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * An account whose balance doesn't agree with its transfers.
+ */
+@Builder(toBuilder = true)
+@Data
+@Immutable
+public class AccountMismatch {
+
+    private final UUID accountId;
+    /**
+     * The balance less the opening balance.
+     */
+    private final BigDecimal balanceChange;
+    /**
+     * The net amount of the transfers to and from the account.
+     */
+    private final BigDecimal transferredAmount;
+}
@@ -0,0 +1,299 @@
+package com.revolut.challenge.reconciliation;
+
+import com.revolut.challenge.repositories.AccountFundsRepository;
+import com.revolut.challenge.repositories.PartitionTransferRepository;
+import com.revolut.challenge.repositories.TransferRepository;
+import com.revolut.challenge.repositories.archive.TransferArchive;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.scheduling.annotation.Scheduled;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.PreDestroy;
+import javax.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Periodically proves that every balance equals its opening balance plus the transfers to and
+ * from the account, including the archived and the journaled transfers and the credits of
+ * transfers between partitions.
+ *
+ * <p>The balances are read first, by a single statement, and the transfers up to the highest ID
+ * that exists at that moment are read afterwards, in ID ranges of {@code chunk-size}. The ranges
+ * are aggregated in parallel by a fork/join pool of {@code parallelism} threads into primitive
+ * maps, and the reading is throttled to {@code max-rows-per-second}, so that the job leaves
+ * enough connections, CPU and I/O to the transfers. The progress is saved to a checkpoint file
+ * every {@code checkpoint-interval}, and an interrupted run continues from there.
+ *
+ * <p>A transfer that is being committed while the balances are read is seen by the scan but not
+ * in the balances, so its accounts look wrong in that run. An account is only reported once it
+ * has looked wrong in two runs in a row.
+ *
+ * <p>The opening balances were backfilled by the V6 migration from the transfer table alone, so
+ * the transfers that had been archived before the migration are part of them. Such segments
+ * would be counted twice, and the job refuses to run while there are any.
+ */
+@Slf4j
+@Singleton
+@ParametersAreNonnullByDefault
+@Requires(property = "reconciliation.enabled", value = "true")
+public class LedgerReconciliation {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final int STEPS_PER_THREAD = 4;
+
+    private final AccountFundsRepository accountFundsRepository;
+    private final TransferRepository transferRepository;
+    private final PartitionTransferRepository partitionTransferRepository;
+    private final TransferArchive transferArchive;
+    private final int chunkSize;
+    private final int parallelism;
+    private final long maxRowsPerSecond;
+    private final Duration checkpointInterval;
+    private final Path checkpointFile;
+    private final ForkJoinPool pool;
+    private final AtomicLong nextReadNanos = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicInteger mismatchCount;
+
+    //guarded by this
+    private Set<UUID> previousSuspects = Set.of();
+    private volatile ReconciliationReport latestReport;
+
+    public LedgerReconciliation(
+        AccountFundsRepository accountFundsRepository,
+        TransferRepository transferRepository,
+        PartitionTransferRepository partitionTransferRepository,
+        TransferArchive transferArchive,
+        MeterRegistry meterRegistry,
+        @Value("${reconciliation.chunk-size:100000}") int chunkSize,
+        @Value("${reconciliation.parallelism:2}") int parallelism,
+        @Value("${reconciliation.max-rows-per-second:1000000}") long maxRowsPerSecond,
+        @Value("${reconciliation.checkpoint-interval:1m}") Duration checkpointInterval,
+        @Value("${reconciliation.directory:reconciliation}") String directory,
+        @Value("${partitioning.enabled:false}") boolean partitioned,
+        @Value("${partitioning.instance-index:0}") int instanceIndex
+    ) {
+        this.accountFundsRepository = accountFundsRepository;
+        this.transferRepository = transferRepository;
+        this.partitionTransferRepository = partitionTransferRepository;
+        this.transferArchive = transferArchive;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.maxRowsPerSecond = maxRowsPerSecond;
+        this.checkpointInterval = checkpointInterval;
+        //the instances of a partitioned deployment may share a host, but not their checkpoints
+        this.checkpointFile = partitioned
+            ? Path.of(directory, "instance-" + instanceIndex, "checkpoint.bin")
+            : Path.of(directory, "checkpoint.bin");
+        this.pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+            var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("reconciliation-" + thread.getPoolIndex());
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }, null, false);
+        mismatchCount = meterRegistry.gauge("reconciliation.mismatches", new AtomicInteger());
+    }
+
+    @NonNull
+    public Optional<ReconciliationReport> getLatestReport() {
+        return Optional.ofNullable(latestReport);
+    }
+
+    @Scheduled(
+        fixedDelay = "${reconciliation.interval:1h}",
+        initialDelay = "${reconciliation.initial-delay:5m}"
+    )
+    void run() {
+        reconcile();
+    }
+
+    @NonNull
+    synchronized ReconciliationReport reconcile() {
+        checkNoSegmentsBeforeOpeningBalances();
+        var startedAt = LocalDateTime.now(ZoneId.of("UTC"));
+        var checkpoint = ReconciliationCheckpoint.load(checkpointFile);
+        var movements = checkpoint.map(ReconciliationCheckpoint::getMovements)
+            .orElseGet(AccountAmounts::new);
+        var transfersScanned = checkpoint.map(ReconciliationCheckpoint::getTransfersScanned)
+            .orElse(0L);
+        var fromId = checkpoint.map(ReconciliationCheckpoint::getNextTransferId).orElse(0L);
+        checkpoint.ifPresent(saved -> log.info("Resuming the reconciliation from transfer {}",
+            saved.getNextTransferId()));
+
+        //the balances must be read before the last transfer ID, see the class comment
+        var balanceChanges = new AccountAmounts();
+        accountFundsRepository.forEachNetBalanceChange(balanceChanges::add);
+        var maxTransferId = Math.max(transferRepository.getMaxId(), transferArchive.getMaxId());
+
+        var stepSize = (long) chunkSize * parallelism * STEPS_PER_THREAD;
+        var checkpointedAt = System.nanoTime();
+        while (fromId <= maxTransferId) {
+            var toId = Math.min(maxTransferId + 1, fromId + stepSize);
+            var step = pool.invoke(new ScanTask(fromId, toId));
+            movements.addAll(step.movements);
+            transfersScanned += step.transferCount;
+            fromId = toId;
+            if (System.nanoTime() - checkpointedAt >= checkpointInterval.toNanos()) {
+                new ReconciliationCheckpoint(fromId, transfersScanned, movements)
+                    .save(checkpointFile);
+                checkpointedAt = System.nanoTime();
+            }
+        }
+        //the recipient side of a transfer between partitions has no transfer row
+        partitionTransferRepository.forEachCommittedCredit(movements::add);
+
+        var suspects = new HashSet<UUID>();
+        var mismatches = new ArrayList<AccountMismatch>();
+        balanceChanges.forEach((msb, lsb, balanceChange) -> {
+            var transferredAmount = movements.get(msb, lsb);
+            if (transferredAmount != balanceChange) {
+                var accountId = new UUID(msb, lsb);
+                suspects.add(accountId);
+                if (previousSuspects.contains(accountId)) {
+                    mismatches.add(AccountMismatch.builder()
+                        .accountId(accountId)
+                        .balanceChange(BigDecimal.valueOf(balanceChange, 2))
+                        .transferredAmount(BigDecimal.valueOf(transferredAmount, 2))
+                        .build());
+                }
+            }
+        });
+        previousSuspects = suspects;
+        ReconciliationCheckpoint.delete(checkpointFile);
+
+        var report = ReconciliationReport.builder()
+            .startedAt(startedAt)
+            .completedAt(LocalDateTime.now(ZoneId.of("UTC")))
+            .resumed(checkpoint.isPresent())
+            .maxTransferId(maxTransferId)
+            .transfersScanned(transfersScanned)
+            .accountsChecked(balanceChanges.size())
+            .suspectCount(suspects.size())
+            .mismatches(List.copyOf(mismatches))
+            .build();
+        latestReport = report;
+        mismatchCount.set(mismatches.size());
+        for (var mismatch : mismatches) {
+            log.warn("The balance of account {} has changed by {} but its transfers add up to {}",
+                mismatch.getAccountId(), mismatch.getBalanceChange(),
+                mismatch.getTransferredAmount());
+        }
+        log.info("Reconciled {} accounts against {} transfers: {} suspects, {} mismatches",
+            report.getAccountsChecked(), transfersScanned, suspects.size(), mismatches.size());
+        return report;
+    }
+
+    private void checkNoSegmentsBeforeOpeningBalances() {
+        var backfilledAt = accountFundsRepository.getOpeningBalancesBackfilledAt();
+        var oldestSegmentWrittenAt = transferArchive.getOldestSegmentWrittenAt();
+        if (backfilledAt.isPresent() && oldestSegmentWrittenAt.isPresent()
+            && oldestSegmentWrittenAt.get().isBefore(backfilledAt.get())) {
+            throw new IllegalStateException("The transfer archive has segments written before "
+                + "the opening balances were backfilled at " + backfilledAt.get()
+                + ", their transfers would be counted twice");
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Waits until reading the rows fits into the rate limit. The rows are paid for after they
+     * have been read, so a burst of one chunk per thread is possible.
+     */
+    private void throttle(long rows) {
+        if (maxRowsPerSecond <= 0 || rows == 0) {
+            return;
+        }
+        var cost = rows * NANOS_PER_SECOND / maxRowsPerSecond;
+        var now = System.nanoTime();
+        var previous = nextReadNanos.getAndAccumulate(cost,
+            (next, readCost) -> Math.max(next, now) + readCost);
+        if (previous > now) {
+            LockSupport.parkNanos(previous - now);
+        }
+    }
+
+    private final class ScanTask extends RecursiveTask<ScanResult> {
+
+        private final long fromId;
+        private final long toId;
+
+        private ScanTask(long fromId, long toId) {
+            this.fromId = fromId;
+            this.toId = toId;
+        }
+
+        @Override
+        protected ScanResult compute() {
+            if (toId - fromId <= chunkSize) {
+                return scan();
+            }
+            var middle = fromId + (toId - fromId) / 2;
+            var left = new ScanTask(fromId, middle);
+            left.fork();
+            var right = new ScanTask(middle, toId).compute();
+            return left.join().merge(right);
+        }
+
+        private ScanResult scan() {
+            var result = new ScanResult();
+            var archivedIds = transferArchive.forEachMovement(fromId, toId, result::add);
+            //a transfer stays in the table for a while after it has been archived
+            transferRepository.forEachMovement(fromId, toId,
+                (id, senderMsb, senderLsb, recipientMsb, recipientLsb, amountCents) -> {
+                    if (Arrays.binarySearch(archivedIds, id) < 0) {
+                        result.add(id, senderMsb, senderLsb, recipientMsb, recipientLsb,
+                            amountCents);
+                    }
+                });
+            throttle(result.transferCount);
+            return result;
+        }
+    }
+
+    private static final class ScanResult {
+
+        private AccountAmounts movements = new AccountAmounts();
+        private long transferCount;
+
+        private void add(long transferId, long senderMsb, long senderLsb, long recipientMsb,
+            long recipientLsb, long amountCents) {
+            movements.add(senderMsb, senderLsb, -amountCents);
+            movements.add(recipientMsb, recipientLsb, amountCents);
+            transferCount++;
+        }
+
+        private ScanResult merge(ScanResult other) {
+            if (other.movements.size() > movements.size()) {
+                other.movements.addAll(movements);
+                movements = other.movements;
+            } else {
+                movements.addAll(other.movements);
+            }
+            transferCount += other.transferCount;
+            return this;
+        }
+    }
+}
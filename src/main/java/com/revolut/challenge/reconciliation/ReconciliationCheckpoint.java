@@ -0,0 +1,80 @@
+package com.revolut.challenge.reconciliation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import javax.annotation.ParametersAreNonnullByDefault;
+import lombok.Getter;
+
+/**
+ * The progress of a reconciliation run: the transfer ID to continue from and the net movements
+ * of the accounts so far. It is written under a temporary name first, so a partially written
+ * checkpoint is never read.
+ */
+@Getter
+@ParametersAreNonnullByDefault
+final class ReconciliationCheckpoint {
+
+    private static final int MAGIC = 0x52435031; //RCP1
+
+    private final long nextTransferId;
+    private final long transfersScanned;
+    private final AccountAmounts movements;
+
+    ReconciliationCheckpoint(long nextTransferId, long transfersScanned,
+        AccountAmounts movements) {
+        this.nextTransferId = nextTransferId;
+        this.transfersScanned = transfersScanned;
+        this.movements = movements;
+    }
+
+    void save(Path file) {
+        var temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            try (var output = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+                output.writeInt(MAGIC);
+                output.writeLong(nextTransferId);
+                output.writeLong(transfersScanned);
+                movements.writeTo(output);
+            }
+            Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write reconciliation checkpoint " + file, e);
+        }
+    }
+
+    static Optional<ReconciliationCheckpoint> load(Path file) {
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        try (var input = new DataInputStream(
+            new BufferedInputStream(Files.newInputStream(file)))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException("Not a reconciliation checkpoint");
+            }
+            return Optional.of(new ReconciliationCheckpoint(input.readLong(), input.readLong(),
+                AccountAmounts.readFrom(input)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read reconciliation checkpoint " + file, e);
+        }
+    }
+
+    static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(
+                "Failed to delete reconciliation checkpoint " + file, e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.revolut.challenge.reconciliation;
+
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.management.endpoint.annotation.Endpoint;
+import io.micronaut.management.endpoint.annotation.Read;
+import lombok.AllArgsConstructor;
+
+/**
+ * {@code GET /reconciliation} returns the report of the latest completed reconciliation run.
+ */
+@Endpoint(id = "reconciliation")
+@Requires(property = "reconciliation.enabled", value = "true")
+@AllArgsConstructor
+public class ReconciliationEndpoint {
+
+    private final LedgerReconciliation ledgerReconciliation;
+
+    @Read
+    public ReconciliationReport getLatestReport() {
+        return ledgerReconciliation.getLatestReport().orElse(null);
+    }
+}
@@ -0,0 +1,37 @@
+package com.revolut.challenge.reconciliation;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import javax.annotation.concurrent.Immutable;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * The outcome of a reconciliation run.
+ */
+@Builder(toBuilder = true)
+@Data
+@Immutable
+public class ReconciliationReport {
+
+    private final LocalDateTime startedAt;
+    private final LocalDateTime completedAt;
+    /**
+     * Whether the run continued from the checkpoint of an interrupted one.
+     */
+    private final boolean resumed;
+    /**
+     * The highest transfer ID covered by the run.
+     */
+    private final long maxTransferId;
+    private final long transfersScanned;
+    private final int accountsChecked;
+    /**
+     * The accounts that didn't agree with their transfers in this run, confirmed or not.
+     */
+    private final int suspectCount;
+    /**
+     * The accounts that didn't agree with their transfers in this run and in the previous one.
+     */
+    private final List<AccountMismatch> mismatches;
+}
@@ -0,0 +1,11 @@
+package com.revolut.challenge.repositories;
+
+/**
+ * Receives an amount of an account, the account ID being split into its two halves so that
+ * large tables can be streamed without allocating a {@link java.util.UUID} per row.
+ */
+@FunctionalInterface
+public interface AccountAmountConsumer {
+
+    void accept(long accountIdMsb, long accountIdLsb, long amountCents);
+}
@@ -0,0 +1,62 @@
+package com.revolut.challenge.repositories;
+
+import com.revolut.challenge.repositories.index.OffHeapAccountIndex;
+import com.revolut.challenge.service.model.AccountFunds;
+import io.micronaut.context.annotation.Value;
+import java.util.Optional;
+import java.util.UUID;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps the accounts read by {@link AccountFundsRepository} in an {@link OffHeapAccountIndex}.
+ *
+ * <p>Only committed rows are cached: the repository never reads an account after updating its
+ * balance in the same transaction. A newer version always replaces an older one, but the cached
+ * balance may still lag behind the database, so only the existence and the currency of an
+ * account, which never change, can be relied upon.
+ */
+@Slf4j
+@Singleton
+@ParametersAreNonnullByDefault
+class AccountFundsCache {
+
+    //null if disabled
+    private final OffHeapAccountIndex index;
+
+    AccountFundsCache(
+        @Value("${account-index.enabled:false}") boolean enabled,
+        @Value("${account-index.expected-accounts:1000000}") long expectedAccounts
+    ) {
+        if (enabled) {
+            index = OffHeapAccountIndex.withExpectedAccounts(expectedAccounts);
+            log.info("The account index takes {} bytes off heap for {} accounts",
+                index.getMemoryFootprint(), index.getCapacity());
+        } else {
+            index = null;
+        }
+    }
+
+    Optional<AccountFunds> get(UUID accountId) {
+        return index == null ? Optional.empty() : Optional.ofNullable(index.get(accountId));
+    }
+
+    void update(AccountFunds accountFunds) {
+        if (index != null) {
+            index.putIfNewer(accountFunds);
+        }
+    }
+
+    void remove(UUID accountId) {
+        if (index != null) {
+            index.remove(accountId);
+        }
+    }
+
+    void clear() {
+        if (index != null) {
+            index.clear();
+        }
+    }
+}
@@ -1,26 +1,47 @@
 package com.revolut.challenge.repositories;
 
+import com.revolut.challenge.jfr.AccountLockEvent;
+import com.revolut.challenge.jfr.RecordedRepository;
 import com.revolut.challenge.service.model.AccountFunds;
 import edu.umd.cs.findbugs.annotations.NonNull;
+import io.micronaut.data.exceptions.DataAccessException;
 import io.micronaut.data.jdbc.runtime.JdbcOperations;
 import io.micronaut.validation.Validated;
 import java.math.BigDecimal;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import javax.annotation.ParametersAreNonnullByDefault;
 import javax.transaction.Transactional;
 import javax.validation.Valid;
 
 @ParametersAreNonnullByDefault
 @Validated
+@RecordedRepository
 public class AccountFundsRepository {
 
+    private static final int H2_CONCURRENT_UPDATE_ERROR_CODE = 90131;
+
     private final JdbcOperations jdbcOperations;
+    private final AccountFundsCache accountFundsCache;
 
-    public AccountFundsRepository(JdbcOperations jdbcOperations) {
+    public AccountFundsRepository(
+        JdbcOperations jdbcOperations,
+        AccountFundsCache accountFundsCache
+    ) {
         this.jdbcOperations = jdbcOperations;
+        this.accountFundsCache = accountFundsCache;
     }
 
     //for testing
@@ -28,11 +49,13 @@ public class AccountFundsRepository {
     @Transactional(rollbackOn = Exception.class)
     public AccountFunds save(@Valid AccountFunds accountFunds) {
         jdbcOperations.prepareStatement(
-            "INSERT INTO account_funds (account_id, balance, currency) VALUES (?, ?, ?)",
+            "INSERT INTO account_funds (account_id, balance, currency, opening_balance) "
+                + "VALUES (?, ?, ?, ?)",
             statement -> {
                 statement.setString(1, accountFunds.getAccountId().toString());
                 statement.setBigDecimal(2, accountFunds.getBalance());
                 statement.setString(3, accountFunds.getCurrency());
+                statement.setBigDecimal(4, accountFunds.getBalance());
                 return statement.executeUpdate();
             });
         return accountFunds;
@@ -49,8 +72,38 @@ public class AccountFundsRepository {
                 if (!resultSet.next()) {
                     throw new AccountFundsNotFoundException(accountId);
                 }
-                return buildAccountFunds(resultSet);
+                return readAccountFunds(resultSet);
+            });
+    }
+
+    /**
+     * Reads the account from the account index if it's enabled and holds the account. The
+     * balance of a cached account may be stale, only its currency is guaranteed to be accurate.
+     */
+    @NonNull
+    public AccountFunds getCachedById(UUID accountId) {
+        return accountFundsCache.get(accountId).orElseGet(() -> getById(accountId));
+    }
+
+    /**
+     * Locks the account and reads it.
+     */
+    @NonNull
+    @Transactional(rollbackOn = Exception.class)
+    public AccountFunds getByIdForUpdate(UUID accountId) {
+        var lockEvent = AccountLockEvent.begin(List.of(accountId));
+        var accountFunds = jdbcOperations.prepareStatement(
+            "SELECT * FROM account_funds WHERE account_id = ? FOR UPDATE",
+            statement -> {
+                statement.setString(1, accountId.toString());
+                var resultSet = statement.executeQuery();
+                if (!resultSet.next()) {
+                    throw new AccountFundsNotFoundException(accountId);
+                }
+                return readAccountFunds(resultSet);
             });
+        lockEvent.complete();
+        return accountFunds;
     }
 
     @Transactional(rollbackOn = Exception.class)
@@ -58,9 +111,23 @@ public class AccountFundsRepository {
         UUID senderAccountId,
         UUID recipientAccountId,
         BigDecimal amount
+    ) {
+        return transferFunds(senderAccountId, recipientAccountId, amount, () -> BigDecimal.ZERO);
+    }
+
+    /**
+     * @param senderReservedFunds the part of the sender balance that can't be spent, it is read
+     * once the accounts are locked
+     */
+    @Transactional(rollbackOn = Exception.class)
+    public boolean transferFunds(
+        UUID senderAccountId,
+        UUID recipientAccountId,
+        BigDecimal amount,
+        Supplier<BigDecimal> senderReservedFunds
     ) {
         selectForUpdate(senderAccountId, recipientAccountId);
-        if (!senderHasEnoughFunds(senderAccountId, amount)) {
+        if (!senderHasEnoughFunds(senderAccountId, amount.add(senderReservedFunds.get()))) {
             return false;
         }
         creditTheSenderAccount(senderAccountId, amount);
@@ -68,14 +135,225 @@ public class AccountFundsRepository {
         return true;
     }
 
+    /**
+     * Locks the accounts with a single statement, in the order of their IDs, so that concurrent
+     * transfers over overlapping sets of accounts can't deadlock each other.
+     *
+     * @return the locked accounts by their IDs
+     */
+    @NonNull
+    @Transactional(rollbackOn = Exception.class)
+    public Map<UUID, AccountFunds> getAllForUpdate(Collection<UUID> accountIds) {
+        return getAll(accountIds, true);
+    }
+
+    /**
+     * Reads the accounts without locking them.
+     *
+     * @return the accounts that exist, by their IDs
+     */
+    @NonNull
+    @Transactional(rollbackOn = Exception.class)
+    public Map<UUID, AccountFunds> findAll(Collection<UUID> accountIds) {
+        return selectAll(accountIds, false);
+    }
+
+    /**
+     * Transfers the funds without locking the accounts: the balances are read first, and then
+     * each of them is updated only if its version hasn't changed in the meantime.
+     *
+     * @param senderReservedFunds the part of the sender balance that can't be spent
+     * @return false if the sender doesn't have enough funds
+     * @throws ConcurrentBalanceUpdateException if any of the accounts has been updated
+     * concurrently, in which case the transaction must be rolled back
+     */
+    @Transactional(rollbackOn = Exception.class)
+    public boolean transferFundsOptimistically(
+        UUID senderAccountId,
+        UUID recipientAccountId,
+        BigDecimal amount,
+        BigDecimal senderReservedFunds
+    ) {
+        var accounts = getAll(List.of(senderAccountId, recipientAccountId), false);
+        var senderAccount = accounts.get(senderAccountId);
+        if (amount.add(senderReservedFunds).compareTo(senderAccount.getAvailableBalance()) > 0) {
+            return false;
+        }
+        var balanceChanges = new HashMap<UUID, BigDecimal>();
+        balanceChanges.merge(senderAccountId, amount.negate(), BigDecimal::add);
+        balanceChanges.merge(recipientAccountId, amount, BigDecimal::add);
+        //in the order of the account IDs, like the locks of multi-leg transfers
+        for (var account : accounts.values()) {
+            compareAndSetBalance(account, balanceChanges.get(account.getAccountId()));
+        }
+        return true;
+    }
+
+    private Map<UUID, AccountFunds> getAll(Collection<UUID> accountIds, boolean forUpdate) {
+        var accounts = selectAll(accountIds, forUpdate);
+        for (var accountId : accountIds) {
+            if (!accounts.containsKey(accountId)) {
+                throw new AccountFundsNotFoundException(accountId);
+            }
+        }
+        return accounts;
+    }
+
+    private Map<UUID, AccountFunds> selectAll(Collection<UUID> accountIds, boolean forUpdate) {
+        var sortedAccountIds = accountIds.stream()
+            .map(UUID::toString)
+            .distinct()
+            .sorted()
+            .collect(Collectors.toList());
+        var lockEvent = forUpdate ? AccountLockEvent.begin(accountIds) : null;
+        var accounts = jdbcOperations.prepareStatement(
+            "SELECT * FROM account_funds WHERE account_id IN ("
+                + String.join(", ", Collections.nCopies(sortedAccountIds.size(), "?"))
+                + ") ORDER BY account_id" + (forUpdate ? " FOR UPDATE" : ""),
+            statement -> {
+                for (int i = 0; i < sortedAccountIds.size(); i++) {
+                    statement.setString(i + 1, sortedAccountIds.get(i));
+                }
+                var resultSet = statement.executeQuery();
+                var result = new LinkedHashMap<UUID, AccountFunds>();
+                while (resultSet.next()) {
+                    var accountFunds = readAccountFunds(resultSet);
+                    result.put(accountFunds.getAccountId(), accountFunds);
+                }
+                return result;
+            });
+        if (lockEvent != null) {
+            lockEvent.complete();
+        }
+        return accounts;
+    }
+
+    /**
+     * Adds the amounts to the balances of the accounts in one batch. The accounts are expected
+     * to be locked already.
+     */
+    @Transactional(rollbackOn = Exception.class)
+    public void updateBalances(Map<UUID, BigDecimal> balanceChanges) {
+        var changes = List.copyOf(balanceChanges.entrySet());
+        var updateCounts = jdbcOperations.prepareStatement(
+            "UPDATE account_funds SET balance = balance + ?, version = version + 1 "
+                + "WHERE account_id = ?",
+            statement -> {
+                for (var change : changes) {
+                    statement.setBigDecimal(1, change.getValue());
+                    statement.setString(2, change.getKey().toString());
+                    statement.addBatch();
+                }
+                return statement.executeBatch();
+            });
+        for (int i = 0; i < changes.size(); i++) {
+            if (updateCounts[i] < 1) {
+                throw new AccountFundsNotFoundException(changes.get(i).getKey());
+            }
+        }
+    }
+
+    /**
+     * Reserves the amount by a single statement, if the available balance covers it. The version
+     * is incremented, so that optimistic transfers from the account notice the hold.
+     *
+     * @return false if the account doesn't exist or its available balance is too low
+     */
+    @Transactional(rollbackOn = Exception.class)
+    public boolean hold(UUID accountId, BigDecimal amount) {
+        return jdbcOperations.prepareStatement(
+            "UPDATE account_funds SET held = held + ?, version = version + 1 "
+                + "WHERE account_id = ? AND balance - held >= ?",
+            statement -> {
+                statement.setBigDecimal(1, amount);
+                statement.setString(2, accountId.toString());
+                statement.setBigDecimal(3, amount);
+                return statement.executeUpdate() > 0;
+            });
+    }
+
+    /**
+     * Releases the held amount and debits the captured part of it, if any. The held funds are
+     * known to cover the debit, so the balance isn't checked.
+     */
+    @Transactional(rollbackOn = Exception.class)
+    public void releaseHold(UUID accountId, BigDecimal heldAmount, BigDecimal capturedAmount) {
+        if (jdbcOperations.prepareStatement(
+            "UPDATE account_funds "
+                + "SET balance = balance - ?, held = held - ?, version = version + 1 "
+                + "WHERE account_id = ?",
+            statement -> {
+                statement.setBigDecimal(1, capturedAmount);
+                statement.setBigDecimal(2, heldAmount);
+                statement.setString(3, accountId.toString());
+                return statement.executeUpdate();
+            }) < 1) {
+            throw new AccountFundsNotFoundException(accountId);
+        }
+    }
+
+    /**
+     * Streams how much the balance of every account differs from its opening balance, i.e. the net
+     * amount transferred to it. All accounts are read by a single statement, so they are a
+     * consistent snapshot.
+     */
+    @Transactional(rollbackOn = Exception.class)
+    public void forEachNetBalanceChange(AccountAmountConsumer consumer) {
+        jdbcOperations.prepareStatement(
+            "SELECT account_id, CAST((balance - opening_balance) * 100 AS BIGINT) AS change_cents "
+                + "FROM account_funds",
+            statement -> {
+                var resultSet = statement.executeQuery();
+                while (resultSet.next()) {
+                    var accountId = UUID.fromString(resultSet.getString("account_id"));
+                    consumer.accept(accountId.getMostSignificantBits(),
+                        accountId.getLeastSignificantBits(), resultSet.getLong("change_cents"));
+                }
+                return null;
+            });
+    }
+
+    /**
+     * @return when the opening balances were backfilled by the V6 migration, empty if the
+     * migration history doesn't tell
+     */
+    @NonNull
+    @Transactional(rollbackOn = Exception.class)
+    public Optional<Instant> getOpeningBalancesBackfilledAt() {
+        return jdbcOperations.prepareStatement(
+            "SELECT \"installed_on\" FROM \"flyway_schema_history\" "
+                + "WHERE \"version\" = '6' AND \"success\"",
+            statement -> {
+                var resultSet = statement.executeQuery();
+                return resultSet.next()
+                    ? Optional.of(resultSet.getTimestamp("installed_on").toInstant())
+                    : Optional.<Instant>empty();
+            });
+    }
+
+    /**
+     * Deletes an account that has no transfers, such as a scratch account of the warm-up.
+     */
+    @Transactional(rollbackOn = Exception.class)
+    public void delete(UUID accountId) {
+        jdbcOperations.prepareStatement("DELETE FROM account_funds WHERE account_id = ?",
+            statement -> {
+                statement.setString(1, accountId.toString());
+                return statement.executeUpdate();
+            });
+        accountFundsCache.remove(accountId);
+    }
+
     //for testing
     @Transactional(rollbackOn = Exception.class)
     public void deleteAll() {
         jdbcOperations.prepareStatement("DELETE FROM account_funds",
             PreparedStatement::executeUpdate);
+        accountFundsCache.clear();
     }
 
     private void selectForUpdate(UUID senderAccountId, UUID recipientAccountId) {
+        var lockEvent = AccountLockEvent.begin(List.of(senderAccountId, recipientAccountId));
         jdbcOperations.prepareStatement(
             "SELECT account_id FROM account_funds WHERE account_id = ? OR account_id = ? FOR UPDATE",
             statement -> {
@@ -84,11 +362,50 @@ public class AccountFundsRepository {
                 return statement.executeQuery();
             }
         );
+        lockEvent.complete();
+    }
+
+    private void compareAndSetBalance(AccountFunds account, BigDecimal balanceChange) {
+        int updateCount;
+        try {
+            updateCount = jdbcOperations.prepareStatement(
+                "UPDATE account_funds SET balance = balance + ?, version = version + 1 "
+                    + "WHERE account_id = ? AND version = ?",
+                statement -> {
+                    statement.setBigDecimal(1, balanceChange);
+                    statement.setString(2, account.getAccountId().toString());
+                    statement.setLong(3, account.getVersion());
+                    return statement.executeUpdate();
+                });
+        } catch (DataAccessException e) {
+            if (isConcurrentUpdate(e)) {
+                throw new ConcurrentBalanceUpdateException(account.getAccountId(), e);
+            }
+            throw e;
+        }
+        if (updateCount < 1) {
+            throw new ConcurrentBalanceUpdateException(account.getAccountId(), null);
+        }
+    }
+
+    /**
+     * H2 reports a concurrent update of the same row instead of waiting for the row lock
+     * sometimes.
+     */
+    private static boolean isConcurrentUpdate(Throwable e) {
+        for (var cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException
+                && ((SQLException) cause).getErrorCode() == H2_CONCURRENT_UPDATE_ERROR_CODE) {
+                return true;
+            }
+        }
+        return false;
     }
 
     private void debitTheRecipientAccount(UUID recipientAccountId, BigDecimal amount) {
         if (jdbcOperations.prepareStatement(
-            "UPDATE account_funds SET balance = balance + ? WHERE account_id = ?",
+            "UPDATE account_funds SET balance = balance + ?, version = version + 1 "
+                + "WHERE account_id = ?",
             statement -> {
                 statement.setBigDecimal(1, amount);
                 statement.setString(2, recipientAccountId.toString());
@@ -100,7 +417,8 @@ public class AccountFundsRepository {
 
     private void creditTheSenderAccount(UUID senderAccountId, BigDecimal amount) {
         if (jdbcOperations.prepareStatement(
-            "UPDATE account_funds SET balance = balance - ? WHERE account_id = ?",
+            "UPDATE account_funds SET balance = balance - ?, version = version + 1 "
+                + "WHERE account_id = ?",
             statement -> {
                 statement.setBigDecimal(1, amount);
                 statement.setString(2, senderAccountId.toString());
@@ -111,7 +429,17 @@ public class AccountFundsRepository {
     }
 
     private boolean senderHasEnoughFunds(UUID senderAccountId, BigDecimal transferAmount) {
-        return transferAmount.compareTo(getById(senderAccountId).getBalance()) <= 0;
+        return transferAmount.compareTo(getById(senderAccountId).getAvailableBalance()) <= 0;
+    }
+
+    /**
+     * Every row is read before the balance is updated in the same transaction, so the cached
+     * rows are always committed ones.
+     */
+    private AccountFunds readAccountFunds(ResultSet resultSet) throws SQLException {
+        var accountFunds = buildAccountFunds(resultSet);
+        accountFundsCache.update(accountFunds);
+        return accountFunds;
     }
 
     private static AccountFunds buildAccountFunds(ResultSet resultSet) throws SQLException {
@@ -119,6 +447,8 @@ public class AccountFundsRepository {
             .accountId(UUID.fromString(resultSet.getString("account_id")))
             .balance(resultSet.getBigDecimal("balance"))
             .currency(resultSet.getString("currency"))
+            .version(resultSet.getLong("version"))
+            .held(resultSet.getBigDecimal("held"))
             .build();
     }
 }
@@ -0,0 +1,23 @@
+package com.revolut.challenge.repositories;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+import io.micronaut.data.exceptions.DataAccessException;
+import java.util.UUID;
+import javax.annotation.ParametersAreNonnullByDefault;
+import lombok.Getter;
+
+/**
+ * Thrown if the balance of an account has been updated by another transaction since it was
+ * read.
+ */
+@ParametersAreNonnullByDefault
+public class ConcurrentBalanceUpdateException extends DataAccessException {
+
+    @Getter
+    private final UUID accountId;
+
+    public ConcurrentBalanceUpdateException(UUID accountId, @Nullable Throwable cause) {
+        super("The balance of account " + accountId + " has been updated concurrently", cause);
+        this.accountId = accountId;
+    }
+}
@@ -0,0 +1,190 @@
+package com.revolut.challenge.repositories;
+
+import com.revolut.challenge.jfr.RecordedRepository;
+import com.revolut.challenge.service.model.DailyRollup;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import io.micronaut.data.jdbc.runtime.JdbcOperations;
+import io.micronaut.validation.Validated;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.transaction.Transactional;
+
+/**
+ * The funds received and sent by every account per day, so that reports read a row per day
+ * instead of every transfer.
+ */
+@ParametersAreNonnullByDefault
+@Validated
+@RecordedRepository
+public class DailyRollupRepository {
+
+    /**
+     * The journaled transfers that aren't in the transfer table yet.
+     */
+    private static final String JOURNAL_ONLY = "(SELECT * FROM transfer_journal j "
+        + "WHERE NOT EXISTS (SELECT 1 FROM transfer t WHERE t.id = j.id))";
+
+    private final JdbcOperations jdbcOperations;
+
+    public DailyRollupRepository(JdbcOperations jdbcOperations) {
+        this.jdbcOperations = jdbcOperations;
+    }
+
+    /**
+     * Adds the deltas to the stored rollups in two batches: the existing rows are updated first,
+     * and the rest are inserted. The deltas must be for distinct accounts and days.
+     */
+    @Transactional(rollbackOn = Exception.class)
+    public void add(List<DailyRollup> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        var updateCounts = jdbcOperations.prepareStatement(
+            "UPDATE daily_account_rollup "
+                + "SET inflow = inflow + ?, outflow = outflow + ?, "
+                + "transfer_count = transfer_count + ? "
+                + "WHERE account_id = ? AND rollup_day = ?",
+            statement -> {
+                for (var delta : deltas) {
+                    statement.setBigDecimal(1, delta.getInflow());
+                    statement.setBigDecimal(2, delta.getOutflow());
+                    statement.setLong(3, delta.getTransferCount());
+                    statement.setString(4, delta.getAccountId().toString());
+                    statement.setDate(5, Date.valueOf(delta.getDay()));
+                    statement.addBatch();
+                }
+                return statement.executeBatch();
+            });
+        var newRollups = new ArrayList<DailyRollup>();
+        for (int i = 0; i < deltas.size(); i++) {
+            if (updateCounts[i] < 1) {
+                newRollups.add(deltas.get(i));
+            }
+        }
+        if (newRollups.isEmpty()) {
+            return;
+        }
+        jdbcOperations.prepareStatement(
+            "INSERT INTO daily_account_rollup ("
+                + "account_id, "
+                + "rollup_day, "
+                + "currency, "
+                + "inflow, "
+                + "outflow, "
+                + "transfer_count"
+                + ") VALUES (?, ?, ?, ?, ?, ?)",
+            statement -> {
+                for (var rollup : newRollups) {
+                    statement.setString(1, rollup.getAccountId().toString());
+                    statement.setDate(2, Date.valueOf(rollup.getDay()));
+                    statement.setString(3, rollup.getCurrency());
+                    statement.setBigDecimal(4, rollup.getInflow());
+                    statement.setBigDecimal(5, rollup.getOutflow());
+                    statement.setLong(6, rollup.getTransferCount());
+                    statement.addBatch();
+                }
+                return statement.executeBatch();
+            });
+    }
+
+    /**
+     * @return the rollups of the days from {@code fromDay} to {@code toDay}, both included, on
+     * which the account has received or sent funds, in the order of the days
+     */
+    @NonNull
+    @Transactional(rollbackOn = Exception.class)
+    public List<DailyRollup> findByAccount(UUID accountId, LocalDate fromDay, LocalDate toDay) {
+        return jdbcOperations.prepareStatement(
+            "SELECT * FROM daily_account_rollup "
+                + "WHERE account_id = ? AND rollup_day BETWEEN ? AND ? ORDER BY rollup_day",
+            statement -> {
+                statement.setString(1, accountId.toString());
+                statement.setDate(2, Date.valueOf(fromDay));
+                statement.setDate(3, Date.valueOf(toDay));
+                var resultSet = statement.executeQuery();
+                var rollups = new ArrayList<DailyRollup>();
+                while (resultSet.next()) {
+                    rollups.add(DailyRollup.builder()
+                        .accountId(UUID.fromString(resultSet.getString("account_id")))
+                        .day(resultSet.getDate("rollup_day").toLocalDate())
+                        .currency(resultSet.getString("currency"))
+                        .inflow(resultSet.getBigDecimal("inflow"))
+                        .outflow(resultSet.getBigDecimal("outflow"))
+                        .transferCount(resultSet.getLong("transfer_count"))
+                        .build());
+                }
+                return rollups;
+            });
+    }
+
+    /**
+     * Replaces the rollups of the days from {@code fromDay} to {@code toDay}, both included, with
+     * the sums of the committed transfers created on them, which are read from the transfer table
+     * and the journal. The archived transfers, the credits of transfers from other partitions and
+     * the debits of the accounts of other partitions aren't counted, and every leg of a multi-leg
+     * transfer counts as a transfer.
+     */
+    @Transactional(rollbackOn = Exception.class)
+    public void rebuild(LocalDate fromDay, LocalDate toDay) {
+        jdbcOperations.prepareStatement(
+            "DELETE FROM daily_account_rollup WHERE rollup_day BETWEEN ? AND ?",
+            statement -> {
+                statement.setDate(1, Date.valueOf(fromDay));
+                statement.setDate(2, Date.valueOf(toDay));
+                return statement.executeUpdate();
+            });
+        var movements = String.join(" UNION ALL ",
+            selectMovements("transfer", "recipient_account_id", true),
+            selectMovements("transfer", "sender_account_id", false),
+            selectMovements(JOURNAL_ONLY, "recipient_account_id", true),
+            selectMovements(JOURNAL_ONLY, "sender_account_id", false));
+        jdbcOperations.prepareStatement(
+            "INSERT INTO daily_account_rollup ("
+                + "account_id, "
+                + "rollup_day, "
+                + "currency, "
+                + "inflow, "
+                + "outflow, "
+                + "transfer_count"
+                + ") SELECT account_id, rollup_day, MAX(currency), SUM(inflow), SUM(outflow), "
+                + "COUNT(*) FROM (" + movements + ") movement "
+                + "WHERE EXISTS (SELECT 1 FROM account_funds a "
+                + "WHERE a.account_id = movement.account_id) "
+                + "GROUP BY account_id, rollup_day",
+            statement -> {
+                var from = Timestamp.valueOf(fromDay.atStartOfDay());
+                var to = Timestamp.valueOf(toDay.plusDays(1).atStartOfDay());
+                for (int i = 0; i < 4; i++) {
+                    statement.setTimestamp(2 * i + 1, from);
+                    statement.setTimestamp(2 * i + 2, to);
+                }
+                return statement.executeUpdate();
+            });
+    }
+
+    //for testing
+    @Transactional(rollbackOn = Exception.class)
+    public void deleteAll() {
+        jdbcOperations.prepareStatement("DELETE FROM daily_account_rollup",
+            PreparedStatement::executeUpdate);
+    }
+
+    /**
+     * @return the funds that the given side of the committed transfers created in a range of time
+     * has received or sent, the range taking two parameters
+     */
+    private static String selectMovements(String transfers, String accountColumn,
+        boolean inflow) {
+        return "SELECT " + accountColumn + " AS account_id, "
+            + "CAST(created_at AS DATE) AS rollup_day, currency, "
+            + (inflow ? "amount AS inflow, 0.00 AS outflow " : "0.00 AS inflow, amount AS outflow ")
+            + "FROM " + transfers + " s "
+            + "WHERE status = 'OK' AND created_at >= ? AND created_at < ?";
+    }
+}
@@ -0,0 +1,154 @@
+package com.revolut.challenge.repositories;
+
+import com.revolut.challenge.jfr.RecordedRepository;
+import com.revolut.challenge.service.model.Hold;
+import com.revolut.challenge.service.model.HoldStatus;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import io.micronaut.data.exceptions.DataAccessException;
+import io.micronaut.data.jdbc.runtime.JdbcOperations;
+import io.micronaut.validation.Validated;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.transaction.Transactional;
+import javax.validation.Valid;
+
+@ParametersAreNonnullByDefault
+@Validated
+@RecordedRepository
+public class HoldRepository {
+
+    private final JdbcOperations jdbcOperations;
+
+    public HoldRepository(JdbcOperations jdbcOperations) {
+        this.jdbcOperations = jdbcOperations;
+    }
+
+    /**
+     * @return the hold with its creation time
+     * @throws DuplicateOperationIdException if the hold ID is already known
+     */
+    @NonNull
+    @Transactional(rollbackOn = Exception.class)
+    public Hold save(@Valid Hold hold) {
+        var createdAt = LocalDateTime.now(ZoneId.of("UTC"));
+        try (var statement = jdbcOperations.getConnection().prepareStatement(
+            "INSERT INTO funds_hold ("
+                + "hold_id, "
+                + "account_id, "
+                + "amount, "
+                + "currency, "
+                + "status, "
+                + "created_at, "
+                + "expires_at"
+                + ") VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+            statement.setString(1, hold.getHoldId().toString());
+            statement.setString(2, hold.getAccountId().toString());
+            statement.setBigDecimal(3, hold.getAmount());
+            statement.setString(4, hold.getCurrency());
+            statement.setString(5, hold.getStatus().name());
+            statement.setTimestamp(6, Timestamp.valueOf(createdAt));
+            statement.setTimestamp(7, Timestamp.valueOf(hold.getExpiresAt()));
+            statement.executeUpdate();
+        } catch (SQLIntegrityConstraintViolationException e) {
+            throw new DuplicateOperationIdException(hold.getHoldId(), e);
+        } catch (SQLException e) {
+            throw new DataAccessException("Error executing SQL statement: " + e.getMessage(), e);
+        }
+        return hold.toBuilder().createdAt(createdAt).build();
+    }
+
+    @NonNull
+    @Transactional(rollbackOn = Exception.class)
+    public Optional<Hold> findById(UUID holdId) {
+        return jdbcOperations.prepareStatement(
+            "SELECT * FROM funds_hold WHERE hold_id = ?",
+            statement -> {
+                statement.setString(1, holdId.toString());
+                var resultSet = statement.executeQuery();
+                return resultSet.next() ? Optional.of(buildHold(resultSet)) : Optional.empty();
+            });
+    }
+
+    /**
+     * Moves an authorized hold to another status, which releases it. Only one of concurrent
+     * captures, voids and expiries of the same hold succeeds.
+     *
+     * @param recipientAccountId the recipient of a captured hold
+     * @param capturedAmount the amount of a captured hold
+     * @return false if the hold isn't authorized
+     */
+    @Transactional(rollbackOn = Exception.class)
+    public boolean release(UUID holdId, HoldStatus status, @Nullable UUID recipientAccountId,
+        @Nullable BigDecimal capturedAmount) {
+        return jdbcOperations.prepareStatement(
+            "UPDATE funds_hold SET status = ?, recipient_account_id = ?, captured_amount = ? "
+                + "WHERE hold_id = ? AND status = ?",
+            statement -> {
+                statement.setString(1, status.name());
+                statement.setString(2,
+                    recipientAccountId == null ? null : recipientAccountId.toString());
+                statement.setBigDecimal(3, capturedAmount);
+                statement.setString(4, holdId.toString());
+                statement.setString(5, HoldStatus.AUTHORIZED.name());
+                return statement.executeUpdate() > 0;
+            });
+    }
+
+    /**
+     * @return up to {@code limit} authorized holds that expire before the given time
+     */
+    @NonNull
+    @Transactional(rollbackOn = Exception.class)
+    public List<Hold> getExpired(LocalDateTime expiredBefore, int limit) {
+        return jdbcOperations.prepareStatement(
+            "SELECT * FROM funds_hold WHERE status = ? AND expires_at < ? "
+                + "ORDER BY expires_at LIMIT ?",
+            statement -> {
+                statement.setString(1, HoldStatus.AUTHORIZED.name());
+                statement.setTimestamp(2, Timestamp.valueOf(expiredBefore));
+                statement.setInt(3, limit);
+                var resultSet = statement.executeQuery();
+                var holds = new ArrayList<Hold>();
+                while (resultSet.next()) {
+                    holds.add(buildHold(resultSet));
+                }
+                return holds;
+            });
+    }
+
+    //for testing
+    @Transactional(rollbackOn = Exception.class)
+    public void deleteAll() {
+        jdbcOperations.prepareStatement("DELETE FROM funds_hold",
+            PreparedStatement::executeUpdate);
+    }
+
+    private static Hold buildHold(ResultSet resultSet) throws SQLException {
+        var recipientAccountId = resultSet.getString("recipient_account_id");
+        return Hold.builder()
+            .holdId(UUID.fromString(resultSet.getString("hold_id")))
+            .accountId(UUID.fromString(resultSet.getString("account_id")))
+            .amount(resultSet.getBigDecimal("amount"))
+            .currency(resultSet.getString("currency"))
+            .status(HoldStatus.valueOf(resultSet.getString("status")))
+            .createdAt(resultSet.getTimestamp("created_at").toLocalDateTime())
+            .expiresAt(resultSet.getTimestamp("expires_at").toLocalDateTime())
+            .recipientAccountId(recipientAccountId == null
+                ? null
+                : UUID.fromString(recipientAccountId))
+            .capturedAmount(resultSet.getBigDecimal("captured_amount"))
+            .build();
+    }
+}
@@ -0,0 +1,162 @@
+package com.revolut.challenge.repositories;
+
+import com.revolut.challenge.jfr.RecordedRepository;
+import com.revolut.challenge.repositories.archive.TransferArchive;
+import com.revolut.challenge.service.model.MultiLegTransfer;
+import com.revolut.challenge.service.model.Transfer;
+import com.revolut.challenge.service.model.TransferLeg;
+import com.revolut.challenge.service.model.TransferStatus;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import io.micronaut.data.exceptions.DataAccessException;
+import io.micronaut.data.jdbc.runtime.JdbcOperations;
+import io.micronaut.validation.Validated;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.transaction.Transactional;
+import javax.validation.Valid;
+
+/**
+ * Stores the header of a multi-leg transfer. The legs themselves are stored as transfers, see
+ * {@link TransferRepository#saveAll(List)}.
+ */
+@ParametersAreNonnullByDefault
+@Validated
+@RecordedRepository
+public class MultiLegTransferRepository {
+
+    private final JdbcOperations jdbcOperations;
+    private final TransferArchive transferArchive;
+
+    public MultiLegTransferRepository(JdbcOperations jdbcOperations,
+        TransferArchive transferArchive) {
+        this.jdbcOperations = jdbcOperations;
+        this.transferArchive = transferArchive;
+    }
+
+    @NonNull
+    @Transactional(rollbackOn = Exception.class)
+    public MultiLegTransfer save(@Valid MultiLegTransfer transfer) {
+        var sql = "INSERT INTO multi_leg_transfer ("
+            + "operation_id, "
+            + "currency, "
+            + "leg_count, "
+            + "status, "
+            + "created_at"
+            + ") VALUES (?, ?, ?, ?, ?)";
+        var createdAt = LocalDateTime.now(ZoneId.of("UTC"));
+        try (var statement = jdbcOperations.getConnection()
+            .prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            statement.setString(1, transfer.getOperationId().toString());
+            statement.setString(2, transfer.getCurrency());
+            statement.setInt(3, transfer.getLegs().size());
+            statement.setString(4, transfer.getStatus().name());
+            statement.setTimestamp(5, Timestamp.valueOf(createdAt));
+            statement.executeUpdate();
+            var generatedKeys = statement.getGeneratedKeys();
+            generatedKeys.next();
+            return transfer.toBuilder()
+                .id(generatedKeys.getLong("id"))
+                .createdAt(createdAt)
+                .build();
+        } catch (SQLIntegrityConstraintViolationException e) {
+            throw new DuplicateOperationIdException(transfer.getOperationId(), e);
+        } catch (SQLException e) {
+            throw new DataAccessException("Error executing SQL statement: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads the header along with the legs, which are looked up in the archive if they have
+     * already been moved there.
+     */
+    @NonNull
+    @Transactional(rollbackOn = Exception.class)
+    public MultiLegTransfer getByOperationId(UUID operationId) {
+        var header = jdbcOperations.prepareStatement(
+            "SELECT * FROM multi_leg_transfer WHERE operation_id = ?",
+            statement -> {
+                statement.setString(1, operationId.toString());
+                var resultSet = statement.executeQuery();
+                if (!resultSet.next()) {
+                    throw new TransferNotFoundException(
+                        "Multi-leg transfer with operation ID " + operationId + " not found");
+                }
+                return new Header(MultiLegTransfer.builder()
+                    .id(resultSet.getLong("id"))
+                    .operationId(operationId)
+                    .currency(resultSet.getString("currency"))
+                    .createdAt(resultSet.getTimestamp("created_at").toLocalDateTime())
+                    .status(TransferStatus.valueOf(resultSet.getString("status"))),
+                    resultSet.getInt("leg_count"));
+            });
+        var legOperationIds = IntStream.range(0, header.legCount)
+            .mapToObj(legIndex -> MultiLegTransfer.legOperationId(operationId, legIndex))
+            .collect(Collectors.toList());
+        var legTransfers = getTransfersByOperationIds(legOperationIds);
+        var legs = new ArrayList<TransferLeg>(legOperationIds.size());
+        for (var legOperationId : legOperationIds) {
+            var legTransfer = legTransfers.get(legOperationId);
+            if (legTransfer == null) {
+                legTransfer = transferArchive.findByOperationId(legOperationId)
+                    .orElseThrow(() -> new TransferNotFoundException(
+                        "Transfer with operation ID " + legOperationId + " not found"));
+            }
+            legs.add(TransferLeg.builder()
+                .senderAccountId(legTransfer.getSenderAccountId())
+                .recipientAccountId(legTransfer.getRecipientAccountId())
+                .amount(legTransfer.getAmount())
+                .build());
+        }
+        return header.builder.legs(List.copyOf(legs)).build();
+    }
+
+    //for testing
+    @Transactional(rollbackOn = Exception.class)
+    public void deleteAll() {
+        jdbcOperations.prepareStatement("DELETE FROM multi_leg_transfer",
+            PreparedStatement::executeUpdate);
+    }
+
+    private Map<UUID, Transfer> getTransfersByOperationIds(List<UUID> operationIds) {
+        return jdbcOperations.prepareStatement(
+            "SELECT * FROM transfer WHERE operation_id IN ("
+                + String.join(", ", Collections.nCopies(operationIds.size(), "?")) + ")",
+            statement -> {
+                for (int i = 0; i < operationIds.size(); i++) {
+                    statement.setString(i + 1, operationIds.get(i).toString());
+                }
+                var resultSet = statement.executeQuery();
+                var transfers = new HashMap<UUID, Transfer>();
+                while (resultSet.next()) {
+                    var transfer = TransferRepository.buildTransfer(resultSet);
+                    transfers.put(transfer.getOperationId(), transfer);
+                }
+                return transfers;
+            });
+    }
+
+    private static final class Header {
+
+        private final MultiLegTransfer.MultiLegTransferBuilder builder;
+        private final int legCount;
+
+        private Header(MultiLegTransfer.MultiLegTransferBuilder builder, int legCount) {
+            this.builder = builder;
+            this.legCount = legCount;
+        }
+    }
+}
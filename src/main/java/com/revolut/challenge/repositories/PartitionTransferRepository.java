@@ -0,0 +1,177 @@
+package com.revolut.challenge.repositories;
+
+import com.revolut.challenge.jfr.RecordedRepository;
+import com.revolut.challenge.service.model.PartitionTransfer;
+import com.revolut.challenge.service.model.PartitionTransferRole;
+import com.revolut.challenge.service.model.PartitionTransferState;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import io.micronaut.data.exceptions.DataAccessException;
+import io.micronaut.data.jdbc.runtime.JdbcOperations;
+import io.micronaut.validation.Validated;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.transaction.Transactional;
+import javax.validation.Valid;
+
+/**
+ * Stores the state of the transfers between partitions, one row per transfer on each of the two
+ * instances involved.
+ */
+@ParametersAreNonnullByDefault
+@Validated
+@RecordedRepository
+public class PartitionTransferRepository {
+
+    private final JdbcOperations jdbcOperations;
+
+    public PartitionTransferRepository(JdbcOperations jdbcOperations) {
+        this.jdbcOperations = jdbcOperations;
+    }
+
+    /**
+     * @throws DuplicateOperationIdException if the operation ID is already known
+     */
+    @NonNull
+    @Transactional(rollbackOn = Exception.class)
+    public PartitionTransfer save(@Valid PartitionTransfer transfer) {
+        var updatedAt = LocalDateTime.now(ZoneId.of("UTC"));
+        try (var statement = jdbcOperations.getConnection().prepareStatement(
+            "INSERT INTO partition_transfer ("
+                + "operation_id, "
+                + "role, "
+                + "state, "
+                + "account_id, "
+                + "amount, "
+                + "currency, "
+                + "peer_instance, "
+                + "updated_at"
+                + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+            statement.setString(1, transfer.getOperationId().toString());
+            statement.setString(2, transfer.getRole().name());
+            statement.setString(3, transfer.getState().name());
+            statement.setString(4, transfer.getAccountId().toString());
+            statement.setBigDecimal(5, transfer.getAmount());
+            statement.setString(6, transfer.getCurrency());
+            statement.setInt(7, transfer.getPeerInstance());
+            statement.setTimestamp(8, Timestamp.valueOf(updatedAt));
+            statement.executeUpdate();
+            return transfer.toBuilder().updatedAt(updatedAt).build();
+        } catch (SQLIntegrityConstraintViolationException e) {
+            throw new DuplicateOperationIdException(transfer.getOperationId(), e);
+        } catch (SQLException e) {
+            throw new DataAccessException("Error executing SQL statement: " + e.getMessage(), e);
+        }
+    }
+
+    @NonNull
+    @Transactional(rollbackOn = Exception.class)
+    public Optional<PartitionTransfer> findByOperationId(UUID operationId) {
+        return jdbcOperations.prepareStatement(
+            "SELECT * FROM partition_transfer WHERE operation_id = ?",
+            statement -> {
+                statement.setString(1, operationId.toString());
+                var resultSet = statement.executeQuery();
+                return resultSet.next()
+                    ? Optional.of(buildPartitionTransfer(resultSet))
+                    : Optional.<PartitionTransfer>empty();
+            });
+    }
+
+    /**
+     * Moves the transfer to the new state if it's still in the expected one.
+     *
+     * @return whether the state has been changed
+     */
+    @Transactional(rollbackOn = Exception.class)
+    public boolean compareAndSetState(UUID operationId, PartitionTransferState expectedState,
+        PartitionTransferState newState) {
+        return jdbcOperations.prepareStatement(
+            "UPDATE partition_transfer SET state = ?, updated_at = ? "
+                + "WHERE operation_id = ? AND state = ?",
+            statement -> {
+                statement.setString(1, newState.name());
+                statement.setTimestamp(2,
+                    Timestamp.valueOf(LocalDateTime.now(ZoneId.of("UTC"))));
+                statement.setString(3, operationId.toString());
+                statement.setString(4, expectedState.name());
+                return statement.executeUpdate() > 0;
+            });
+    }
+
+    /**
+     * @return up to {@code limit} transfers of the role that have been in the state since before
+     * the given time, oldest first
+     */
+    @NonNull
+    @Transactional(rollbackOn = Exception.class)
+    public List<PartitionTransfer> getInStateSince(PartitionTransferRole role,
+        PartitionTransferState state, LocalDateTime updatedBefore, int limit) {
+        return jdbcOperations.prepareStatement(
+            "SELECT * FROM partition_transfer WHERE state = ? AND updated_at <= ? AND role = ? "
+                + "ORDER BY updated_at LIMIT ?",
+            statement -> {
+                statement.setString(1, state.name());
+                statement.setTimestamp(2, Timestamp.valueOf(updatedBefore));
+                statement.setString(3, role.name());
+                statement.setInt(4, limit);
+                var resultSet = statement.executeQuery();
+                var transfers = new ArrayList<PartitionTransfer>();
+                while (resultSet.next()) {
+                    transfers.add(buildPartitionTransfer(resultSet));
+                }
+                return transfers;
+            });
+    }
+
+    /**
+     * Streams the credits that this instance has committed as a participant.
+     */
+    @Transactional(rollbackOn = Exception.class)
+    public void forEachCommittedCredit(AccountAmountConsumer consumer) {
+        jdbcOperations.prepareStatement(
+            "SELECT account_id, CAST(amount * 100 AS BIGINT) AS amount_cents "
+                + "FROM partition_transfer WHERE role = ? AND state = ?",
+            statement -> {
+                statement.setString(1, PartitionTransferRole.PARTICIPANT.name());
+                statement.setString(2, PartitionTransferState.COMMITTED.name());
+                var resultSet = statement.executeQuery();
+                while (resultSet.next()) {
+                    var accountId = UUID.fromString(resultSet.getString("account_id"));
+                    consumer.accept(accountId.getMostSignificantBits(),
+                        accountId.getLeastSignificantBits(), resultSet.getLong("amount_cents"));
+                }
+                return null;
+            });
+    }
+
+    //for testing
+    @Transactional(rollbackOn = Exception.class)
+    public void deleteAll() {
+        jdbcOperations.prepareStatement("DELETE FROM partition_transfer",
+            PreparedStatement::executeUpdate);
+    }
+
+    private static PartitionTransfer buildPartitionTransfer(ResultSet resultSet)
+        throws SQLException {
+        return PartitionTransfer.builder()
+            .operationId(UUID.fromString(resultSet.getString("operation_id")))
+            .role(PartitionTransferRole.valueOf(resultSet.getString("role")))
+            .state(PartitionTransferState.valueOf(resultSet.getString("state")))
+            .accountId(UUID.fromString(resultSet.getString("account_id")))
+            .amount(resultSet.getBigDecimal("amount"))
+            .currency(resultSet.getString("currency"))
+            .peerInstance(resultSet.getInt("peer_instance"))
+            .updatedAt(resultSet.getTimestamp("updated_at").toLocalDateTime())
+            .build();
+    }
+}
@@ -0,0 +1,202 @@
+package com.revolut.challenge.repositories;
+
+import com.revolut.challenge.jfr.RecordedRepository;
+import com.revolut.challenge.service.model.ScheduledTransfer;
+import com.revolut.challenge.service.model.ScheduledTransferOutcome;
+import com.revolut.challenge.service.model.ScheduledTransferStatus;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import io.micronaut.data.exceptions.DataAccessException;
+import io.micronaut.data.jdbc.runtime.JdbcOperations;
+import io.micronaut.validation.Validated;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.transaction.Transactional;
+import javax.validation.Valid;
+
+@ParametersAreNonnullByDefault
+@Validated
+@RecordedRepository
+public class ScheduledTransferRepository {
+
+    private final JdbcOperations jdbcOperations;
+
+    public ScheduledTransferRepository(JdbcOperations jdbcOperations) {
+        this.jdbcOperations = jdbcOperations;
+    }
+
+    /**
+     * @throws DuplicateOperationIdException if the schedule ID is already known
+     */
+    @Transactional(rollbackOn = Exception.class)
+    public void save(@Valid ScheduledTransfer scheduledTransfer) {
+        try (var statement = jdbcOperations.getConnection().prepareStatement(
+            "INSERT INTO scheduled_transfer ("
+                + "schedule_id, "
+                + "sender_account_id, "
+                + "recipient_account_id, "
+                + "amount, "
+                + "currency, "
+                + "first_run_at, "
+                + "recurrence, "
+                + "next_run_at, "
+                + "executions, "
+                + "status"
+                + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            statement.setString(1, scheduledTransfer.getScheduleId().toString());
+            statement.setString(2, scheduledTransfer.getSenderAccountId().toString());
+            statement.setString(3, scheduledTransfer.getRecipientAccountId().toString());
+            statement.setBigDecimal(4, scheduledTransfer.getAmount());
+            statement.setString(5, scheduledTransfer.getCurrency());
+            statement.setTimestamp(6, Timestamp.valueOf(scheduledTransfer.getFirstRunAt()));
+            statement.setString(7, scheduledTransfer.getRecurrence() == null
+                ? null
+                : scheduledTransfer.getRecurrence().toString());
+            statement.setTimestamp(8, Timestamp.valueOf(scheduledTransfer.getNextRunAt()));
+            statement.setLong(9, scheduledTransfer.getExecutions());
+            statement.setString(10, scheduledTransfer.getStatus().name());
+            statement.executeUpdate();
+        } catch (SQLIntegrityConstraintViolationException e) {
+            throw new DuplicateOperationIdException(scheduledTransfer.getScheduleId(), e);
+        } catch (SQLException e) {
+            throw new DataAccessException("Error executing SQL statement: " + e.getMessage(), e);
+        }
+    }
+
+    @NonNull
+    @Transactional(rollbackOn = Exception.class)
+    public Optional<ScheduledTransfer> findById(UUID scheduleId) {
+        return Optional.ofNullable(findAllById(List.of(scheduleId)).get(scheduleId));
+    }
+
+    @NonNull
+    @Transactional(rollbackOn = Exception.class)
+    public Map<UUID, ScheduledTransfer> findAllById(Collection<UUID> scheduleIds) {
+        if (scheduleIds.isEmpty()) {
+            return Map.of();
+        }
+        return jdbcOperations.prepareStatement(
+            "SELECT * FROM scheduled_transfer WHERE schedule_id IN ("
+                + String.join(", ", Collections.nCopies(scheduleIds.size(), "?")) + ")",
+            statement -> {
+                var index = 1;
+                for (var scheduleId : scheduleIds) {
+                    statement.setString(index++, scheduleId.toString());
+                }
+                var resultSet = statement.executeQuery();
+                var scheduledTransfers = new HashMap<UUID, ScheduledTransfer>();
+                while (resultSet.next()) {
+                    var scheduledTransfer = buildScheduledTransfer(resultSet);
+                    scheduledTransfers.put(scheduledTransfer.getScheduleId(), scheduledTransfer);
+                }
+                return scheduledTransfers;
+            });
+    }
+
+    /**
+     * Reads the active schedules whose next run is before the given time, page by page: a page
+     * continues after the last schedule of the previous one.
+     *
+     * @return up to {@code limit} schedules, ordered by the next run and the schedule ID
+     */
+    @NonNull
+    @Transactional(rollbackOn = Exception.class)
+    public List<ScheduledTransfer> getActiveDueBefore(LocalDateTime runBefore,
+        LocalDateTime afterRunAt, String afterScheduleId, int limit) {
+        return jdbcOperations.prepareStatement(
+            "SELECT * FROM scheduled_transfer WHERE status = ? AND next_run_at < ? "
+                + "AND (next_run_at > ? OR (next_run_at = ? AND schedule_id > ?)) "
+                + "ORDER BY next_run_at, schedule_id LIMIT ?",
+            statement -> {
+                statement.setString(1, ScheduledTransferStatus.ACTIVE.name());
+                statement.setTimestamp(2, Timestamp.valueOf(runBefore));
+                statement.setTimestamp(3, Timestamp.valueOf(afterRunAt));
+                statement.setTimestamp(4, Timestamp.valueOf(afterRunAt));
+                statement.setString(5, afterScheduleId);
+                statement.setInt(6, limit);
+                var resultSet = statement.executeQuery();
+                var scheduledTransfers = new ArrayList<ScheduledTransfer>();
+                while (resultSet.next()) {
+                    scheduledTransfers.add(buildScheduledTransfer(resultSet));
+                }
+                return scheduledTransfers;
+            });
+    }
+
+    /**
+     * Records a run of the schedule, unless another run has been recorded in the meantime.
+     *
+     * @return whether the run has been recorded
+     */
+    @Transactional(rollbackOn = Exception.class)
+    public boolean recordRun(ScheduledTransfer scheduledTransfer, LocalDateTime nextRunAt,
+        ScheduledTransferStatus status, ScheduledTransferOutcome outcome) {
+        return jdbcOperations.prepareStatement(
+            "UPDATE scheduled_transfer "
+                + "SET next_run_at = ?, executions = executions + 1, status = ?, last_outcome = ? "
+                + "WHERE schedule_id = ? AND executions = ? AND status = ?",
+            statement -> {
+                statement.setTimestamp(1, Timestamp.valueOf(nextRunAt));
+                statement.setString(2, status.name());
+                statement.setString(3, outcome.name());
+                statement.setString(4, scheduledTransfer.getScheduleId().toString());
+                statement.setLong(5, scheduledTransfer.getExecutions());
+                statement.setString(6, ScheduledTransferStatus.ACTIVE.name());
+                return statement.executeUpdate() > 0;
+            });
+    }
+
+    /**
+     * @return false if the schedule isn't active
+     */
+    @Transactional(rollbackOn = Exception.class)
+    public boolean cancel(UUID scheduleId) {
+        return jdbcOperations.prepareStatement(
+            "UPDATE scheduled_transfer SET status = ? WHERE schedule_id = ? AND status = ?",
+            statement -> {
+                statement.setString(1, ScheduledTransferStatus.CANCELLED.name());
+                statement.setString(2, scheduleId.toString());
+                statement.setString(3, ScheduledTransferStatus.ACTIVE.name());
+                return statement.executeUpdate() > 0;
+            });
+    }
+
+    //for testing
+    @Transactional(rollbackOn = Exception.class)
+    public void deleteAll() {
+        jdbcOperations.prepareStatement("DELETE FROM scheduled_transfer",
+            PreparedStatement::executeUpdate);
+    }
+
+    private static ScheduledTransfer buildScheduledTransfer(ResultSet resultSet)
+        throws SQLException {
+        var recurrence = resultSet.getString("recurrence");
+        var lastOutcome = resultSet.getString("last_outcome");
+        return ScheduledTransfer.builder()
+            .scheduleId(UUID.fromString(resultSet.getString("schedule_id")))
+            .senderAccountId(UUID.fromString(resultSet.getString("sender_account_id")))
+            .recipientAccountId(UUID.fromString(resultSet.getString("recipient_account_id")))
+            .amount(resultSet.getBigDecimal("amount"))
+            .currency(resultSet.getString("currency"))
+            .firstRunAt(resultSet.getTimestamp("first_run_at").toLocalDateTime())
+            .recurrence(recurrence == null ? null : Period.parse(recurrence))
+            .nextRunAt(resultSet.getTimestamp("next_run_at").toLocalDateTime())
+            .executions(resultSet.getLong("executions"))
+            .status(ScheduledTransferStatus.valueOf(resultSet.getString("status")))
+            .lastOutcome(lastOutcome == null ? null : ScheduledTransferOutcome.valueOf(lastOutcome))
+            .build();
+    }
+}
@@ -0,0 +1,248 @@
+package com.revolut.challenge.repositories;
+
+import com.revolut.challenge.jfr.RecordedRepository;
+import com.revolut.challenge.repositories.archive.TransferArchive;
+import com.revolut.challenge.service.model.Transfer;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import io.micronaut.data.exceptions.DataAccessException;
+import io.micronaut.data.jdbc.runtime.JdbcOperations;
+import io.micronaut.data.runtime.config.DataSettings;
+import io.micronaut.validation.Validated;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.transaction.Transactional;
+import javax.validation.Valid;
+
+/**
+ * The completed transfers that haven't been written to the transfer table yet. They are moved
+ * there in batches, keeping their IDs.
+ */
+@ParametersAreNonnullByDefault
+@Validated
+@RecordedRepository
+public class TransferJournalRepository {
+
+    private final JdbcOperations jdbcOperations;
+    private final TransferArchive transferArchive;
+
+    public TransferJournalRepository(
+        JdbcOperations jdbcOperations,
+        TransferArchive transferArchive
+    ) {
+        this.jdbcOperations = jdbcOperations;
+        this.transferArchive = transferArchive;
+    }
+
+    /**
+     * Records a completed transfer, unless a transfer with the same operation ID exists in the
+     * journal or in the transfer table.
+     *
+     * @throws DuplicateOperationIdException if the operation ID is taken
+     */
+    @NonNull
+    @Transactional(rollbackOn = Exception.class)
+    public Transfer append(@Valid Transfer transfer) {
+        var sql = "INSERT INTO transfer_journal ("
+            + "operation_id, "
+            + "amount, "
+            + "currency, "
+            + "sender_account_id, "
+            + "recipient_account_id, "
+            + "status, "
+            + "created_at"
+            + ") SELECT ?, ?, ?, ?, ?, ?, ? FROM DUAL "
+            + "WHERE NOT EXISTS (SELECT 1 FROM transfer WHERE operation_id = ?)";
+        var createdAt = LocalDateTime.now(ZoneId.of("UTC"));
+        PreparedStatement statement;
+        try {
+            statement = jdbcOperations.getConnection()
+                .prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            statement.setString(1, transfer.getOperationId().toString());
+            statement.setBigDecimal(2, transfer.getAmount());
+            statement.setString(3, transfer.getCurrency());
+            statement.setString(4, transfer.getSenderAccountId().toString());
+            statement.setString(5, transfer.getRecipientAccountId().toString());
+            statement.setString(6, transfer.getStatus().name());
+            statement.setTimestamp(7, Timestamp.valueOf(createdAt));
+            statement.setString(8, transfer.getOperationId().toString());
+        } catch (SQLException e) {
+            throw new DataAccessException("Error preparing SQL statement: " + e.getMessage(), e);
+        }
+        if (DataSettings.QUERY_LOG.isDebugEnabled()) {
+            DataSettings.QUERY_LOG.debug("Executing Query: {}", sql);
+        }
+        try {
+            if (statement.executeUpdate() < 1) {
+                //moved to the transfer table already
+                throw new DuplicateOperationIdException(transfer.getOperationId());
+            }
+            checkNotArchived(transfer.getOperationId());
+            var generatedKeys = statement.getGeneratedKeys();
+            generatedKeys.next();
+            return transfer.toBuilder()
+                .id(generatedKeys.getLong("id"))
+                .createdAt(createdAt)
+                .build();
+        } catch (SQLIntegrityConstraintViolationException e) {
+            throw new DuplicateOperationIdException(transfer.getOperationId(), e);
+        } catch (SQLException e) {
+            throw new DataAccessException("Error executing SQL statement: " + e.getMessage(), e);
+        }
+    }
+
+    @NonNull
+    @Transactional(rollbackOn = Exception.class)
+    public Optional<Transfer> findByOperationId(UUID operationId) {
+        return jdbcOperations.prepareStatement(
+            "SELECT * FROM transfer_journal WHERE operation_id = ?",
+            statement -> {
+                statement.setString(1, operationId.toString());
+                var resultSet = statement.executeQuery();
+                return resultSet.next()
+                    ? Optional.of(TransferRepository.buildTransfer(resultSet))
+                    : Optional.empty();
+            }
+        );
+    }
+
+    /**
+     * @return the IDs of up to {@code limit} journaled transfers above the given ID, in ascending
+     * order
+     */
+    @NonNull
+    @Transactional(rollbackOn = Exception.class)
+    public List<Long> getIdsAfter(long afterId, int limit) {
+        return jdbcOperations.prepareStatement(
+            "SELECT id FROM transfer_journal WHERE id > ? ORDER BY id LIMIT ?",
+            statement -> {
+                statement.setLong(1, afterId);
+                statement.setInt(2, limit);
+                var resultSet = statement.executeQuery();
+                var ids = new ArrayList<Long>();
+                while (resultSet.next()) {
+                    ids.add(resultSet.getLong("id"));
+                }
+                return ids;
+            }
+        );
+    }
+
+    /**
+     * @return the IDs of the given journaled transfers that are still in the journal
+     */
+    @NonNull
+    @Transactional(rollbackOn = Exception.class)
+    public List<Long> getIdsIn(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return jdbcOperations.prepareStatement(
+            "SELECT id FROM transfer_journal WHERE id IN (" + buildPlaceholders(ids.size())
+                + ") ORDER BY id",
+            statement -> {
+                setIds(statement, ids);
+                var resultSet = statement.executeQuery();
+                var journaledIds = new ArrayList<Long>();
+                while (resultSet.next()) {
+                    journaledIds.add(resultSet.getLong("id"));
+                }
+                return journaledIds;
+            }
+        );
+    }
+
+    /**
+     * Inserts the journaled transfers into the transfer table by a single statement. A transfer
+     * that is there already, because an earlier move wasn't followed by {@link
+     * #deleteMoved(Collection)}, is skipped, and so is one whose operation ID has been taken by
+     * another transfer.
+     *
+     * @return the number of transfers inserted
+     */
+    @Transactional(rollbackOn = Exception.class)
+    public int moveToTransfers(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return jdbcOperations.prepareStatement(
+            "INSERT INTO transfer ("
+                + "id, "
+                + "operation_id, "
+                + "amount, "
+                + "currency, "
+                + "sender_account_id, "
+                + "recipient_account_id, "
+                + "status, "
+                + "created_at"
+                + ") SELECT j.id, j.operation_id, j.amount, j.currency, j.sender_account_id, "
+                + "j.recipient_account_id, j.status, j.created_at "
+                + "FROM transfer_journal j WHERE j.id IN (" + buildPlaceholders(ids.size())
+                + ") AND NOT EXISTS (SELECT 1 FROM transfer t "
+                + "WHERE t.id = j.id OR t.operation_id = j.operation_id)",
+            statement -> {
+                setIds(statement, ids);
+                return statement.executeUpdate();
+            }
+        );
+    }
+
+    /**
+     * Deletes the journaled transfers that are in the transfer table.
+     *
+     * @return the number of transfers deleted
+     */
+    @Transactional(rollbackOn = Exception.class)
+    public int deleteMoved(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return jdbcOperations.prepareStatement(
+            "DELETE FROM transfer_journal j WHERE j.id IN (" + buildPlaceholders(ids.size())
+                + ") AND EXISTS (SELECT 1 FROM transfer t WHERE t.id = j.id)",
+            statement -> {
+                setIds(statement, ids);
+                return statement.executeUpdate();
+            }
+        );
+    }
+
+    //for testing
+    @Transactional(rollbackOn = Exception.class)
+    public void deleteAll() {
+        jdbcOperations.prepareStatement("DELETE FROM transfer_journal",
+            PreparedStatement::executeUpdate);
+    }
+
+    /**
+     * The archived transfers are in neither table, see {@link TransferRepository}.
+     */
+    private void checkNotArchived(UUID operationId) {
+        if (transferArchive.containsOperationId(operationId)) {
+            throw new DuplicateOperationIdException(operationId);
+        }
+    }
+
+    private static String buildPlaceholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private static void setIds(PreparedStatement statement, Collection<Long> ids)
+        throws SQLException {
+        var index = 1;
+        for (var id : ids) {
+            statement.setLong(index++, id);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.revolut.challenge.repositories;
+
+/**
+ * Receives a transfer that has moved funds, reduced to what the ledger needs, with the account IDs
+ * split into their two halves so that the transfers can be streamed without allocating objects
+ * per row.
+ */
+@FunctionalInterface
+public interface TransferMovementConsumer {
+
+    void accept(long transferId, long senderIdMsb, long senderIdLsb, long recipientIdMsb,
+        long recipientIdLsb, long amountCents);
+}
@@ -1,5 +1,7 @@
 package com.revolut.challenge.repositories;
 
+import com.revolut.challenge.jfr.RecordedRepository;
+import com.revolut.challenge.repositories.archive.TransferArchive;
 import com.revolut.challenge.service.model.Transfer;
 import com.revolut.challenge.service.model.TransferStatus;
 import edu.umd.cs.findbugs.annotations.NonNull;
@@ -15,6 +17,11 @@ import java.sql.Statement;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import javax.annotation.Nonnull;
 import javax.annotation.ParametersAreNonnullByDefault;
@@ -23,14 +30,34 @@ import javax.validation.Valid;
 
 @ParametersAreNonnullByDefault
 @Validated
+@RecordedRepository
 public class TransferRepository {
 
+    private static final String TRANSFER_COLUMNS = "id, operation_id, amount, currency, "
+        + "sender_account_id, recipient_account_id, status, created_at";
+
+    /**
+     * The transfers of both tables. A journaled transfer that has been moved to the transfer
+     * table, but not deleted from the journal yet, is only taken from the table.
+     */
+    private static final String TRANSFERS_AND_JOURNAL = "(SELECT " + TRANSFER_COLUMNS
+        + " FROM transfer UNION ALL SELECT " + TRANSFER_COLUMNS + " FROM transfer_journal j "
+        + "WHERE NOT EXISTS (SELECT 1 FROM transfer t WHERE t.id = j.id))";
+
     private final JdbcOperations jdbcOperations;
+    private final TransferArchive transferArchive;
 
-    public TransferRepository(JdbcOperations jdbcOperations) {
+    public TransferRepository(JdbcOperations jdbcOperations, TransferArchive transferArchive) {
         this.jdbcOperations = jdbcOperations;
+        this.transferArchive = transferArchive;
     }
 
+    /**
+     * Inserts the transfer, unless a transfer with the same operation ID exists in the transfer
+     * table, in the journal or in the archive.
+     *
+     * @throws DuplicateOperationIdException if the operation ID is taken
+     */
     @Nonnull
     @Transactional(rollbackOn = Exception.class)
     public Transfer save(@Valid Transfer transfer) {
@@ -42,7 +69,8 @@ public class TransferRepository {
             + "recipient_account_id,"
             + "status,"
             + "created_at"
-            + ") VALUES (?, ?, ?, ?, ?, ?, ?)";
+            + ") SELECT ?, ?, ?, ?, ?, ?, ? FROM DUAL "
+            + "WHERE NOT EXISTS (SELECT 1 FROM transfer_journal WHERE operation_id = ?)";
         var createdAt = LocalDateTime.now(ZoneId.of("UTC"));
         PreparedStatement statement;
         try {
@@ -55,14 +83,19 @@ public class TransferRepository {
             statement.setString(5, transfer.getRecipientAccountId().toString());
             statement.setString(6, transfer.getStatus().name());
             statement.setTimestamp(7, Timestamp.valueOf(createdAt));
+            statement.setString(8, transfer.getOperationId().toString());
         } catch (SQLException e) {
             throw new DataAccessException("Error preparing SQL statement: " + e.getMessage(), e);
         }
-        if (DataSettings.QUERY_LOG.isErrorEnabled()) {
+        if (DataSettings.QUERY_LOG.isDebugEnabled()) {
             DataSettings.QUERY_LOG.debug("Executing Query: {}", sql);
         }
         try {
-            statement.executeUpdate();
+            if (statement.executeUpdate() < 1) {
+                //journaled and not moved to the transfer table yet
+                throw new DuplicateOperationIdException(transfer.getOperationId());
+            }
+            checkNotArchived(transfer.getOperationId());
             var generatedKeys = statement.getGeneratedKeys();
             generatedKeys.next();
             return transfer.toBuilder()
@@ -77,6 +110,46 @@ public class TransferRepository {
         }
     }
 
+    /**
+     * Inserts the transfers in one batch. Unlike {@link #save(Transfer)}, the creation time is
+     * taken from the transfers, and the generated IDs aren't read back.
+     *
+     * @throws DuplicateOperationIdException if the operation ID of a transfer is journaled
+     */
+    @Transactional(rollbackOn = Exception.class)
+    public void saveAll(List<@Valid Transfer> transfers) {
+        var updateCounts = jdbcOperations.prepareStatement(
+            "INSERT INTO transfer ("
+                + "operation_id, "
+                + "amount, "
+                + "currency, "
+                + "sender_account_id, "
+                + "recipient_account_id, "
+                + "status, "
+                + "created_at"
+                + ") SELECT ?, ?, ?, ?, ?, ?, ? FROM DUAL "
+                + "WHERE NOT EXISTS (SELECT 1 FROM transfer_journal WHERE operation_id = ?)",
+            statement -> {
+                for (var transfer : transfers) {
+                    statement.setString(1, transfer.getOperationId().toString());
+                    statement.setBigDecimal(2, transfer.getAmount());
+                    statement.setString(3, transfer.getCurrency());
+                    statement.setString(4, transfer.getSenderAccountId().toString());
+                    statement.setString(5, transfer.getRecipientAccountId().toString());
+                    statement.setString(6, transfer.getStatus().name());
+                    statement.setTimestamp(7, Timestamp.valueOf(transfer.getCreatedAt()));
+                    statement.setString(8, transfer.getOperationId().toString());
+                    statement.addBatch();
+                }
+                return statement.executeBatch();
+            });
+        for (int i = 0; i < updateCounts.length; i++) {
+            if (updateCounts[i] == 0) {
+                throw new DuplicateOperationIdException(transfers.get(i).getOperationId());
+            }
+        }
+    }
+
     @NonNull
     @Transactional(rollbackOn = Exception.class)
     public Transfer getById(long transferId) {
@@ -124,6 +197,187 @@ public class TransferRepository {
         }
     }
 
+    /**
+     * Updates the status of the transfers in one batch.
+     */
+    @Transactional(rollbackOn = Exception.class)
+    public void updateStatuses(Collection<Long> transferIds, TransferStatus status) {
+        var updateCounts = jdbcOperations.prepareStatement(
+            "UPDATE transfer SET status = ? WHERE id = ?",
+            statement -> {
+                for (var transferId : transferIds) {
+                    statement.setString(1, status.name());
+                    statement.setLong(2, transferId);
+                    statement.addBatch();
+                }
+                return statement.executeBatch();
+            }
+        );
+        if (Arrays.stream(updateCounts).anyMatch(updateCount -> updateCount < 1)) {
+            throw new TransferNotFoundException("Some of transfers " + transferIds + " not found");
+        }
+    }
+
+    /**
+     * @return the transfers that have been accepted but not completed yet, ordered by ID
+     */
+    @NonNull
+    @Transactional(rollbackOn = Exception.class)
+    public List<Transfer> getAccepted() {
+        return jdbcOperations.prepareStatement(
+            "SELECT * FROM transfer WHERE status = ? ORDER BY id",
+            statement -> {
+                statement.setString(1, TransferStatus.ACCEPTED.name());
+                var resultSet = statement.executeQuery();
+                var transfers = new ArrayList<Transfer>();
+                while (resultSet.next()) {
+                    transfers.add(buildTransfer(resultSet));
+                }
+                return transfers;
+            }
+        );
+    }
+
+    /**
+     * @return the creation time of the oldest completed transfer, if there is any
+     */
+    @NonNull
+    @Transactional(rollbackOn = Exception.class)
+    public Optional<LocalDateTime> getOldestCompletedCreatedAt() {
+        return jdbcOperations.prepareStatement(
+            "SELECT MIN(created_at) AS oldest FROM transfer WHERE status <> ?",
+            statement -> {
+                statement.setString(1, TransferStatus.ACCEPTED.name());
+                var resultSet = statement.executeQuery();
+                resultSet.next();
+                return Optional.ofNullable(resultSet.getTimestamp("oldest"))
+                    .map(Timestamp::toLocalDateTime);
+            }
+        );
+    }
+
+    /**
+     * @return up to {@code limit} completed transfers created in the given time range,
+     * ordered by ID
+     */
+    @NonNull
+    @Transactional(rollbackOn = Exception.class)
+    public List<Transfer> getCompletedCreatedBetween(LocalDateTime from, LocalDateTime to,
+        int limit) {
+        return jdbcOperations.prepareStatement(
+            "SELECT * FROM transfer WHERE created_at >= ? AND created_at < ? AND status <> ? "
+                + "ORDER BY id LIMIT ?",
+            statement -> {
+                statement.setTimestamp(1, Timestamp.valueOf(from));
+                statement.setTimestamp(2, Timestamp.valueOf(to));
+                statement.setString(3, TransferStatus.ACCEPTED.name());
+                statement.setInt(4, limit);
+                var resultSet = statement.executeQuery();
+                var transfers = new ArrayList<Transfer>();
+                while (resultSet.next()) {
+                    transfers.add(buildTransfer(resultSet));
+                }
+                return transfers;
+            }
+        );
+    }
+
+    /**
+     * Reads the transfers created since the given time page by page, the next page starting
+     * after the last ID of the previous one. The journaled transfers are included.
+     *
+     * @return up to {@code limit} transfers with IDs greater than {@code afterId}, ordered by ID
+     */
+    @NonNull
+    @Transactional(rollbackOn = Exception.class)
+    public List<Transfer> getCreatedSince(LocalDateTime from, long afterId, int limit) {
+        return jdbcOperations.prepareStatement(
+            "SELECT * FROM " + TRANSFERS_AND_JOURNAL
+                + " WHERE created_at >= ? AND id > ? ORDER BY id LIMIT ?",
+            statement -> {
+                statement.setTimestamp(1, Timestamp.valueOf(from));
+                statement.setLong(2, afterId);
+                statement.setInt(3, limit);
+                var resultSet = statement.executeQuery();
+                var transfers = new ArrayList<Transfer>();
+                while (resultSet.next()) {
+                    transfers.add(buildTransfer(resultSet));
+                }
+                return transfers;
+            }
+        );
+    }
+
+    /**
+     * @return the highest ID of the transfers and the journaled transfers, 0 if there are none
+     */
+    @Transactional(rollbackOn = Exception.class)
+    public long getMaxId() {
+        return jdbcOperations.prepareStatement(
+            "SELECT GREATEST(COALESCE((SELECT MAX(id) FROM transfer), 0), "
+                + "COALESCE((SELECT MAX(id) FROM transfer_journal), 0)) AS max_id FROM DUAL",
+            statement -> {
+                var resultSet = statement.executeQuery();
+                resultSet.next();
+                return resultSet.getLong("max_id");
+            }
+        );
+    }
+
+    /**
+     * Streams the transfers, including the journaled ones, with IDs from {@code fromId} inclusive
+     * to {@code toId} exclusive that have moved funds, in no particular order.
+     */
+    @Transactional(rollbackOn = Exception.class)
+    public void forEachMovement(long fromId, long toId, TransferMovementConsumer consumer) {
+        jdbcOperations.prepareStatement(
+            "SELECT id, sender_account_id, recipient_account_id, "
+                + "CAST(amount * 100 AS BIGINT) AS amount_cents "
+                + "FROM " + TRANSFERS_AND_JOURNAL + " WHERE id >= ? AND id < ? AND status = ?",
+            statement -> {
+                statement.setLong(1, fromId);
+                statement.setLong(2, toId);
+                statement.setString(3, TransferStatus.OK.name());
+                var resultSet = statement.executeQuery();
+                while (resultSet.next()) {
+                    var senderAccountId = UUID.fromString(
+                        resultSet.getString("sender_account_id"));
+                    var recipientAccountId = UUID.fromString(
+                        resultSet.getString("recipient_account_id"));
+                    consumer.accept(resultSet.getLong("id"),
+                        senderAccountId.getMostSignificantBits(),
+                        senderAccountId.getLeastSignificantBits(),
+                        recipientAccountId.getMostSignificantBits(),
+                        recipientAccountId.getLeastSignificantBits(),
+                        resultSet.getLong("amount_cents"));
+                }
+                return null;
+            }
+        );
+    }
+
+    /**
+     * Deletes the completed transfers with IDs in the given range created in the given time range.
+     *
+     * @return the number of deleted transfers
+     */
+    @Transactional(rollbackOn = Exception.class)
+    public int deleteCompletedCreatedBetween(LocalDateTime from, LocalDateTime to,
+        long minId, long maxId) {
+        return jdbcOperations.prepareStatement(
+            "DELETE FROM transfer WHERE created_at >= ? AND created_at < ? AND status <> ? "
+                + "AND id >= ? AND id <= ?",
+            statement -> {
+                statement.setTimestamp(1, Timestamp.valueOf(from));
+                statement.setTimestamp(2, Timestamp.valueOf(to));
+                statement.setString(3, TransferStatus.ACCEPTED.name());
+                statement.setLong(4, minId);
+                statement.setLong(5, maxId);
+                return statement.executeUpdate();
+            }
+        );
+    }
+
     //for testing
     @Transactional(rollbackOn = Exception.class)
     public void deleteAll() {
@@ -131,7 +385,18 @@ public class TransferRepository {
             PreparedStatement::executeUpdate);
     }
 
-    private static Transfer buildTransfer(ResultSet resultSet) throws SQLException {
+    /**
+     * A transfer that has been archived in the meantime isn't guarded by the unique index any
+     * longer. The archive publishes its segments before the transfers are deleted from the table,
+     * so an insert that didn't conflict with the table finds them in the archive.
+     */
+    private void checkNotArchived(UUID operationId) {
+        if (transferArchive.containsOperationId(operationId)) {
+            throw new DuplicateOperationIdException(operationId);
+        }
+    }
+
+    static Transfer buildTransfer(ResultSet resultSet) throws SQLException {
         return Transfer.builder()
             .id(resultSet.getLong("id"))
             .status(TransferStatus.valueOf(resultSet.getString("status")))
@@ -0,0 +1,231 @@
+package com.revolut.challenge.repositories.archive;
+
+import com.revolut.challenge.repositories.TransferMovementConsumer;
+import com.revolut.challenge.service.model.Transfer;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import io.micronaut.context.annotation.Value;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The cold tier of the transfer history: transfers that are older than the hot retention window
+ * are moved out of the {@code transfer} table into immutable segment files, one or more per day.
+ * If archiving is disabled, the archive is simply empty.
+ *
+ * <p>Every transfer checks that its operation ID hasn't been archived, so a single Bloom filter
+ * of the operation IDs of all segments answers most lookups. It is sized for twice the archived
+ * transfers, and rebuilt from the segments once they outgrow it.
+ */
+@Slf4j
+@Singleton
+@ParametersAreNonnullByDefault
+public class TransferArchive {
+
+    private static final String SEGMENT_SUFFIX = ".tseg";
+    private static final long MIN_OPERATION_ID_CAPACITY = 1024;
+
+    private final boolean enabled;
+    private final Path directory;
+
+    private volatile Segments segments;
+
+    /**
+     * @param directory the directory of the segments, which a partitioned instance keeps in a
+     * subdirectory of its own, as the instances of one host would overwrite each other's segments
+     */
+    @Inject
+    public TransferArchive(
+        @Value("${transfer-archive.enabled:false}") boolean enabled,
+        @Value("${transfer-archive.directory:transfer-archive}") String directory,
+        @Value("${partitioning.enabled:false}") boolean partitioned,
+        @Value("${partitioning.instance-index:0}") int instanceIndex
+    ) {
+        this.enabled = enabled;
+        this.directory = partitioned
+            ? Path.of(directory, "instance-" + instanceIndex)
+            : Path.of(directory);
+    }
+
+    TransferArchive(boolean enabled, String directory) {
+        this(enabled, directory, false, 0);
+    }
+
+    @NonNull
+    public Optional<Transfer> findByOperationId(UUID operationId) {
+        var loadedSegments = loadSegments();
+        if (!loadedSegments.operationIds.mightContain(operationId)) {
+            return Optional.empty();
+        }
+        for (var segment : loadedSegments.list) {
+            var transfer = segment.findByOperationId(operationId);
+            if (transfer.isPresent()) {
+                return transfer;
+            }
+        }
+        return Optional.empty();
+    }
+
+    public boolean containsOperationId(UUID operationId) {
+        return findByOperationId(operationId).isPresent();
+    }
+
+    /**
+     * @return the archived transfers sent or received by the account, ordered by ID
+     */
+    @NonNull
+    public List<Transfer> findByAccountId(UUID accountId) {
+        return getSegments().stream()
+            .flatMap(segment -> segment.findByAccountId(accountId).stream())
+            .sorted(Comparator.comparing(Transfer::getId))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Streams the archived transfers with IDs from {@code fromId} inclusive to {@code toId}
+     * exclusive that have moved funds, in no particular order.
+     *
+     * @return the IDs of all archived transfers in the range, sorted, so that the ones that are
+     * still in the {@code transfer} table can be told apart
+     */
+    @NonNull
+    public long[] forEachMovement(long fromId, long toId, TransferMovementConsumer consumer) {
+        var archivedIds = LongStream.builder();
+        for (var segment : getSegments()) {
+            for (var id : segment.forEachMovement(fromId, toId, consumer)) {
+                archivedIds.add(id);
+            }
+        }
+        return archivedIds.build().sorted().toArray();
+    }
+
+    /**
+     * @return the highest archived transfer ID, 0 if the archive is empty
+     */
+    public long getMaxId() {
+        return getSegments().stream()
+            .mapToLong(TransferArchiveSegment::getMaxId)
+            .max()
+            .orElse(0);
+    }
+
+    /**
+     * @return when the oldest segment was written, empty if the archive is empty
+     */
+    @NonNull
+    public Optional<Instant> getOldestSegmentWrittenAt() {
+        return getSegments().stream()
+            .map(TransferArchiveSegment::getWrittenAt)
+            .min(Comparator.naturalOrder());
+    }
+
+    boolean containsId(long id) {
+        return getSegments().stream().anyMatch(segment -> segment.containsId(id));
+    }
+
+    /**
+     * Writes the transfers of a single day, ordered by ID, to a new segment. The segment is
+     * visible to lookups once this method returns, so the transfers must only be deleted from the
+     * {@code transfer} table afterwards.
+     */
+    void archive(LocalDate day, List<Transfer> transfers) {
+        if (transfers.isEmpty()) {
+            return;
+        }
+        //loading the existing segments also creates the directory
+        loadSegments();
+        var file = directory.resolve(
+            "transfers-" + day + "-" + transfers.get(0).getId() + SEGMENT_SUFFIX);
+        var segment = TransferArchiveSegment.write(file, transfers);
+        synchronized (this) {
+            var updatedSegments = new ArrayList<>(segments.list);
+            updatedSegments.add(segment);
+            var rowCount = segments.rowCount + segment.getRowCount();
+            UuidBloomFilter operationIds;
+            if (rowCount <= segments.operationIds.getCapacity()) {
+                //copied, so that concurrent lookups never see a filter being modified
+                operationIds = segments.operationIds.copy();
+                segment.addOperationIdsTo(operationIds);
+            } else {
+                operationIds = buildOperationIdFilter(updatedSegments, rowCount);
+            }
+            segments = new Segments(List.copyOf(updatedSegments), rowCount, operationIds);
+        }
+        log.info("Archived {} transfers of {} to {}", transfers.size(), day, file);
+    }
+
+    private List<TransferArchiveSegment> getSegments() {
+        return loadSegments().list;
+    }
+
+    /**
+     * The segments are discovered on first use rather than on startup, since most requests never
+     * need the archive.
+     */
+    private Segments loadSegments() {
+        var loadedSegments = segments;
+        if (loadedSegments == null) {
+            synchronized (this) {
+                if (segments == null) {
+                    var list = enabled ? openSegments() : List.<TransferArchiveSegment>of();
+                    var rowCount = list.stream()
+                        .mapToLong(TransferArchiveSegment::getRowCount)
+                        .sum();
+                    segments = new Segments(list, rowCount,
+                        buildOperationIdFilter(list, rowCount));
+                }
+                loadedSegments = segments;
+            }
+        }
+        return loadedSegments;
+    }
+
+    private List<TransferArchiveSegment> openSegments() {
+        try {
+            Files.createDirectories(directory);
+            try (var files = Files.list(directory)) {
+                return files
+                    .filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .map(TransferArchiveSegment::open)
+                    .collect(Collectors.toUnmodifiableList());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load the transfer archive " + directory, e);
+        }
+    }
+
+    private static UuidBloomFilter buildOperationIdFilter(List<TransferArchiveSegment> segments,
+        long rowCount) {
+        var operationIds = UuidBloomFilter.withExpectedElements(
+            Math.toIntExact(Math.max(MIN_OPERATION_ID_CAPACITY, rowCount * 2)));
+        for (var segment : segments) {
+            segment.addOperationIdsTo(operationIds);
+        }
+        return operationIds;
+    }
+
+    @AllArgsConstructor
+    private static final class Segments {
+
+        private final List<TransferArchiveSegment> list;
+        private final long rowCount;
+        //never modified once published
+        private final UuidBloomFilter operationIds;
+    }
+}
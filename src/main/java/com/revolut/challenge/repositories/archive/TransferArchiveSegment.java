@@ -0,0 +1,494 @@
+package com.revolut.challenge.repositories.archive;
+
+import com.revolut.challenge.repositories.TransferMovementConsumer;
+import com.revolut.challenge.service.model.Transfer;
+import com.revolut.challenge.service.model.TransferStatus;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.SoftReference;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.GuardedBy;
+import lombok.Getter;
+
+/**
+ * An immutable, compressed file of archived transfers.
+ *
+ * <p>The file starts with an uncompressed header that holds the row count, the ID range and a
+ * Bloom filter of the account IDs, so that most lookups by account are answered without reading
+ * the rest of the file. The header is followed by the operation IDs, sorted and uncompressed, each
+ * with its row, so that a lookup by operation ID is a binary search that decompresses nothing
+ * unless the operation ID is found. The {@link TransferArchive} keeps a Bloom filter of the
+ * operation IDs of all segments, so most lookups don't even get that far. The operation IDs are
+ * followed by a GZIP stream with one column after another. The IDs and creation timestamps are
+ * delta-encoded, which makes them compress to almost nothing. The operation IDs and the columns
+ * are read on demand and cached while there is enough memory for them.
+ */
+@ParametersAreNonnullByDefault
+final class TransferArchiveSegment {
+
+    private static final int MAGIC = 0x54415232; //TAR2
+    //the most and least significant bits and the row
+    private static final int OPERATION_ID_ENTRY_BYTES = 2 * Long.BYTES + Integer.BYTES;
+    private static final int CURRENCY_LENGTH = 3;
+    private static final int CENTS_SCALE = 2;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final TransferStatus[] STATUSES = TransferStatus.values();
+
+    @Getter
+    private final Path file;
+    @Getter
+    private final int rowCount;
+    @Getter
+    private final long minId;
+    @Getter
+    private final long maxId;
+    private final UuidBloomFilter accountIds;
+
+    @GuardedBy("this")
+    private SoftReference<OperationIds> operationIds = new SoftReference<>(null);
+    @GuardedBy("this")
+    private SoftReference<Columns> columns = new SoftReference<>(null);
+
+    private TransferArchiveSegment(Path file, int rowCount, long minId, long maxId,
+        UuidBloomFilter accountIds) {
+        this.file = file;
+        this.rowCount = rowCount;
+        this.minId = minId;
+        this.maxId = maxId;
+        this.accountIds = accountIds;
+    }
+
+    /**
+     * Writes the transfers, which must be ordered by ID, to a new segment file. The file is
+     * written under a temporary name first, so a partially written segment is never opened.
+     */
+    @NonNull
+    static TransferArchiveSegment write(Path file, List<Transfer> transfers) {
+        var accountIds = UuidBloomFilter.withExpectedElements(transfers.size() * 2);
+        for (var transfer : transfers) {
+            accountIds.add(transfer.getSenderAccountId());
+            accountIds.add(transfer.getRecipientAccountId());
+        }
+        var segment = new TransferArchiveSegment(file, transfers.size(),
+            transfers.get(0).getId(), transfers.get(transfers.size() - 1).getId(), accountIds);
+        var operationIds = OperationIds.sort(transfers);
+        var temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (var output = new DataOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+            segment.writeHeader(output);
+            operationIds.write(output);
+            var compressed = new GZIPOutputStream(output);
+            writeColumns(new DataOutputStream(new BufferedOutputStream(compressed)), transfers);
+            compressed.finish();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write archive segment " + file, e);
+        }
+        try {
+            Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to publish archive segment " + file, e);
+        }
+        synchronized (segment) {
+            segment.operationIds = new SoftReference<>(operationIds);
+        }
+        return segment;
+    }
+
+    @NonNull
+    static TransferArchiveSegment open(Path file) {
+        try (var input = new DataInputStream(
+            new BufferedInputStream(Files.newInputStream(file)))) {
+            return readHeader(file, input);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open archive segment " + file, e);
+        }
+    }
+
+    /**
+     * @return when the segment file was written, segments are never modified afterwards
+     */
+    @NonNull
+    Instant getWrittenAt() {
+        try {
+            return Files.getLastModifiedTime(file).toInstant();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read archive segment " + file, e);
+        }
+    }
+
+    @NonNull
+    Optional<Transfer> findByOperationId(UUID operationId) {
+        var row = getOperationIds().findRow(operationId);
+        return row < 0 ? Optional.empty() : Optional.of(getColumns().buildTransfer(row));
+    }
+
+    void addOperationIdsTo(UuidBloomFilter filter) {
+        var sortedOperationIds = getOperationIds();
+        for (int i = 0; i < rowCount; i++) {
+            filter.add(sortedOperationIds.msb[i], sortedOperationIds.lsb[i]);
+        }
+    }
+
+    @NonNull
+    List<Transfer> findByAccountId(UUID accountId) {
+        if (!accountIds.mightContain(accountId)) {
+            return List.of();
+        }
+        var columns = getColumns();
+        var msb = accountId.getMostSignificantBits();
+        var lsb = accountId.getLeastSignificantBits();
+        var transfers = new ArrayList<Transfer>();
+        for (int row = 0; row < rowCount; row++) {
+            if ((columns.senderMsb[row] == msb && columns.senderLsb[row] == lsb)
+                || (columns.recipientMsb[row] == msb && columns.recipientLsb[row] == lsb)) {
+                transfers.add(columns.buildTransfer(row));
+            }
+        }
+        return transfers;
+    }
+
+    /**
+     * Passes the transfers with IDs in the given range that have moved funds to the consumer.
+     *
+     * @return the IDs of all transfers in the range, sorted
+     */
+    @NonNull
+    long[] forEachMovement(long fromId, long toId, TransferMovementConsumer consumer) {
+        if (toId <= minId || fromId > maxId) {
+            return new long[0];
+        }
+        var columns = getColumns();
+        var from = insertionPoint(columns.ids, fromId);
+        var to = insertionPoint(columns.ids, toId);
+        var okStatus = (byte) TransferStatus.OK.ordinal();
+        for (int row = from; row < to; row++) {
+            if (columns.statuses[row] == okStatus) {
+                consumer.accept(columns.ids[row], columns.senderMsb[row], columns.senderLsb[row],
+                    columns.recipientMsb[row], columns.recipientLsb[row],
+                    columns.amountCents[row]);
+            }
+        }
+        return Arrays.copyOfRange(columns.ids, from, to);
+    }
+
+    boolean containsId(long id) {
+        return id >= minId && id <= maxId && Arrays.binarySearch(getColumns().ids, id) >= 0;
+    }
+
+    private static int insertionPoint(long[] sortedIds, long id) {
+        var index = Arrays.binarySearch(sortedIds, id);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private synchronized OperationIds getOperationIds() {
+        var cached = operationIds.get();
+        if (cached == null) {
+            cached = readOperationIds();
+            operationIds = new SoftReference<>(cached);
+        }
+        return cached;
+    }
+
+    private synchronized Columns getColumns() {
+        var cached = columns.get();
+        if (cached == null) {
+            cached = readColumns();
+            columns = new SoftReference<>(cached);
+        }
+        return cached;
+    }
+
+    private void writeHeader(DataOutputStream output) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeInt(rowCount);
+        output.writeLong(minId);
+        output.writeLong(maxId);
+        writeWords(output, accountIds.toWords());
+    }
+
+    private static TransferArchiveSegment readHeader(Path file, DataInputStream input)
+        throws IOException {
+        if (input.readInt() != MAGIC) {
+            throw new IOException("Not an archive segment: " + file);
+        }
+        var rowCount = input.readInt();
+        var minId = input.readLong();
+        var maxId = input.readLong();
+        var accountIds = UuidBloomFilter.fromWords(readWords(input));
+        return new TransferArchiveSegment(file, rowCount, minId, maxId, accountIds);
+    }
+
+    private static void writeWords(DataOutputStream output, long[] words) throws IOException {
+        output.writeInt(words.length);
+        for (var word : words) {
+            output.writeLong(word);
+        }
+    }
+
+    private static long[] readWords(DataInputStream input) throws IOException {
+        var words = new long[input.readInt()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = input.readLong();
+        }
+        return words;
+    }
+
+    private static void writeColumns(DataOutputStream output, List<Transfer> transfers)
+        throws IOException {
+        var previousId = 0L;
+        for (var transfer : transfers) {
+            output.writeLong(transfer.getId() - previousId);
+            previousId = transfer.getId();
+        }
+        for (var transfer : transfers) {
+            output.writeLong(transfer.getOperationId().getMostSignificantBits());
+        }
+        for (var transfer : transfers) {
+            output.writeLong(transfer.getOperationId().getLeastSignificantBits());
+        }
+        for (var transfer : transfers) {
+            output.writeLong(transfer.getSenderAccountId().getMostSignificantBits());
+        }
+        for (var transfer : transfers) {
+            output.writeLong(transfer.getSenderAccountId().getLeastSignificantBits());
+        }
+        for (var transfer : transfers) {
+            output.writeLong(transfer.getRecipientAccountId().getMostSignificantBits());
+        }
+        for (var transfer : transfers) {
+            output.writeLong(transfer.getRecipientAccountId().getLeastSignificantBits());
+        }
+        for (var transfer : transfers) {
+            output.writeLong(
+                transfer.getAmount().setScale(CENTS_SCALE).unscaledValue().longValueExact());
+        }
+        for (var transfer : transfers) {
+            output.write(transfer.getCurrency().getBytes(StandardCharsets.US_ASCII));
+        }
+        var previousCreatedAt = 0L;
+        for (var transfer : transfers) {
+            var createdAt = toEpochNanos(transfer.getCreatedAt());
+            output.writeLong(createdAt - previousCreatedAt);
+            previousCreatedAt = createdAt;
+        }
+        for (var transfer : transfers) {
+            output.writeByte(transfer.getStatus().ordinal());
+        }
+        output.flush();
+    }
+
+    private OperationIds readOperationIds() {
+        try (var input = new DataInputStream(
+            new BufferedInputStream(Files.newInputStream(file)))) {
+            readHeader(file, input);
+            return OperationIds.read(input, rowCount);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read archive segment " + file, e);
+        }
+    }
+
+    private Columns readColumns() {
+        try (var input = new DataInputStream(
+            new BufferedInputStream(Files.newInputStream(file)))) {
+            readHeader(file, input);
+            skipFully(input, (long) rowCount * OPERATION_ID_ENTRY_BYTES);
+            var compressed = new DataInputStream(
+                new BufferedInputStream(new GZIPInputStream(input)));
+            var columns = new Columns(rowCount);
+            var id = 0L;
+            for (int row = 0; row < rowCount; row++) {
+                id += compressed.readLong();
+                columns.ids[row] = id;
+            }
+            readLongs(compressed, columns.operationIdMsb);
+            readLongs(compressed, columns.operationIdLsb);
+            readLongs(compressed, columns.senderMsb);
+            readLongs(compressed, columns.senderLsb);
+            readLongs(compressed, columns.recipientMsb);
+            readLongs(compressed, columns.recipientLsb);
+            readLongs(compressed, columns.amountCents);
+            compressed.readFully(columns.currencies);
+            var createdAt = 0L;
+            for (int row = 0; row < rowCount; row++) {
+                createdAt += compressed.readLong();
+                columns.createdAtEpochNanos[row] = createdAt;
+            }
+            compressed.readFully(columns.statuses);
+            return columns;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read archive segment " + file, e);
+        }
+    }
+
+    private static void skipFully(DataInputStream input, long bytes) throws IOException {
+        var remaining = bytes;
+        while (remaining > 0) {
+            var skipped = input.skipBytes((int) Math.min(remaining, Integer.MAX_VALUE));
+            if (skipped <= 0) {
+                throw new EOFException("Truncated archive segment");
+            }
+            remaining -= skipped;
+        }
+    }
+
+    private static void readLongs(DataInputStream input, long[] column) throws IOException {
+        for (int row = 0; row < column.length; row++) {
+            column[row] = input.readLong();
+        }
+    }
+
+    private static long toEpochNanos(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * NANOS_PER_SECOND + dateTime.getNano();
+    }
+
+    /**
+     * The operation IDs ordered by their most and then their least significant bits, as signed
+     * longs, each with the row of its transfer.
+     */
+    private static final class OperationIds {
+
+        private final long[] msb;
+        private final long[] lsb;
+        private final int[] rows;
+
+        private OperationIds(int rowCount) {
+            msb = new long[rowCount];
+            lsb = new long[rowCount];
+            rows = new int[rowCount];
+        }
+
+        private static OperationIds sort(List<Transfer> transfers) {
+            var sortedRows = IntStream.range(0, transfers.size())
+                .boxed()
+                .sorted(Comparator
+                    .<Integer>comparingLong(
+                        row -> transfers.get(row).getOperationId().getMostSignificantBits())
+                    .thenComparingLong(
+                        row -> transfers.get(row).getOperationId().getLeastSignificantBits()))
+                .mapToInt(Integer::intValue)
+                .toArray();
+            var operationIds = new OperationIds(transfers.size());
+            for (int i = 0; i < sortedRows.length; i++) {
+                var operationId = transfers.get(sortedRows[i]).getOperationId();
+                operationIds.msb[i] = operationId.getMostSignificantBits();
+                operationIds.lsb[i] = operationId.getLeastSignificantBits();
+                operationIds.rows[i] = sortedRows[i];
+            }
+            return operationIds;
+        }
+
+        private static OperationIds read(DataInputStream input, int rowCount)
+            throws IOException {
+            var operationIds = new OperationIds(rowCount);
+            for (int i = 0; i < rowCount; i++) {
+                operationIds.msb[i] = input.readLong();
+                operationIds.lsb[i] = input.readLong();
+                operationIds.rows[i] = input.readInt();
+            }
+            return operationIds;
+        }
+
+        private void write(DataOutputStream output) throws IOException {
+            for (int i = 0; i < rows.length; i++) {
+                output.writeLong(msb[i]);
+                output.writeLong(lsb[i]);
+                output.writeInt(rows[i]);
+            }
+        }
+
+        /**
+         * @return the row of the transfer, or -1 if the operation ID isn't in the segment
+         */
+        private int findRow(UUID operationId) {
+            var targetMsb = operationId.getMostSignificantBits();
+            var targetLsb = operationId.getLeastSignificantBits();
+            var low = 0;
+            var high = rows.length - 1;
+            while (low <= high) {
+                var middle = (low + high) >>> 1;
+                var comparison = Long.compare(msb[middle], targetMsb);
+                if (comparison == 0) {
+                    comparison = Long.compare(lsb[middle], targetLsb);
+                }
+                if (comparison < 0) {
+                    low = middle + 1;
+                } else if (comparison > 0) {
+                    high = middle - 1;
+                } else {
+                    return rows[middle];
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static final class Columns {
+
+        private final long[] ids;
+        private final long[] operationIdMsb;
+        private final long[] operationIdLsb;
+        private final long[] senderMsb;
+        private final long[] senderLsb;
+        private final long[] recipientMsb;
+        private final long[] recipientLsb;
+        private final long[] amountCents;
+        private final byte[] currencies;
+        private final long[] createdAtEpochNanos;
+        private final byte[] statuses;
+
+        private Columns(int rowCount) {
+            ids = new long[rowCount];
+            operationIdMsb = new long[rowCount];
+            operationIdLsb = new long[rowCount];
+            senderMsb = new long[rowCount];
+            senderLsb = new long[rowCount];
+            recipientMsb = new long[rowCount];
+            recipientLsb = new long[rowCount];
+            amountCents = new long[rowCount];
+            currencies = new byte[rowCount * CURRENCY_LENGTH];
+            createdAtEpochNanos = new long[rowCount];
+            statuses = new byte[rowCount];
+        }
+
+        private Transfer buildTransfer(int row) {
+            var createdAt = createdAtEpochNanos[row];
+            return Transfer.builder()
+                .id(ids[row])
+                .operationId(new UUID(operationIdMsb[row], operationIdLsb[row]))
+                .senderAccountId(new UUID(senderMsb[row], senderLsb[row]))
+                .recipientAccountId(new UUID(recipientMsb[row], recipientLsb[row]))
+                .amount(BigDecimal.valueOf(amountCents[row], CENTS_SCALE))
+                .currency(new String(currencies, row * CURRENCY_LENGTH, CURRENCY_LENGTH,
+                    StandardCharsets.US_ASCII))
+                .createdAt(LocalDateTime.ofEpochSecond(
+                    Math.floorDiv(createdAt, NANOS_PER_SECOND),
+                    (int) Math.floorMod(createdAt, NANOS_PER_SECOND),
+                    ZoneOffset.UTC))
+                .status(STATUSES[statuses[row]])
+                .build();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.revolut.challenge.repositories.archive;
+
+import com.revolut.challenge.repositories.TransferRepository;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.scheduling.annotation.Scheduled;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.stream.Collectors;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Periodically moves the transfers that are older than the hot retention window from the
+ * {@code transfer} table to the {@link TransferArchive}, one day at a time. Keeping the table
+ * and its {@code operation_id} index bounded keeps the insert latency flat over time.
+ */
+@Slf4j
+@Singleton
+@ParametersAreNonnullByDefault
+@Requires(property = "transfer-archive.enabled", value = "true")
+public class TransferArchiver {
+
+    private final TransferRepository transferRepository;
+    private final TransferArchive transferArchive;
+    private final Duration hotRetention;
+    private final int segmentSize;
+
+    public TransferArchiver(
+        TransferRepository transferRepository,
+        TransferArchive transferArchive,
+        @Value("${transfer-archive.hot-retention:30d}") Duration hotRetention,
+        @Value("${transfer-archive.segment-size:100000}") int segmentSize
+    ) {
+        this.transferRepository = transferRepository;
+        this.transferArchive = transferArchive;
+        this.hotRetention = hotRetention;
+        this.segmentSize = segmentSize;
+    }
+
+    @Scheduled(
+        fixedDelay = "${transfer-archive.compaction-interval:1h}",
+        initialDelay = "${transfer-archive.compaction-initial-delay:1m}"
+    )
+    public void compact() {
+        var cutoff = LocalDateTime.now(ZoneId.of("UTC")).minus(hotRetention);
+        var oldest = transferRepository.getOldestCompletedCreatedAt();
+        while (oldest.isPresent() && oldest.get().isBefore(cutoff)) {
+            var day = oldest.get().toLocalDate();
+            var from = day.atStartOfDay();
+            var endOfDay = day.plusDays(1).atStartOfDay();
+            var to = endOfDay.isBefore(cutoff) ? endOfDay : cutoff;
+            var transfers = transferRepository.getCompletedCreatedBetween(from, to, segmentSize);
+            var minId = transfers.get(0).getId();
+            var maxId = transfers.get(transfers.size() - 1).getId();
+            //skip the transfers that were archived before a crash prevented their deletion
+            transferArchive.archive(day, transfers.stream()
+                .filter(transfer -> !transferArchive.containsId(transfer.getId()))
+                .collect(Collectors.toList()));
+            var deleted = transferRepository.deleteCompletedCreatedBetween(from, to, minId, maxId);
+            log.debug("Deleted {} archived transfers of {} from the hot storage", deleted, day);
+            oldest = transferRepository.getOldestCompletedCreatedAt();
+        }
+    }
+}
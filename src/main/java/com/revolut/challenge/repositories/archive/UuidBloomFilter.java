@@ -0,0 +1,82 @@
+package com.revolut.challenge.repositories.archive;
+
+import java.util.UUID;
+import javax.annotation.ParametersAreNonnullByDefault;
+
+/**
+ * A Bloom filter of UUIDs. The two halves of a UUID are mixed by the SplitMix64 finalizer into
+ * the two base hashes for double hashing, since client-chosen UUIDs aren't necessarily random.
+ */
+@ParametersAreNonnullByDefault
+final class UuidBloomFilter {
+
+    private static final int BITS_PER_ELEMENT = 10;
+    private static final int HASH_FUNCTIONS = 7;
+
+    private final long[] bits;
+
+    private UuidBloomFilter(long[] bits) {
+        this.bits = bits;
+    }
+
+    static UuidBloomFilter withExpectedElements(int expectedElements) {
+        var bitCount = Math.max(Long.SIZE, (long) expectedElements * BITS_PER_ELEMENT);
+        return new UuidBloomFilter(new long[(int) ((bitCount + Long.SIZE - 1) / Long.SIZE)]);
+    }
+
+    static UuidBloomFilter fromWords(long[] words) {
+        return new UuidBloomFilter(words);
+    }
+
+    long[] toWords() {
+        return bits;
+    }
+
+    UuidBloomFilter copy() {
+        return new UuidBloomFilter(bits.clone());
+    }
+
+    /**
+     * @return the number of elements the filter is sized for
+     */
+    long getCapacity() {
+        return (long) bits.length * Long.SIZE / BITS_PER_ELEMENT;
+    }
+
+    void add(UUID uuid) {
+        add(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    void add(long uuidMsb, long uuidLsb) {
+        var bitCount = (long) bits.length * Long.SIZE;
+        var hash1 = mix(uuidMsb);
+        var hash2 = mix(uuidLsb);
+        for (int i = 0; i < HASH_FUNCTIONS; i++) {
+            var bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    boolean mightContain(UUID uuid) {
+        var bitCount = (long) bits.length * Long.SIZE;
+        var hash1 = mix(uuid.getMostSignificantBits());
+        var hash2 = mix(uuid.getLeastSignificantBits());
+        for (int i = 0; i < HASH_FUNCTIONS; i++) {
+            var bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The finalizer of SplitMix64, so that UUIDs with predictable bits are spread evenly too.
+     */
+    private static long mix(long value) {
+        var z = value;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
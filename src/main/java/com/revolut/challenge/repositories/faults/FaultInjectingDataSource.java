@@ -0,0 +1,98 @@
+package com.revolut.challenge.repositories.faults;
+
+import com.revolut.challenge.repositories.jdbc.InterceptingDataSource;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.sql.DataSource;
+
+/**
+ * Wraps the connections of a data source, so that getting them and executing their statements
+ * suffer the faults decided by {@link FaultInjection}.
+ *
+ * <p>A connection that failed once stays broken: its statements and its commit fail too, while
+ * its rollback goes through, as the database would abort the transaction of a lost connection.
+ * The pooled connection itself stays healthy, so the pool doesn't have to replace it.
+ */
+@ParametersAreNonnullByDefault
+class FaultInjectingDataSource extends InterceptingDataSource<FaultInjectingDataSource.Session> {
+
+    //H2 takes both in milliseconds
+    private static final Pattern SESSION_TIMEOUT = Pattern.compile(
+        "\\s*SET\\s+(LOCK_TIMEOUT|QUERY_TIMEOUT)\\s+(\\d+)\\s*", Pattern.CASE_INSENSITIVE);
+
+    private final FaultInjection faultInjection;
+
+    FaultInjectingDataSource(DataSource dataSource, FaultInjection faultInjection) {
+        super(dataSource);
+        this.faultInjection = faultInjection;
+    }
+
+    @Override
+    protected void beforeConnection() throws SQLException {
+        faultInjection.beforeConnection();
+    }
+
+    @Override
+    protected Session openSession() {
+        return new Session();
+    }
+
+    @Override
+    protected void beforeCommit(@Nullable Session session) throws SQLException {
+        Objects.requireNonNull(session).checkNotBroken();
+    }
+
+    @Override
+    protected Object execute(@Nullable Session session, String sql, Execution execution)
+        throws Throwable {
+        var borrowed = Objects.requireNonNull(session);
+        borrowed.checkNotBroken();
+        try {
+            faultInjection.beforeExecution(sql, borrowed.lockTimeoutNanos,
+                borrowed.queryTimeoutNanos);
+        } catch (SQLNonTransientConnectionException e) {
+            borrowed.broken = true;
+            throw e;
+        }
+        var result = execution.proceed();
+        borrowed.recordTimeout(sql);
+        return result;
+    }
+
+    /**
+     * The state of a borrowed connection. The timeouts are those set while it's borrowed, as
+     * the transactions that set them reset them before giving the connection back.
+     */
+    static final class Session {
+
+        //-1 for the lock timeout of the data source
+        private long lockTimeoutNanos = -1;
+        private long queryTimeoutNanos;
+        private boolean broken;
+
+        private void checkNotBroken() throws SQLException {
+            if (broken) {
+                throw new SQLNonTransientConnectionException("Connection broken by an injected "
+                    + "failure", "08006");
+            }
+        }
+
+        private void recordTimeout(String sql) {
+            var matcher = SESSION_TIMEOUT.matcher(sql);
+            if (!matcher.matches()) {
+                return;
+            }
+            var nanos = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(matcher.group(2)));
+            if (matcher.group(1).equalsIgnoreCase("LOCK_TIMEOUT")) {
+                lockTimeoutNanos = nanos;
+            } else {
+                queryTimeoutNanos = nanos;
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.revolut.challenge.repositories.faults;
+
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.event.BeanCreatedEvent;
+import io.micronaut.context.event.BeanCreatedEventListener;
+import io.micronaut.core.order.Ordered;
+import javax.inject.Singleton;
+import javax.sql.DataSource;
+
+/**
+ * Wraps the data sources as they're created, so that every database operation of the service
+ * suffers the injected faults. Never enable it in production.
+ */
+@Singleton
+@Requires(property = "fault-injection.enabled", value = "true")
+class FaultInjectingDataSourceListener implements BeanCreatedEventListener<DataSource>, Ordered {
+
+    private final FaultInjection faultInjection;
+
+    FaultInjectingDataSourceListener(FaultInjection faultInjection) {
+        this.faultInjection = faultInjection;
+    }
+
+    @Override
+    public DataSource onCreated(BeanCreatedEvent<DataSource> event) {
+        return new FaultInjectingDataSource(event.getBean(), faultInjection);
+    }
+
+    /**
+     * Runs before the other listeners, so that the injected latency is measured by the SQL
+     * statistics like that of the database.
+     */
+    @Override
+    public int getOrder() {
+        return HIGHEST_PRECEDENCE;
+    }
+}
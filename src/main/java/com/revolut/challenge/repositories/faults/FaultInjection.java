@@ -0,0 +1,148 @@
+package com.revolut.challenge.repositories.faults;
+
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.context.env.Environment;
+import io.micronaut.context.event.StartupEvent;
+import io.micronaut.runtime.event.annotation.EventListener;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Decides the latency and the failures injected into the database operations, so that the tail
+ * latency of the service and its handling of retries, timeouts and pooling can be measured
+ * against an in-memory database (fault-injection.enabled).
+ *
+ * <p>Every statement is delayed according to the {@link FaultProfile} of its
+ * {@link StatementType}, and may then fail with a lock timeout, after waiting for
+ * {@code fault-injection.lock-timeout} or the lock timeout of the session if that's shorter, or
+ * with a broken connection. Getting a connection is delayed and may fail according to
+ * {@code fault-injection.connection}. A delay longer than the query timeout of the session
+ * cancels the statement when the timeout expires, as the database would.
+ *
+ * <p>Faults are injected from startup on, so that the migrations run unharmed.
+ */
+@Slf4j
+@Singleton
+@ThreadSafe
+@Requires(property = "fault-injection.enabled", value = "true")
+@ParametersAreNonnullByDefault
+class FaultInjection {
+
+    private static final String PREFIX = "fault-injection";
+    //as reported by H2
+    private static final int LOCK_TIMEOUT_ERROR_CODE = 50200;
+    private static final int STATEMENT_CANCELED_ERROR_CODE = 57014;
+    private static final int MAX_CACHED_STATEMENTS = 1024;
+
+    private final Map<StatementType, FaultProfile> profiles = new EnumMap<>(StatementType.class);
+    private final FaultProfile connectionProfile;
+    private final long lockTimeoutNanos;
+    private final Map<String, StatementType> typesBySql = new ConcurrentHashMap<>();
+    private volatile boolean active;
+
+    FaultInjection(
+        Environment environment,
+        @Value("${fault-injection.lock-timeout:1s}") Duration lockTimeout
+    ) {
+        for (var type : StatementType.values()) {
+            profiles.put(type, FaultProfile.load(environment, PREFIX + "." + type.getKey()));
+        }
+        connectionProfile = FaultProfile.load(environment, PREFIX + ".connection");
+        lockTimeoutNanos = lockTimeout.toNanos();
+    }
+
+    @EventListener
+    void onStartup(StartupEvent event) {
+        log.warn("Injecting latency and failures into the database operations");
+        active = true;
+    }
+
+    /**
+     * Delays getting a connection and may fail it.
+     */
+    void beforeConnection() throws SQLException {
+        if (!active) {
+            return;
+        }
+        var random = ThreadLocalRandom.current();
+        sleep(connectionProfile.sampleLatencyNanos(random));
+        if (connectionProfile.sampleConnectionFailure(random)) {
+            throw new SQLTransientConnectionException("Injected failure to connect", "08001");
+        }
+    }
+
+    /**
+     * Delays the execution of the statement and may fail it.
+     *
+     * @param sessionLockTimeoutNanos the lock timeout set on the session, or -1 if not set
+     * @param sessionQueryTimeoutNanos the query timeout set on the session, or 0 if not set
+     * @throws SQLNonTransientConnectionException if the connection is to be treated as broken
+     */
+    void beforeExecution(String sql, long sessionLockTimeoutNanos, long sessionQueryTimeoutNanos)
+        throws SQLException {
+        if (!active) {
+            return;
+        }
+        var profile = profiles.get(getType(sql));
+        if (profile == FaultProfile.NONE) {
+            return;
+        }
+        var random = ThreadLocalRandom.current();
+        var delayNanos = profile.sampleLatencyNanos(random);
+        var lockTimeout = profile.sampleLockTimeout(random);
+        if (lockTimeout) {
+            delayNanos += sessionLockTimeoutNanos < 0
+                ? lockTimeoutNanos
+                : Math.min(lockTimeoutNanos, sessionLockTimeoutNanos);
+        }
+        if (sessionQueryTimeoutNanos > 0 && delayNanos > sessionQueryTimeoutNanos) {
+            sleep(sessionQueryTimeoutNanos);
+            throw new SQLTimeoutException("Injected statement cancellation", "57014",
+                STATEMENT_CANCELED_ERROR_CODE);
+        }
+        sleep(delayNanos);
+        if (lockTimeout) {
+            throw new SQLTimeoutException("Injected timeout trying to lock", "HYT00",
+                LOCK_TIMEOUT_ERROR_CODE);
+        }
+        if (profile.sampleConnectionFailure(random)) {
+            throw new SQLNonTransientConnectionException("Injected connection failure", "08006");
+        }
+    }
+
+    private StatementType getType(String sql) {
+        var type = typesBySql.get(sql);
+        if (type == null) {
+            type = StatementType.of(sql);
+            if (typesBySql.size() < MAX_CACHED_STATEMENTS) {
+                typesBySql.putIfAbsent(sql, type);
+            }
+        }
+        return type;
+    }
+
+    private static void sleep(long nanos) throws SQLException {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while injecting latency", e);
+        }
+    }
+}
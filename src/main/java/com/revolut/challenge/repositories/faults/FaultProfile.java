@@ -0,0 +1,92 @@
+package com.revolut.challenge.repositories.faults;
+
+import io.micronaut.core.value.PropertyResolver;
+import java.time.Duration;
+import java.util.Random;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * The latency and the failures injected into one kind of operation. The latency follows a
+ * log-normal distribution given by its median and its 99th percentile, which has the long right
+ * tail of the latency of a real database: e.g. a median of 1ms and a 99th percentile of 20ms put
+ * the 99.9th percentile at about 50ms.
+ */
+@Immutable
+@ParametersAreNonnullByDefault
+final class FaultProfile {
+
+    static final FaultProfile NONE = new FaultProfile(Duration.ZERO, Duration.ZERO, 0, 0);
+
+    //the 99th percentile of the standard normal distribution
+    private static final double Z_99 = 2.3263;
+
+    private final long medianNanos;
+    private final double mu;
+    private final double sigma;
+    private final double lockTimeoutRate;
+    private final double connectionFailureRate;
+
+    /**
+     * @param lockTimeoutRate the share of the operations failing with a lock timeout
+     * @param connectionFailureRate the share of the operations failing with a broken connection
+     */
+    FaultProfile(Duration medianLatency, Duration p99Latency, double lockTimeoutRate,
+        double connectionFailureRate) {
+        if (medianLatency.isNegative() || p99Latency.compareTo(medianLatency) < 0) {
+            throw new IllegalArgumentException("Invalid latency with a median of " + medianLatency
+                + " and a 99th percentile of " + p99Latency);
+        }
+        if (!isRate(lockTimeoutRate) || !isRate(connectionFailureRate)) {
+            throw new IllegalArgumentException("Invalid lock timeout rate " + lockTimeoutRate
+                + " or connection failure rate " + connectionFailureRate);
+        }
+        this.medianNanos = medianLatency.toNanos();
+        this.mu = medianNanos == 0 ? 0 : Math.log(medianNanos);
+        this.sigma = medianNanos == 0
+            ? 0
+            : Math.log((double) p99Latency.toNanos() / medianNanos) / Z_99;
+        this.lockTimeoutRate = lockTimeoutRate;
+        this.connectionFailureRate = connectionFailureRate;
+    }
+
+    /**
+     * Reads {@code <prefix>.median-latency}, {@code <prefix>.p99-latency} (the median by
+     * default), {@code <prefix>.lock-timeout-rate} and {@code <prefix>.connection-failure-rate}.
+     */
+    static FaultProfile load(PropertyResolver propertyResolver, String prefix) {
+        var medianLatency = propertyResolver.getProperty(prefix + ".median-latency",
+            Duration.class).orElse(Duration.ZERO);
+        var profile = new FaultProfile(
+            medianLatency,
+            propertyResolver.getProperty(prefix + ".p99-latency", Duration.class)
+                .orElse(medianLatency),
+            propertyResolver.getProperty(prefix + ".lock-timeout-rate", Double.class).orElse(0.0),
+            propertyResolver.getProperty(prefix + ".connection-failure-rate", Double.class)
+                .orElse(0.0));
+        return profile.isNone() ? NONE : profile;
+    }
+
+    private boolean isNone() {
+        return medianNanos == 0 && lockTimeoutRate == 0 && connectionFailureRate == 0;
+    }
+
+    long sampleLatencyNanos(Random random) {
+        if (medianNanos == 0) {
+            return 0;
+        }
+        return (long) Math.exp(mu + sigma * random.nextGaussian());
+    }
+
+    boolean sampleLockTimeout(Random random) {
+        return lockTimeoutRate > 0 && random.nextDouble() < lockTimeoutRate;
+    }
+
+    boolean sampleConnectionFailure(Random random) {
+        return connectionFailureRate > 0 && random.nextDouble() < connectionFailureRate;
+    }
+
+    private static boolean isRate(double rate) {
+        return rate >= 0 && rate <= 1;
+    }
+}
@@ -0,0 +1,53 @@
+package com.revolut.challenge.repositories.faults;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+import javax.annotation.ParametersAreNonnullByDefault;
+
+/**
+ * The kinds of statements that faults are configured for, under
+ * {@code fault-injection.<key>}.
+ */
+@ParametersAreNonnullByDefault
+enum StatementType {
+    SELECT("select"),
+    SELECT_FOR_UPDATE("select-for-update"),
+    INSERT("insert"),
+    UPDATE("update"),
+    DELETE("delete"),
+    OTHER("other");
+
+    private static final Pattern LOCKING = Pattern.compile("\\bFOR\\s+UPDATE\\b",
+        Pattern.CASE_INSENSITIVE);
+
+    private final String key;
+
+    StatementType(String key) {
+        this.key = key;
+    }
+
+    String getKey() {
+        return key;
+    }
+
+    static StatementType of(String sql) {
+        var trimmed = sql.stripLeading();
+        var end = 0;
+        while (end < trimmed.length() && Character.isLetter(trimmed.charAt(end))) {
+            end++;
+        }
+        switch (trimmed.substring(0, end).toUpperCase(Locale.ROOT)) {
+            case "SELECT":
+                return LOCKING.matcher(trimmed).find() ? SELECT_FOR_UPDATE : SELECT;
+            case "INSERT":
+            case "MERGE":
+                return INSERT;
+            case "UPDATE":
+                return UPDATE;
+            case "DELETE":
+                return DELETE;
+            default:
+                return OTHER;
+        }
+    }
+}
@@ -0,0 +1,420 @@
+package com.revolut.challenge.repositories.index;
+
+import com.revolut.challenge.service.model.AccountFunds;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * An open-addressing hash table of account balances that lives outside the Java heap, so that
+ * even hundreds of millions of accounts neither take hundreds of bytes each nor slow down the
+ * garbage collection.
+ *
+ * <p>Every account takes a single 32-byte slot of a direct buffer: the two halves of the account
+ * ID, the balance in cents and a word that packs a 48-bit version with the currency code, whose
+ * letters take 5 bits each. With the maximum load factor of 0.75 an account takes about 43 bytes.
+ * The nil UUID marks an empty slot, so it can't be used as an account ID.
+ *
+ * <p>The table is split into segments, each with a buffer of its own and a lock of its own.
+ * Lookups are lock-free unless they race with a write to the same segment. Collisions are
+ * resolved by linear probing, and removals shift the following entries back, so there are no
+ * tombstones. The table never grows: an entry that doesn't fit is simply not stored, which
+ * suits a cache, while an authoritative store should be sized with enough headroom.
+ */
+@ThreadSafe
+@ParametersAreNonnullByDefault
+public final class OffHeapAccountIndex {
+
+    static final int SLOT_SIZE = 32;
+    private static final int MSB_OFFSET = 0;
+    private static final int LSB_OFFSET = 8;
+    private static final int BALANCE_OFFSET = 16;
+    private static final int VERSION_AND_CURRENCY_OFFSET = 24;
+
+    private static final int CURRENCY_BITS = 16;
+    private static final int CURRENCY_LETTER_BITS = 5;
+    private static final int CURRENCY_LENGTH = 3;
+    private static final long MAX_VERSION = (1L << (Long.SIZE - CURRENCY_BITS)) - 1;
+    private static final int CENTS_SCALE = 2;
+
+    private static final double MAX_LOAD_FACTOR = 0.75;
+    //1 GB buffers, slots are picked by the lowest bits of the hash and segments by the highest
+    private static final int MAX_SEGMENT_SLOTS = 1 << 25;
+    private static final int SEGMENT_HASH_SHIFT = 40;
+    private static final int DEFAULT_SEGMENT_COUNT = 64;
+
+    private final Segment[] segments;
+
+    private OffHeapAccountIndex(int segmentCount, int segmentSlots) {
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(segmentSlots);
+        }
+    }
+
+    /**
+     * @return a table that can hold the expected number of accounts
+     */
+    public static OffHeapAccountIndex withExpectedAccounts(long expectedAccounts) {
+        return withExpectedAccounts(expectedAccounts, DEFAULT_SEGMENT_COUNT);
+    }
+
+    static OffHeapAccountIndex withExpectedAccounts(long expectedAccounts, int segmentCount) {
+        if (Integer.bitCount(segmentCount) != 1) {
+            throw new IllegalArgumentException("The segment count must be a power of two");
+        }
+        var slotsPerSegment = (long) Math.ceil(expectedAccounts / MAX_LOAD_FACTOR / segmentCount);
+        var segmentSlots = Long.highestOneBit(Math.max(slotsPerSegment - 1, 1)) << 1;
+        if (segmentSlots > MAX_SEGMENT_SLOTS) {
+            throw new IllegalArgumentException(
+                "Too many accounts for " + segmentCount + " segments: " + expectedAccounts);
+        }
+        return new OffHeapAccountIndex(segmentCount, (int) segmentSlots);
+    }
+
+    /**
+     * @return whether the account can be stored in the table: its balance has to fit into a long
+     * in cents, its currency has to consist of three Latin capital letters and its version has to
+     * fit into 48 bits
+     */
+    public static boolean isStorable(AccountFunds accountFunds) {
+        return !isEmptyKey(accountFunds.getAccountId().getMostSignificantBits(),
+            accountFunds.getAccountId().getLeastSignificantBits())
+            && accountFunds.getVersion() != null
+            && accountFunds.getVersion() >= 0
+            && accountFunds.getVersion() <= MAX_VERSION
+            && encodeCurrency(accountFunds.getCurrency()) >= 0
+            && toCents(accountFunds.getBalance()) != null;
+    }
+
+    /**
+     * Stores the account unless the table already holds the same or a newer version of it. This
+     * way a slow reader can't overwrite a balance with an older one.
+     *
+     * @return whether the account has been stored, which isn't the case if the table holds a
+     * newer version, if the segment is full or if the account isn't {@link #isStorable storable}
+     */
+    public boolean putIfNewer(AccountFunds accountFunds) {
+        if (!isStorable(accountFunds)) {
+            return false;
+        }
+        var msb = accountFunds.getAccountId().getMostSignificantBits();
+        var lsb = accountFunds.getAccountId().getLeastSignificantBits();
+        var hash = hash(msb, lsb);
+        return segmentFor(hash).putIfNewer(hash, msb, lsb,
+            toCents(accountFunds.getBalance()),
+            accountFunds.getVersion() << CURRENCY_BITS
+                | encodeCurrency(accountFunds.getCurrency()));
+    }
+
+    @Nullable
+    public AccountFunds get(UUID accountId) {
+        var msb = accountId.getMostSignificantBits();
+        var lsb = accountId.getLeastSignificantBits();
+        var hash = hash(msb, lsb);
+        var entry = new long[2];
+        if (!segmentFor(hash).get(hash, msb, lsb, entry)) {
+            return null;
+        }
+        return AccountFunds.builder()
+            .accountId(accountId)
+            .balance(BigDecimal.valueOf(entry[0], CENTS_SCALE))
+            .currency(decodeCurrency(entry[1] & ((1 << CURRENCY_BITS) - 1)))
+            .version(entry[1] >>> CURRENCY_BITS)
+            .build();
+    }
+
+    /**
+     * @return the balance in cents, or {@link Long#MIN_VALUE} if the account isn't stored. Unlike
+     * {@link #get(UUID)}, this doesn't allocate anything on the heap
+     */
+    public long getBalanceCents(long accountIdMsb, long accountIdLsb) {
+        var hash = hash(accountIdMsb, accountIdLsb);
+        return segmentFor(hash).getBalanceCents(hash, accountIdMsb, accountIdLsb);
+    }
+
+    public void remove(UUID accountId) {
+        var msb = accountId.getMostSignificantBits();
+        var lsb = accountId.getLeastSignificantBits();
+        var hash = hash(msb, lsb);
+        segmentFor(hash).remove(hash, msb, lsb);
+    }
+
+    public void clear() {
+        for (var segment : segments) {
+            segment.clear();
+        }
+    }
+
+    public long size() {
+        var size = 0L;
+        for (var segment : segments) {
+            size += segment.getSize();
+        }
+        return size;
+    }
+
+    /**
+     * @return the number of accounts that the table can hold
+     */
+    public long getCapacity() {
+        return (long) segments.length * segments[0].maxSize;
+    }
+
+    /**
+     * @return the off-heap memory taken by the table, in bytes
+     */
+    public long getMemoryFootprint() {
+        return (long) segments.length * segments[0].slots * SLOT_SIZE;
+    }
+
+    private Segment segmentFor(long hash) {
+        return segments[(int) (hash >>> SEGMENT_HASH_SHIFT) & (segments.length - 1)];
+    }
+
+    private static boolean isEmptyKey(long msb, long lsb) {
+        return msb == 0 && lsb == 0;
+    }
+
+    /**
+     * The SplitMix64 finalizer, so that sequential and random IDs alike spread over all segments
+     * and slots.
+     */
+    private static long hash(long msb, long lsb) {
+        var hash = msb ^ Long.rotateLeft(lsb, 32);
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+
+    @Nullable
+    private static Long toCents(BigDecimal amount) {
+        try {
+            return amount.setScale(CENTS_SCALE).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the letters of the currency code packed into 15 bits, or -1 if the code isn't
+     * three Latin capital letters
+     */
+    private static long encodeCurrency(String currency) {
+        if (currency.length() != CURRENCY_LENGTH) {
+            return -1;
+        }
+        var code = 0L;
+        for (int i = 0; i < CURRENCY_LENGTH; i++) {
+            var letter = currency.charAt(i);
+            if (letter < 'A' || letter > 'Z') {
+                return -1;
+            }
+            code = code << CURRENCY_LETTER_BITS | (letter - 'A' + 1);
+        }
+        return code;
+    }
+
+    private static String decodeCurrency(long code) {
+        var letters = new char[CURRENCY_LENGTH];
+        for (int i = CURRENCY_LENGTH - 1; i >= 0; i--) {
+            letters[i] = (char) ('A' - 1 + (code & ((1 << CURRENCY_LETTER_BITS) - 1)));
+            code >>>= CURRENCY_LETTER_BITS;
+        }
+        return new String(letters);
+    }
+
+    private static final class Segment {
+
+        private final ByteBuffer buffer;
+        private final int slots;
+        private final int mask;
+        private final int maxSize;
+        private final StampedLock lock = new StampedLock();
+        //guarded by the write lock, volatile for size()
+        private volatile int size;
+
+        private Segment(int slots) {
+            this.buffer = ByteBuffer.allocateDirect(slots * SLOT_SIZE);
+            this.slots = slots;
+            this.mask = slots - 1;
+            this.maxSize = (int) (slots * MAX_LOAD_FACTOR);
+        }
+
+        private int getSize() {
+            return size;
+        }
+
+        private boolean get(long hash, long msb, long lsb, long[] entry) {
+            var stamp = lock.tryOptimisticRead();
+            var found = false;
+            if (stamp != 0) {
+                found = read(hash, msb, lsb, entry);
+            }
+            if (stamp == 0 || !lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    found = read(hash, msb, lsb, entry);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return found;
+        }
+
+        private long getBalanceCents(long hash, long msb, long lsb) {
+            var stamp = lock.tryOptimisticRead();
+            var balance = Long.MIN_VALUE;
+            if (stamp != 0) {
+                balance = readBalance(hash, msb, lsb);
+            }
+            if (stamp == 0 || !lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    balance = readBalance(hash, msb, lsb);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return balance;
+        }
+
+        /**
+         * A lookup under an optimistic read may see a torn slot, but then the stamp fails the
+         * validation and the lookup is repeated under the read lock. Probing is bounded by the
+         * number of slots, so a torn read can't loop forever either.
+         */
+        private boolean read(long hash, long msb, long lsb, long[] entry) {
+            var slot = find(hash, msb, lsb);
+            if (slot < 0) {
+                return false;
+            }
+            var offset = slot * SLOT_SIZE;
+            entry[0] = buffer.getLong(offset + BALANCE_OFFSET);
+            entry[1] = buffer.getLong(offset + VERSION_AND_CURRENCY_OFFSET);
+            return true;
+        }
+
+        private long readBalance(long hash, long msb, long lsb) {
+            var slot = find(hash, msb, lsb);
+            return slot < 0
+                ? Long.MIN_VALUE
+                : buffer.getLong(slot * SLOT_SIZE + BALANCE_OFFSET);
+        }
+
+        /**
+         * @return the slot of the key, or -1 if the key isn't stored
+         */
+        private int find(long hash, long msb, long lsb) {
+            var slot = (int) hash & mask;
+            for (int probes = 0; probes < slots; probes++) {
+                var offset = slot * SLOT_SIZE;
+                var slotMsb = buffer.getLong(offset + MSB_OFFSET);
+                var slotLsb = buffer.getLong(offset + LSB_OFFSET);
+                if (slotMsb == msb && slotLsb == lsb) {
+                    return slot;
+                }
+                if (isEmptyKey(slotMsb, slotLsb)) {
+                    return -1;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        private boolean putIfNewer(long hash, long msb, long lsb, long balance,
+            long versionAndCurrency) {
+            var stamp = lock.writeLock();
+            try {
+                var slot = (int) hash & mask;
+                while (true) {
+                    var offset = slot * SLOT_SIZE;
+                    var slotMsb = buffer.getLong(offset + MSB_OFFSET);
+                    var slotLsb = buffer.getLong(offset + LSB_OFFSET);
+                    if (slotMsb == msb && slotLsb == lsb) {
+                        var storedVersion =
+                            buffer.getLong(offset + VERSION_AND_CURRENCY_OFFSET) >>> CURRENCY_BITS;
+                        if (storedVersion >= versionAndCurrency >>> CURRENCY_BITS) {
+                            return false;
+                        }
+                        buffer.putLong(offset + BALANCE_OFFSET, balance);
+                        buffer.putLong(offset + VERSION_AND_CURRENCY_OFFSET, versionAndCurrency);
+                        return true;
+                    }
+                    if (isEmptyKey(slotMsb, slotLsb)) {
+                        if (size >= maxSize) {
+                            return false;
+                        }
+                        buffer.putLong(offset + BALANCE_OFFSET, balance);
+                        buffer.putLong(offset + VERSION_AND_CURRENCY_OFFSET, versionAndCurrency);
+                        buffer.putLong(offset + LSB_OFFSET, lsb);
+                        buffer.putLong(offset + MSB_OFFSET, msb);
+                        size++;
+                        return true;
+                    }
+                    slot = (slot + 1) & mask;
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private void remove(long hash, long msb, long lsb) {
+            var stamp = lock.writeLock();
+            try {
+                var slot = find(hash, msb, lsb);
+                if (slot < 0) {
+                    return;
+                }
+                //shift back the following entries that would become unreachable otherwise
+                var next = (slot + 1) & mask;
+                while (true) {
+                    var nextOffset = next * SLOT_SIZE;
+                    var nextMsb = buffer.getLong(nextOffset + MSB_OFFSET);
+                    var nextLsb = buffer.getLong(nextOffset + LSB_OFFSET);
+                    if (isEmptyKey(nextMsb, nextLsb)) {
+                        break;
+                    }
+                    var home = (int) hash(nextMsb, nextLsb) & mask;
+                    if (((next - home) & mask) >= ((next - slot) & mask)) {
+                        copySlot(next, slot);
+                        slot = next;
+                    }
+                    next = (next + 1) & mask;
+                }
+                clearSlot(slot);
+                size--;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private void clear() {
+            var stamp = lock.writeLock();
+            try {
+                for (int slot = 0; slot < slots; slot++) {
+                    clearSlot(slot);
+                }
+                size = 0;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private void copySlot(int from, int to) {
+            for (int i = 0; i < SLOT_SIZE; i += Long.BYTES) {
+                buffer.putLong(to * SLOT_SIZE + i, buffer.getLong(from * SLOT_SIZE + i));
+            }
+        }
+
+        private void clearSlot(int slot) {
+            for (int i = 0; i < SLOT_SIZE; i += Long.BYTES) {
+                buffer.putLong(slot * SLOT_SIZE + i, 0);
+            }
+        }
+    }
+}
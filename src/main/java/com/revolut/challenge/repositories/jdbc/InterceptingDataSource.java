@@ -0,0 +1,207 @@
+package com.revolut.challenge.repositories.jdbc;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.logging.Logger;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.sql.DataSource;
+
+/**
+ * Wraps the connections of a data source and their statements in proxies, so that subclasses can
+ * act around every execution of a statement. Everything else is passed on as it is.
+ *
+ * @param <S> the state that a subclass keeps for a borrowed connection
+ */
+@ParametersAreNonnullByDefault
+public abstract class InterceptingDataSource<S> implements DataSource {
+
+    private static final Set<String> PREPARING_METHODS = Set.of("prepareStatement", "prepareCall");
+    private static final Set<String> EXECUTING_METHODS = Set.of("execute", "executeQuery",
+        "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    private final DataSource dataSource;
+
+    protected InterceptingDataSource(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Called before a connection is taken from the wrapped data source.
+     */
+    protected void beforeConnection() throws SQLException {
+    }
+
+    /**
+     * @return the state of a connection that has just been borrowed
+     */
+    @Nullable
+    protected abstract S openSession();
+
+    /**
+     * Called before the transaction of the connection is committed.
+     */
+    protected void beforeCommit(@Nullable S session) throws SQLException {
+    }
+
+    /**
+     * Executes a statement by calling {@link Execution#proceed()}.
+     *
+     * @param sql the SQL of the prepared statement, or the SQL passed to the execution
+     * @return the result of the execution
+     */
+    protected abstract Object execute(@Nullable S session, String sql, Execution execution)
+        throws Throwable;
+
+    /**
+     * Called with the result set that a statement with known SQL returns from
+     * {@code getResultSet}, rather than from its execution.
+     */
+    protected ResultSet onResultSet(String sql, ResultSet resultSet) {
+        return resultSet;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        beforeConnection();
+        return wrapConnection(dataSource.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        beforeConnection();
+        return wrapConnection(dataSource.getConnection(username, password));
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return dataSource.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        dataSource.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        dataSource.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return dataSource.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return dataSource.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> type) throws SQLException {
+        return type.isInstance(dataSource) ? type.cast(dataSource) : dataSource.unwrap(type);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> type) throws SQLException {
+        return type.isInstance(dataSource) || dataSource.isWrapperFor(type);
+    }
+
+    /**
+     * Wraps the target in a proxy of the given interface. Unwrapping the proxy to a class of the
+     * target returns the target, so that the pool and the driver can still find their own
+     * classes.
+     */
+    @SuppressWarnings("unchecked")
+    protected static <T> T wrap(Class<T> type, Object target, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(InterceptingDataSource.class.getClassLoader(),
+            new Class<?>[]{type}, (proxy, method, arguments) -> {
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == arguments[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "unwrap":
+                        return ((Class<?>) arguments[0]).isInstance(target)
+                            ? target
+                            : handler.invoke(proxy, method, arguments);
+                    default:
+                        return handler.invoke(proxy, method, arguments);
+                }
+            });
+    }
+
+    /**
+     * Calls the method of the target, rethrowing what it throws as it is.
+     */
+    protected static Object invoke(Object target, Method method, @Nullable Object[] arguments)
+        throws Throwable {
+        try {
+            return method.invoke(target, arguments);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Connection wrapConnection(Connection connection) {
+        var session = openSession();
+        return wrap(Connection.class, connection, (proxy, method, arguments) -> {
+            if (method.getName().equals("commit")) {
+                beforeCommit(session);
+            }
+            var result = invoke(connection, method, arguments);
+            if (PREPARING_METHODS.contains(method.getName())) {
+                var type = result instanceof CallableStatement
+                    ? CallableStatement.class
+                    : PreparedStatement.class;
+                return wrapStatement(type, (Statement) result, (String) arguments[0], session);
+            }
+            if (method.getName().equals("createStatement")) {
+                return wrapStatement(Statement.class, (Statement) result, null, session);
+            }
+            return result;
+        });
+    }
+
+    /**
+     * @param sql the SQL of a prepared statement, or null if the SQL is passed on execution
+     */
+    private <T extends Statement> T wrapStatement(Class<T> type, Statement statement,
+        @Nullable String sql, @Nullable S session) {
+        return wrap(type, statement, (proxy, method, arguments) -> {
+            if (!EXECUTING_METHODS.contains(method.getName())) {
+                var result = invoke(statement, method, arguments);
+                if (result instanceof ResultSet && sql != null
+                    && method.getName().equals("getResultSet")) {
+                    return onResultSet(sql, (ResultSet) result);
+                }
+                return result;
+            }
+            var executedSql = sql != null || arguments == null || arguments.length == 0
+                ? sql
+                : (String) arguments[0];
+            if (executedSql == null) {
+                return invoke(statement, method, arguments);
+            }
+            return execute(session, executedSql, () -> invoke(statement, method, arguments));
+        });
+    }
+
+    @FunctionalInterface
+    protected interface Execution {
+
+        Object proceed() throws Throwable;
+    }
+}
@@ -0,0 +1,38 @@
+package com.revolut.challenge.repositories.routing;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.function.Supplier;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.inject.Singleton;
+
+/**
+ * Marks the transactions started on the current thread as read-only, so that they take their
+ * connection from the read data source (datasources.read) instead of the pool of the transfers.
+ *
+ * <p>Only the connection of a new transaction is routed: a read made within a transaction that
+ * is already open joins it and sees its writes. Without a read data source, the transactions
+ * take their connection from the default one as usual.
+ */
+@Singleton
+@ParametersAreNonnullByDefault
+public class ReadOnlyRouting {
+
+    private final ThreadLocal<Boolean> readOnly = ThreadLocal.withInitial(() -> false);
+
+    @NonNull
+    public <T> T execute(Supplier<T> supplier) {
+        if (readOnly.get()) {
+            return supplier.get();
+        }
+        readOnly.set(true);
+        try {
+            return supplier.get();
+        } finally {
+            readOnly.remove();
+        }
+    }
+
+    boolean isReadOnly() {
+        return readOnly.get();
+    }
+}
@@ -0,0 +1,95 @@
+package com.revolut.challenge.repositories.routing;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.sql.DataSource;
+
+/**
+ * Takes the connections of read-only transactions, see {@link ReadOnlyRouting}, from the read
+ * data source, and all the others from the write data source. Both are pools of their own, so a
+ * saturated pool keeps only its own side waiting.
+ */
+@ParametersAreNonnullByDefault
+class ReadWriteRoutingDataSource implements DataSource {
+
+    private final DataSource writeDataSource;
+    private final Supplier<DataSource> readDataSourceSupplier;
+    private final ReadOnlyRouting readOnlyRouting;
+    private volatile DataSource readDataSource;
+
+    /**
+     * @param readDataSourceSupplier called on the first read-only transaction, as the read data
+     * source can't be looked up while the write one is being created
+     */
+    ReadWriteRoutingDataSource(DataSource writeDataSource,
+        Supplier<DataSource> readDataSourceSupplier, ReadOnlyRouting readOnlyRouting) {
+        this.writeDataSource = writeDataSource;
+        this.readDataSourceSupplier = readDataSourceSupplier;
+        this.readOnlyRouting = readOnlyRouting;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getDataSource().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getDataSource().getConnection(username, password);
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return writeDataSource.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        writeDataSource.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        writeDataSource.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return writeDataSource.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return writeDataSource.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> type) throws SQLException {
+        return type.isInstance(writeDataSource)
+            ? type.cast(writeDataSource)
+            : writeDataSource.unwrap(type);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> type) throws SQLException {
+        return type.isInstance(writeDataSource) || writeDataSource.isWrapperFor(type);
+    }
+
+    private DataSource getDataSource() {
+        if (!readOnlyRouting.isReadOnly()) {
+            return writeDataSource;
+        }
+        var dataSource = readDataSource;
+        if (dataSource == null) {
+            //looked up twice at worst, the bean is a singleton
+            dataSource = readDataSourceSupplier.get();
+            readDataSource = dataSource;
+        }
+        return dataSource;
+    }
+}
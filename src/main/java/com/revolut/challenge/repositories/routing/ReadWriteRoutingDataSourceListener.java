@@ -0,0 +1,51 @@
+package com.revolut.challenge.repositories.routing;
+
+import io.micronaut.context.BeanContext;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.event.BeanCreatedEvent;
+import io.micronaut.context.event.BeanCreatedEventListener;
+import io.micronaut.core.order.Ordered;
+import io.micronaut.inject.qualifiers.Qualifiers;
+import javax.inject.Singleton;
+import javax.sql.DataSource;
+
+/**
+ * Wraps the default data source as it's created, so that the repositories, the transaction
+ * manager and the migrations all keep using it, while read-only transactions get their
+ * connections from the read data source.
+ */
+@Singleton
+@Requires(property = "datasources.read.url")
+class ReadWriteRoutingDataSourceListener implements BeanCreatedEventListener<DataSource>,
+    Ordered {
+
+    static final String WRITE_DATA_SOURCE = "default";
+    static final String READ_DATA_SOURCE = "read";
+
+    private final BeanContext beanContext;
+    private final ReadOnlyRouting readOnlyRouting;
+
+    ReadWriteRoutingDataSourceListener(BeanContext beanContext, ReadOnlyRouting readOnlyRouting) {
+        this.beanContext = beanContext;
+        this.readOnlyRouting = readOnlyRouting;
+    }
+
+    @Override
+    public DataSource onCreated(BeanCreatedEvent<DataSource> event) {
+        if (!WRITE_DATA_SOURCE.equals(event.getBeanIdentifier().getName())) {
+            return event.getBean();
+        }
+        return new ReadWriteRoutingDataSource(event.getBean(),
+            () -> beanContext.getBean(DataSource.class, Qualifiers.byName(READ_DATA_SOURCE)),
+            readOnlyRouting);
+    }
+
+    /**
+     * Runs after the other listeners, so that the read connections are wrapped by them once,
+     * through the read data source, rather than once more through this one.
+     */
+    @Override
+    public int getOrder() {
+        return LOWEST_PRECEDENCE;
+    }
+}
@@ -0,0 +1,147 @@
+package com.revolut.challenge.repositories.statistics;
+
+import io.micronaut.context.annotation.Value;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Singleton;
+
+/**
+ * Collects the statistics of the SQL statements by their shape, i.e. their text with the
+ * whitespace collapsed, the numeric literals replaced by placeholders and the lists of
+ * placeholders shortened, so that e.g. the lookups of two and of ten accounts by their IDs count
+ * as the same statement, and so do the session timeouts set to different values. The statements
+ * slower than {@code sql-statistics.slow-threshold} are kept in a ring buffer too.
+ *
+ * <p>It deliberately doesn't depend on other beans, since it's created along with the data
+ * source, before most of them.
+ */
+@Singleton
+@ThreadSafe
+@ParametersAreNonnullByDefault
+public class SqlStatistics {
+
+    private static final int MAX_SHAPES = 256;
+    private static final String OTHER_SHAPE = "(other statements)";
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern NUMERIC_LITERAL = Pattern.compile("\\b\\d+(\\.\\d+)?\\b");
+    private static final Pattern SESSION_SETTING = Pattern.compile("\\s*SET\\s",
+        Pattern.CASE_INSENSITIVE);
+    private static final Pattern PLACEHOLDER_LIST = Pattern.compile("\\?(\\s*,\\s*\\?)+");
+
+    private final long slowThresholdNanos;
+    private final int slowQueryCapacity;
+    private final Map<String, StatementStatistics> statisticsBySql = new ConcurrentHashMap<>();
+    private final Map<String, StatementStatistics> statisticsByShape = new ConcurrentHashMap<>();
+    //guarded by itself
+    private final ArrayDeque<SlowQuery> slowQueries;
+
+    public SqlStatistics(
+        @Value("${sql-statistics.slow-threshold:100ms}") Duration slowThreshold,
+        @Value("${sql-statistics.slow-query-capacity:100}") int slowQueryCapacity
+    ) {
+        this.slowThresholdNanos = slowThreshold.toNanos();
+        this.slowQueryCapacity = slowQueryCapacity;
+        this.slowQueries = new ArrayDeque<>(slowQueryCapacity);
+    }
+
+    /**
+     * @return the statistics that the executions of the statement are recorded in
+     */
+    StatementStatistics getStatementStatistics(String sql) {
+        //the raw SQL is looked up first, so that it's normalized only once
+        var statistics = statisticsBySql.get(sql);
+        if (statistics != null) {
+            return statistics;
+        }
+        var shape = toShape(sql);
+        if (statisticsByShape.size() >= MAX_SHAPES && !statisticsByShape.containsKey(shape)) {
+            shape = OTHER_SHAPE;
+        }
+        statistics = statisticsByShape.computeIfAbsent(shape, StatementStatistics::new);
+        //the session settings carry their values inline, so most of them would never repeat
+        if (statisticsBySql.size() < MAX_SHAPES * 4 && !SESSION_SETTING.matcher(sql).lookingAt()) {
+            statisticsBySql.putIfAbsent(sql, statistics);
+        }
+        return statistics;
+    }
+
+    void recordExecution(StatementStatistics statistics, String sql, long nanos, long rows) {
+        statistics.recordExecution(nanos, rows);
+        if (nanos >= slowThresholdNanos) {
+            var slowQuery = new SlowQuery(toShape(sql), nanos / 1_000_000.0, rows, Instant.now(),
+                Thread.currentThread().getName());
+            synchronized (slowQueries) {
+                if (slowQueries.size() == slowQueryCapacity) {
+                    slowQueries.removeFirst();
+                }
+                slowQueries.addLast(slowQuery);
+            }
+        }
+    }
+
+    /**
+     * @return the statistics of all statement shapes, the most time-consuming first
+     */
+    public List<StatementSummary> getStatements() {
+        return statisticsByShape.values().stream()
+            .map(StatementStatistics::summarize)
+            .sorted(Comparator.comparingDouble(StatementSummary::getTotalMillis).reversed())
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * @return the latest slow queries, the oldest first
+     */
+    public List<SlowQuery> getSlowQueries() {
+        synchronized (slowQueries) {
+            return new ArrayList<>(slowQueries);
+        }
+    }
+
+    public void reset() {
+        statisticsBySql.clear();
+        statisticsByShape.clear();
+        synchronized (slowQueries) {
+            slowQueries.clear();
+        }
+    }
+
+    static String toShape(String sql) {
+        var shape = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        shape = NUMERIC_LITERAL.matcher(shape).replaceAll("?");
+        return PLACEHOLDER_LIST.matcher(shape).replaceAll("?, ...");
+    }
+
+    @lombok.Value
+    public static class StatementSummary {
+
+        String statement;
+        long executions;
+        double totalMillis;
+        double meanMillis;
+        double p50Millis;
+        double p99Millis;
+        double maxMillis;
+        long rows;
+    }
+
+    @lombok.Value
+    public static class SlowQuery {
+
+        String statement;
+        double durationMillis;
+        long rows;
+        Instant executedAt;
+        String thread;
+    }
+}
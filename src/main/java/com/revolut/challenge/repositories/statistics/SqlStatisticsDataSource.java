@@ -0,0 +1,77 @@
+package com.revolut.challenge.repositories.statistics;
+
+import com.revolut.challenge.repositories.jdbc.InterceptingDataSource;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.sql.ResultSet;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.sql.DataSource;
+
+/**
+ * Wraps the connections of a data source, so that the executions of their statements are timed
+ * and their rows are counted. The time of a query covers its execution, but not the reading of
+ * its rows, which are counted as they are read.
+ */
+@ParametersAreNonnullByDefault
+class SqlStatisticsDataSource extends InterceptingDataSource<Void> {
+
+    private final SqlStatistics sqlStatistics;
+
+    SqlStatisticsDataSource(DataSource dataSource, SqlStatistics sqlStatistics) {
+        super(dataSource);
+        this.sqlStatistics = sqlStatistics;
+    }
+
+    @Nullable
+    @Override
+    protected Void openSession() {
+        return null;
+    }
+
+    @Override
+    protected Object execute(@Nullable Void session, String sql, Execution execution)
+        throws Throwable {
+        var statistics = sqlStatistics.getStatementStatistics(sql);
+        var start = System.nanoTime();
+        var result = execution.proceed();
+        sqlStatistics.recordExecution(statistics, sql, System.nanoTime() - start,
+            countRows(result));
+        return result instanceof ResultSet
+            ? wrapResultSet((ResultSet) result, statistics)
+            : result;
+    }
+
+    @Override
+    protected ResultSet onResultSet(String sql, ResultSet resultSet) {
+        return wrapResultSet(resultSet, sqlStatistics.getStatementStatistics(sql));
+    }
+
+    private static ResultSet wrapResultSet(ResultSet resultSet, StatementStatistics statistics) {
+        return wrap(ResultSet.class, resultSet, (proxy, method, arguments) -> {
+            var result = invoke(resultSet, method, arguments);
+            if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                statistics.recordRow();
+            }
+            return result;
+        });
+    }
+
+    /**
+     * @return the number of updated rows, the rows of a query are counted as they're read
+     */
+    private static long countRows(Object result) {
+        if (result instanceof Integer || result instanceof Long) {
+            return Math.max(((Number) result).longValue(), 0);
+        }
+        var rows = 0L;
+        if (result instanceof int[]) {
+            for (var count : (int[]) result) {
+                rows += Math.max(count, 0);
+            }
+        } else if (result instanceof long[]) {
+            for (var count : (long[]) result) {
+                rows += Math.max(count, 0);
+            }
+        }
+        return rows;
+    }
+}
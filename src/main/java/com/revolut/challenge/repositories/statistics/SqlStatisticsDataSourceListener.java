@@ -0,0 +1,27 @@
+package com.revolut.challenge.repositories.statistics;
+
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.event.BeanCreatedEvent;
+import io.micronaut.context.event.BeanCreatedEventListener;
+import javax.inject.Singleton;
+import javax.sql.DataSource;
+
+/**
+ * Wraps the data sources as they're created, so that the statements of the repositories, the
+ * transaction manager and the migrations are all covered.
+ */
+@Singleton
+@Requires(property = "sql-statistics.enabled", value = "true")
+class SqlStatisticsDataSourceListener implements BeanCreatedEventListener<DataSource> {
+
+    private final SqlStatistics sqlStatistics;
+
+    SqlStatisticsDataSourceListener(SqlStatistics sqlStatistics) {
+        this.sqlStatistics = sqlStatistics;
+    }
+
+    @Override
+    public DataSource onCreated(BeanCreatedEvent<DataSource> event) {
+        return new SqlStatisticsDataSource(event.getBean(), sqlStatistics);
+    }
+}
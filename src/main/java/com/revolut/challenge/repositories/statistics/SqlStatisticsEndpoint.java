@@ -0,0 +1,32 @@
+package com.revolut.challenge.repositories.statistics;
+
+import io.micronaut.management.endpoint.annotation.Delete;
+import io.micronaut.management.endpoint.annotation.Endpoint;
+import io.micronaut.management.endpoint.annotation.Read;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+
+/**
+ * {@code GET /sql} returns the statistics of the statement shapes and the latest slow queries,
+ * {@code DELETE /sql} resets them.
+ */
+@Endpoint(id = "sql")
+@AllArgsConstructor
+public class SqlStatisticsEndpoint {
+
+    private final SqlStatistics sqlStatistics;
+
+    @Read
+    public Map<String, Object> getStatistics() {
+        var statistics = new LinkedHashMap<String, Object>();
+        statistics.put("statements", sqlStatistics.getStatements());
+        statistics.put("slowQueries", sqlStatistics.getSlowQueries());
+        return statistics;
+    }
+
+    @Delete
+    public void reset() {
+        sqlStatistics.reset();
+    }
+}
@@ -0,0 +1,86 @@
+package com.revolut.challenge.repositories.statistics;
+
+import com.revolut.challenge.repositories.statistics.SqlStatistics.StatementSummary;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Latencies and row counts of the statements of one shape. The latencies go
+ * into a histogram with power-of-two microsecond buckets, which is coarse but lock-free and of a
+ * fixed size.
+ */
+@ThreadSafe
+@ParametersAreNonnullByDefault
+class StatementStatistics {
+
+    private static final int BUCKETS = 32;
+
+    private final String statement;
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder rows = new LongAdder();
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+    StatementStatistics(String statement) {
+        this.statement = statement;
+    }
+
+    void recordExecution(long nanos, long rowCount) {
+        executions.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+        rows.add(rowCount);
+        histogram.incrementAndGet(bucket(nanos));
+    }
+
+    void recordRow() {
+        rows.increment();
+    }
+
+    StatementSummary summarize() {
+        var counts = new long[BUCKETS];
+        var total = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = histogram.get(i);
+            total += counts[i];
+        }
+        return new StatementSummary(
+            statement,
+            executions.sum(),
+            toMillis(totalNanos.sum()),
+            total == 0 ? 0 : toMillis(totalNanos.sum() / total),
+            percentileMillis(counts, total, 0.5),
+            percentileMillis(counts, total, 0.99),
+            toMillis(maxNanos.get()),
+            rows.sum());
+    }
+
+    private static int bucket(long nanos) {
+        var micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        return Math.min(BUCKETS - 1, Long.SIZE - Long.numberOfLeadingZeros(micros));
+    }
+
+    /**
+     * @return the upper bound of the bucket that holds the percentile
+     */
+    private static double percentileMillis(long[] counts, long total, double percentile) {
+        var rank = (long) Math.ceil(total * percentile);
+        var seen = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank && seen > 0) {
+                return (double) (1L << i) / 1000;
+            }
+        }
+        return 0;
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,141 @@
+package com.revolut.challenge.scheduling;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Holds items until they come due, at a cost that doesn't depend on how many items there are.
+ *
+ * <p>The lowest wheel has {@code wheelSize} buckets of {@code tickMillis} each. An item due
+ * beyond its range goes to an overflow wheel whose ticks are as long as the whole lower wheel,
+ * and so on, so a few wheels cover any time span. When the clock reaches the bucket of a higher
+ * wheel, its items are moved down to the wheels below, and the items of the lowest wheel are
+ * passed on once the clock has reached their due time, never earlier.
+ */
+@NotThreadSafe
+@ParametersAreNonnullByDefault
+public final class HierarchicalTimingWheel<T> {
+
+    private final Level<T> lowestLevel;
+    private long nowMillis;
+    private int size;
+
+    public HierarchicalTimingWheel(long tickMillis, int wheelSize, long nowMillis) {
+        if (tickMillis < 1 || wheelSize < 2) {
+            throw new IllegalArgumentException(
+                "The tick must be positive and the wheel must have several buckets");
+        }
+        this.lowestLevel = new Level<>(tickMillis, wheelSize, nowMillis);
+        this.nowMillis = nowMillis;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return false if the item is already due, in which case it isn't added
+     */
+    public boolean add(long dueMillis, T item) {
+        if (dueMillis <= nowMillis) {
+            return false;
+        }
+        lowestLevel.add(new Entry<>(dueMillis, item), nowMillis);
+        size++;
+        return true;
+    }
+
+    /**
+     * Moves the clock forward and passes the items that have come due to the consumer, in no
+     * particular order.
+     */
+    public void advance(long nowMillis, Consumer<T> dueItemConsumer) {
+        if (nowMillis <= this.nowMillis) {
+            return;
+        }
+        this.nowMillis = nowMillis;
+        var flushedEntries = new ArrayList<Entry<T>>();
+        for (var level = lowestLevel; level != null; level = level.overflowLevel) {
+            level.advance(nowMillis, flushedEntries);
+        }
+        for (var entry : flushedEntries) {
+            if (entry.dueMillis <= nowMillis) {
+                size--;
+                dueItemConsumer.accept(entry.item);
+            } else {
+                lowestLevel.add(entry, nowMillis);
+            }
+        }
+    }
+
+    private static final class Entry<T> {
+
+        private final long dueMillis;
+        private final T item;
+
+        private Entry(long dueMillis, T item) {
+            this.dueMillis = dueMillis;
+            this.item = item;
+        }
+    }
+
+    private static final class Level<T> {
+
+        private final long tickMillis;
+        private final int wheelSize;
+        private final ArrayDeque<Entry<T>>[] buckets;
+        /**
+         * The tick that the clock is in. The buckets hold the ticks from here on.
+         */
+        private long currentTick;
+        private int entryCount;
+        private Level<T> overflowLevel;
+
+        @SuppressWarnings("unchecked")
+        private Level(long tickMillis, int wheelSize, long nowMillis) {
+            this.tickMillis = tickMillis;
+            this.wheelSize = wheelSize;
+            this.buckets = new ArrayDeque[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                buckets[i] = new ArrayDeque<>();
+            }
+            this.currentTick = nowMillis / tickMillis;
+        }
+
+        private void add(Entry<T> entry, long nowMillis) {
+            var tick = entry.dueMillis / tickMillis;
+            if (tick < currentTick + wheelSize) {
+                buckets[(int) (tick % wheelSize)].add(entry);
+                entryCount++;
+                return;
+            }
+            if (overflowLevel == null) {
+                overflowLevel = new Level<>(tickMillis * wheelSize, wheelSize, nowMillis);
+            }
+            overflowLevel.add(entry, nowMillis);
+        }
+
+        /**
+         * Empties the buckets of the ticks from the current one to the new one, both included.
+         * The current bucket of the lowest wheel may still hold items that aren't due, and those
+         * of the higher wheels belong to the wheels below by now.
+         */
+        private void advance(long nowMillis, List<Entry<T>> flushedEntries) {
+            var newTick = nowMillis / tickMillis;
+            if (entryCount > 0) {
+                var lastTick = currentTick + Math.min(newTick - currentTick, wheelSize - 1);
+                for (var tick = currentTick; tick <= lastTick; tick++) {
+                    var bucket = buckets[(int) (tick % wheelSize)];
+                    entryCount -= bucket.size();
+                    flushedEntries.addAll(bucket);
+                    bucket.clear();
+                }
+            }
+            currentTick = newTick;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.revolut.challenge.service;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Value;
+import java.sql.SQLTransientException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.GuardedBy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * A gradient-based concurrency limiter in front of the transfer processing.
+ *
+ * <p>The limit follows the ratio between the long-term and the most recent latency: while the
+ * latency is stable the limit grows by a small queue allowance, and once requests start queueing
+ * (on connection or row lock waits) the latency grows and the limit shrinks proportionally.
+ * Timeouts reported by the database additionally cut the limit multiplicatively. Requests above
+ * the limit are rejected immediately instead of joining the queue.
+ */
+@Singleton
+@ParametersAreNonnullByDefault
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double LONG_RTT_SMOOTHING = 0.05;
+    private static final double LIMIT_SMOOTHING = 0.2;
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int retryAfterSeconds;
+    private final LongSupplier nanoClock;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter rejectedCounter;
+
+    @GuardedBy("this")
+    private double limit;
+    @GuardedBy("this")
+    private double longRttNanos;
+
+    @Inject
+    public AdaptiveConcurrencyLimiter(
+        MeterRegistry meterRegistry,
+        @Value("${transfer-concurrency-limit.initial:20}") int initialLimit,
+        @Value("${transfer-concurrency-limit.min:2}") int minLimit,
+        @Value("${transfer-concurrency-limit.max:200}") int maxLimit,
+        @Value("${transfer-concurrency-limit.retry-after-seconds:1}") int retryAfterSeconds
+    ) {
+        this(meterRegistry, initialLimit, minLimit, maxLimit, retryAfterSeconds,
+            System::nanoTime);
+    }
+
+    AdaptiveConcurrencyLimiter(
+        MeterRegistry meterRegistry,
+        int initialLimit,
+        int minLimit,
+        int maxLimit,
+        int retryAfterSeconds,
+        LongSupplier nanoClock
+    ) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.nanoClock = nanoClock;
+        Gauge.builder("transfers.concurrency.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+            .register(meterRegistry);
+        Gauge.builder("transfers.concurrency.in-flight", inFlight, AtomicInteger::get)
+            .register(meterRegistry);
+        rejectedCounter = meterRegistry.counter("transfers.concurrency.rejected");
+    }
+
+    /**
+     * Executes the supplier if the current limit allows it and uses its latency to adjust the
+     * limit.
+     *
+     * @throws ServiceOverloadedException if the limit has been reached
+     */
+    @NonNull
+    public <T> T execute(Supplier<T> supplier) {
+        var currentInFlight = inFlight.incrementAndGet();
+        if (currentInFlight > getLimit()) {
+            inFlight.decrementAndGet();
+            rejectedCounter.increment();
+            throw new ServiceOverloadedException(
+                "Too many transfers are being processed, please retry later", retryAfterSeconds);
+        }
+        var start = nanoClock.getAsLong();
+        try {
+            var result = supplier.get();
+            onSample(nanoClock.getAsLong() - start, currentInFlight);
+            return result;
+        } catch (DeadlineExceededException e) {
+            //cut short by the budget of the client, so the latency says nothing about the load
+            throw e;
+        } catch (RuntimeException e) {
+            if (isOverloadSignal(e)) {
+                onDropped();
+            } else {
+                onSample(nanoClock.getAsLong() - start, currentInFlight);
+            }
+            throw e;
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    private synchronized void onSample(long rttNanos, int currentInFlight) {
+        var rtt = Math.max(rttNanos, 1L);
+        longRttNanos = longRttNanos == 0
+            ? rtt
+            : longRttNanos * (1 - LONG_RTT_SMOOTHING) + rtt * LONG_RTT_SMOOTHING;
+        //don't grow the limit if the current load doesn't even use half of it
+        if (currentInFlight < limit / 2 && rtt <= longRttNanos) {
+            return;
+        }
+        var gradient = Math.max(MIN_GRADIENT, Math.min(1.0, longRttNanos / rtt));
+        var newLimit = limit * gradient + Math.sqrt(limit);
+        limit = clamp(limit * (1 - LIMIT_SMOOTHING) + newLimit * LIMIT_SMOOTHING);
+    }
+
+    private synchronized void onDropped() {
+        limit = clamp(limit * BACKOFF_RATIO);
+    }
+
+    private double clamp(double value) {
+        return Math.max(minLimit, Math.min(maxLimit, value));
+    }
+
+    /**
+     * Lock timeouts and connection pool timeouts are reported as transient SQL exceptions.
+     */
+    private static boolean isOverloadSignal(Throwable e) {
+        for (var cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLTransientException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,293 @@
+package com.revolut.challenge.service;
+
+import com.revolut.challenge.service.model.BalanceChange;
+import com.revolut.challenge.service.model.Transfer;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Value;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+
+/**
+ * Fans the balance changes of committed transfers out to the {@link BalanceChangeListener}
+ * beans and to the subscribers of the accounts.
+ *
+ * <p>Every subscriber has a buffer of {@code balance-changes.buffer-size} changes, which it
+ * drains as fast as it requests them. Publishing never waits for a subscriber: a subscriber whose
+ * buffer is full is evicted, i.e. its stream is completed, and it has to subscribe again and
+ * read the balances it missed.
+ *
+ * <p>The changes are published once the transfer method returns, which isn't a commit if it
+ * joined an outer transaction, so the work of an outer transaction that is always rolled back,
+ * such as the warm-up, is run by {@link #runWithheld(Runnable)}.
+ */
+@Slf4j
+@Singleton
+@ThreadSafe
+@ParametersAreNonnullByDefault
+public class BalanceChangeHub {
+
+    private final List<BalanceChangeListener> listeners;
+    private final int bufferSize;
+    private final Map<UUID, Set<BalanceChangeSubscription>> subscriptionsByAccount =
+        new ConcurrentHashMap<>();
+    private final AtomicInteger subscriptionCount;
+    private final Counter evictionCounter;
+    private final ThreadLocal<Boolean> withheld = ThreadLocal.withInitial(() -> false);
+
+    public BalanceChangeHub(
+        MeterRegistry meterRegistry,
+        List<BalanceChangeListener> listeners,
+        @Value("${balance-changes.buffer-size:256}") int bufferSize
+    ) {
+        this.listeners = List.copyOf(listeners);
+        this.bufferSize = bufferSize;
+        subscriptionCount = meterRegistry.gauge("balance-changes.subscribers",
+            new AtomicInteger());
+        evictionCounter = meterRegistry.counter("balance-changes.evictions");
+    }
+
+    /**
+     * @return the changes of the balances of the accounts from the moment of subscription; the
+     * stream completes only if the subscriber falls too far behind
+     */
+    @NonNull
+    public Publisher<BalanceChange> subscribe(Set<UUID> accountIds) {
+        var subscribedAccountIds = Set.copyOf(accountIds);
+        return subscriber -> {
+            var subscription = new BalanceChangeSubscription(subscribedAccountIds, subscriber);
+            for (var accountId : subscribedAccountIds) {
+                subscriptionsByAccount.compute(accountId, (id, subscriptions) -> {
+                    var result = subscriptions != null
+                        ? subscriptions
+                        : ConcurrentHashMap.<BalanceChangeSubscription>newKeySet();
+                    result.add(subscription);
+                    return result;
+                });
+            }
+            subscriptionCount.incrementAndGet();
+            subscriber.onSubscribe(subscription);
+        };
+    }
+
+    /**
+     * Publishes the changes of the sender and recipient balances. Must be called only once the
+     * transfer is committed.
+     */
+    public void publish(Transfer transfer) {
+        publish(BalanceChange.builder()
+            .accountId(transfer.getSenderAccountId())
+            .operationId(transfer.getOperationId())
+            .amount(transfer.getAmount().negate())
+            .currency(transfer.getCurrency())
+            .createdAt(transfer.getCreatedAt())
+            .build());
+        publish(BalanceChange.builder()
+            .accountId(transfer.getRecipientAccountId())
+            .operationId(transfer.getOperationId())
+            .amount(transfer.getAmount())
+            .currency(transfer.getCurrency())
+            .createdAt(transfer.getCreatedAt())
+            .build());
+    }
+
+    /**
+     * Publishes the net balance changes of a transfer. Must be called only once the transfer is
+     * committed.
+     */
+    public void publish(UUID operationId, String currency, LocalDateTime createdAt,
+        Map<UUID, BigDecimal> balanceChanges) {
+        balanceChanges.forEach((accountId, amount) -> publish(BalanceChange.builder()
+            .accountId(accountId)
+            .operationId(operationId)
+            .amount(amount)
+            .currency(currency)
+            .createdAt(createdAt)
+            .build()));
+    }
+
+    /**
+     * Runs work whose balance changes are rolled back rather than committed, without publishing
+     * them. Its transfers aren't counted against the velocity limits either.
+     */
+    public void runWithheld(Runnable runnable) {
+        withheld.set(true);
+        try {
+            runnable.run();
+        } finally {
+            withheld.remove();
+        }
+    }
+
+    /**
+     * @return whether the current thread runs work whose balance changes are rolled back
+     */
+    boolean isWithheld() {
+        return withheld.get();
+    }
+
+    int getSubscriptionCount() {
+        return subscriptionCount.get();
+    }
+
+    private void publish(BalanceChange change) {
+        if (isWithheld()) {
+            return;
+        }
+        for (var listener : listeners) {
+            try {
+                listener.onBalanceChange(change);
+            } catch (RuntimeException e) {
+                //the publishing transfer has been committed, so it mustn't fail
+                log.warn("A listener failed to process the balance change {}", change, e);
+            }
+        }
+        var subscriptions = subscriptionsByAccount.get(change.getAccountId());
+        if (subscriptions != null) {
+            for (var subscription : subscriptions) {
+                subscription.offer(change);
+            }
+        }
+    }
+
+    private void unsubscribe(BalanceChangeSubscription subscription) {
+        for (var accountId : subscription.accountIds) {
+            subscriptionsByAccount.computeIfPresent(accountId, (id, subscriptions) -> {
+                subscriptions.remove(subscription);
+                return subscriptions.isEmpty() ? null : subscriptions;
+            });
+        }
+        subscriptionCount.decrementAndGet();
+    }
+
+    /**
+     * Signals the subscriber from one thread at a time: whichever thread finds the subscription
+     * idle drains the buffer while there is demand, and the others only leave their changes in
+     * the buffer.
+     */
+    private final class BalanceChangeSubscription implements Subscription {
+
+        private final Set<UUID> accountIds;
+        private final org.reactivestreams.Subscriber<? super BalanceChange> subscriber;
+        //guarded by this
+        private final ArrayDeque<BalanceChange> buffer = new ArrayDeque<>();
+        private long requested;
+        private boolean draining;
+        private boolean evicted;
+        private boolean terminated;
+
+        private BalanceChangeSubscription(Set<UUID> accountIds,
+            org.reactivestreams.Subscriber<? super BalanceChange> subscriber) {
+            this.accountIds = accountIds;
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                //a broken subscriber is dropped like a slow one
+                evict();
+                return;
+            }
+            synchronized (this) {
+                requested = requested + n < 0 ? Long.MAX_VALUE : requested + n;
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                if (terminated) {
+                    return;
+                }
+                terminated = true;
+                buffer.clear();
+            }
+            unsubscribe(this);
+        }
+
+        private void offer(BalanceChange change) {
+            synchronized (this) {
+                if (terminated || evicted) {
+                    return;
+                }
+                if (buffer.size() >= bufferSize) {
+                    evicted = true;
+                } else {
+                    buffer.add(change);
+                }
+            }
+            drain();
+        }
+
+        private void evict() {
+            synchronized (this) {
+                evicted = true;
+            }
+            drain();
+        }
+
+        private void drain() {
+            synchronized (this) {
+                if (draining) {
+                    return;
+                }
+                draining = true;
+            }
+            while (true) {
+                BalanceChange change;
+                synchronized (this) {
+                    if (terminated) {
+                        draining = false;
+                        return;
+                    }
+                    if (evicted) {
+                        terminated = true;
+                        buffer.clear();
+                        draining = false;
+                        change = null;
+                    } else if (requested > 0 && !buffer.isEmpty()) {
+                        change = buffer.poll();
+                        requested--;
+                    } else {
+                        draining = false;
+                        return;
+                    }
+                }
+                if (change == null) {
+                    evictionCounter.increment();
+                    log.debug("Evicted a slow subscriber of accounts {}", accountIds);
+                    unsubscribe(this);
+                    subscriber.onComplete();
+                    return;
+                }
+                try {
+                    subscriber.onNext(change);
+                } catch (RuntimeException e) {
+                    //the publishing transfer has been committed, so it mustn't fail
+                    log.warn("Dropped a failing subscriber of accounts {}", accountIds, e);
+                    synchronized (this) {
+                        draining = false;
+                    }
+                    cancel();
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.revolut.challenge.service;
+
+import com.revolut.challenge.service.model.BalanceChange;
+import javax.annotation.ParametersAreNonnullByDefault;
+
+/**
+ * Is told of every balance change once its transfer is committed. Every bean of this type is
+ * called by the {@link BalanceChangeHub} on the thread that committed the transfer, so the
+ * listeners have to be fast and thread-safe.
+ */
+@ParametersAreNonnullByDefault
+public interface BalanceChangeListener {
+
+    void onBalanceChange(BalanceChange change);
+}
@@ -0,0 +1,254 @@
+package com.revolut.challenge.service;
+
+import com.revolut.challenge.repositories.AccountFundsRepository;
+import com.revolut.challenge.service.model.AccountFunds;
+import com.revolut.challenge.service.model.BalanceChange;
+import com.revolut.challenge.service.model.BalanceView;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.scheduling.annotation.Scheduled;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Serves the balances from memory, so that balance queries never wait for the locks or the
+ * connections taken by the transfers.
+ *
+ * <p>An account is read from the database when it's queried for the first time. After that,
+ * every committed change of its balance marks it as stale, and the stale accounts are read again
+ * in batches, without locking them, every {@code read-model.refresh-interval}. Along with the
+ * balance, the model reports for how long it may have been stale at most.
+ *
+ * <p>The accounts are read from the database of the transfers rather than from the read data
+ * source. A committed change is reported before the stale account is read again, so the read
+ * reflects it, which a lagging replica wouldn't guarantee.
+ *
+ * <p>The changes are reported by the committing transfers, so the first read of an account
+ * happens outside the map, and a placeholder collects the changes reported in the meantime. The
+ * accounts that haven't been queried for {@code read-model.idle-timeout} are evicted, and once
+ * {@code read-model.max-accounts} are held, further accounts are read from the database on every
+ * query instead.
+ */
+@Slf4j
+@Singleton
+@ThreadSafe
+@ParametersAreNonnullByDefault
+public class BalanceReadModel implements BalanceChangeListener {
+
+    private final AccountFundsRepository accountFundsRepository;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxAccounts;
+    private final long idleTimeoutMillis;
+    private final LongSupplier clock;
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<UUID> staleAccountIds = ConcurrentHashMap.newKeySet();
+
+    @Inject
+    public BalanceReadModel(
+        AccountFundsRepository accountFundsRepository,
+        MeterRegistry meterRegistry,
+        @Value("${read-model.enabled:false}") boolean enabled,
+        @Value("${read-model.batch-size:500}") int batchSize,
+        @Value("${read-model.max-accounts:1000000}") int maxAccounts,
+        @Value("${read-model.idle-timeout:10m}") Duration idleTimeout
+    ) {
+        this(accountFundsRepository, enabled, batchSize, maxAccounts, idleTimeout,
+            System::currentTimeMillis);
+        Gauge.builder("read-model.accounts", entries, Map::size).register(meterRegistry);
+        Gauge.builder("read-model.stale-accounts", staleAccountIds, Set::size)
+            .register(meterRegistry);
+    }
+
+    BalanceReadModel(
+        AccountFundsRepository accountFundsRepository,
+        boolean enabled,
+        int batchSize,
+        int maxAccounts,
+        Duration idleTimeout,
+        LongSupplier clock
+    ) {
+        this.accountFundsRepository = accountFundsRepository;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxAccounts = maxAccounts;
+        this.idleTimeoutMillis = idleTimeout.toMillis();
+        this.clock = clock;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @throws com.revolut.challenge.repositories.AccountFundsNotFoundException if the account
+     * doesn't exist
+     */
+    @NonNull
+    public BalanceView getById(UUID accountId) {
+        var now = clock.getAsLong();
+        var entry = entries.get(accountId);
+        if (entry == null || entry.accountFunds == null) {
+            if (entry == null && entries.size() >= maxAccounts) {
+                return BalanceView.builder()
+                    .accountFunds(accountFundsRepository.getById(accountId))
+                    .stalenessMillis(0)
+                    .build();
+            }
+            entry = load(accountId, now);
+        }
+        entry.readAt = now;
+        return BalanceView.builder()
+            .accountFunds(entry.accountFunds)
+            .stalenessMillis(entry.staleSince == 0 ? 0 : Math.max(0, now - entry.staleSince))
+            .build();
+    }
+
+    @Override
+    public void onBalanceChange(BalanceChange change) {
+        if (!enabled) {
+            return;
+        }
+        var now = clock.getAsLong();
+        if (entries.computeIfPresent(change.getAccountId(), (id, entry) -> entry.changed(now))
+            != null) {
+            staleAccountIds.add(change.getAccountId());
+        }
+    }
+
+    @Scheduled(fixedDelay = "${read-model.refresh-interval:10ms}")
+    void refresh() {
+        if (!enabled) {
+            return;
+        }
+        while (!staleAccountIds.isEmpty()) {
+            var batch = new ArrayList<UUID>(batchSize);
+            var iterator = staleAccountIds.iterator();
+            while (iterator.hasNext() && batch.size() < batchSize) {
+                batch.add(iterator.next());
+                //a change committed from now on marks the account as stale again
+                iterator.remove();
+            }
+            var readSince = clock.getAsLong();
+            Map<UUID, AccountFunds> accounts;
+            try {
+                accounts = accountFundsRepository.findAll(batch);
+            } catch (RuntimeException e) {
+                log.warn("Failed to refresh the balances of {} accounts", batch.size(), e);
+                staleAccountIds.addAll(batch);
+                return;
+            }
+            for (var accountId : batch) {
+                var accountFunds = accounts.get(accountId);
+                if (accountFunds == null) {
+                    entries.remove(accountId);
+                } else {
+                    entries.computeIfPresent(accountId,
+                        (id, entry) -> entry.refreshed(accountFunds, readSince));
+                }
+            }
+        }
+    }
+
+    @Scheduled(fixedDelay = "${read-model.eviction-interval:1m}")
+    void evictIdle() {
+        if (!enabled) {
+            return;
+        }
+        var idleSince = clock.getAsLong() - idleTimeoutMillis;
+        //an entry replaced in the meantime is kept
+        entries.values().removeIf(entry -> entry.readAt < idleSince);
+    }
+
+    /**
+     * Reads the account without holding a lock of the map, so the transfers that report changes
+     * of other accounts in the same bin never wait for it.
+     */
+    private Entry load(UUID accountId, long now) {
+        //collects the changes reported while the account is read, see onBalanceChange
+        entries.putIfAbsent(accountId, Entry.loading(now));
+        var readSince = clock.getAsLong();
+        AccountFunds accountFunds;
+        try {
+            accountFunds = accountFundsRepository.getById(accountId);
+        } catch (RuntimeException e) {
+            entries.computeIfPresent(accountId,
+                (id, entry) -> entry.accountFunds == null ? null : entry);
+            throw e;
+        }
+        var loaded = entries.compute(accountId, (id, entry) -> entry != null
+            ? entry.refreshed(accountFunds, readSince)
+            //evicted, or removed by a failed read, so a change may have been missed
+            : new Entry(accountFunds, readSince, readSince, now));
+        if (loaded.staleSince != 0) {
+            staleAccountIds.add(accountId);
+        }
+        return loaded;
+    }
+
+    private static final class Entry {
+
+        /**
+         * Null while the account is read for the first time.
+         */
+        @Nullable
+        private final AccountFunds accountFunds;
+        /**
+         * An upper bound of when the oldest change not reflected in the balance was committed, 0
+         * if there is none.
+         */
+        private final long staleSince;
+        /**
+         * When the latest change was reported.
+         */
+        private final long changedAt;
+        /**
+         * When the account was queried last, updated without synchronization, as a lost update
+         * only delays the eviction.
+         */
+        private volatile long readAt;
+
+        private Entry(@Nullable AccountFunds accountFunds, long staleSince, long changedAt,
+            long readAt) {
+            this.accountFunds = accountFunds;
+            this.staleSince = staleSince;
+            this.changedAt = changedAt;
+            this.readAt = readAt;
+        }
+
+        private static Entry loading(long now) {
+            return new Entry(null, 0, 0, now);
+        }
+
+        private Entry changed(long now) {
+            return new Entry(accountFunds, staleSince == 0 ? now : staleSince, now, readAt);
+        }
+
+        /**
+         * @param readSince a moment before the account was read, so the read reflects every
+         * change reported by then
+         */
+        private Entry refreshed(AccountFunds readAccountFunds, long readSince) {
+            var newest = accountFunds == null
+                || readAccountFunds.getVersion() >= accountFunds.getVersion()
+                ? readAccountFunds
+                : accountFunds;
+            return changedAt <= readSince
+                ? new Entry(newest, 0, changedAt, readAt)
+                : new Entry(newest, readSince, changedAt, readAt);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.revolut.challenge.service;
+
+import com.revolut.challenge.service.model.Transfer;
+import io.micronaut.context.annotation.Value;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.inject.Singleton;
+
+/**
+ * Doesn't let the accounts listed in {@code transfer-checks.blocked-accounts} send or receive
+ * funds.
+ */
+@Singleton
+@ParametersAreNonnullByDefault
+class BlockedAccountCheck implements TransferCheck {
+
+    private final Set<UUID> blockedAccountIds;
+
+    BlockedAccountCheck(@Value("${transfer-checks.blocked-accounts:}") String[] blockedAccountIds) {
+        this.blockedAccountIds = Arrays.stream(blockedAccountIds)
+            .map(String::trim)
+            .filter(accountId -> !accountId.isEmpty())
+            .map(UUID::fromString)
+            .collect(Collectors.toUnmodifiableSet());
+    }
+
+    @Override
+    public void check(Transfer transfer) {
+        checkAccount(transfer.getSenderAccountId());
+        checkAccount(transfer.getRecipientAccountId());
+    }
+
+    private void checkAccount(UUID accountId) {
+        if (blockedAccountIds.contains(accountId)) {
+            throw new TransferNotAllowedException("Account " + accountId + " is blocked");
+        }
+    }
+}
@@ -0,0 +1,417 @@
+package com.revolut.challenge.service;
+
+import com.revolut.challenge.partitioning.PartitionClient;
+import com.revolut.challenge.partitioning.PartitionMap;
+import com.revolut.challenge.partitioning.PartitionRequestException;
+import com.revolut.challenge.repositories.AccountFundsRepository;
+import com.revolut.challenge.repositories.DuplicateOperationIdException;
+import com.revolut.challenge.repositories.PartitionTransferRepository;
+import com.revolut.challenge.repositories.TransferNotFoundException;
+import com.revolut.challenge.repositories.TransferRepository;
+import com.revolut.challenge.service.model.PartitionTransfer;
+import com.revolut.challenge.service.model.PartitionTransferRole;
+import com.revolut.challenge.service.model.PartitionTransferState;
+import com.revolut.challenge.service.model.Transfer;
+import com.revolut.challenge.service.model.TransferStatus;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.scheduling.annotation.Scheduled;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Transfers funds between accounts owned by different instances with a two-phase protocol
+ * keyed by the operation ID, in which the owner of the sender account is the coordinator and
+ * the owner of the recipient account is the participant:
+ * <ol>
+ * <li>The coordinator records the transfer as {@link PartitionTransferState#PREPARING} and asks
+ * the participant to prepare the credit. The participant checks the recipient account and
+ * records the credit as {@link PartitionTransferState#PREPARED}.</li>
+ * <li>The coordinator saves the transfer and, if the sender has enough funds, debits the sender
+ * and moves to {@link PartitionTransferState#COMMITTING} in the same transaction. Otherwise the
+ * transfer is rejected and aborted.</li>
+ * <li>The coordinator tells the participant to commit, and the participant credits the
+ * recipient. Until the participant confirms, the commit is retried.</li>
+ * </ol>
+ *
+ * <p>An abort is presumed: a coordinator that stays {@link PartitionTransferState#PREPARING}
+ * for longer than {@code partitioning.prepare-timeout} aborts the transfer, and a participant
+ * that stays {@link PartitionTransferState#PREPARED} that long asks the coordinator for the
+ * outcome, so that no credit waits forever.
+ */
+@Slf4j
+@Singleton
+@ParametersAreNonnullByDefault
+public class CrossPartitionTransferService {
+
+    private static final String PARTITION_API = "/internal/v1/partition";
+    private static final int RECOVERY_BATCH_SIZE = 100;
+
+    private final AccountFundsRepository accountFundsRepository;
+    private final TransferRepository transferRepository;
+    private final TransferJournal transferJournal;
+    private final PartitionTransferRepository partitionTransferRepository;
+    private final TransactionHelper transactionHelper;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final TransferValidationPipeline validationPipeline;
+    private final VelocityLimits velocityLimits;
+    private final TransferNettingEngine nettingEngine;
+    private final BalanceChangeHub balanceChangeHub;
+    private final PartitionMap partitionMap;
+    private final PartitionClient partitionClient;
+    private final Duration prepareTimeout;
+
+    CrossPartitionTransferService(
+        AccountFundsRepository accountFundsRepository,
+        TransferRepository transferRepository,
+        TransferJournal transferJournal,
+        PartitionTransferRepository partitionTransferRepository,
+        TransactionHelper transactionHelper,
+        AdaptiveConcurrencyLimiter concurrencyLimiter,
+        TransferValidationPipeline validationPipeline,
+        VelocityLimits velocityLimits,
+        TransferNettingEngine nettingEngine,
+        BalanceChangeHub balanceChangeHub,
+        PartitionMap partitionMap,
+        PartitionClient partitionClient,
+        @Value("${partitioning.prepare-timeout:30s}") Duration prepareTimeout
+    ) {
+        this.accountFundsRepository = accountFundsRepository;
+        this.transferRepository = transferRepository;
+        this.transferJournal = transferJournal;
+        this.partitionTransferRepository = partitionTransferRepository;
+        this.transactionHelper = transactionHelper;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.validationPipeline = validationPipeline;
+        this.velocityLimits = velocityLimits;
+        this.nettingEngine = nettingEngine;
+        this.balanceChangeHub = balanceChangeHub;
+        this.partitionMap = partitionMap;
+        this.partitionClient = partitionClient;
+        this.prepareTimeout = prepareTimeout;
+    }
+
+    /**
+     * Coordinates a transfer from a local account to an account of another instance.
+     *
+     * @throws ServiceOverloadedException if too many transfers are already being processed
+     * @throws PartitionRequestException if the participant refuses the transfer or is
+     * unavailable
+     * @throws DeadlineExceededException if the deadline expires before the sender is debited
+     */
+    @NonNull
+    public Transfer processTransfer(Transfer transfer, Deadline deadline) {
+        deadline.check(DeadlineExceededException.QUEUED);
+        return concurrencyLimiter.execute(() -> doProcessTransfer(transfer, deadline));
+    }
+
+    @NonNull
+    private Transfer doProcessTransfer(Transfer transfer, Deadline deadline) {
+        deadline.check(DeadlineExceededException.QUEUED);
+        var persistedTransfer = findTransfer(transfer.getOperationId());
+        if (persistedTransfer.isPresent()) {
+            return TransferService.replayTransfer(transfer, persistedTransfer.get());
+        }
+        var sender = accountFundsRepository.getCachedById(transfer.getSenderAccountId());
+        validateCurrency(transfer.getCurrency(), sender.getAccountId(), sender.getCurrency());
+        TransferValidationPipeline.await(validationPipeline.check(List.of(transfer)));
+
+        var velocityReservation = velocityLimits.reserve(transfer);
+        PartitionTransfer debit;
+        try {
+            debit = startDebit(transfer);
+        } catch (RuntimeException e) {
+            velocityLimits.release(transfer, velocityReservation);
+            throw e;
+        }
+        Transfer result;
+        try {
+            partitionClient.send(debit.getPeerInstance(), HttpRequest.POST(
+                PARTITION_API + "/credits", buildCredit(transfer)));
+            //an abandoned debit aborts the prepared credit like any other failure
+            result = transactionHelper.getFromTransaction(deadline, () -> debitSender(transfer));
+        } catch (RuntimeException e) {
+            velocityLimits.release(transfer, velocityReservation);
+            abort(debit);
+            throw e;
+        }
+        if (result.getStatus() == TransferStatus.REJECTED) {
+            velocityLimits.release(transfer, velocityReservation);
+            sendAbort(debit);
+            return result;
+        }
+        balanceChangeHub.publish(transfer.getOperationId(), transfer.getCurrency(),
+            result.getCreatedAt(),
+            Map.of(transfer.getSenderAccountId(), transfer.getAmount().negate()));
+        sendCommit(debit);
+        return result;
+    }
+
+    /**
+     * Checks the recipient account and records the credit, so that it can be committed later.
+     * Preparing the same credit again has no effect.
+     */
+    public void prepareCredit(PartitionTransfer credit) {
+        var recipient = accountFundsRepository.getCachedById(credit.getAccountId());
+        validateCurrency(credit.getCurrency(), recipient.getAccountId(),
+            recipient.getCurrency());
+        var preparedCredit = credit.toBuilder()
+            .role(PartitionTransferRole.PARTICIPANT)
+            .state(PartitionTransferState.PREPARED)
+            .build();
+        try {
+            partitionTransferRepository.save(preparedCredit);
+        } catch (DuplicateOperationIdException e) {
+            var existingCredit = partitionTransferRepository
+                .findByOperationId(credit.getOperationId())
+                .orElseThrow(() -> e);
+            //an aborted credit can't be prepared again, since a late abort could undo it
+            if (existingCredit.getState() == PartitionTransferState.ABORTED
+                || !isSameCredit(existingCredit, preparedCredit)) {
+                throw new ConflictingTransferException(credit.getOperationId());
+            }
+        }
+    }
+
+    /**
+     * Credits the recipient account. Committing the same credit again has no effect.
+     *
+     * @throws PartitionRequestException if the credit isn't prepared or has been aborted
+     */
+    public void commitCredit(UUID operationId) {
+        var credit = partitionTransferRepository.findByOperationId(operationId)
+            .orElseThrow(() -> new PartitionRequestException(HttpStatus.NOT_FOUND,
+                "Credit " + operationId + " isn't prepared"));
+        var committed = transactionHelper.getFromTransaction(() -> {
+            accountFundsRepository.getAllForUpdate(Set.of(credit.getAccountId()));
+            if (!partitionTransferRepository.compareAndSetState(operationId,
+                PartitionTransferState.PREPARED, PartitionTransferState.COMMITTED)) {
+                return false;
+            }
+            accountFundsRepository.updateBalances(
+                Map.of(credit.getAccountId(), credit.getAmount()));
+            return true;
+        });
+        if (committed) {
+            //a credit doesn't carry the time of its transfer, so it's counted when it's committed
+            balanceChangeHub.publish(operationId, credit.getCurrency(),
+                LocalDateTime.now(ZoneId.of("UTC")),
+                Map.of(credit.getAccountId(), credit.getAmount()));
+        } else if (getState(operationId) != PartitionTransferState.COMMITTED) {
+            throw new PartitionRequestException(HttpStatus.CONFLICT,
+                "Credit " + operationId + " has been aborted");
+        }
+    }
+
+    /**
+     * Drops a prepared credit. Credits that aren't known are ignored, since their preparation
+     * may have failed.
+     *
+     * @throws PartitionRequestException if the credit has already been committed
+     */
+    public void abortCredit(UUID operationId) {
+        if (!partitionTransferRepository.compareAndSetState(operationId,
+            PartitionTransferState.PREPARED, PartitionTransferState.ABORTED)
+            && getState(operationId) == PartitionTransferState.COMMITTED) {
+            throw new PartitionRequestException(HttpStatus.CONFLICT,
+                "Credit " + operationId + " has already been committed");
+        }
+    }
+
+    /**
+     * @return the debit of the sender account, which tells the participant the outcome of the
+     * transfer
+     */
+    @NonNull
+    public Optional<PartitionTransfer> findDebit(UUID operationId) {
+        return partitionTransferRepository.findByOperationId(operationId)
+            .filter(debit -> debit.getRole() == PartitionTransferRole.COORDINATOR);
+    }
+
+    /**
+     * Finishes the transfers left in between by failures: retries the commits that the
+     * participants haven't confirmed, aborts the debits that have been preparing for too long,
+     * and resolves the credits that have been prepared for too long.
+     */
+    @Scheduled(fixedDelay = "${partitioning.recovery-interval:5s}")
+    void recover() {
+        if (!partitionMap.isEnabled()) {
+            return;
+        }
+        var now = LocalDateTime.now(ZoneId.of("UTC"));
+        var timedOut = now.minus(prepareTimeout);
+        partitionTransferRepository.getInStateSince(PartitionTransferRole.COORDINATOR,
+            PartitionTransferState.COMMITTING, now, RECOVERY_BATCH_SIZE)
+            .forEach(this::sendCommit);
+        partitionTransferRepository.getInStateSince(PartitionTransferRole.COORDINATOR,
+            PartitionTransferState.PREPARING, timedOut, RECOVERY_BATCH_SIZE)
+            .forEach(this::abort);
+        partitionTransferRepository.getInStateSince(PartitionTransferRole.PARTICIPANT,
+            PartitionTransferState.PREPARED, timedOut, RECOVERY_BATCH_SIZE)
+            .forEach(this::resolveCredit);
+    }
+
+    private PartitionTransfer startDebit(Transfer transfer) {
+        try {
+            return partitionTransferRepository.save(PartitionTransfer.builder()
+                .operationId(transfer.getOperationId())
+                .role(PartitionTransferRole.COORDINATOR)
+                .state(PartitionTransferState.PREPARING)
+                .accountId(transfer.getSenderAccountId())
+                .amount(transfer.getAmount())
+                .currency(transfer.getCurrency())
+                .peerInstance(partitionMap.ownerOf(transfer.getRecipientAccountId()))
+                .build());
+        } catch (DuplicateOperationIdException e) {
+            //a concurrent attempt, or an aborted one that can't be replayed
+            throw new ConflictingTransferException(transfer.getOperationId());
+        }
+    }
+
+    private PartitionTransfer buildCredit(Transfer transfer) {
+        return PartitionTransfer.builder()
+            .operationId(transfer.getOperationId())
+            .role(PartitionTransferRole.PARTICIPANT)
+            .state(PartitionTransferState.PREPARED)
+            .accountId(transfer.getRecipientAccountId())
+            .amount(transfer.getAmount())
+            .currency(transfer.getCurrency())
+            .peerInstance(partitionMap.getInstanceIndex())
+            .build();
+    }
+
+    /**
+     * Saves the transfer and debits the sender if it has enough available funds, or rejects the
+     * transfer otherwise. The funds held or reserved by netted transfers can't be spent.
+     */
+    @NonNull
+    private Transfer debitSender(Transfer transfer) {
+        var operationId = transfer.getOperationId();
+        var senderAccountId = transfer.getSenderAccountId();
+        var transferId = transferRepository.save(transfer).getId();
+        var sender = accountFundsRepository.getByIdForUpdate(senderAccountId);
+        if (sender.getAvailableBalance().subtract(nettingEngine.getReservedFunds(senderAccountId))
+            .compareTo(transfer.getAmount()) < 0) {
+            partitionTransferRepository.compareAndSetState(operationId,
+                PartitionTransferState.PREPARING, PartitionTransferState.ABORTED);
+            transferRepository.updateStatus(transferId, TransferStatus.REJECTED);
+            return transferRepository.getById(transferId);
+        }
+        if (!partitionTransferRepository.compareAndSetState(operationId,
+            PartitionTransferState.PREPARING, PartitionTransferState.COMMITTING)) {
+            throw new IllegalStateException("Transfer " + operationId + " has timed out");
+        }
+        accountFundsRepository.updateBalances(
+            Map.of(senderAccountId, transfer.getAmount().negate()));
+        transferRepository.updateStatus(transferId, TransferStatus.OK);
+        return transferRepository.getById(transferId);
+    }
+
+    private void sendCommit(PartitionTransfer debit) {
+        var operationId = debit.getOperationId();
+        try {
+            partitionClient.send(debit.getPeerInstance(), HttpRequest.POST(
+                PARTITION_API + "/credits/" + operationId + "/commit", ""));
+        } catch (PartitionRequestException e) {
+            log.warn("Failed to commit transfer {}, the commit will be retried", operationId, e);
+            return;
+        }
+        partitionTransferRepository.compareAndSetState(operationId,
+            PartitionTransferState.COMMITTING, PartitionTransferState.COMMITTED);
+    }
+
+    private void abort(PartitionTransfer debit) {
+        if (partitionTransferRepository.compareAndSetState(debit.getOperationId(),
+            PartitionTransferState.PREPARING, PartitionTransferState.ABORTED)) {
+            sendAbort(debit);
+        }
+    }
+
+    /**
+     * The participant asks for the outcome by itself if the abort doesn't reach it.
+     */
+    private void sendAbort(PartitionTransfer debit) {
+        try {
+            partitionClient.send(debit.getPeerInstance(), HttpRequest.POST(
+                PARTITION_API + "/credits/" + debit.getOperationId() + "/abort", ""));
+        } catch (PartitionRequestException e) {
+            log.warn("Failed to abort transfer {}", debit.getOperationId(), e);
+        }
+    }
+
+    private void resolveCredit(PartitionTransfer credit) {
+        var operationId = credit.getOperationId();
+        PartitionTransferState outcome;
+        try {
+            outcome = partitionClient.exchange(credit.getPeerInstance(),
+                HttpRequest.GET(PARTITION_API + "/debits/" + operationId),
+                PartitionTransfer.class)
+                .map(PartitionTransfer::getState)
+                .orElse(PartitionTransferState.ABORTED);
+        } catch (PartitionRequestException e) {
+            if (e.getStatus() != HttpStatus.NOT_FOUND) {
+                log.warn("Failed to resolve credit {}", operationId, e);
+                return;
+            }
+            //the coordinator has never debited the sender
+            outcome = PartitionTransferState.ABORTED;
+        }
+        switch (outcome) {
+            case COMMITTING:
+            case COMMITTED:
+                commitCredit(operationId);
+                break;
+            case ABORTED:
+                abortCredit(operationId);
+                break;
+            default:
+                //the coordinator hasn't decided yet
+                break;
+        }
+    }
+
+    private Optional<Transfer> findTransfer(UUID operationId) {
+        var journaledTransfer = transferJournal.findByOperationId(operationId);
+        if (journaledTransfer.isPresent()) {
+            return journaledTransfer;
+        }
+        try {
+            return Optional.of(transferRepository.getByOperationId(operationId));
+        } catch (TransferNotFoundException e) {
+            return Optional.empty();
+        }
+    }
+
+    private PartitionTransferState getState(UUID operationId) {
+        return partitionTransferRepository.findByOperationId(operationId)
+            .map(PartitionTransfer::getState)
+            .orElse(PartitionTransferState.ABORTED);
+    }
+
+    private static boolean isSameCredit(PartitionTransfer existingCredit,
+        PartitionTransfer credit) {
+        return existingCredit.getRole() == credit.getRole()
+            && existingCredit.getAccountId().equals(credit.getAccountId())
+            && existingCredit.getAmount().compareTo(credit.getAmount()) == 0
+            && existingCredit.getCurrency().equals(credit.getCurrency());
+    }
+
+    private static void validateCurrency(String currency, UUID accountId,
+        String accountCurrency) {
+        if (!Objects.equals(currency, accountCurrency)) {
+            throw new CurrencyMismatchException(accountId, accountCurrency);
+        }
+    }
+}
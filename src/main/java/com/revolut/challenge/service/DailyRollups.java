@@ -0,0 +1,173 @@
+package com.revolut.challenge.service;
+
+import com.revolut.challenge.repositories.DailyRollupRepository;
+import com.revolut.challenge.repositories.routing.ReadOnlyRouting;
+import com.revolut.challenge.service.model.BalanceChange;
+import com.revolut.challenge.service.model.DailyRollup;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.scheduling.annotation.Scheduled;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.PreDestroy;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Maintains the daily inflow, outflow and number of transfers of every account
+ * (daily-rollups.enabled).
+ *
+ * <p>Every committed balance change is added to an in-memory delta of its account and day, the
+ * UTC day its transfer was created on, so a transfer that commits after midnight still counts on
+ * the day it was made. Every {@code flush-interval}, the deltas are taken out and added to
+ * the stored rollups by two batched statements, so a transfer costs a map update rather than a
+ * write, and an account that makes many transfers is written once per interval. The deltas of a
+ * failed flush are put back. The stored rollups lag behind by up to one interval, and the deltas
+ * of an instance that crashes are lost.
+ *
+ * <p>The rollups of the transfers committed before the feature is enabled, or lost in a crash,
+ * are restored by {@link #rebuild}, which recomputes a range of past days from the transfers.
+ */
+@Slf4j
+@Singleton
+@ThreadSafe
+@ParametersAreNonnullByDefault
+public class DailyRollups implements BalanceChangeListener {
+
+    private final DailyRollupRepository dailyRollupRepository;
+    private final ReadOnlyRouting readOnlyRouting;
+    private final boolean enabled;
+    private final Counter flushedCounter;
+    private final Map<Key, DailyRollup> deltas = new ConcurrentHashMap<>();
+
+    public DailyRollups(
+        DailyRollupRepository dailyRollupRepository,
+        ReadOnlyRouting readOnlyRouting,
+        MeterRegistry meterRegistry,
+        @Value("${daily-rollups.enabled:false}") boolean enabled
+    ) {
+        this.dailyRollupRepository = dailyRollupRepository;
+        this.readOnlyRouting = readOnlyRouting;
+        this.enabled = enabled;
+        flushedCounter = meterRegistry.counter("daily-rollups.flushed");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the rollups of the days from {@code fromDay} to {@code toDay}, both included, on
+     * which the account has received or sent funds, as of the last flush
+     */
+    @NonNull
+    public List<DailyRollup> getRollups(UUID accountId, LocalDate fromDay, LocalDate toDay) {
+        return readOnlyRouting.execute(
+            () -> dailyRollupRepository.findByAccount(accountId, fromDay, toDay));
+    }
+
+    @Override
+    public void onBalanceChange(BalanceChange change) {
+        if (!enabled) {
+            return;
+        }
+        var day = change.getCreatedAt().toLocalDate();
+        var inflow = change.getAmount().signum() > 0;
+        var delta = DailyRollup.builder()
+            .accountId(change.getAccountId())
+            .day(day)
+            .currency(change.getCurrency())
+            .inflow(inflow ? change.getAmount() : BigDecimal.ZERO)
+            .outflow(inflow ? BigDecimal.ZERO : change.getAmount().negate())
+            .transferCount(1)
+            .build();
+        deltas.merge(new Key(change.getAccountId(), day), delta, DailyRollup::plus);
+    }
+
+    /**
+     * Recomputes the rollups of the days from {@code fromDay} to {@code toDay}, both included,
+     * from the transfers, dropping their deltas that haven't been flushed yet. Meant for past
+     * days, as a transfer of the range that commits during the rebuild may be counted twice.
+     *
+     * @see DailyRollupRepository#rebuild
+     */
+    public synchronized void rebuild(LocalDate fromDay, LocalDate toDay) {
+        if (!enabled) {
+            throw new IllegalStateException("The daily rollups are disabled");
+        }
+        deltas.keySet().removeIf(key -> !key.day.isBefore(fromDay) && !key.day.isAfter(toDay));
+        dailyRollupRepository.rebuild(fromDay, toDay);
+        log.info("Rebuilt the daily rollups from {} to {}", fromDay, toDay);
+    }
+
+    @Scheduled(fixedDelay = "${daily-rollups.flush-interval:5s}")
+    synchronized void flush() {
+        if (!enabled || deltas.isEmpty()) {
+            return;
+        }
+        var batch = new ArrayList<DailyRollup>(deltas.size());
+        for (var key : deltas.keySet()) {
+            //a change from now on starts a new delta, flushed the next time
+            var delta = deltas.remove(key);
+            if (delta != null) {
+                batch.add(delta);
+            }
+        }
+        try {
+            dailyRollupRepository.add(batch);
+        } catch (RuntimeException e) {
+            log.warn("Failed to add {} deltas to the daily rollups", batch.size(), e);
+            for (var delta : batch) {
+                deltas.merge(new Key(delta.getAccountId(), delta.getDay()), delta,
+                    DailyRollup::plus);
+            }
+            return;
+        }
+        flushedCounter.increment(batch.size());
+    }
+
+    @PreDestroy
+    void close() {
+        flush();
+    }
+
+    @Immutable
+    private static final class Key {
+
+        private final UUID accountId;
+        private final LocalDate day;
+
+        private Key(UUID accountId, LocalDate day) {
+            this.accountId = accountId;
+            this.day = day;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            var key = (Key) o;
+            return accountId.equals(key.accountId) && day.equals(key.day);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(accountId, day);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.revolut.challenge.service;
+
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.management.endpoint.annotation.Endpoint;
+import io.micronaut.management.endpoint.annotation.Write;
+import java.time.LocalDate;
+import javax.annotation.ParametersAreNonnullByDefault;
+import lombok.AllArgsConstructor;
+
+/**
+ * {@code POST /rollups} with {@code {"from": "2020-01-01", "to": "2020-01-31"}} rebuilds the
+ * daily rollups of the days from {@code from} to {@code to}, both included.
+ */
+@Endpoint(id = "rollups")
+@Requires(property = "daily-rollups.enabled", value = "true")
+@ParametersAreNonnullByDefault
+@AllArgsConstructor
+public class DailyRollupsEndpoint {
+
+    private final DailyRollups dailyRollups;
+
+    @Write
+    public void rebuild(String from, String to) {
+        dailyRollups.rebuild(LocalDate.parse(from), LocalDate.parse(to));
+    }
+}
@@ -0,0 +1,58 @@
+package com.revolut.challenge.service;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.time.Duration;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * The moment after which the client no longer waits for the result of its request.
+ */
+@Immutable
+@ParametersAreNonnullByDefault
+public final class Deadline {
+
+    public static final Deadline NONE = new Deadline(Long.MAX_VALUE, false);
+
+    private final long expiresAtNanos;
+    private final boolean set;
+
+    private Deadline(long expiresAtNanos, boolean set) {
+        this.expiresAtNanos = expiresAtNanos;
+        this.set = set;
+    }
+
+    @NonNull
+    public static Deadline after(Duration timeout) {
+        return new Deadline(System.nanoTime() + timeout.toNanos(), true);
+    }
+
+    public boolean isSet() {
+        return set;
+    }
+
+    public boolean isExpired() {
+        return set && System.nanoTime() - expiresAtNanos >= 0;
+    }
+
+    /**
+     * @return the milliseconds left, 0 if the deadline has expired, {@link Long#MAX_VALUE} if it
+     * isn't set
+     */
+    public long remainingMillis() {
+        if (!set) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, Duration.ofNanos(expiresAtNanos - System.nanoTime()).toMillis());
+    }
+
+    /**
+     * @param stage where the request is, reported along with the exception
+     * @throws DeadlineExceededException if the deadline has expired
+     */
+    public void check(String stage) {
+        if (isExpired()) {
+            throw new DeadlineExceededException(stage);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.revolut.challenge.service;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import lombok.Getter;
+
+@Getter
+@ParametersAreNonnullByDefault
+public class DeadlineExceededException extends RuntimeException {
+
+    /**
+     * The request expired before it touched the database.
+     */
+    public static final String QUEUED = "queued";
+    /**
+     * The request expired while waiting for locks or statements.
+     */
+    public static final String DATABASE = "database";
+
+    private final String stage;
+
+    public DeadlineExceededException(String stage) {
+        super("The request has not been completed before its deadline");
+        this.stage = stage;
+    }
+
+    public DeadlineExceededException(String stage, Throwable cause) {
+        super("The request has not been completed before its deadline", cause);
+        this.stage = stage;
+    }
+}
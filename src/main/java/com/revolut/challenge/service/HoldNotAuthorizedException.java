@@ -0,0 +1,16 @@
+package com.revolut.challenge.service;
+
+import com.revolut.challenge.service.model.HoldStatus;
+import java.util.UUID;
+import javax.annotation.ParametersAreNonnullByDefault;
+
+/**
+ * Thrown when a hold can't be captured or voided since it has been released in another way.
+ */
+@ParametersAreNonnullByDefault
+public class HoldNotAuthorizedException extends RuntimeException {
+
+    public HoldNotAuthorizedException(UUID holdId, HoldStatus status) {
+        super("Hold " + holdId + " is " + status);
+    }
+}
@@ -0,0 +1,310 @@
+package com.revolut.challenge.service;
+
+import com.revolut.challenge.repositories.AccountFundsRepository;
+import com.revolut.challenge.repositories.DuplicateOperationIdException;
+import com.revolut.challenge.repositories.HoldRepository;
+import com.revolut.challenge.repositories.TransferRepository;
+import com.revolut.challenge.service.model.Hold;
+import com.revolut.challenge.service.model.HoldStatus;
+import com.revolut.challenge.service.model.Transfer;
+import com.revolut.challenge.service.model.TransferStatus;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.scheduling.annotation.Scheduled;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.inject.Singleton;
+import javax.validation.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reserves funds first and transfers them later, like card payments do.
+ *
+ * <p>Authorizing a hold locks the account and adds the amount to the held part of its balance,
+ * unless the available balance, i.e. the balance minus the held part, doesn't cover it once the
+ * funds reserved by accepted netted transfers are set aside. The available balance is what all
+ * transfers check for sufficient funds. The hold has to pass the transfer checks, as a transfer
+ * from the account to itself, since the recipient isn't known before the capture. Capturing the
+ * hold debits the account by the captured amount, which is at most the held one, credits the
+ * recipient and records the transfer, which counts against the velocity limits of the account
+ * like any other transfer, while voiding it only releases the held amount. The holds that are
+ * neither captured nor voided by their expiry time are released by a sweeper every {@code
+ * holds.sweep-interval}, in batches of {@code holds.sweep-batch-size} with one statement per
+ * account.
+ */
+@Slf4j
+@Singleton
+@ParametersAreNonnullByDefault
+public class HoldService {
+
+    private final AccountFundsRepository accountFundsRepository;
+    private final HoldRepository holdRepository;
+    private final TransferRepository transferRepository;
+    private final TransferJournal transferJournal;
+    private final TransactionHelper transactionHelper;
+    private final TransferValidationPipeline validationPipeline;
+    private final BalanceChangeHub balanceChangeHub;
+    private final TransferNettingEngine nettingEngine;
+    private final VelocityLimits velocityLimits;
+    private final Duration defaultExpiry;
+    private final int sweepBatchSize;
+    private final Counter expiredCounter;
+
+    public HoldService(
+        AccountFundsRepository accountFundsRepository,
+        HoldRepository holdRepository,
+        TransferRepository transferRepository,
+        TransferJournal transferJournal,
+        TransactionHelper transactionHelper,
+        TransferValidationPipeline validationPipeline,
+        BalanceChangeHub balanceChangeHub,
+        TransferNettingEngine nettingEngine,
+        VelocityLimits velocityLimits,
+        MeterRegistry meterRegistry,
+        @Value("${holds.default-expiry:7d}") Duration defaultExpiry,
+        @Value("${holds.sweep-batch-size:1000}") int sweepBatchSize
+    ) {
+        this.accountFundsRepository = accountFundsRepository;
+        this.holdRepository = holdRepository;
+        this.transferRepository = transferRepository;
+        this.transferJournal = transferJournal;
+        this.transactionHelper = transactionHelper;
+        this.validationPipeline = validationPipeline;
+        this.balanceChangeHub = balanceChangeHub;
+        this.nettingEngine = nettingEngine;
+        this.velocityLimits = velocityLimits;
+        this.defaultExpiry = defaultExpiry;
+        this.sweepBatchSize = sweepBatchSize;
+        expiredCounter = meterRegistry.counter("holds.expired");
+    }
+
+    /**
+     * Reserves the amount of the hold, or records the hold as {@link HoldStatus#DECLINED} if the
+     * available balance doesn't cover it. A hold without an expiry time expires after {@code
+     * holds.default-expiry}.
+     *
+     * @return the hold, or the existing one if the same hold has been authorized already
+     * @throws ConflictingTransferException if a different hold with the same ID exists
+     * @throws com.revolut.challenge.repositories.AccountFundsNotFoundException if the account
+     * doesn't exist
+     * @throws CurrencyMismatchException if the account is in another currency
+     * @throws TransferNotAllowedException if the hold doesn't pass a transfer check
+     */
+    @NonNull
+    public Hold authorize(Hold request) {
+        var account = accountFundsRepository.getCachedById(request.getAccountId());
+        if (!Objects.equals(account.getCurrency(), request.getCurrency())) {
+            throw new CurrencyMismatchException(account.getAccountId(), account.getCurrency());
+        }
+        TransferValidationPipeline.await(validationPipeline.check(List.of(Transfer.builder()
+            .operationId(request.getHoldId())
+            .senderAccountId(request.getAccountId())
+            .recipientAccountId(request.getAccountId())
+            .amount(request.getAmount())
+            .currency(request.getCurrency())
+            .status(TransferStatus.ACCEPTED)
+            .build())));
+        var hold = request.toBuilder()
+            .expiresAt(request.getExpiresAt() == null
+                ? LocalDateTime.now(ZoneId.of("UTC")).plus(defaultExpiry)
+                : request.getExpiresAt())
+            .recipientAccountId(null)
+            .capturedAmount(null)
+            .build();
+        try {
+            return transactionHelper.getFromTransaction(() -> holdRepository.save(
+                hold.toBuilder()
+                    .status(reserve(hold.getAccountId(), hold.getAmount())
+                        ? HoldStatus.AUTHORIZED
+                        : HoldStatus.DECLINED)
+                    .build()));
+        } catch (DuplicateOperationIdException e) {
+            //the reservation has been rolled back along with the duplicate
+            var existing = holdRepository.findById(hold.getHoldId()).orElseThrow(() -> e);
+            if (existing.getAccountId().equals(hold.getAccountId())
+                && existing.getAmount().compareTo(hold.getAmount()) == 0
+                && existing.getCurrency().equals(hold.getCurrency())) {
+                return existing;
+            }
+            throw new ConflictingTransferException(hold.getHoldId());
+        }
+    }
+
+    @NonNull
+    public Optional<Hold> findById(UUID holdId) {
+        return holdRepository.findById(holdId);
+    }
+
+    /**
+     * Transfers the captured amount to the recipient and releases the rest of the held amount.
+     * Capturing the hold again the same way returns the captured hold.
+     *
+     * @return the captured hold, or nothing if it doesn't exist
+     * @throws ValidationException if the amount exceeds the held amount
+     * @throws HoldNotAuthorizedException if the hold has been released in another way
+     * @throws TransferNotAllowedException if the transfer doesn't pass a transfer check
+     * @throws CurrencyMismatchException if the recipient account is in another currency
+     */
+    @NonNull
+    public Optional<Hold> capture(UUID holdId, UUID recipientAccountId, BigDecimal amount) {
+        var found = holdRepository.findById(holdId);
+        if (found.isEmpty()) {
+            return found;
+        }
+        var hold = found.get();
+        if (amount.compareTo(hold.getAmount()) > 0) {
+            throw new ValidationException("The captured amount exceeds the held amount "
+                + hold.getAmount());
+        }
+        var transfer = Transfer.builder()
+            .operationId(buildCaptureOperationId(holdId))
+            .senderAccountId(hold.getAccountId())
+            .recipientAccountId(recipientAccountId)
+            .amount(amount)
+            .currency(hold.getCurrency())
+            .status(TransferStatus.ACCEPTED)
+            .build();
+        TransferValidationPipeline.await(validationPipeline.validate(transfer));
+        var velocityReservation = velocityLimits.reserve(transfer);
+        Optional<Transfer> result;
+        try {
+            result = transactionHelper.getFromTransaction(() -> {
+                if (!holdRepository.release(holdId, HoldStatus.CAPTURED, recipientAccountId,
+                    amount)) {
+                    return Optional.<Transfer>empty();
+                }
+                //in the order of the account IDs, like the locks of the transfers
+                var holderFirst =
+                    hold.getAccountId().toString().compareTo(recipientAccountId.toString()) <= 0;
+                if (holderFirst) {
+                    accountFundsRepository.releaseHold(hold.getAccountId(), hold.getAmount(),
+                        amount);
+                }
+                accountFundsRepository.updateBalances(Map.of(recipientAccountId, amount));
+                if (!holderFirst) {
+                    accountFundsRepository.releaseHold(hold.getAccountId(), hold.getAmount(),
+                        amount);
+                }
+                return Optional.of(recordTransfer(transfer));
+            });
+        } catch (RuntimeException e) {
+            velocityLimits.release(transfer, velocityReservation);
+            throw e;
+        }
+        if (result.isPresent()) {
+            balanceChangeHub.publish(result.get());
+            return holdRepository.findById(holdId);
+        }
+        velocityLimits.release(transfer, velocityReservation);
+        var released = holdRepository.findById(holdId).orElseThrow();
+        if (released.getStatus() == HoldStatus.CAPTURED
+            && recipientAccountId.equals(released.getRecipientAccountId())
+            && amount.compareTo(released.getCapturedAmount()) == 0) {
+            return Optional.of(released);
+        }
+        throw new HoldNotAuthorizedException(holdId, released.getStatus());
+    }
+
+    /**
+     * Releases the held amount. Voiding a hold that doesn't hold funds any longer, except for a
+     * captured one, returns it as it is.
+     *
+     * @return the hold, or nothing if it doesn't exist
+     * @throws HoldNotAuthorizedException if the hold has been captured
+     */
+    @NonNull
+    public Optional<Hold> voidHold(UUID holdId) {
+        var found = holdRepository.findById(holdId);
+        if (found.isEmpty()) {
+            return found;
+        }
+        var hold = found.get();
+        var voided = transactionHelper.getFromTransaction(() -> {
+            if (!holdRepository.release(holdId, HoldStatus.VOIDED, null, null)) {
+                return false;
+            }
+            accountFundsRepository.releaseHold(hold.getAccountId(), hold.getAmount(),
+                BigDecimal.ZERO);
+            return true;
+        });
+        var released = holdRepository.findById(holdId).orElseThrow();
+        if (!voided && released.getStatus() == HoldStatus.CAPTURED) {
+            throw new HoldNotAuthorizedException(holdId, released.getStatus());
+        }
+        return Optional.of(released);
+    }
+
+    /**
+     * Releases the expired holds, a batch per transaction. The held amounts of a batch are
+     * released by one statement per account, in the order of the account IDs.
+     */
+    @Scheduled(fixedDelay = "${holds.sweep-interval:1s}")
+    void expireHolds() {
+        try {
+            var now = LocalDateTime.now(ZoneId.of("UTC"));
+            var holds = holdRepository.getExpired(now, sweepBatchSize);
+            while (!holds.isEmpty()) {
+                var expiredHolds = holds;
+                int expired = transactionHelper.getFromTransaction(() -> {
+                    var releasedAmounts = new TreeMap<String, BigDecimal>();
+                    var released = 0;
+                    for (var hold : expiredHolds) {
+                        //a hold captured or voided in the meantime isn't released twice
+                        if (holdRepository.release(hold.getHoldId(), HoldStatus.EXPIRED, null,
+                            null)) {
+                            releasedAmounts.merge(hold.getAccountId().toString(),
+                                hold.getAmount(), BigDecimal::add);
+                            released++;
+                        }
+                    }
+                    releasedAmounts.forEach((accountId, amount) -> accountFundsRepository
+                        .releaseHold(UUID.fromString(accountId), amount, BigDecimal.ZERO));
+                    return released;
+                });
+                expiredCounter.increment(expired);
+                holds = holdRepository.getExpired(now, sweepBatchSize);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to release the expired holds", e);
+        }
+    }
+
+    /**
+     * The lock keeps the netting engine from reserving the same funds for accepted transfers.
+     */
+    private boolean reserve(UUID accountId, BigDecimal amount) {
+        var account = accountFundsRepository.getByIdForUpdate(accountId);
+        return account.getAvailableBalance().subtract(nettingEngine.getReservedFunds(accountId))
+            .compareTo(amount) >= 0
+            && accountFundsRepository.hold(accountId, amount);
+    }
+
+    @NonNull
+    private Transfer recordTransfer(Transfer transfer) {
+        var completedTransfer = transfer.toBuilder().status(TransferStatus.OK).build();
+        if (transferJournal.isEnabled()) {
+            return transferJournal.append(completedTransfer);
+        }
+        return transferRepository.save(completedTransfer);
+    }
+
+    /**
+     * A hold is captured once, so the operation ID of its transfer is derived from the hold ID.
+     */
+    @NonNull
+    private static UUID buildCaptureOperationId(UUID holdId) {
+        return UUID.nameUUIDFromBytes(("hold/" + holdId).getBytes(StandardCharsets.UTF_8));
+    }
+}
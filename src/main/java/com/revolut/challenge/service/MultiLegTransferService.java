@@ -0,0 +1,173 @@
+package com.revolut.challenge.service;
+
+import com.revolut.challenge.repositories.AccountFundsRepository;
+import com.revolut.challenge.repositories.DuplicateOperationIdException;
+import com.revolut.challenge.repositories.MultiLegTransferRepository;
+import com.revolut.challenge.repositories.TransferRepository;
+import com.revolut.challenge.service.model.AccountFunds;
+import com.revolut.challenge.service.model.MultiLegTransfer;
+import com.revolut.challenge.service.model.Transfer;
+import com.revolut.challenge.service.model.TransferStatus;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.inject.Singleton;
+import lombok.AllArgsConstructor;
+
+/**
+ * Performs all legs of a multi-leg transfer in one transaction: the involved accounts are locked
+ * once, the net balance changes are applied in one batch and the legs are saved in another one.
+ * Only the net outcome has to be covered by the balances, so an account may pass on funds that
+ * it receives in another leg of the same transfer.
+ */
+@Singleton
+@ParametersAreNonnullByDefault
+@AllArgsConstructor
+public class MultiLegTransferService {
+
+    private final AccountFundsRepository accountFundsRepository;
+    private final TransferRepository transferRepository;
+    private final MultiLegTransferRepository multiLegTransferRepository;
+    private final TransactionHelper transactionHelper;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final TransferNettingEngine nettingEngine;
+    private final TransferValidationPipeline validationPipeline;
+    private final VelocityLimits velocityLimits;
+    private final BalanceChangeHub balanceChangeHub;
+
+    /**
+     * @throws ServiceOverloadedException if too many transfers are already being processed
+     * @throws DeadlineExceededException if the deadline expires before the transfer is committed
+     */
+    @NonNull
+    public MultiLegTransfer processTransfer(MultiLegTransfer transfer, Deadline deadline) {
+        deadline.check(DeadlineExceededException.QUEUED);
+        return concurrencyLimiter.execute(() -> doProcessTransfer(transfer, deadline));
+    }
+
+    @NonNull
+    private MultiLegTransfer doProcessTransfer(MultiLegTransfer transfer, Deadline deadline) {
+        var legs = buildLegTransfers(transfer);
+        TransferValidationPipeline.await(validationPipeline.check(legs));
+        //every leg counts against the limits of its sender, like the stored legs do on startup
+        var velocityReservations = velocityLimits.reserveAll(legs);
+        MultiLegTransfer result;
+        try {
+            result = transactionHelper.getFromTransaction(deadline,
+                () -> transferFunds(transfer));
+        } catch (DuplicateOperationIdException e) {
+            velocityLimits.releaseAll(legs, velocityReservations);
+            return replayTransfer(transfer,
+                multiLegTransferRepository.getByOperationId(transfer.getOperationId()));
+        } catch (RuntimeException e) {
+            velocityLimits.releaseAll(legs, velocityReservations);
+            throw e;
+        }
+        if (result.getStatus() == TransferStatus.OK) {
+            balanceChangeHub.publish(result.getOperationId(), result.getCurrency(),
+                result.getCreatedAt(), getNetBalanceChanges(result));
+        } else {
+            velocityLimits.releaseAll(legs, velocityReservations);
+        }
+        return result;
+    }
+
+    @NonNull
+    private static MultiLegTransfer replayTransfer(MultiLegTransfer transfer,
+        MultiLegTransfer persistedTransfer) {
+        if (persistedTransfer.toBuilder()
+            .id(null)
+            .createdAt(null)
+            .status(TransferStatus.ACCEPTED)
+            .build()
+            .equals(transfer)) {
+            return persistedTransfer;
+        } else {
+            throw new ConflictingTransferException(transfer.getOperationId());
+        }
+    }
+
+    @NonNull
+    private MultiLegTransfer transferFunds(MultiLegTransfer transfer) {
+        var accounts = accountFundsRepository.getAllForUpdate(getAccountIds(transfer));
+        accounts.values().forEach(account -> validateCurrency(transfer, account));
+        var balanceChanges = getNetBalanceChanges(transfer);
+        var status = haveEnoughFunds(accounts, balanceChanges)
+            ? TransferStatus.OK
+            : TransferStatus.REJECTED;
+        var persistedTransfer = multiLegTransferRepository.save(
+            transfer.toBuilder().status(status).build());
+        if (status == TransferStatus.OK) {
+            accountFundsRepository.updateBalances(balanceChanges);
+        }
+        transferRepository.saveAll(buildLegTransfers(persistedTransfer));
+        return persistedTransfer;
+    }
+
+    private static Set<UUID> getAccountIds(MultiLegTransfer transfer) {
+        var accountIds = new HashSet<UUID>();
+        for (var leg : transfer.getLegs()) {
+            accountIds.add(leg.getSenderAccountId());
+            accountIds.add(leg.getRecipientAccountId());
+        }
+        return accountIds;
+    }
+
+    private static void validateCurrency(MultiLegTransfer transfer, AccountFunds account) {
+        if (!Objects.equals(transfer.getCurrency(), account.getCurrency())) {
+            throw new CurrencyMismatchException(account.getAccountId(), account.getCurrency());
+        }
+    }
+
+    /**
+     * @return the non-zero balance changes by account ID
+     */
+    private static Map<UUID, BigDecimal> getNetBalanceChanges(MultiLegTransfer transfer) {
+        var balanceChanges = new LinkedHashMap<UUID, BigDecimal>();
+        for (var leg : transfer.getLegs()) {
+            balanceChanges.merge(leg.getSenderAccountId(), leg.getAmount().negate(),
+                BigDecimal::add);
+            balanceChanges.merge(leg.getRecipientAccountId(), leg.getAmount(), BigDecimal::add);
+        }
+        balanceChanges.values().removeIf(change -> change.signum() == 0);
+        return balanceChanges;
+    }
+
+    /**
+     * The funds held or reserved by netted transfers can't be spent. They are read once the
+     * accounts are locked.
+     */
+    private boolean haveEnoughFunds(Map<UUID, AccountFunds> accounts,
+        Map<UUID, BigDecimal> balanceChanges) {
+        return balanceChanges.entrySet().stream()
+            .allMatch(change -> accounts.get(change.getKey()).getAvailableBalance()
+                .subtract(nettingEngine.getReservedFunds(change.getKey()))
+                .add(change.getValue()).signum() >= 0);
+    }
+
+    private static List<Transfer> buildLegTransfers(MultiLegTransfer transfer) {
+        var legTransfers = new ArrayList<Transfer>(transfer.getLegs().size());
+        for (int legIndex = 0; legIndex < transfer.getLegs().size(); legIndex++) {
+            var leg = transfer.getLegs().get(legIndex);
+            legTransfers.add(Transfer.builder()
+                .operationId(
+                    MultiLegTransfer.legOperationId(transfer.getOperationId(), legIndex))
+                .currency(transfer.getCurrency())
+                .amount(leg.getAmount())
+                .senderAccountId(leg.getSenderAccountId())
+                .recipientAccountId(leg.getRecipientAccountId())
+                .createdAt(transfer.getCreatedAt())
+                .status(transfer.getStatus())
+                .build());
+        }
+        return legTransfers;
+    }
+}
@@ -0,0 +1,116 @@
+package com.revolut.challenge.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Value;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.Immutable;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Decides whether a transfer is performed optimistically, i.e. without locking the accounts.
+ *
+ * <p>Every conflict adds to a contention score of the account, which halves every
+ * {@code optimistic-transfers.contention-half-life}. Accounts with a score above the threshold
+ * are transferred with pessimistic locks, since retrying would only add to the contention.
+ * Quiet accounts, which are the vast majority, are transferred optimistically.
+ */
+@Singleton
+@ParametersAreNonnullByDefault
+class OptimisticTransferPolicy {
+
+    private static final int MAX_TRACKED_ACCOUNTS = 10_000;
+    private static final double NEGLIGIBLE_SCORE = 0.5;
+
+    private final boolean enabled;
+    private final int maxAttempts;
+    private final double contentionThreshold;
+    private final double halfLifeNanos;
+    private final LongSupplier nanoClock;
+    private final Counter conflictCounter;
+    private final Counter fallbackCounter;
+    private final Map<UUID, Contention> contentions = new ConcurrentHashMap<>();
+
+    @Inject
+    OptimisticTransferPolicy(
+        MeterRegistry meterRegistry,
+        @Value("${optimistic-transfers.enabled:false}") boolean enabled,
+        @Value("${optimistic-transfers.max-attempts:3}") int maxAttempts,
+        @Value("${optimistic-transfers.contention-threshold:3}") double contentionThreshold,
+        @Value("${optimistic-transfers.contention-half-life:10s}") Duration halfLife
+    ) {
+        this(meterRegistry, enabled, maxAttempts, contentionThreshold, halfLife,
+            System::nanoTime);
+    }
+
+    OptimisticTransferPolicy(
+        MeterRegistry meterRegistry,
+        boolean enabled,
+        int maxAttempts,
+        double contentionThreshold,
+        Duration halfLife,
+        LongSupplier nanoClock
+    ) {
+        this.enabled = enabled;
+        this.maxAttempts = maxAttempts;
+        this.contentionThreshold = contentionThreshold;
+        this.halfLifeNanos = halfLife.toNanos();
+        this.nanoClock = nanoClock;
+        conflictCounter = meterRegistry.counter("transfers.optimistic.conflicts");
+        fallbackCounter = meterRegistry.counter("transfers.optimistic.fallbacks");
+    }
+
+    int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    boolean isOptimistic(UUID senderAccountId, UUID recipientAccountId) {
+        return enabled && !isContended(senderAccountId) && !isContended(recipientAccountId);
+    }
+
+    void onConflict(UUID accountId) {
+        conflictCounter.increment();
+        var now = nanoClock.getAsLong();
+        contentions.merge(accountId, new Contention(1, now),
+            (contention, conflict) -> new Contention(contention.getScore(now) + 1, now));
+        if (contentions.size() > MAX_TRACKED_ACCOUNTS) {
+            contentions.values().removeIf(contention -> contention.getScore(now)
+                < NEGLIGIBLE_SCORE);
+        }
+    }
+
+    /**
+     * Called when a transfer falls back to pessimistic locking after running out of attempts.
+     */
+    void onFallback() {
+        fallbackCounter.increment();
+    }
+
+    private boolean isContended(UUID accountId) {
+        var contention = contentions.get(accountId);
+        return contention != null
+            && contention.getScore(nanoClock.getAsLong()) >= contentionThreshold;
+    }
+
+    @Immutable
+    private final class Contention {
+
+        private final double score;
+        private final long updatedAtNanos;
+
+        private Contention(double score, long updatedAtNanos) {
+            this.score = score;
+            this.updatedAtNanos = updatedAtNanos;
+        }
+
+        private double getScore(long nowNanos) {
+            return score * Math.pow(0.5, (nowNanos - updatedAtNanos) / halfLifeNanos);
+        }
+    }
+}
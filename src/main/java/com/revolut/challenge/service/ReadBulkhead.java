@@ -0,0 +1,86 @@
+package com.revolut.challenge.service;
+
+import com.revolut.challenge.repositories.routing.ReadOnlyRouting;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Value;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.inject.Singleton;
+
+/**
+ * Caps the number of concurrent balance queries independently of the transfer path, so that
+ * balance queries keep being served when transfers are saturated, and vice versa. The queries
+ * read the database of the transfers, unless they are run by {@link #executeReadOnly}.
+ */
+@Singleton
+@ParametersAreNonnullByDefault
+public class ReadBulkhead {
+
+    private final TransactionHelper transactionHelper;
+    private final ReadOnlyRouting readOnlyRouting;
+    private final Semaphore permits;
+    private final int retryAfterSeconds;
+    private final Counter rejectedCounter;
+
+    public ReadBulkhead(
+        MeterRegistry meterRegistry,
+        TransactionHelper transactionHelper,
+        ReadOnlyRouting readOnlyRouting,
+        @Value("${read-bulkhead.max-concurrent:50}") int maxConcurrent,
+        @Value("${read-bulkhead.retry-after-seconds:1}") int retryAfterSeconds
+    ) {
+        this.transactionHelper = transactionHelper;
+        this.readOnlyRouting = readOnlyRouting;
+        this.permits = new Semaphore(maxConcurrent);
+        this.retryAfterSeconds = retryAfterSeconds;
+        Gauge.builder("reads.bulkhead.available", permits, Semaphore::availablePermits)
+            .register(meterRegistry);
+        rejectedCounter = meterRegistry.counter("reads.bulkhead.rejected");
+    }
+
+    /**
+     * @throws ServiceOverloadedException if all permits are taken
+     */
+    @NonNull
+    public <T> T execute(Supplier<T> supplier) {
+        if (!permits.tryAcquire()) {
+            rejectedCounter.increment();
+            throw new ServiceOverloadedException(
+                "Too many balance queries are being processed, please retry later",
+                retryAfterSeconds);
+        }
+        try {
+            return supplier.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Runs the supplier in a transaction whose lock waits and statements end with the deadline.
+     *
+     * @throws ServiceOverloadedException if all permits are taken
+     * @throws DeadlineExceededException if the deadline expires before the supplier completes
+     */
+    @NonNull
+    public <T> T execute(Deadline deadline, Supplier<T> supplier) {
+        if (!deadline.isSet()) {
+            return execute(supplier);
+        }
+        deadline.check(DeadlineExceededException.QUEUED);
+        return execute(() -> transactionHelper.getFromTransaction(deadline, supplier));
+    }
+
+    /**
+     * Like {@link #execute(Deadline, Supplier)}, but takes the connection from the read data
+     * source, see {@link ReadOnlyRouting}, which may lag behind the transfers.
+     */
+    @NonNull
+    public <T> T executeReadOnly(Deadline deadline, Supplier<T> supplier) {
+        return readOnlyRouting.execute(() -> execute(deadline, supplier));
+    }
+}
@@ -0,0 +1,404 @@
+package com.revolut.challenge.service;
+
+import com.revolut.challenge.repositories.AccountFundsNotFoundException;
+import com.revolut.challenge.repositories.DuplicateOperationIdException;
+import com.revolut.challenge.repositories.ScheduledTransferRepository;
+import com.revolut.challenge.scheduling.HierarchicalTimingWheel;
+import com.revolut.challenge.service.model.ScheduledTransfer;
+import com.revolut.challenge.service.model.ScheduledTransferOutcome;
+import com.revolut.challenge.service.model.ScheduledTransferStatus;
+import com.revolut.challenge.service.model.Transfer;
+import com.revolut.challenge.service.model.TransferStatus;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.context.event.StartupEvent;
+import io.micronaut.runtime.event.annotation.EventListener;
+import io.micronaut.scheduling.annotation.Scheduled;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.LongSupplier;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.PreDestroy;
+import javax.annotation.concurrent.GuardedBy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.validation.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Performs transfers at the times they are scheduled for, once or repeatedly.
+ *
+ * <p>The schedules are stored in the database, and those due within {@code horizon} are kept in
+ * a hierarchical timing wheel, by ID only. The wheel is topped up every {@code load-interval},
+ * and on startup it's loaded with every schedule whose run has been missed, too. The schedules
+ * that come due are queued and performed by {@link TransferService} in batches of {@code
+ * batch-size} on {@code parallelism} threads, at most {@code max-per-second} of them, so that
+ * even a million schedules due at the same instant are spread out instead of swamping the
+ * database and the concurrency limit. Each schedule is read again just before it runs, so the
+ * wheel may hold cancelled or duplicate entries without harm.
+ *
+ * <p>Every run is a transfer whose operation ID is derived from the schedule ID and the number
+ * of the run, so a run that is repeated after a crash is replayed instead of performed twice.
+ */
+@Slf4j
+@Singleton
+@ParametersAreNonnullByDefault
+public class ScheduledTransferService {
+
+    private static final int LOAD_PAGE_SIZE = 10_000;
+
+    private final ScheduledTransferRepository scheduledTransferRepository;
+    private final TransferService transferService;
+    private final TransferValidationPipeline validationPipeline;
+    private final MeterRegistry meterRegistry;
+    private final long horizonMillis;
+    private final long retryDelayMillis;
+    private final int batchSize;
+    private final double maxPerSecond;
+    private final LongSupplier clock;
+    private final ExecutorService executorService;
+
+    @GuardedBy("this")
+    private final HierarchicalTimingWheel<UUID> timingWheel;
+    @GuardedBy("this")
+    private final ArrayDeque<UUID> dueScheduleIds = new ArrayDeque<>();
+    /**
+     * The schedules due before this time have been loaded into the wheel.
+     */
+    @GuardedBy("this")
+    private long loadedUntilMillis = Long.MIN_VALUE;
+    /**
+     * The number of runs that may be started now, up to one batch.
+     */
+    @GuardedBy("this")
+    private double permits;
+    @GuardedBy("this")
+    private long permitsUpdatedAt;
+
+    @Inject
+    public ScheduledTransferService(
+        ScheduledTransferRepository scheduledTransferRepository,
+        TransferService transferService,
+        TransferValidationPipeline validationPipeline,
+        MeterRegistry meterRegistry,
+        @Value("${scheduled-transfers.tick:100ms}") Duration tick,
+        @Value("${scheduled-transfers.wheel-size:512}") int wheelSize,
+        @Value("${scheduled-transfers.horizon:1h}") Duration horizon,
+        @Value("${scheduled-transfers.retry-delay:10s}") Duration retryDelay,
+        @Value("${scheduled-transfers.batch-size:100}") int batchSize,
+        @Value("${scheduled-transfers.parallelism:4}") int parallelism,
+        @Value("${scheduled-transfers.max-per-second:500}") double maxPerSecond
+    ) {
+        this(scheduledTransferRepository, transferService, validationPipeline, meterRegistry,
+            tick, wheelSize, horizon, retryDelay, batchSize, parallelism, maxPerSecond,
+            System::currentTimeMillis);
+    }
+
+    ScheduledTransferService(
+        ScheduledTransferRepository scheduledTransferRepository,
+        TransferService transferService,
+        TransferValidationPipeline validationPipeline,
+        MeterRegistry meterRegistry,
+        Duration tick,
+        int wheelSize,
+        Duration horizon,
+        Duration retryDelay,
+        int batchSize,
+        int parallelism,
+        double maxPerSecond,
+        LongSupplier clock
+    ) {
+        this.scheduledTransferRepository = scheduledTransferRepository;
+        this.transferService = transferService;
+        this.validationPipeline = validationPipeline;
+        this.meterRegistry = meterRegistry;
+        this.horizonMillis = horizon.toMillis();
+        this.retryDelayMillis = retryDelay.toMillis();
+        this.batchSize = batchSize;
+        this.maxPerSecond = maxPerSecond;
+        this.clock = clock;
+        this.executorService = Executors.newFixedThreadPool(parallelism, runnable -> {
+            var thread = new Thread(runnable, "scheduled-transfers");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timingWheel = new HierarchicalTimingWheel<>(tick.toMillis(), wheelSize,
+            clock.getAsLong());
+        this.permits = batchSize;
+        this.permitsUpdatedAt = clock.getAsLong();
+        Gauge.builder("scheduled-transfers.waiting", this, ScheduledTransferService::getWaiting)
+            .register(meterRegistry);
+        Gauge.builder("scheduled-transfers.due", this, ScheduledTransferService::getDue)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Stores the schedule, or returns the stored one if the same schedule has been stored
+     * already.
+     *
+     * @throws ConflictingTransferException if a different schedule with the same ID exists
+     * @throws AccountFundsNotFoundException if an account doesn't exist
+     * @throws CurrencyMismatchException if an account is in another currency
+     * @throws TransferNotAllowedException if the transfer doesn't pass a transfer check
+     */
+    @NonNull
+    public ScheduledTransfer schedule(ScheduledTransfer request) {
+        if (request.getRecurrence() != null
+            && (request.getRecurrence().isZero() || request.getRecurrence().isNegative())) {
+            throw new ValidationException("The recurrence of a scheduled transfer must be positive");
+        }
+        var firstRunAt = request.getFirstRunAt().truncatedTo(ChronoUnit.MILLIS);
+        var scheduledTransfer = request.toBuilder()
+            .firstRunAt(firstRunAt)
+            .nextRunAt(firstRunAt)
+            .executions(0)
+            .status(ScheduledTransferStatus.ACTIVE)
+            .lastOutcome(null)
+            .build();
+        TransferValidationPipeline.await(
+            validationPipeline.validate(buildTransfer(scheduledTransfer)));
+        try {
+            scheduledTransferRepository.save(scheduledTransfer);
+        } catch (DuplicateOperationIdException e) {
+            var existing = scheduledTransferRepository.findById(request.getScheduleId())
+                .orElseThrow(() -> e);
+            if (isSameSchedule(existing, scheduledTransfer)) {
+                return existing;
+            }
+            throw new ConflictingTransferException(request.getScheduleId());
+        }
+        enqueue(scheduledTransfer.getScheduleId(), toMillis(firstRunAt));
+        return scheduledTransfer;
+    }
+
+    @NonNull
+    public Optional<ScheduledTransfer> findById(UUID scheduleId) {
+        return scheduledTransferRepository.findById(scheduleId);
+    }
+
+    /**
+     * @return false if the schedule doesn't exist or isn't active
+     */
+    public boolean cancel(UUID scheduleId) {
+        //the entry left in the wheel is skipped when it comes due
+        return scheduledTransferRepository.cancel(scheduleId);
+    }
+
+    /**
+     * Loads every active schedule due within the horizon, including the ones whose runs have
+     * been missed while the application was down.
+     */
+    @EventListener
+    void onStartup(StartupEvent event) {
+        recover();
+    }
+
+    void recover() {
+        synchronized (this) {
+            loadedUntilMillis = Long.MIN_VALUE;
+        }
+        loadWithinHorizon();
+    }
+
+    @Scheduled(
+        fixedDelay = "${scheduled-transfers.load-interval:1m}",
+        initialDelay = "${scheduled-transfers.load-interval:1m}"
+    )
+    void loadWithinHorizon() {
+        var loadUntilMillis = clock.getAsLong() + horizonMillis;
+        var loadUntil = toLocalDateTime(loadUntilMillis);
+        long loadFromMillis;
+        synchronized (this) {
+            loadFromMillis = loadedUntilMillis;
+        }
+        //loading a schedule twice does no harm, missing one would
+        var afterRunAt = loadFromMillis == Long.MIN_VALUE
+            ? LocalDateTime.of(1970, 1, 1, 0, 0)
+            : toLocalDateTime(loadFromMillis).minus(1, ChronoUnit.MILLIS);
+        var afterScheduleId = "";
+        var loaded = 0;
+        var page = scheduledTransferRepository.getActiveDueBefore(loadUntil, afterRunAt,
+            afterScheduleId, LOAD_PAGE_SIZE);
+        while (!page.isEmpty()) {
+            synchronized (this) {
+                for (var scheduledTransfer : page) {
+                    addToWheel(scheduledTransfer.getScheduleId(),
+                        toMillis(scheduledTransfer.getNextRunAt()));
+                }
+            }
+            var last = page.get(page.size() - 1);
+            afterRunAt = last.getNextRunAt();
+            afterScheduleId = last.getScheduleId().toString();
+            loaded += page.size();
+            page = scheduledTransferRepository.getActiveDueBefore(loadUntil, afterRunAt,
+                afterScheduleId, LOAD_PAGE_SIZE);
+        }
+        synchronized (this) {
+            loadedUntilMillis = Math.max(loadedUntilMillis, loadUntilMillis);
+        }
+        if (loaded > 0) {
+            log.info("Loaded {} scheduled transfers due before {}", loaded, loadUntil);
+        }
+    }
+
+    /**
+     * Moves the wheel forward and performs the schedules that have come due, as many as the
+     * rate limit allows.
+     */
+    @Scheduled(fixedDelay = "${scheduled-transfers.tick:100ms}")
+    void runDueTransfers() {
+        var now = clock.getAsLong();
+        synchronized (this) {
+            timingWheel.advance(now, dueScheduleIds::add);
+            //at most one batch of burst, so that a backlog is worked off at the steady rate
+            permits = Math.min(permits + (now - permitsUpdatedAt) * maxPerSecond / 1000,
+                batchSize);
+            permitsUpdatedAt = now;
+        }
+        var batch = takeDue();
+        while (!batch.isEmpty()) {
+            runBatch(batch);
+            batch = takeDue();
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        executorService.shutdownNow();
+    }
+
+    private synchronized int getWaiting() {
+        return timingWheel.size();
+    }
+
+    private synchronized int getDue() {
+        return dueScheduleIds.size();
+    }
+
+    private synchronized Collection<UUID> takeDue() {
+        //the same schedule may have been queued twice
+        var batch = new LinkedHashSet<UUID>();
+        while (batch.size() < (int) permits && !dueScheduleIds.isEmpty()) {
+            batch.add(dueScheduleIds.poll());
+        }
+        permits -= batch.size();
+        return batch;
+    }
+
+    private void runBatch(Collection<UUID> scheduleIds) {
+        var now = clock.getAsLong();
+        var scheduledTransfers = scheduledTransferRepository.findAllById(scheduleIds);
+        var runs = new ArrayList<CompletableFuture<Void>>();
+        for (var scheduledTransfer : scheduledTransfers.values()) {
+            if (scheduledTransfer.getStatus() == ScheduledTransferStatus.ACTIVE
+                && toMillis(scheduledTransfer.getNextRunAt()) <= now) {
+                runs.add(CompletableFuture.runAsync(() -> run(scheduledTransfer),
+                    executorService));
+            }
+        }
+        CompletableFuture.allOf(runs.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    private void run(ScheduledTransfer scheduledTransfer) {
+        var scheduleId = scheduledTransfer.getScheduleId();
+        ScheduledTransferOutcome outcome;
+        try {
+            var transfer = transferService.processTransfer(buildTransfer(scheduledTransfer));
+            outcome = transfer.getStatus() == TransferStatus.OK
+                ? ScheduledTransferOutcome.OK
+                : ScheduledTransferOutcome.REJECTED;
+        } catch (TransferNotAllowedException | CurrencyMismatchException
+            | AccountFundsNotFoundException | ConflictingTransferException e) {
+            log.warn("Scheduled transfer {} has failed: {}", scheduleId, e.getMessage());
+            outcome = ScheduledTransferOutcome.FAILED;
+        } catch (RuntimeException e) {
+            //overloaded or unavailable, so the run is tried again
+            log.warn("Scheduled transfer {} will be retried", scheduleId, e);
+            synchronized (this) {
+                addToWheel(scheduleId, clock.getAsLong() + retryDelayMillis);
+            }
+            return;
+        }
+        meterRegistry.counter("scheduled-transfers.runs", "outcome", outcome.name()).increment();
+        var recurrence = scheduledTransfer.getRecurrence();
+        var nextRunAt = recurrence == null
+            ? scheduledTransfer.getNextRunAt()
+            : scheduledTransfer.getFirstRunAt()
+                .plus(recurrence.multipliedBy(
+                    Math.toIntExact(scheduledTransfer.getExecutions() + 1)));
+        var status = recurrence == null
+            ? ScheduledTransferStatus.COMPLETED
+            : ScheduledTransferStatus.ACTIVE;
+        if (scheduledTransferRepository.recordRun(scheduledTransfer, nextRunAt, status, outcome)
+            && status == ScheduledTransferStatus.ACTIVE) {
+            enqueue(scheduleId, toMillis(nextRunAt));
+        }
+    }
+
+    /**
+     * Adds the schedule to the wheel unless it's due beyond the horizon, where loading the wheel
+     * picks it up.
+     */
+    private synchronized void enqueue(UUID scheduleId, long runAtMillis) {
+        if (runAtMillis < clock.getAsLong() + horizonMillis) {
+            addToWheel(scheduleId, runAtMillis);
+        }
+    }
+
+    @GuardedBy("this")
+    private void addToWheel(UUID scheduleId, long runAtMillis) {
+        if (!timingWheel.add(runAtMillis, scheduleId)) {
+            dueScheduleIds.add(scheduleId);
+        }
+    }
+
+    /**
+     * @return the transfer of the next run of the schedule
+     */
+    @NonNull
+    private static Transfer buildTransfer(ScheduledTransfer scheduledTransfer) {
+        var runKey = scheduledTransfer.getScheduleId() + "/" + scheduledTransfer.getExecutions();
+        return Transfer.builder()
+            .operationId(UUID.nameUUIDFromBytes(runKey.getBytes(StandardCharsets.UTF_8)))
+            .senderAccountId(scheduledTransfer.getSenderAccountId())
+            .recipientAccountId(scheduledTransfer.getRecipientAccountId())
+            .amount(scheduledTransfer.getAmount())
+            .currency(scheduledTransfer.getCurrency())
+            .status(TransferStatus.ACCEPTED)
+            .build();
+    }
+
+    private static boolean isSameSchedule(ScheduledTransfer existing,
+        ScheduledTransfer scheduledTransfer) {
+        return existing.getSenderAccountId().equals(scheduledTransfer.getSenderAccountId())
+            && existing.getRecipientAccountId().equals(scheduledTransfer.getRecipientAccountId())
+            && existing.getAmount().compareTo(scheduledTransfer.getAmount()) == 0
+            && existing.getCurrency().equals(scheduledTransfer.getCurrency())
+            && existing.getFirstRunAt().equals(scheduledTransfer.getFirstRunAt())
+            && Objects.equals(existing.getRecurrence(), scheduledTransfer.getRecurrence());
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime toLocalDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,16 @@
+package com.revolut.challenge.service;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import lombok.Getter;
+
+@Getter
+@ParametersAreNonnullByDefault
+public class ServiceOverloadedException extends RuntimeException {
+
+    private final int retryAfterSeconds;
+
+    public ServiceOverloadedException(String message, int retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -1,6 +1,11 @@
 package com.revolut.challenge.service;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.data.jdbc.runtime.JdbcOperations;
+import java.sql.PreparedStatement;
+import java.time.Duration;
 import java.util.function.Supplier;
 import javax.annotation.ParametersAreNonnullByDefault;
 import javax.inject.Singleton;
@@ -10,13 +15,83 @@ import javax.transaction.Transactional;
 @Singleton
 class TransactionHelper {
 
+    private final JdbcOperations jdbcOperations;
+    private final long defaultLockTimeoutMillis;
+
+    TransactionHelper(
+        JdbcOperations jdbcOperations,
+        @Value("${deadlines.default-lock-timeout:10s}") Duration defaultLockTimeout
+    ) {
+        this.jdbcOperations = jdbcOperations;
+        this.defaultLockTimeoutMillis = defaultLockTimeout.toMillis();
+    }
+
     @Transactional(rollbackOn = Exception.class)
     @NonNull
     <T> T getFromTransaction(Supplier<T> supplier) {
+        return getResult(supplier);
+    }
+
+    /**
+     * Limits the lock waits and the statements of the transaction to the time left until the
+     * deadline, so that no connection or lock is held for a client that has already given up.
+     *
+     * @throws DeadlineExceededException if the deadline expires before or during the transaction
+     */
+    @Transactional(rollbackOn = Exception.class)
+    @NonNull
+    <T> T getFromTransaction(Deadline deadline, Supplier<T> supplier) {
+        if (!deadline.isSet()) {
+            return getResult(supplier);
+        }
+        deadline.check(DeadlineExceededException.QUEUED);
+        //H2 takes both timeouts in milliseconds, unlike Statement.setQueryTimeout
+        var timeoutMillis = Math.max(1, deadline.remainingMillis());
+        setSessionTimeouts(timeoutMillis, timeoutMillis);
+        RuntimeException failure = null;
+        try {
+            return getResult(supplier);
+        } catch (RuntimeException e) {
+            failure = deadline.isExpired()
+                ? new DeadlineExceededException(DeadlineExceededException.DATABASE, e)
+                : e;
+            throw failure;
+        } finally {
+            resetSessionTimeouts(failure);
+        }
+    }
+
+    @NonNull
+    private static <T> T getResult(Supplier<T> supplier) {
         var result = supplier.get();
         if (result == null) {
             throw new IllegalStateException("A null result returned");
         }
         return result;
     }
+
+    /**
+     * The connection goes back to the pool with the session settings. Resetting them fails on a
+     * broken connection, which mustn't hide the failure of the transaction.
+     */
+    private void resetSessionTimeouts(@Nullable RuntimeException failure) {
+        try {
+            setSessionTimeouts(defaultLockTimeoutMillis, 0);
+        } catch (RuntimeException e) {
+            if (failure == null) {
+                throw e;
+            }
+            failure.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Neither setting commits the transaction or is undone by its rollback.
+     */
+    private void setSessionTimeouts(long lockTimeoutMillis, long queryTimeoutMillis) {
+        jdbcOperations.prepareStatement("SET LOCK_TIMEOUT " + lockTimeoutMillis,
+            PreparedStatement::execute);
+        jdbcOperations.prepareStatement("SET QUERY_TIMEOUT " + queryTimeoutMillis,
+            PreparedStatement::execute);
+    }
 }
@@ -0,0 +1,19 @@
+package com.revolut.challenge.service;
+
+import com.revolut.challenge.service.model.Transfer;
+import javax.annotation.ParametersAreNonnullByDefault;
+
+/**
+ * A rule that a transfer has to satisfy before it's performed. Every bean of this type is run by
+ * the {@link TransferValidationPipeline}, concurrently with the account lookups and with the
+ * other checks, so the checks have to be thread-safe. The legs of multi-leg transfers are checked
+ * one by one.
+ */
+@ParametersAreNonnullByDefault
+public interface TransferCheck {
+
+    /**
+     * @throws TransferNotAllowedException if the transfer isn't allowed
+     */
+    void check(Transfer transfer);
+}
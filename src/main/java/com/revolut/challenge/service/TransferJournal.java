@@ -0,0 +1,124 @@
+package com.revolut.challenge.service;
+
+import com.revolut.challenge.repositories.TransferJournalRepository;
+import com.revolut.challenge.service.model.Transfer;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.scheduling.annotation.Scheduled;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writes the history of transfers behind their balance changes (transfer-journal.enabled).
+ *
+ * <p>A transfer is appended to the journal table, with its final status, by the transaction
+ * that moves its funds, which takes one statement instead of inserting, updating and reading
+ * the transfer row while the accounts are locked. Every {@code flush-interval}, the journaled
+ * transfers are moved to the transfer table in batches of {@code batch-size} by one statement
+ * each, and deleted from the journal by another transaction afterwards. Since a transfer is in
+ * the transfer table before it leaves the journal, looking up the journal first and the table
+ * afterwards always finds it.
+ *
+ * <p>The transfer table doesn't take an operation ID that is journaled, but a journaled transfer
+ * whose operation ID has been taken anyway can't be moved. It stays in the journal, where
+ * lookups keep finding it, is reported once, and isn't tried again until the next start.
+ */
+@Slf4j
+@Singleton
+@ParametersAreNonnullByDefault
+public class TransferJournal {
+
+    private final TransferJournalRepository transferJournalRepository;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Counter flushedCounter;
+    private final Counter stuckCounter;
+    private final Set<Long> stuckIds = ConcurrentHashMap.newKeySet();
+
+    public TransferJournal(
+        TransferJournalRepository transferJournalRepository,
+        MeterRegistry meterRegistry,
+        @Value("${transfer-journal.enabled:false}") boolean enabled,
+        @Value("${transfer-journal.batch-size:1000}") int batchSize
+    ) {
+        this.transferJournalRepository = transferJournalRepository;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        flushedCounter = meterRegistry.counter("transfer-journal.flushed");
+        stuckCounter = meterRegistry.counter("transfer-journal.stuck");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Must be called by the transaction that completes the transfer.
+     *
+     * @return the transfer with its ID and creation time
+     * @throws com.revolut.challenge.repositories.DuplicateOperationIdException if the operation
+     * ID is taken
+     */
+    @NonNull
+    Transfer append(Transfer transfer) {
+        return transferJournalRepository.append(transfer);
+    }
+
+    /**
+     * @return the transfer, if it hasn't been moved to the transfer table yet
+     */
+    @NonNull
+    Optional<Transfer> findByOperationId(UUID operationId) {
+        return enabled
+            ? transferJournalRepository.findByOperationId(operationId)
+            : Optional.empty();
+    }
+
+    @Scheduled(fixedDelay = "${transfer-journal.flush-interval:10ms}")
+    void flush() {
+        if (!enabled) {
+            return;
+        }
+        var afterId = 0L;
+        try {
+            var ids = transferJournalRepository.getIdsAfter(afterId, batchSize);
+            while (!ids.isEmpty()) {
+                var lastId = ids.get(ids.size() - 1);
+                var movableIds = new ArrayList<>(ids);
+                movableIds.removeAll(stuckIds);
+                transferJournalRepository.moveToTransfers(movableIds);
+                var deleted = transferJournalRepository.deleteMoved(movableIds);
+                flushedCounter.increment(deleted);
+                if (deleted < movableIds.size()) {
+                    reportStuck(transferJournalRepository.getIdsIn(movableIds));
+                }
+                afterId = lastId;
+                ids = transferJournalRepository.getIdsAfter(afterId, batchSize);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to move the journaled transfers after ID {}", afterId, e);
+        }
+    }
+
+    /**
+     * @param ids the IDs of the journaled transfers that have been left in the journal
+     */
+    private void reportStuck(List<Long> ids) {
+        for (var id : ids) {
+            if (stuckIds.add(id)) {
+                stuckCounter.increment();
+                log.error("The journaled transfer {} can't be moved, its operation ID is taken by "
+                    + "another transfer", id);
+            }
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.revolut.challenge.service;
+
+import com.revolut.challenge.repositories.AccountFundsRepository;
+import com.revolut.challenge.repositories.TransferRepository;
+import com.revolut.challenge.service.model.Transfer;
+import com.revolut.challenge.service.model.TransferStatus;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.context.event.StartupEvent;
+import io.micronaut.runtime.event.annotation.EventListener;
+import io.micronaut.scheduling.annotation.Scheduled;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.PreDestroy;
+import javax.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Nets the transfers between designated account pairs, which usually carry a lot of tiny
+ * transfers such as sweeps and micro-payments.
+ *
+ * <p>A netted transfer is saved as {@link TransferStatus#ACCEPTED} and its amount is reserved
+ * on the sender account, which is locked only to check the balance. The accepted transfers are
+ * applied to the balances once per window, as one net movement per account, in the same
+ * transaction that marks them {@link TransferStatus#OK}. Until then the reserved amount can't be
+ * spent by any other transfer from the sender account. The funds of the recipient account
+ * become available once the window is applied.
+ *
+ * <p>The accepted transfers that weren't applied before a shutdown are applied on the next
+ * startup.
+ */
+@Slf4j
+@Singleton
+@ParametersAreNonnullByDefault
+public class TransferNettingEngine {
+
+    private static final String PAIR_SEPARATOR = ":";
+
+    private final AccountFundsRepository accountFundsRepository;
+    private final TransferRepository transferRepository;
+    private final TransactionHelper transactionHelper;
+    private final BalanceChangeHub balanceChangeHub;
+    private final boolean enabled;
+    private final Set<AccountPair> nettedPairs;
+    private final Set<UUID> nettingSenders;
+
+    /**
+     * The reserved amounts by sender account ID.
+     */
+    private final Map<UUID, BigDecimal> reservedFunds = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Transfer> acceptedTransfers =
+        new ConcurrentLinkedQueue<>();
+
+    public TransferNettingEngine(
+        AccountFundsRepository accountFundsRepository,
+        TransferRepository transferRepository,
+        TransactionHelper transactionHelper,
+        BalanceChangeHub balanceChangeHub,
+        @Value("${transfer-netting.enabled:false}") boolean enabled,
+        @Value("${transfer-netting.pairs:}") String[] nettedPairs
+    ) {
+        this.accountFundsRepository = accountFundsRepository;
+        this.transferRepository = transferRepository;
+        this.transactionHelper = transactionHelper;
+        this.balanceChangeHub = balanceChangeHub;
+        this.enabled = enabled;
+        this.nettedPairs = Arrays.stream(nettedPairs)
+            .filter(pair -> !pair.isBlank())
+            .map(AccountPair::parse)
+            .collect(Collectors.toUnmodifiableSet());
+        this.nettingSenders = this.nettedPairs.stream()
+            .map(AccountPair::getSenderAccountId)
+            .collect(Collectors.toUnmodifiableSet());
+    }
+
+    public boolean isNetted(UUID senderAccountId, UUID recipientAccountId) {
+        return enabled
+            && nettedPairs.contains(new AccountPair(senderAccountId, recipientAccountId));
+    }
+
+    /**
+     * @return whether the account is the sender of any netted pair, so that its funds can be
+     * reserved
+     */
+    public boolean isNettingSender(UUID accountId) {
+        return enabled && nettingSenders.contains(accountId);
+    }
+
+    /**
+     * @return the part of the account balance that is reserved by accepted netted transfers
+     */
+    @NonNull
+    public BigDecimal getReservedFunds(UUID accountId) {
+        return reservedFunds.getOrDefault(accountId, BigDecimal.ZERO);
+    }
+
+    /**
+     * Saves the transfer and reserves its amount on the sender account if the balance that
+     * isn't reserved yet covers it.
+     *
+     * @return the saved transfer, which is {@link TransferStatus#OK} if the funds are reserved
+     * and {@link TransferStatus#REJECTED} otherwise
+     */
+    @NonNull
+    Transfer acceptTransfer(Transfer transfer) {
+        var senderAccountId = transfer.getSenderAccountId();
+        var reserved = new boolean[1];
+        try {
+            var savedTransfer = transactionHelper.getFromTransaction(() -> {
+                var persistedTransfer = transferRepository.save(transfer);
+                //the lock keeps other transfers from the sender from spending the same funds
+                var senderAccount = accountFundsRepository.getByIdForUpdate(senderAccountId);
+                if (senderAccount.getAvailableBalance().subtract(getReservedFunds(senderAccountId))
+                    .compareTo(transfer.getAmount()) < 0) {
+                    transferRepository.updateStatus(persistedTransfer.getId(),
+                        TransferStatus.REJECTED);
+                    return persistedTransfer.toBuilder().status(TransferStatus.REJECTED).build();
+                }
+                reservedFunds.merge(senderAccountId, transfer.getAmount(), BigDecimal::add);
+                reserved[0] = true;
+                return persistedTransfer;
+            });
+            if (savedTransfer.getStatus() == TransferStatus.REJECTED) {
+                return savedTransfer;
+            }
+            //the transfer is queued only once committed, so that it can be applied
+            acceptedTransfers.add(savedTransfer);
+            return savedTransfer.toBuilder().status(TransferStatus.OK).build();
+        } catch (RuntimeException e) {
+            if (reserved[0]) {
+                releaseFunds(senderAccountId, transfer.getAmount());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Applies the accepted transfers to the balances, as one net movement per account.
+     */
+    @Scheduled(fixedDelay = "${transfer-netting.window:100ms}")
+    public void applyAcceptedTransfers() {
+        var transfers = new ArrayList<Transfer>();
+        for (var transfer = acceptedTransfers.poll(); transfer != null;
+            transfer = acceptedTransfers.poll()) {
+            transfers.add(transfer);
+        }
+        if (transfers.isEmpty()) {
+            return;
+        }
+        try {
+            transactionHelper.getFromTransaction(() -> {
+                applyTransfers(transfers);
+                return transfers;
+            });
+        } catch (RuntimeException e) {
+            log.error("Failed to apply {} netted transfers, they will be retried",
+                transfers.size(), e);
+            acceptedTransfers.addAll(transfers);
+            return;
+        }
+        for (var transfer : transfers) {
+            releaseFunds(transfer.getSenderAccountId(), transfer.getAmount());
+            balanceChangeHub.publish(transfer);
+        }
+        log.debug("Applied {} netted transfers", transfers.size());
+    }
+
+    /**
+     * Queues the accepted transfers left by the previous run and reserves their funds.
+     */
+    @EventListener
+    void onStartup(StartupEvent event) {
+        var transfers = transferRepository.getAccepted();
+        for (var transfer : transfers) {
+            reservedFunds.merge(transfer.getSenderAccountId(), transfer.getAmount(),
+                BigDecimal::add);
+            acceptedTransfers.add(transfer);
+        }
+        if (!transfers.isEmpty()) {
+            log.info("Recovered {} accepted netted transfers", transfers.size());
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        applyAcceptedTransfers();
+    }
+
+    private void applyTransfers(List<Transfer> transfers) {
+        var balanceChanges = new LinkedHashMap<UUID, BigDecimal>();
+        var transferIds = new ArrayList<Long>(transfers.size());
+        for (var transfer : transfers) {
+            balanceChanges.merge(transfer.getSenderAccountId(), transfer.getAmount().negate(),
+                BigDecimal::add);
+            balanceChanges.merge(transfer.getRecipientAccountId(), transfer.getAmount(),
+                BigDecimal::add);
+            transferIds.add(transfer.getId());
+        }
+        balanceChanges.values().removeIf(change -> change.signum() == 0);
+        if (!balanceChanges.isEmpty()) {
+            //the same lock order as the one of multi-leg transfers
+            accountFundsRepository.getAllForUpdate(new HashSet<>(balanceChanges.keySet()));
+            accountFundsRepository.updateBalances(balanceChanges);
+        }
+        transferRepository.updateStatuses(transferIds, TransferStatus.OK);
+    }
+
+    private void releaseFunds(UUID accountId, BigDecimal amount) {
+        reservedFunds.computeIfPresent(accountId, (id, reserved) -> {
+            var remaining = reserved.subtract(amount);
+            return remaining.signum() > 0 ? remaining : null;
+        });
+    }
+
+    @lombok.Value
+    private static class AccountPair {
+
+        private final UUID senderAccountId;
+        private final UUID recipientAccountId;
+
+        private static AccountPair parse(String pair) {
+            var accountIds = pair.split(PAIR_SEPARATOR);
+            if (accountIds.length != 2) {
+                throw new IllegalArgumentException("Invalid netted account pair " + pair
+                    + ", expected <sender account ID>" + PAIR_SEPARATOR
+                    + "<recipient account ID>");
+            }
+            return new AccountPair(UUID.fromString(accountIds[0].trim()),
+                UUID.fromString(accountIds[1].trim()));
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.revolut.challenge.service;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+
+/**
+ * Thrown by a {@link TransferCheck} that the transfer doesn't pass.
+ */
+@ParametersAreNonnullByDefault
+public class TransferNotAllowedException extends RuntimeException {
+
+    public TransferNotAllowedException(String message) {
+        super(message);
+    }
+}
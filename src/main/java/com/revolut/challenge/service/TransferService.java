@@ -1,13 +1,21 @@
 package com.revolut.challenge.service;
 
+import com.revolut.challenge.jfr.TransferEvent;
+import com.revolut.challenge.jfr.TransferReplayEvent;
+import com.revolut.challenge.logging.TransferAccessLog;
 import com.revolut.challenge.repositories.AccountFundsRepository;
+import com.revolut.challenge.repositories.ConcurrentBalanceUpdateException;
 import com.revolut.challenge.repositories.DuplicateOperationIdException;
+import com.revolut.challenge.repositories.TransferNotFoundException;
 import com.revolut.challenge.repositories.TransferRepository;
-import com.revolut.challenge.service.model.AccountFunds;
+import com.revolut.challenge.repositories.archive.TransferArchive;
 import com.revolut.challenge.service.model.Transfer;
 import com.revolut.challenge.service.model.TransferStatus;
 import edu.umd.cs.findbugs.annotations.NonNull;
-import java.util.Objects;
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
 import javax.annotation.ParametersAreNonnullByDefault;
 import javax.inject.Singleton;
 import lombok.AllArgsConstructor;
@@ -20,53 +28,178 @@ public class TransferService {
     private final AccountFundsRepository accountFundsRepository;
     private final TransferRepository transferRepository;
     private final TransactionHelper transactionHelper;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final TransferArchive transferArchive;
+    private final TransferNettingEngine nettingEngine;
+    private final OptimisticTransferPolicy optimisticTransferPolicy;
+    private final TransferValidationPipeline validationPipeline;
+    private final VelocityLimits velocityLimits;
+    private final BalanceChangeHub balanceChangeHub;
+    private final TransferJournal transferJournal;
 
+    /**
+     * @throws ServiceOverloadedException if too many transfers are already being processed
+     */
     @NonNull
     public Transfer processTransfer(Transfer transfer) {
+        return processTransfer(transfer, Deadline.NONE);
+    }
+
+    /**
+     * @throws ServiceOverloadedException if too many transfers are already being processed
+     * @throws DeadlineExceededException if the deadline expires before the transfer is committed
+     */
+    @NonNull
+    public Transfer processTransfer(Transfer transfer, Deadline deadline) {
+        var startNanos = System.nanoTime();
+        var event = TransferEvent.begin(transfer);
         try {
-            var senderAccount = accountFundsRepository.getById(transfer.getSenderAccountId());
-            var recipientAccount = accountFundsRepository.getById(transfer.getRecipientAccountId());
-            validateCurrency(transfer, senderAccount, recipientAccount);
-            //a helper is used to avoid the hack of exposing that private method for @Transactional to work
-            return transactionHelper.getFromTransaction(
-                () -> transferFunds(senderAccount, recipientAccount, transfer));
-        } catch (DuplicateOperationIdException e) {
-            var persistedTransfer = transferRepository.getByOperationId(transfer.getOperationId());
-            if (persistedTransfer.toBuilder()
-                .id(null)
-                .createdAt(null)
-                .status(TransferStatus.ACCEPTED)
-                .build()
-                .equals(transfer)) {
-                return persistedTransfer;
-            } else {
-                throw new ConflictingTransferException(transfer.getOperationId());
+            deadline.check(DeadlineExceededException.QUEUED);
+            var result = concurrencyLimiter.execute(() -> doProcessTransfer(transfer, deadline));
+            event.complete(result.getStatus().name());
+            TransferAccessLog.log(transfer.getOperationId(), result.getStatus().name(),
+                startNanos);
+            return result;
+        } catch (RuntimeException e) {
+            event.complete(e.getClass().getSimpleName());
+            TransferAccessLog.log(transfer.getOperationId(), e.getClass().getSimpleName(),
+                startNanos);
+            throw e;
+        }
+    }
+
+    @NonNull
+    private Transfer doProcessTransfer(Transfer transfer, Deadline deadline) {
+        //waiting for a permit may have used up the budget
+        deadline.check(DeadlineExceededException.QUEUED);
+        //the operation IDs of archived transfers are no longer guarded by the unique index
+        var archivedTransfer = transferArchive.findByOperationId(transfer.getOperationId());
+        if (archivedTransfer.isPresent()) {
+            return replayTransfer(transfer, archivedTransfer.get());
+        }
+        try {
+            TransferValidationPipeline.await(validationPipeline.validate(transfer));
+            var velocityReservation = velocityLimits.reserve(transfer);
+            Transfer result;
+            try {
+                result = performTransfer(transfer, deadline);
+            } catch (RuntimeException e) {
+                velocityLimits.release(transfer, velocityReservation);
+                throw e;
+            }
+            if (result.getStatus() == TransferStatus.REJECTED) {
+                velocityLimits.release(transfer, velocityReservation);
             }
+            return result;
+        } catch (DuplicateOperationIdException e) {
+            return replayTransfer(transfer, findPersistedTransfer(transfer.getOperationId()));
         }
     }
 
-    private static void validateCurrency(Transfer transfer, AccountFunds senderAccount,
-        AccountFunds recipientAccount) {
-        validateCurrency(transfer, senderAccount);
-        validateCurrency(transfer, recipientAccount);
+    @NonNull
+    private Transfer performTransfer(Transfer transfer, Deadline deadline) {
+        if (nettingEngine.isNetted(transfer.getSenderAccountId(),
+            transfer.getRecipientAccountId())) {
+            return nettingEngine.acceptTransfer(transfer);
+        }
+        var result = tryTransferFundsOptimistically(transfer, deadline).orElseGet(
+            //a helper is used to avoid the hack of exposing that private method for @Transactional to work
+            () -> transactionHelper.getFromTransaction(deadline,
+                () -> transferFundsPessimistically(transfer)));
+        if (result.getStatus() == TransferStatus.OK) {
+            balanceChangeHub.publish(result);
+        }
+        return result;
     }
 
-    private static void validateCurrency(Transfer transfer, AccountFunds senderAccount) {
-        if (!Objects.equals(transfer.getCurrency(), senderAccount.getCurrency())) {
-            throw new CurrencyMismatchException(senderAccount.getAccountId(),
-                senderAccount.getCurrency());
+    /**
+     * Looks up the journal first, then the hot storage, and falls back to the archive in case the
+     * transfer has been archived in the meantime.
+     */
+    @NonNull
+    private Transfer findPersistedTransfer(UUID operationId) {
+        var journaledTransfer = transferJournal.findByOperationId(operationId);
+        if (journaledTransfer.isPresent()) {
+            return journaledTransfer.get();
+        }
+        try {
+            return transferRepository.getByOperationId(operationId);
+        } catch (TransferNotFoundException e) {
+            return transferArchive.findByOperationId(operationId).orElseThrow(() -> e);
         }
     }
 
     @NonNull
-    private Transfer transferFunds(
-        AccountFunds senderAccount,
-        AccountFunds recipientAccount,
-        Transfer transfer
-    ) {
+    static Transfer replayTransfer(Transfer transfer, Transfer persistedTransfer) {
+        if (persistedTransfer.toBuilder()
+            .id(null)
+            .createdAt(null)
+            .status(TransferStatus.ACCEPTED)
+            .build()
+            .equals(transfer)) {
+            TransferReplayEvent.commit(transfer, false);
+            //an accepted netted transfer has its funds reserved and waits to be applied
+            return persistedTransfer.getStatus() == TransferStatus.ACCEPTED
+                ? persistedTransfer.toBuilder().status(TransferStatus.OK).build()
+                : persistedTransfer;
+        } else {
+            TransferReplayEvent.commit(transfer, true);
+            throw new ConflictingTransferException(transfer.getOperationId());
+        }
+    }
+
+    /**
+     * Netting senders are always locked, since their funds are reserved under the lock.
+     *
+     * @return the processed transfer, or nothing if the transfer has to be performed
+     * pessimistically
+     */
+    @NonNull
+    private Optional<Transfer> tryTransferFundsOptimistically(Transfer transfer,
+        Deadline deadline) {
+        var senderAccountId = transfer.getSenderAccountId();
+        var recipientAccountId = transfer.getRecipientAccountId();
+        if (!optimisticTransferPolicy.isOptimistic(senderAccountId, recipientAccountId)
+            || nettingEngine.isNettingSender(senderAccountId)) {
+            return Optional.empty();
+        }
+        for (int attempt = 0; attempt < optimisticTransferPolicy.getMaxAttempts(); attempt++) {
+            try {
+                return Optional.of(transactionHelper.getFromTransaction(deadline,
+                    () -> transferFunds(transfer, () -> accountFundsRepository
+                        .transferFundsOptimistically(senderAccountId, recipientAccountId,
+                            transfer.getAmount(), BigDecimal.ZERO))));
+            } catch (ConcurrentBalanceUpdateException e) {
+                optimisticTransferPolicy.onConflict(e.getAccountId());
+                if (!optimisticTransferPolicy.isOptimistic(senderAccountId, recipientAccountId)) {
+                    break;
+                }
+            }
+        }
+        optimisticTransferPolicy.onFallback();
+        return Optional.empty();
+    }
+
+    @NonNull
+    private Transfer transferFundsPessimistically(Transfer transfer) {
+        return transferFunds(transfer, () -> accountFundsRepository.transferFunds(
+            transfer.getSenderAccountId(), transfer.getRecipientAccountId(), transfer.getAmount(),
+            () -> nettingEngine.getReservedFunds(transfer.getSenderAccountId())));
+    }
+
+    /**
+     * @param fundsTransfer moves the funds and tells whether the sender had enough of them
+     */
+    @NonNull
+    private Transfer transferFunds(Transfer transfer, BooleanSupplier fundsTransfer) {
+        if (transferJournal.isEnabled()) {
+            //the transfer row is written behind, see TransferJournal
+            return transferJournal.append(transfer.toBuilder()
+                .status(fundsTransfer.getAsBoolean() ? TransferStatus.OK : TransferStatus.REJECTED)
+                .build());
+        }
         long transferId = transferRepository.save(transfer).getId();
-        if (accountFundsRepository.transferFunds(senderAccount.getAccountId(),
-            recipientAccount.getAccountId(), transfer.getAmount())) {
+        if (fundsTransfer.getAsBoolean()) {
             transferRepository.updateStatus(transferId, TransferStatus.OK);
         } else {
             transferRepository.updateStatus(transferId, TransferStatus.REJECTED);
@@ -0,0 +1,122 @@
+package com.revolut.challenge.service;
+
+import com.revolut.challenge.repositories.AccountFundsRepository;
+import com.revolut.challenge.service.model.AccountFunds;
+import com.revolut.challenge.service.model.Transfer;
+import io.micronaut.scheduling.TaskExecutors;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+/**
+ * Looks up the accounts of a transfer and runs the {@link TransferCheck}s all at once, so that
+ * the validation takes as long as the slowest of them rather than their sum. The results are
+ * combined by callbacks, and the validation fails as soon as any of them fails, without waiting
+ * for the rest.
+ */
+@Singleton
+@ParametersAreNonnullByDefault
+class TransferValidationPipeline {
+
+    private final AccountFundsRepository accountFundsRepository;
+    private final List<TransferCheck> transferChecks;
+    private final ExecutorService executorService;
+
+    TransferValidationPipeline(
+        AccountFundsRepository accountFundsRepository,
+        List<TransferCheck> transferChecks,
+        @Named(TaskExecutors.IO) ExecutorService executorService
+    ) {
+        this.accountFundsRepository = accountFundsRepository;
+        this.transferChecks = List.copyOf(transferChecks);
+        this.executorService = executorService;
+    }
+
+    /**
+     * Checks that both accounts exist, that their currency is the currency of the transfer and
+     * that the transfer passes all checks.
+     *
+     * @return a future that fails with the first error
+     */
+    CompletableFuture<Void> validate(Transfer transfer) {
+        var stages = new ArrayList<CompletableFuture<?>>();
+        stages.add(lookUp(transfer, transfer.getSenderAccountId()));
+        stages.add(lookUp(transfer, transfer.getRecipientAccountId()));
+        addChecks(stages, transfer);
+        return allOrFirstFailure(stages);
+    }
+
+    /**
+     * Runs the checks for all legs of a multi-leg transfer. The accounts are validated under
+     * locks by the transfer itself.
+     *
+     * @return a future that fails with the first error
+     */
+    CompletableFuture<Void> check(Collection<Transfer> legs) {
+        var stages = new ArrayList<CompletableFuture<?>>();
+        legs.forEach(leg -> addChecks(stages, leg));
+        return allOrFirstFailure(stages);
+    }
+
+    /**
+     * Waits for the validation and rethrows its error as is.
+     */
+    static void await(CompletableFuture<Void> validation) {
+        try {
+            validation.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private CompletableFuture<AccountFunds> lookUp(Transfer transfer, UUID accountId) {
+        return CompletableFuture
+            .supplyAsync(() -> accountFundsRepository.getCachedById(accountId), executorService)
+            .thenApply(account -> {
+                validateCurrency(transfer, account);
+                return account;
+            });
+    }
+
+    private void addChecks(List<CompletableFuture<?>> stages, Transfer transfer) {
+        for (var transferCheck : transferChecks) {
+            stages.add(CompletableFuture.runAsync(() -> transferCheck.check(transfer),
+                executorService));
+        }
+    }
+
+    private static void validateCurrency(Transfer transfer, AccountFunds account) {
+        if (!Objects.equals(transfer.getCurrency(), account.getCurrency())) {
+            throw new CurrencyMismatchException(account.getAccountId(), account.getCurrency());
+        }
+    }
+
+    private static CompletableFuture<Void> allOrFirstFailure(
+        List<CompletableFuture<?>> stages) {
+        var result = new CompletableFuture<Void>();
+        for (var stage : stages) {
+            stage.whenComplete((value, failure) -> {
+                if (failure != null) {
+                    result.completeExceptionally(
+                        failure instanceof CompletionException && failure.getCause() != null
+                            ? failure.getCause()
+                            : failure);
+                }
+            });
+        }
+        CompletableFuture.allOf(stages.toArray(new CompletableFuture<?>[0]))
+            .thenRun(() -> result.complete(null));
+        return result;
+    }
+}
@@ -0,0 +1,177 @@
+package com.revolut.challenge.service;
+
+import com.revolut.challenge.repositories.TransferRepository;
+import com.revolut.challenge.service.model.Transfer;
+import com.revolut.challenge.service.model.TransferStatus;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.context.event.StartupEvent;
+import io.micronaut.runtime.event.annotation.EventListener;
+import io.micronaut.scheduling.annotation.Scheduled;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.function.LongSupplier;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Limits the number and the total amount of the transfers an account sends within a sliding
+ * window, such as a day.
+ *
+ * <p>The limits are checked in memory before the transaction is opened, so they cost no
+ * queries. A transfer is counted when it's checked and uncounted if it fails or is rejected, so
+ * concurrent transfers from the same account can't slip past the limits together. The windows
+ * are rebuilt from the stored transfers on startup. The transfers of the work that {@link
+ * BalanceChangeHub#runWithheld} runs are rolled back, so they aren't counted.
+ */
+@Slf4j
+@Singleton
+@ParametersAreNonnullByDefault
+class VelocityLimits {
+
+    private static final int REBUILD_PAGE_SIZE = 1000;
+
+    private final TransferRepository transferRepository;
+    private final BalanceChangeHub balanceChangeHub;
+    private final boolean enabled;
+    private final Duration window;
+    private final VelocityWindows windows;
+    private final LongSupplier clock;
+
+    @Inject
+    VelocityLimits(
+        TransferRepository transferRepository,
+        BalanceChangeHub balanceChangeHub,
+        @Value("${velocity-limits.enabled:false}") boolean enabled,
+        @Value("${velocity-limits.window:24h}") Duration window,
+        @Value("${velocity-limits.buckets:24}") int buckets,
+        @Value("${velocity-limits.stripes:64}") int stripes,
+        @Value("${velocity-limits.max-transfers:100}") int maxTransfers,
+        @Value("${velocity-limits.max-amount:10000.00}") BigDecimal maxAmount
+    ) {
+        this(transferRepository, balanceChangeHub, enabled, window, buckets, stripes,
+            maxTransfers, maxAmount, System::currentTimeMillis);
+    }
+
+    VelocityLimits(
+        TransferRepository transferRepository,
+        BalanceChangeHub balanceChangeHub,
+        boolean enabled,
+        Duration window,
+        int buckets,
+        int stripes,
+        int maxTransfers,
+        BigDecimal maxAmount,
+        LongSupplier clock
+    ) {
+        this.transferRepository = transferRepository;
+        this.balanceChangeHub = balanceChangeHub;
+        this.enabled = enabled;
+        this.window = window;
+        this.windows = new VelocityWindows(window, buckets, stripes, maxTransfers,
+            toCents(maxAmount));
+        this.clock = clock;
+    }
+
+    /**
+     * Counts the transfer against the limits of its sender account.
+     *
+     * @return the reservation to {@link #release} if the transfer doesn't go through
+     * @throws TransferNotAllowedException if the transfer would exceed a limit
+     */
+    long reserve(Transfer transfer) {
+        if (!isCounting()) {
+            return 0;
+        }
+        return windows.tryAcquire(transfer.getSenderAccountId(), toCents(transfer.getAmount()),
+            clock.getAsLong());
+    }
+
+    void release(Transfer transfer, long reservation) {
+        if (isCounting()) {
+            windows.release(transfer.getSenderAccountId(), toCents(transfer.getAmount()),
+                reservation);
+        }
+    }
+
+    /**
+     * Counts the legs of a multi-leg transfer against the limits of their senders, all of them
+     * or none.
+     *
+     * @return the reservations to {@link #releaseAll} if the transfer doesn't go through
+     * @throws TransferNotAllowedException if a leg would exceed a limit
+     */
+    long[] reserveAll(List<Transfer> legs) {
+        var reservations = new long[legs.size()];
+        for (int i = 0; i < legs.size(); i++) {
+            try {
+                reservations[i] = reserve(legs.get(i));
+            } catch (TransferNotAllowedException e) {
+                releaseAll(legs.subList(0, i), reservations);
+                throw e;
+            }
+        }
+        return reservations;
+    }
+
+    void releaseAll(List<Transfer> legs, long[] reservations) {
+        for (int i = 0; i < legs.size(); i++) {
+            release(legs.get(i), reservations[i]);
+        }
+    }
+
+    @EventListener
+    void onStartup(StartupEvent event) {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Counts the transfers that have been made, or accepted, within the window.
+     */
+    void rebuild() {
+        var now = clock.getAsLong();
+        var from = LocalDateTime.ofInstant(Instant.ofEpochMilli(now).minus(window),
+            ZoneOffset.UTC);
+        var lastId = 0L;
+        var counted = 0;
+        while (true) {
+            var transfers = transferRepository.getCreatedSince(from, lastId, REBUILD_PAGE_SIZE);
+            for (var transfer : transfers) {
+                if (transfer.getStatus() != TransferStatus.REJECTED) {
+                    windows.record(transfer.getSenderAccountId(), toCents(transfer.getAmount()),
+                        transfer.getCreatedAt().toInstant(ZoneOffset.UTC).toEpochMilli(), now);
+                    counted++;
+                }
+                lastId = transfer.getId();
+            }
+            if (transfers.size() < REBUILD_PAGE_SIZE) {
+                break;
+            }
+        }
+        log.info("Rebuilt the velocity limits of {} accounts from {} transfers",
+            windows.size(), counted);
+    }
+
+    @Scheduled(fixedDelay = "${velocity-limits.eviction-interval:1m}")
+    void evictIdle() {
+        if (enabled) {
+            windows.evictIdle(clock.getAsLong());
+        }
+    }
+
+    private boolean isCounting() {
+        return enabled && !balanceChangeHub.isWithheld();
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount.movePointRight(2).setScale(0, RoundingMode.UP).longValueExact();
+    }
+}
@@ -0,0 +1,192 @@
+package com.revolut.challenge.service;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Sliding-window counters of the transfers sent from each account, and of their amount in cents.
+ *
+ * <p>The window of an account is a ring of time buckets kept in two primitive arrays, along with
+ * the totals of the ring, so that checking a transfer is a few array writes and two comparisons.
+ * Whenever the window slides, the buckets that fall out of it are subtracted from the totals and
+ * cleared. The window slides a bucket at a time, so a transfer stops counting up to one bucket
+ * later than the window says.
+ *
+ * <p>The accounts are spread over stripes, each guarded by its own lock, so transfers from
+ * different accounts rarely wait for each other.
+ */
+@ThreadSafe
+@ParametersAreNonnullByDefault
+final class VelocityWindows {
+
+    private final long bucketMillis;
+    private final int bucketCount;
+    private final int maxTransfers;
+    private final long maxAmountCents;
+    private final Stripe[] stripes;
+
+    VelocityWindows(Duration window, int bucketCount, int stripeCount, int maxTransfers,
+        long maxAmountCents) {
+        if (bucketCount < 1 || window.toMillis() < bucketCount) {
+            throw new IllegalArgumentException("Invalid velocity window of " + window
+                + " split into " + bucketCount + " buckets");
+        }
+        if (Integer.bitCount(stripeCount) != 1) {
+            throw new IllegalArgumentException(
+                "The stripe count must be a power of two, got " + stripeCount);
+        }
+        this.bucketMillis = window.toMillis() / bucketCount;
+        this.bucketCount = bucketCount;
+        this.maxTransfers = maxTransfers;
+        this.maxAmountCents = maxAmountCents;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Counts the transfer if it keeps the account within both limits.
+     *
+     * @return the bucket the transfer is counted in, to {@link #release} it
+     * @throws TransferNotAllowedException if the transfer would exceed a limit
+     */
+    long tryAcquire(UUID accountId, long amountCents, long nowMillis) {
+        var bucket = nowMillis / bucketMillis;
+        var stripe = stripeOf(accountId);
+        synchronized (stripe) {
+            var window = stripe.windows.computeIfAbsent(accountId, id -> new Window());
+            window.slideTo(bucket);
+            if (window.totalTransfers + 1 > maxTransfers) {
+                throw new TransferNotAllowedException("Account " + accountId
+                    + " has reached the limit of " + maxTransfers + " transfers");
+            }
+            if (window.totalAmountCents + amountCents > maxAmountCents) {
+                throw new TransferNotAllowedException("Account " + accountId
+                    + " has reached the limit of the transferred amount");
+            }
+            window.add(bucket, 1, amountCents);
+        }
+        return bucket;
+    }
+
+    /**
+     * Uncounts a transfer that didn't go through. Nothing happens if its bucket has already left
+     * the window.
+     */
+    void release(UUID accountId, long amountCents, long bucket) {
+        var stripe = stripeOf(accountId);
+        synchronized (stripe) {
+            var window = stripe.windows.get(accountId);
+            if (window != null && window.contains(bucket)) {
+                window.add(bucket, -1, -amountCents);
+            }
+        }
+    }
+
+    /**
+     * Counts a transfer made at the given time regardless of the limits, which is how the
+     * windows are rebuilt from the stored transfers.
+     */
+    void record(UUID accountId, long amountCents, long createdAtMillis, long nowMillis) {
+        var bucket = createdAtMillis / bucketMillis;
+        var stripe = stripeOf(accountId);
+        synchronized (stripe) {
+            var window = stripe.windows.computeIfAbsent(accountId, id -> new Window());
+            window.slideTo(nowMillis / bucketMillis);
+            if (window.contains(bucket)) {
+                window.add(bucket, 1, amountCents);
+            }
+        }
+    }
+
+    /**
+     * Forgets the accounts that haven't sent anything within the window.
+     */
+    void evictIdle(long nowMillis) {
+        var bucket = nowMillis / bucketMillis;
+        for (var stripe : stripes) {
+            synchronized (stripe) {
+                stripe.windows.values().removeIf(window -> window.isIdleAt(bucket));
+            }
+        }
+    }
+
+    int size() {
+        var size = 0;
+        for (var stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.windows.size();
+            }
+        }
+        return size;
+    }
+
+    private Stripe stripeOf(UUID accountId) {
+        var hash = accountId.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    private static final class Stripe {
+
+        private final Map<UUID, Window> windows = new HashMap<>();
+    }
+
+    /**
+     * Guarded by the lock of its stripe.
+     */
+    private final class Window {
+
+        private final int[] transfers = new int[bucketCount];
+        private final long[] amountCents = new long[bucketCount];
+        private long latestBucket = Long.MIN_VALUE;
+        private int totalTransfers;
+        private long totalAmountCents;
+
+        private void slideTo(long bucket) {
+            if (bucket <= latestBucket) {
+                return;
+            }
+            if (latestBucket == Long.MIN_VALUE || bucket - latestBucket >= bucketCount) {
+                Arrays.fill(transfers, 0);
+                Arrays.fill(amountCents, 0);
+                totalTransfers = 0;
+                totalAmountCents = 0;
+            } else {
+                for (var expired = latestBucket + 1; expired <= bucket; expired++) {
+                    var index = indexOf(expired);
+                    totalTransfers -= transfers[index];
+                    totalAmountCents -= amountCents[index];
+                    transfers[index] = 0;
+                    amountCents[index] = 0;
+                }
+            }
+            latestBucket = bucket;
+        }
+
+        private boolean contains(long bucket) {
+            return bucket <= latestBucket && latestBucket - bucket < bucketCount;
+        }
+
+        private boolean isIdleAt(long bucket) {
+            return totalTransfers == 0 || bucket - latestBucket >= bucketCount;
+        }
+
+        private void add(long bucket, int transferDelta, long amountCentsDelta) {
+            var index = indexOf(bucket);
+            transfers[index] += transferDelta;
+            amountCents[index] += amountCentsDelta;
+            totalTransfers += transferDelta;
+            totalAmountCents += amountCentsDelta;
+        }
+
+        private int indexOf(long bucket) {
+            return (int) Math.floorMod(bucket, (long) bucketCount);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.revolut.challenge.service.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
 import java.math.BigDecimal;
@@ -24,6 +25,24 @@ public class AccountFunds {
     @NotNull
     @Size(min = 3, max = 3)
     private final String currency;
+    /**
+     * Incremented on every balance update, not exposed in the API.
+     */
+    @JsonIgnore
+    private final Long version;
+    /**
+     * The part of the balance reserved by authorized holds, not exposed in the API.
+     */
+    @JsonIgnore
+    private final BigDecimal held;
+
+    /**
+     * @return the part of the balance that can be spent
+     */
+    @JsonIgnore
+    public BigDecimal getAvailableBalance() {
+        return held == null ? balance : balance.subtract(held);
+    }
 
     @JsonPOJOBuilder(withPrefix = "")
     public static class AccountFundsBuilder {
@@ -0,0 +1,38 @@
+package com.revolut.challenge.service.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import javax.annotation.concurrent.Immutable;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * The change of an account balance made by a committed transfer.
+ */
+@Builder(toBuilder = true)
+@Data
+@Immutable
+public class BalanceChange {
+
+    @NotNull
+    private final UUID accountId;
+    @NotNull
+    private final UUID operationId;
+    /**
+     * Negative if the account has sent funds.
+     */
+    @NotNull
+    private final BigDecimal amount;
+    @Size(min = 3, max = 3)
+    @NotNull
+    private final String currency;
+    /**
+     * When the transfer was created, in UTC, which may be well before it's committed if it's
+     * netted.
+     */
+    @NotNull
+    private final LocalDateTime createdAt;
+}
@@ -0,0 +1,23 @@
+package com.revolut.challenge.service.model;
+
+import javax.annotation.concurrent.Immutable;
+import javax.validation.constraints.NotNull;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * An account as seen by the balance read model.
+ */
+@Builder(toBuilder = true)
+@Data
+@Immutable
+public class BalanceView {
+
+    @NotNull
+    private final AccountFunds accountFunds;
+    /**
+     * How long ago the oldest change that the balance may not reflect yet was committed, 0 if
+     * the balance is up to date.
+     */
+    private final long stalenessMillis;
+}
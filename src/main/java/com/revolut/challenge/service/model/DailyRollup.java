@@ -0,0 +1,45 @@
+package com.revolut.challenge.service.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+import javax.annotation.concurrent.Immutable;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * The funds an account has received and sent on a day in UTC, or the part of them that hasn't
+ * been added to the stored rollup yet.
+ */
+@Builder(toBuilder = true)
+@Data
+@Immutable
+public class DailyRollup {
+
+    @NotNull
+    private final UUID accountId;
+    @NotNull
+    private final LocalDate day;
+    @Size(min = 3, max = 3)
+    @NotNull
+    private final String currency;
+    @NotNull
+    private final BigDecimal inflow;
+    @NotNull
+    private final BigDecimal outflow;
+    /**
+     * The number of the balance changes, i.e. of the transfers and legs that moved funds to or
+     * from the account.
+     */
+    private final long transferCount;
+
+    public DailyRollup plus(DailyRollup other) {
+        return toBuilder()
+            .inflow(inflow.add(other.inflow))
+            .outflow(outflow.add(other.outflow))
+            .transferCount(transferCount + other.transferCount)
+            .build();
+    }
+}
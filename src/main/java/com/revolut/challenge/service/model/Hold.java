@@ -0,0 +1,45 @@
+package com.revolut.challenge.service.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import javax.annotation.concurrent.Immutable;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Funds of an account reserved for a transfer whose recipient and final amount are known later.
+ */
+@Builder(toBuilder = true)
+@Data
+@Immutable
+public class Hold {
+
+    /**
+     * Provided by the client to support idempotent behavior.
+     */
+    @NotNull
+    private final UUID holdId;
+    @NotNull
+    private final UUID accountId;
+    @NotNull
+    private final BigDecimal amount;
+    @Size(min = 3, max = 3)
+    @NotNull
+    private final String currency;
+    @NotNull
+    private final HoldStatus status;
+    private final LocalDateTime createdAt;
+    @NotNull
+    private final LocalDateTime expiresAt;
+    /**
+     * Set once the hold is captured.
+     */
+    private final UUID recipientAccountId;
+    /**
+     * Set once the hold is captured, at most the held amount.
+     */
+    private final BigDecimal capturedAmount;
+}
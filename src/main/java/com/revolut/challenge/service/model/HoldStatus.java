@@ -0,0 +1,18 @@
+package com.revolut.challenge.service.model;
+
+public enum HoldStatus {
+    /**
+     * The amount is reserved, and the hold can be captured or voided.
+     */
+    AUTHORIZED,
+    /**
+     * The account didn't have enough available funds.
+     */
+    DECLINED,
+    CAPTURED,
+    VOIDED,
+    /**
+     * Neither captured nor voided in time, and released by the sweeper.
+     */
+    EXPIRED
+}
@@ -0,0 +1,48 @@
+package com.revolut.challenge.service.model;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import javax.annotation.concurrent.Immutable;
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * A set of transfers that are applied atomically under a single operation ID. Each leg is also
+ * stored as a separate transfer, with an operation ID derived from the one of the whole set.
+ */
+@Builder(toBuilder = true)
+@Data
+@Immutable
+public class MultiLegTransfer {
+
+    public static final int MAX_LEGS = 100;
+
+    private final Long id;
+    @NotNull
+    private final UUID operationId;
+    @Size(min = 3, max = 3)
+    @NotNull
+    private final String currency;
+    @NotEmpty
+    @Size(max = MAX_LEGS)
+    private final List<@Valid TransferLeg> legs;
+    private final LocalDateTime createdAt;
+    @NotNull
+    private final TransferStatus status;
+
+    /**
+     * @return the operation ID of the transfer that stores the leg with the given index
+     */
+    @NonNull
+    public static UUID legOperationId(UUID operationId, int legIndex) {
+        return UUID.nameUUIDFromBytes(
+            (operationId + ":" + legIndex).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,51 @@
+package com.revolut.challenge.service.model;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import javax.annotation.concurrent.Immutable;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * The half of a transfer between partitions that is performed by one instance: the debit of the
+ * sender account by the coordinator, or the credit of the recipient account by the participant.
+ */
+@Builder(toBuilder = true)
+@Data
+@Immutable
+@JsonDeserialize(builder = PartitionTransfer.PartitionTransferBuilder.class)
+public class PartitionTransfer {
+
+    @NotNull
+    private final UUID operationId;
+    @NotNull
+    private final PartitionTransferRole role;
+    @NotNull
+    private final PartitionTransferState state;
+    /**
+     * The local account, i.e. the sender account of the coordinator and the recipient account of
+     * the participant.
+     */
+    @NotNull
+    private final UUID accountId;
+    @NotNull
+    private final BigDecimal amount;
+    @Size(min = 3, max = 3)
+    @NotNull
+    private final String currency;
+    /**
+     * The index of the instance playing the other role.
+     */
+    private final int peerInstance;
+    private final LocalDateTime updatedAt;
+
+    @JsonPOJOBuilder(withPrefix = "")
+    public static class PartitionTransferBuilder {
+
+    }
+}
@@ -0,0 +1,15 @@
+package com.revolut.challenge.service.model;
+
+/**
+ * The part an instance plays in a transfer between accounts of different partitions.
+ */
+public enum PartitionTransferRole {
+    /**
+     * Owns the sender account, debits it and decides whether the transfer is committed.
+     */
+    COORDINATOR,
+    /**
+     * Owns the recipient account and credits it once the coordinator commits the transfer.
+     */
+    PARTICIPANT
+}
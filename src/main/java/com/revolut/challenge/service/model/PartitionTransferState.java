@@ -0,0 +1,23 @@
+package com.revolut.challenge.service.model;
+
+/**
+ * The states of the two-phase protocol of transfers between partitions. The coordinator goes
+ * through {@link #PREPARING}, {@link #COMMITTING} and {@link #COMMITTED}, the participant through
+ * {@link #PREPARED} and {@link #COMMITTED}. Either of them may end up {@link #ABORTED} instead.
+ */
+public enum PartitionTransferState {
+    /**
+     * The coordinator is waiting for the participant to prepare the credit.
+     */
+    PREPARING,
+    /**
+     * The participant has checked the recipient account and waits for the decision.
+     */
+    PREPARED,
+    /**
+     * The coordinator has debited the sender, and the participant has to credit the recipient.
+     */
+    COMMITTING,
+    COMMITTED,
+    ABORTED
+}
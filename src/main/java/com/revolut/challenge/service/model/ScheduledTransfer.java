@@ -0,0 +1,53 @@
+package com.revolut.challenge.service.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.util.UUID;
+import javax.annotation.concurrent.Immutable;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * A transfer to be performed at a later time, once or repeatedly.
+ */
+@Builder(toBuilder = true)
+@Data
+@Immutable
+public class ScheduledTransfer {
+
+    /**
+     * Provided by the client to support idempotent behavior.
+     */
+    @NotNull
+    private final UUID scheduleId;
+    @NotNull
+    private final UUID senderAccountId;
+    @NotNull
+    private final UUID recipientAccountId;
+    @NotNull
+    private final BigDecimal amount;
+    @Size(min = 3, max = 3)
+    @NotNull
+    private final String currency;
+    @NotNull
+    private final LocalDateTime firstRunAt;
+    /**
+     * The time between the runs, none if the transfer runs once.
+     */
+    private final Period recurrence;
+    /**
+     * The time of the next run, or of the last one once the schedule has completed.
+     */
+    @NotNull
+    private final LocalDateTime nextRunAt;
+    private final long executions;
+    @NotNull
+    private final ScheduledTransferStatus status;
+    /**
+     * The outcome of the last run, none before the first one.
+     */
+    private final ScheduledTransferOutcome lastOutcome;
+}
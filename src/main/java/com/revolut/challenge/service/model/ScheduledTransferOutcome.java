@@ -0,0 +1,13 @@
+package com.revolut.challenge.service.model;
+
+public enum ScheduledTransferOutcome {
+    OK,
+    /**
+     * The sender didn't have enough funds.
+     */
+    REJECTED,
+    /**
+     * The transfer couldn't be performed, e.g. because an account is blocked or no longer exists.
+     */
+    FAILED
+}
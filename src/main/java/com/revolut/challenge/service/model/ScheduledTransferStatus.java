@@ -0,0 +1,10 @@
+package com.revolut.challenge.service.model;
+
+public enum ScheduledTransferStatus {
+    ACTIVE,
+    /**
+     * A transfer that runs once has run.
+     */
+    COMPLETED,
+    CANCELLED
+}
@@ -0,0 +1,21 @@
+package com.revolut.challenge.service.model;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import javax.annotation.concurrent.Immutable;
+import javax.validation.constraints.NotNull;
+import lombok.Builder;
+import lombok.Data;
+
+@Builder(toBuilder = true)
+@Data
+@Immutable
+public class TransferLeg {
+
+    @NotNull
+    private final UUID senderAccountId;
+    @NotNull
+    private final UUID recipientAccountId;
+    @NotNull
+    private final BigDecimal amount;
+}
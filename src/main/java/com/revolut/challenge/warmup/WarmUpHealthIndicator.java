@@ -0,0 +1,32 @@
+package com.revolut.challenge.warmup;
+
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.health.HealthStatus;
+import io.micronaut.management.health.indicator.HealthIndicator;
+import io.micronaut.management.health.indicator.HealthResult;
+import io.reactivex.Flowable;
+import javax.inject.Singleton;
+import org.reactivestreams.Publisher;
+
+/**
+ * Keeps the instance out of rotation until the warm-up is over.
+ */
+@Singleton
+@Requires(beans = WarmUpRunner.class)
+public class WarmUpHealthIndicator implements HealthIndicator {
+
+    private static final String NAME = "warm-up";
+
+    private final WarmUpRunner warmUpRunner;
+
+    public WarmUpHealthIndicator(WarmUpRunner warmUpRunner) {
+        this.warmUpRunner = warmUpRunner;
+    }
+
+    @Override
+    public Publisher<HealthResult> getResult() {
+        return Flowable.just(HealthResult
+            .builder(NAME, warmUpRunner.isComplete() ? HealthStatus.UP : HealthStatus.DOWN)
+            .build());
+    }
+}
@@ -0,0 +1,149 @@
+package com.revolut.challenge.warmup;
+
+import com.revolut.challenge.api.TransferConverter;
+import com.revolut.challenge.api.model.TransferAccount.TransferAccountBuilder;
+import com.revolut.challenge.api.model.TransferAccounts.TransferAccountsBuilder;
+import com.revolut.challenge.api.model.TransferAmount.TransferAmountBuilder;
+import com.revolut.challenge.api.model.TransferRequest;
+import com.revolut.challenge.api.model.TransferRequest.TransferRequestBuilder;
+import com.revolut.challenge.repositories.AccountFundsRepository;
+import com.revolut.challenge.service.BalanceChangeHub;
+import com.revolut.challenge.service.TransferService;
+import com.revolut.challenge.service.model.AccountFunds;
+import com.revolut.challenge.service.model.TransferStatus;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.runtime.event.annotation.EventListener;
+import io.micronaut.runtime.server.event.ServerStartupEvent;
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs synthetic transfers through the whole transfer code path on startup, so that it gets
+ * JIT-compiled before the instance receives real traffic. The transfers are made between scratch
+ * accounts in transactions that are rolled back. The scratch accounts themselves are committed,
+ * as the transfers look their accounts up in transactions of their own, and deleted afterwards.
+ * The {@link WarmUpHealthIndicator} reports the instance as not ready until the warm-up is over.
+ */
+@Slf4j
+@Singleton
+@ParametersAreNonnullByDefault
+@Requires(property = "warm-up.enabled", value = "true")
+public class WarmUpRunner {
+
+    private static final String CURRENCY = "EUR";
+
+    private final TransferConverter transferConverter;
+    private final TransferService transferService;
+    private final AccountFundsRepository accountFundsRepository;
+    private final WarmUpTransaction warmUpTransaction;
+    private final BalanceChangeHub balanceChangeHub;
+    private final int transfers;
+    private final int batchSize;
+    private final AtomicInteger succeededTransfers = new AtomicInteger();
+    private volatile boolean complete;
+
+    public WarmUpRunner(
+        TransferConverter transferConverter,
+        TransferService transferService,
+        AccountFundsRepository accountFundsRepository,
+        WarmUpTransaction warmUpTransaction,
+        BalanceChangeHub balanceChangeHub,
+        @Value("${warm-up.transfers:5000}") int transfers,
+        @Value("${warm-up.batch-size:500}") int batchSize
+    ) {
+        this.transferConverter = transferConverter;
+        this.transferService = transferService;
+        this.accountFundsRepository = accountFundsRepository;
+        this.warmUpTransaction = warmUpTransaction;
+        this.balanceChangeHub = balanceChangeHub;
+        this.transfers = transfers;
+        this.batchSize = batchSize;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * @return the number of warm-up transfers that went through with status OK, all of them
+     * unless the warm-up failed
+     */
+    public int getSucceededTransfers() {
+        return succeededTransfers.get();
+    }
+
+    /**
+     * The warm-up runs synchronously, so the application doesn't finish starting until it's over.
+     * The HTTP server is already listening though, so that the health checks can be answered.
+     */
+    @EventListener
+    void onServerStartup(ServerStartupEvent event) {
+        var start = System.nanoTime();
+        try {
+            for (int done = 0; done < transfers; done += batchSize) {
+                var batch = Math.min(batchSize, transfers - done);
+                var senderAccountId = createScratchAccount(new BigDecimal(batch));
+                var recipientAccountId = createScratchAccount(BigDecimal.ZERO);
+                try {
+                    //neither the read model nor the rollups may see the rolled back transfers
+                    balanceChangeHub.runWithheld(() -> warmUpTransaction.runAndRollBack(
+                        () -> runBatch(senderAccountId, recipientAccountId, batch)));
+                } catch (WarmUpTransaction.RollbackException e) {
+                    //expected
+                } finally {
+                    accountFundsRepository.delete(senderAccountId);
+                    accountFundsRepository.delete(recipientAccountId);
+                }
+            }
+            log.info("Warm-up with {} transfers took {} ms", transfers,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (RuntimeException e) {
+            log.warn("Warm-up failed, the instance will be reported as ready anyway", e);
+        } finally {
+            complete = true;
+        }
+    }
+
+    private void runBatch(UUID senderAccountId, UUID recipientAccountId, int batch) {
+        for (int i = 0; i < batch; i++) {
+            var transfer = transferConverter.fromCreateRequest(
+                buildTransferRequest(senderAccountId, recipientAccountId));
+            var processed = transferService.processTransfer(transfer);
+            transferConverter.toTransferResponse(processed);
+            if (processed.getStatus() == TransferStatus.OK) {
+                succeededTransfers.incrementAndGet();
+            }
+        }
+    }
+
+    private UUID createScratchAccount(BigDecimal balance) {
+        return accountFundsRepository.save(AccountFunds.builder()
+            .accountId(UUID.randomUUID())
+            .balance(balance)
+            .currency(CURRENCY)
+            .build())
+            .getAccountId();
+    }
+
+    private static TransferRequest buildTransferRequest(UUID senderAccountId,
+        UUID recipientAccountId) {
+        return new TransferRequestBuilder()
+            .withOperationId(UUID.randomUUID())
+            .withAccounts(new TransferAccountsBuilder()
+                .withFrom(new TransferAccountBuilder().withId(senderAccountId).build())
+                .withTo(new TransferAccountBuilder().withId(recipientAccountId).build())
+                .build())
+            .withAmount(new TransferAmountBuilder()
+                .withValue("1.00")
+                .withCurrency(CURRENCY)
+                .build())
+            .withMessage("warm-up")
+            .build();
+    }
+}
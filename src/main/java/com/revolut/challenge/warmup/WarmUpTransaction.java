@@ -0,0 +1,28 @@
+package com.revolut.challenge.warmup;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.inject.Singleton;
+import javax.transaction.Transactional;
+
+/**
+ * Runs the warm-up work in a transaction that is always rolled back, so that the synthetic
+ * transfers are never visible. The scratch accounts are committed beforehand, as the transfers
+ * look their accounts up outside of this transaction.
+ */
+@Singleton
+@ParametersAreNonnullByDefault
+class WarmUpTransaction {
+
+    @Transactional(rollbackOn = Exception.class)
+    void runAndRollBack(Runnable runnable) {
+        runnable.run();
+        throw new RollbackException();
+    }
+
+    static final class RollbackException extends RuntimeException {
+
+        private RollbackException() {
+            super("Rolling back the warm-up transaction", null, false, false);
+        }
+    }
+}
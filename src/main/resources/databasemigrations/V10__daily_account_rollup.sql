@@ -0,0 +1,35 @@
+CREATE TABLE daily_account_rollup
+(
+    account_id     VARCHAR(36)       NOT NULL,
+    rollup_day     DATE              NOT NULL,
+    currency       VARCHAR(3)        NOT NULL,
+    inflow         DECIMAL(65535, 2) NOT NULL,
+    outflow        DECIMAL(65535, 2) NOT NULL,
+    transfer_count BIGINT            NOT NULL,
+    PRIMARY KEY (account_id, rollup_day)
+);
+-- the rollups of the transfers committed so far, counted on the UTC day each one was created on,
+-- leaving out the accounts of other partitions
+INSERT INTO daily_account_rollup (account_id, rollup_day, currency, inflow, outflow,
+                                  transfer_count)
+SELECT account_id, rollup_day, MAX(currency), SUM(inflow), SUM(outflow), COUNT(*)
+FROM (SELECT recipient_account_id AS account_id, CAST(created_at AS DATE) AS rollup_day,
+             currency, amount AS inflow, 0.00 AS outflow
+      FROM transfer
+      WHERE status = 'OK'
+      UNION ALL
+      SELECT sender_account_id, CAST(created_at AS DATE), currency, 0.00, amount
+      FROM transfer
+      WHERE status = 'OK'
+      UNION ALL
+      SELECT recipient_account_id, CAST(created_at AS DATE), currency, amount, 0.00
+      FROM transfer_journal j
+      WHERE status = 'OK'
+        AND NOT EXISTS (SELECT 1 FROM transfer t WHERE t.id = j.id)
+      UNION ALL
+      SELECT sender_account_id, CAST(created_at AS DATE), currency, 0.00, amount
+      FROM transfer_journal j
+      WHERE status = 'OK'
+        AND NOT EXISTS (SELECT 1 FROM transfer t WHERE t.id = j.id)) movement
+WHERE EXISTS (SELECT 1 FROM account_funds a WHERE a.account_id = movement.account_id)
+GROUP BY account_id, rollup_day;
@@ -0,0 +1 @@
+CREATE INDEX transfer_created_at_idx ON transfer (created_at);
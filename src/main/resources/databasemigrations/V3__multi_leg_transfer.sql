@@ -0,0 +1,9 @@
+CREATE TABLE multi_leg_transfer
+(
+    id           BIGINT IDENTITY PRIMARY KEY,
+    operation_id VARCHAR(36)  NOT NULL UNIQUE,
+    currency     VARCHAR(3)   NOT NULL,
+    leg_count    INT          NOT NULL CHECK (leg_count > 0),
+    created_at   TIMESTAMP    NOT NULL,
+    status       VARCHAR(255) NOT NULL
+);
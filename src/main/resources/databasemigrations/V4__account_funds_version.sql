@@ -0,0 +1 @@
+ALTER TABLE account_funds ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
@@ -0,0 +1,12 @@
+CREATE TABLE partition_transfer
+(
+    operation_id  VARCHAR(36)    NOT NULL PRIMARY KEY,
+    role          VARCHAR(255)   NOT NULL,
+    state         VARCHAR(255)   NOT NULL,
+    account_id    VARCHAR(36)    NOT NULL,
+    amount        DECIMAL(15, 2) NOT NULL CHECK (amount > 0.00),
+    currency      VARCHAR(3)     NOT NULL,
+    peer_instance INT            NOT NULL,
+    updated_at    TIMESTAMP      NOT NULL
+);
+CREATE INDEX partition_transfer_state_idx ON partition_transfer (state, updated_at);
@@ -0,0 +1,12 @@
+ALTER TABLE account_funds ADD COLUMN opening_balance DECIMAL(65535, 2);
+-- the existing balances are taken to be consistent with the transfers that made them
+UPDATE account_funds
+SET opening_balance = balance
+    - COALESCE((SELECT SUM(amount) FROM transfer
+                WHERE recipient_account_id = account_funds.account_id AND status = 'OK'), 0)
+    + COALESCE((SELECT SUM(amount) FROM transfer
+                WHERE sender_account_id = account_funds.account_id AND status = 'OK'), 0)
+    - COALESCE((SELECT SUM(amount) FROM partition_transfer
+                WHERE account_id = account_funds.account_id
+                  AND role = 'PARTICIPANT' AND state = 'COMMITTED'), 0);
+ALTER TABLE account_funds ALTER COLUMN opening_balance SET NOT NULL;
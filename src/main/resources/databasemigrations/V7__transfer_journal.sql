@@ -0,0 +1,16 @@
+-- the IDs of the transfers written behind are taken when they are journaled, so both tables
+-- draw them from one sequence
+CREATE SEQUENCE transfer_id_seq;
+ALTER SEQUENCE transfer_id_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 1 FROM transfer);
+ALTER TABLE transfer ALTER COLUMN id SET DEFAULT NEXT VALUE FOR transfer_id_seq;
+CREATE TABLE transfer_journal
+(
+    id                   BIGINT DEFAULT NEXT VALUE FOR transfer_id_seq PRIMARY KEY,
+    operation_id         VARCHAR(36)    NOT NULL UNIQUE,
+    currency             VARCHAR(3)     NOT NULL,
+    amount               DECIMAL(15, 2) NOT NULL CHECK (amount > 0.00),
+    sender_account_id    VARCHAR(36)    NOT NULL,
+    recipient_account_id VARCHAR(36)    NOT NULL,
+    created_at           TIMESTAMP      NOT NULL,
+    status               VARCHAR(255)   NOT NULL
+);
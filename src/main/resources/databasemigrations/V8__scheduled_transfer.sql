@@ -0,0 +1,15 @@
+CREATE TABLE scheduled_transfer
+(
+    schedule_id          VARCHAR(36)    NOT NULL PRIMARY KEY,
+    sender_account_id    VARCHAR(36)    NOT NULL,
+    recipient_account_id VARCHAR(36)    NOT NULL,
+    amount               DECIMAL(15, 2) NOT NULL CHECK (amount > 0.00),
+    currency             VARCHAR(3)     NOT NULL,
+    first_run_at         TIMESTAMP      NOT NULL,
+    recurrence           VARCHAR(255),
+    next_run_at          TIMESTAMP      NOT NULL,
+    executions           BIGINT         NOT NULL,
+    status               VARCHAR(255)   NOT NULL,
+    last_outcome         VARCHAR(255)
+);
+CREATE INDEX scheduled_transfer_next_run_idx ON scheduled_transfer (status, next_run_at);
@@ -0,0 +1,15 @@
+-- the part of the balance that is reserved by authorized holds, the rest is available
+ALTER TABLE account_funds ADD COLUMN held DECIMAL(65535, 2) DEFAULT 0 NOT NULL;
+CREATE TABLE funds_hold
+(
+    hold_id              VARCHAR(36)    NOT NULL PRIMARY KEY,
+    account_id           VARCHAR(36)    NOT NULL,
+    amount               DECIMAL(15, 2) NOT NULL CHECK (amount > 0.00),
+    currency             VARCHAR(3)     NOT NULL,
+    status               VARCHAR(255)   NOT NULL,
+    created_at           TIMESTAMP      NOT NULL,
+    expires_at           TIMESTAMP      NOT NULL,
+    recipient_account_id VARCHAR(36),
+    captured_amount      DECIMAL(15, 2)
+);
+CREATE INDEX funds_hold_expiry_idx ON funds_hold (status, expires_at);
@@ -0,0 +1,231 @@
+package com.revolut.challenge;
+
+import static com.revolut.challenge.TestConstants.INTEGRATION_TAG;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+import com.revolut.challenge.api.model.MultiLegTransferLeg;
+import com.revolut.challenge.api.model.MultiLegTransferLeg.MultiLegTransferLegBuilder;
+import com.revolut.challenge.api.model.MultiLegTransferRequest;
+import com.revolut.challenge.api.model.MultiLegTransferRequest.MultiLegTransferRequestBuilder;
+import com.revolut.challenge.api.model.TransferAccount.TransferAccountBuilder;
+import com.revolut.challenge.api.model.TransferAccounts.TransferAccountsBuilder;
+import com.revolut.challenge.api.model.TransferResponse;
+import com.revolut.challenge.api.model.TransferStatus;
+import com.revolut.challenge.service.model.AccountFunds;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.client.RxHttpClient;
+import io.micronaut.http.client.annotation.Client;
+import io.micronaut.http.client.exceptions.HttpClientResponseException;
+import io.micronaut.test.annotation.MicronautTest;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import javax.inject.Inject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@MicronautTest
+@Tag(INTEGRATION_TAG)
+class MultiLegTransferSpecificationTest {
+
+    @Inject
+    @Client("/api/v1")
+    private RxHttpClient client;
+
+    private final UUID payerAccountId = UUID.randomUUID();
+    private final UUID merchantAccountId = UUID.randomUUID();
+    private final UUID feeAccountId = UUID.randomUUID();
+    private final UUID taxAccountId = UUID.randomUUID();
+
+    @Test
+    @DisplayName("Should perform all legs of a transfer")
+    void shouldPerformAllLegs() {
+        //GIVEN a payer account with 100 EUR balance and three empty accounts
+        createAccounts("100.00");
+        //AND a payment split between the merchant, the fee and the tax accounts
+        var transferRequest = buildPaymentRequest(UUID.randomUUID(), "90.00");
+
+        //WHEN the transfer is performed
+        var result = doTransfer(transferRequest);
+
+        //THEN it should have positive outcome
+        assertThat(result.getStatus()).isEqualTo(TransferStatus.OK);
+        //AND a transfer number should be assigned to it
+        assertThat(result.getTransferNumber()).matches("^\\d+$");
+        //AND every leg is reflected in the balances
+        assertAccountBalance(payerAccountId, "0.00");
+        assertAccountBalance(merchantAccountId, "90.00");
+        assertAccountBalance(feeAccountId, "2.50");
+        assertAccountBalance(taxAccountId, "7.50");
+    }
+
+    @Test
+    @DisplayName("Should reject the whole transfer if the funds aren't enough for all legs")
+    void shouldRejectAllLegsIfFundsAreNotEnough() {
+        //GIVEN a payer account with 99.99 EUR balance and three empty accounts
+        createAccounts("99.99");
+        //AND a payment of 100 EUR in total
+        var transferRequest = buildPaymentRequest(UUID.randomUUID(), "90.00");
+
+        //WHEN the transfer is performed
+        var result = doTransfer(transferRequest);
+
+        //THEN it should be rejected
+        assertThat(result.getStatus()).isEqualTo(TransferStatus.REJECTED);
+        //AND none of the legs is reflected in the balances
+        assertAccountBalance(payerAccountId, "99.99");
+        assertAccountBalance(merchantAccountId, "0.00");
+        assertAccountBalance(feeAccountId, "0.00");
+        assertAccountBalance(taxAccountId, "0.00");
+    }
+
+    @Test
+    @DisplayName("An account may pass on the funds it receives in the same transfer")
+    void shouldOnlyRequireNetFunds() {
+        //GIVEN an empty merchant account
+        createAccounts("100.00");
+        //AND a transfer that pays the merchant and the fee from the merchant's proceeds
+        var transferRequest = buildTransferRequest(UUID.randomUUID(), List.of(
+            buildLeg(payerAccountId, merchantAccountId, "100.00"),
+            buildLeg(merchantAccountId, feeAccountId, "2.50")));
+
+        //WHEN the transfer is performed
+        var result = doTransfer(transferRequest);
+
+        //THEN it should have positive outcome
+        assertThat(result.getStatus()).isEqualTo(TransferStatus.OK);
+        assertAccountBalance(payerAccountId, "0.00");
+        assertAccountBalance(merchantAccountId, "97.50");
+        assertAccountBalance(feeAccountId, "2.50");
+    }
+
+    @Test
+    @DisplayName("A duplicate transfer should return the same result as the original one, and should not be processed twice")
+    void shouldIdempotentlyHandleDuplicateTransfers() {
+        //GIVEN a payer account with 200 EUR balance and three empty accounts
+        createAccounts("200.00");
+        //AND a payment split between the merchant, the fee and the tax accounts
+        var transferRequest = buildPaymentRequest(UUID.randomUUID(), "90.00");
+
+        //WHEN the transfer is performed twice
+        var originalResult = doTransfer(transferRequest);
+        var result = doTransfer(transferRequest);
+
+        //THEN the same result is returned
+        assertThat(result).isEqualTo(originalResult);
+        //AND the legs are performed once
+        assertAccountBalance(payerAccountId, "100.00");
+        assertAccountBalance(merchantAccountId, "90.00");
+    }
+
+    @Test
+    @DisplayName("A different transfer with the same operation ID should result in status code 409")
+    void shouldReturnErrorIfDifferentTransferHasSameOperationId() {
+        //GIVEN a payer account with 200 EUR balance and three empty accounts
+        createAccounts("200.00");
+        //AND a performed payment
+        var operationId = UUID.randomUUID();
+        doTransfer(buildPaymentRequest(operationId, "90.00"));
+
+        //WHEN another payment with the same operation ID but a different amount is performed
+        var result = failTransfer(buildPaymentRequest(operationId, "80.00"));
+
+        //THEN a conflict error is returned
+        assertThat(result.getStatus().getCode()).isEqualTo(HttpStatus.CONFLICT.getCode());
+        //AND only the first payment is performed
+        assertAccountBalance(payerAccountId, "100.00");
+        assertAccountBalance(merchantAccountId, "90.00");
+    }
+
+    @Test
+    @DisplayName("Should return 404 if any of the account funds entries is not found")
+    void shouldReturnErrorIfAnyAccountFundsNotFound() {
+        //GIVEN a payer account with 100 EUR balance and the merchant account
+        createAccount(payerAccountId, "100.00");
+        createAccount(merchantAccountId, "0.00");
+        //AND a payment that also involves nonexistent accounts
+        var transferRequest = buildPaymentRequest(UUID.randomUUID(), "90.00");
+
+        //WHEN the transfer is performed
+        var result = failTransfer(transferRequest);
+
+        //THEN a not found error is returned
+        assertThat(result.getStatus().getCode()).isEqualTo(HttpStatus.NOT_FOUND.getCode());
+        //AND the account balances are unchanged
+        assertAccountBalance(payerAccountId, "100.00");
+        assertAccountBalance(merchantAccountId, "0.00");
+    }
+
+    private TransferResponse doTransfer(MultiLegTransferRequest transferRequest) {
+        return client.toBlocking().retrieve(
+            HttpRequest.POST("/transfer/multi-leg", transferRequest), TransferResponse.class);
+    }
+
+    private HttpResponse<?> failTransfer(MultiLegTransferRequest transferRequest) {
+        try {
+            client.toBlocking().exchange(HttpRequest.POST("/transfer/multi-leg", transferRequest));
+            return fail("The transfer should've failed");
+        } catch (HttpClientResponseException e) {
+            return e.getResponse();
+        }
+    }
+
+    private MultiLegTransferRequest buildPaymentRequest(UUID operationId, String merchantAmount) {
+        return buildTransferRequest(operationId, List.of(
+            buildLeg(payerAccountId, merchantAccountId, merchantAmount),
+            buildLeg(payerAccountId, feeAccountId, "2.50"),
+            buildLeg(payerAccountId, taxAccountId, "7.50")));
+    }
+
+    private static MultiLegTransferRequest buildTransferRequest(UUID operationId,
+        List<MultiLegTransferLeg> legs) {
+        return new MultiLegTransferRequestBuilder()
+            .withOperationId(operationId)
+            .withCurrency("EUR")
+            .withLegs(legs)
+            .withMessage("test transfer")
+            .build();
+    }
+
+    private static MultiLegTransferLeg buildLeg(UUID senderAccountId, UUID recipientAccountId,
+        String amount) {
+        return new MultiLegTransferLegBuilder()
+            .withAccounts(new TransferAccountsBuilder()
+                .withFrom(new TransferAccountBuilder()
+                    .withId(senderAccountId)
+                    .build())
+                .withTo(new TransferAccountBuilder()
+                    .withId(recipientAccountId)
+                    .build())
+                .build())
+            .withValue(amount)
+            .build();
+    }
+
+    private void assertAccountBalance(UUID accountId, String balance) {
+        assertThat(client.toBlocking()
+            .retrieve(HttpRequest.GET("/account-funds/" + accountId), AccountFunds.class)
+            .getBalance())
+            .isEqualTo(new BigDecimal(balance));
+    }
+
+    private void createAccounts(String payerBalance) {
+        createAccount(payerAccountId, payerBalance);
+        createAccount(merchantAccountId, "0.00");
+        createAccount(feeAccountId, "0.00");
+        createAccount(taxAccountId, "0.00");
+    }
+
+    private void createAccount(UUID accountId, String balance) {
+        var accountFunds = AccountFunds.builder()
+            .accountId(accountId)
+            .balance(new BigDecimal(balance))
+            .currency("EUR")
+            .build();
+        client.toBlocking().exchange(HttpRequest.POST("/account-funds", accountFunds));
+    }
+}
@@ -0,0 +1,224 @@
+package com.revolut.challenge;
+
+import static com.revolut.challenge.TestConstants.INTEGRATION_TAG;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+import com.revolut.challenge.api.model.TransferAccount.TransferAccountBuilder;
+import com.revolut.challenge.api.model.TransferAccounts.TransferAccountsBuilder;
+import com.revolut.challenge.api.model.TransferAmount.TransferAmountBuilder;
+import com.revolut.challenge.api.model.TransferRequest;
+import com.revolut.challenge.api.model.TransferRequest.TransferRequestBuilder;
+import com.revolut.challenge.api.model.TransferResponse;
+import com.revolut.challenge.api.model.TransferStatus;
+import com.revolut.challenge.partitioning.PartitionMap;
+import com.revolut.challenge.repositories.AccountFundsNotFoundException;
+import com.revolut.challenge.repositories.AccountFundsRepository;
+import com.revolut.challenge.repositories.PartitionTransferRepository;
+import com.revolut.challenge.service.model.AccountFunds;
+import com.revolut.challenge.service.model.PartitionTransferState;
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.client.RxHttpClient;
+import io.micronaut.http.client.exceptions.HttpClientResponseException;
+import io.micronaut.runtime.server.EmbeddedServer;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs two instances on localhost, each owning half of the accounts.
+ */
+@Tag(INTEGRATION_TAG)
+class PartitionedDeploymentTest {
+
+    private static final int INSTANCE_COUNT = 2;
+
+    private static final EmbeddedServer[] servers = new EmbeddedServer[INSTANCE_COUNT];
+    private static final RxHttpClient[] clients = new RxHttpClient[INSTANCE_COUNT];
+
+    @BeforeAll
+    static void startInstances() throws IOException {
+        var ports = new int[INSTANCE_COUNT];
+        for (int i = 0; i < INSTANCE_COUNT; i++) {
+            try (var socket = new ServerSocket(0)) {
+                ports[i] = socket.getLocalPort();
+            }
+        }
+        var instanceUrls = List.of("http://localhost:" + ports[0], "http://localhost:" + ports[1]);
+        for (int i = 0; i < INSTANCE_COUNT; i++) {
+            servers[i] = ApplicationContext.run(EmbeddedServer.class, Map.of(
+                "micronaut.server.port", ports[i],
+                "datasources.default.url", "jdbc:h2:mem:partition" + i
+                    + ";MVCC=TRUE;LOCK_TIMEOUT=10000;DB_CLOSE_ON_EXIT=FALSE",
+                "partitioning.enabled", true,
+                "partitioning.instances", instanceUrls,
+                "partitioning.instance-index", i));
+            clients[i] = RxHttpClient.create(servers[i].getURL());
+        }
+    }
+
+    @AfterAll
+    static void stopInstances() {
+        for (int i = 0; i < INSTANCE_COUNT; i++) {
+            clients[i].close();
+            servers[i].close();
+        }
+    }
+
+    @Test
+    void shouldKeepAccountsAtTheirOwners() {
+        var accountId = accountOwnedBy(1);
+
+        createAccount(0, accountId, "10.00");
+
+        assertThat(getBalance(0, accountId)).isEqualTo("10.00");
+        assertThat(getBalance(1, accountId)).isEqualTo("10.00");
+        assertThat(catchThrowableOfType(() -> repository(0).getById(accountId),
+            AccountFundsNotFoundException.class)).isNotNull();
+    }
+
+    @Test
+    void shouldTransferWithinPartition() {
+        var senderAccountId = accountOwnedBy(1);
+        var recipientAccountId = accountOwnedBy(1);
+        createAccount(1, senderAccountId, "100.00");
+        createAccount(1, recipientAccountId, "0.00");
+
+        var result = doTransfer(0,
+            buildTransferRequest(senderAccountId, recipientAccountId, "30.00"));
+
+        assertThat(result.getStatus()).isEqualTo(TransferStatus.OK);
+        assertThat(getBalance(0, senderAccountId)).isEqualTo("70.00");
+        assertThat(getBalance(0, recipientAccountId)).isEqualTo("30.00");
+    }
+
+    @Test
+    void shouldTransferBetweenPartitions() {
+        var senderAccountId = accountOwnedBy(0);
+        var recipientAccountId = accountOwnedBy(1);
+        createAccount(0, senderAccountId, "100.00");
+        createAccount(1, recipientAccountId, "0.00");
+        var transferRequest = buildTransferRequest(senderAccountId, recipientAccountId,
+            "30.00");
+
+        //sent to the participant, which forwards it to the coordinator
+        var result = doTransfer(1, transferRequest);
+
+        assertThat(result.getStatus()).isEqualTo(TransferStatus.OK);
+        assertThat(getBalance(1, senderAccountId)).isEqualTo("70.00");
+        assertThat(getBalance(0, recipientAccountId)).isEqualTo("30.00");
+        assertThat(partitionTransferState(0, transferRequest.getOperationId()))
+            .isEqualTo(PartitionTransferState.COMMITTED);
+        assertThat(partitionTransferState(1, transferRequest.getOperationId()))
+            .isEqualTo(PartitionTransferState.COMMITTED);
+
+        //a retry is replayed
+        assertThat(doTransfer(0, transferRequest).getTransferNumber())
+            .isEqualTo(result.getTransferNumber());
+        assertThat(getBalance(0, recipientAccountId)).isEqualTo("30.00");
+    }
+
+    @Test
+    void shouldAbortTransferBetweenPartitionsWithoutFunds() {
+        var senderAccountId = accountOwnedBy(0);
+        var recipientAccountId = accountOwnedBy(1);
+        createAccount(0, senderAccountId, "10.00");
+        createAccount(1, recipientAccountId, "0.00");
+        var transferRequest = buildTransferRequest(senderAccountId, recipientAccountId,
+            "30.00");
+
+        var result = doTransfer(0, transferRequest);
+
+        assertThat(result.getStatus()).isEqualTo(TransferStatus.REJECTED);
+        assertThat(getBalance(0, senderAccountId)).isEqualTo("10.00");
+        assertThat(getBalance(0, recipientAccountId)).isEqualTo("0.00");
+        assertThat(partitionTransferState(1, transferRequest.getOperationId()))
+            .isEqualTo(PartitionTransferState.ABORTED);
+    }
+
+    @Test
+    void shouldPassOnErrorsOfTheParticipant() {
+        var senderAccountId = accountOwnedBy(0);
+        createAccount(0, senderAccountId, "10.00");
+
+        var exception = catchThrowableOfType(() -> doTransfer(0,
+            buildTransferRequest(senderAccountId, accountOwnedBy(1), "1.00")),
+            HttpClientResponseException.class);
+
+        assertThat(exception.getStatus()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(getBalance(0, senderAccountId)).isEqualTo("10.00");
+    }
+
+    private static UUID accountOwnedBy(int instance) {
+        var partitionMap = servers[0].getApplicationContext().getBean(PartitionMap.class);
+        var accountId = UUID.randomUUID();
+        while (partitionMap.ownerOf(accountId) != instance) {
+            accountId = UUID.randomUUID();
+        }
+        return accountId;
+    }
+
+    private static AccountFundsRepository repository(int instance) {
+        return servers[instance].getApplicationContext().getBean(AccountFundsRepository.class);
+    }
+
+    private static PartitionTransferState partitionTransferState(int instance,
+        UUID operationId) {
+        return servers[instance].getApplicationContext()
+            .getBean(PartitionTransferRepository.class)
+            .findByOperationId(operationId)
+            .orElseThrow()
+            .getState();
+    }
+
+    private static TransferResponse doTransfer(int instance, TransferRequest transferRequest) {
+        return clients[instance].toBlocking().retrieve(
+            HttpRequest.POST("/api/v1/transfer", transferRequest), TransferResponse.class);
+    }
+
+    private static String getBalance(int instance, UUID accountId) {
+        return clients[instance].toBlocking()
+            .retrieve(HttpRequest.GET("/api/v1/account-funds/" + accountId), AccountFunds.class)
+            .getBalance()
+            .toPlainString();
+    }
+
+    private static void createAccount(int instance, UUID accountId, String balance) {
+        clients[instance].toBlocking().exchange(HttpRequest.POST("/api/v1/account-funds",
+            AccountFunds.builder()
+                .accountId(accountId)
+                .balance(new BigDecimal(balance))
+                .currency("EUR")
+                .build()));
+    }
+
+    private static TransferRequest buildTransferRequest(UUID senderAccountId,
+        UUID recipientAccountId, String amount) {
+        return new TransferRequestBuilder()
+            .withOperationId(UUID.randomUUID())
+            .withAccounts(new TransferAccountsBuilder()
+                .withFrom(new TransferAccountBuilder()
+                    .withId(senderAccountId)
+                    .build())
+                .withTo(new TransferAccountBuilder()
+                    .withId(recipientAccountId)
+                    .build())
+                .build()
+            )
+            .withAmount(new TransferAmountBuilder()
+                .withCurrency("EUR")
+                .withValue(amount)
+                .build())
+            .withMessage("test transfer")
+            .build();
+    }
+}
@@ -0,0 +1,134 @@
+package com.revolut.challenge;
+
+import static com.revolut.challenge.TestConstants.BENCHMARK_TAG;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Measures the time from launching the shadow jar in a fresh JVM until the first transfer
+ * succeeds, with and without the AppCDS archive. Run {@code ./gradlew appCdsArchive benchmark}
+ * to have both the jar and the archive available.
+ */
+@Tag(BENCHMARK_TAG)
+class StartupTimeBenchmark {
+
+    private static final int RUNS = 5;
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(60);
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+        .connectTimeout(Duration.ofSeconds(1))
+        .build();
+
+    @Test
+    void measureTimeToFirstTransfer() throws Exception {
+        var jar = System.getProperty("benchmark.jar");
+        assumeTrue(jar != null && Files.exists(Path.of(jar)), "The shadow jar hasn't been built");
+
+        System.out.printf("Without AppCDS: %d ms%n", medianTimeToFirstTransfer(jar, List.of()));
+        var archive = System.getProperty("benchmark.app-cds-archive");
+        if (archive != null && Files.exists(Path.of(archive))) {
+            System.out.printf("With AppCDS:    %d ms%n", medianTimeToFirstTransfer(jar,
+                List.of("-XX:SharedArchiveFile=" + archive)));
+        }
+    }
+
+    private long medianTimeToFirstTransfer(String jar, List<String> jvmOptions) throws Exception {
+        var times = new ArrayList<Long>();
+        for (int i = 0; i < RUNS; i++) {
+            times.add(timeToFirstTransfer(jar, jvmOptions));
+        }
+        times.sort(Long::compare);
+        return times.get(RUNS / 2);
+    }
+
+    private long timeToFirstTransfer(String jar, List<String> jvmOptions) throws Exception {
+        var port = freePort();
+        var command = new ArrayList<String>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.add("-Dmicronaut.server.port=" + port);
+        command.add("-jar");
+        command.add(jar);
+        var start = System.nanoTime();
+        var process = new ProcessBuilder(command)
+            .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+            .redirectError(ProcessBuilder.Redirect.DISCARD)
+            .start();
+        try {
+            var baseUri = "http://localhost:" + port + "/api/v1";
+            var senderAccountId = UUID.randomUUID();
+            var recipientAccountId = UUID.randomUUID();
+            //the first request is retried until the server accepts connections
+            postUntilAccepted(baseUri + "/account-funds",
+                accountFunds(senderAccountId, "100.00"));
+            post(baseUri + "/account-funds", accountFunds(recipientAccountId, "0.00"));
+            post(baseUri + "/transfer", transfer(senderAccountId, recipientAccountId));
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private void postUntilAccepted(String uri, String body) throws Exception {
+        var deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (true) {
+            try {
+                post(uri, body);
+                return;
+            } catch (ConnectException e) {
+                if (System.nanoTime() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(5);
+            }
+        }
+    }
+
+    private void post(String uri, String body) throws IOException, InterruptedException {
+        var response = httpClient.send(HttpRequest.newBuilder(URI.create(uri))
+            .header("Content-Type", "application/json")
+            .POST(BodyPublishers.ofString(body))
+            .build(), BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(
+                "Unexpected response " + response.statusCode() + ": " + response.body());
+        }
+    }
+
+    private static String accountFunds(UUID accountId, String balance) {
+        return "{\"accountId\": \"" + accountId + "\", \"balance\": \"" + balance
+            + "\", \"currency\": \"EUR\"}";
+    }
+
+    private static String transfer(UUID senderAccountId, UUID recipientAccountId) {
+        return "{\"operationId\": \"" + UUID.randomUUID() + "\", "
+            + "\"accounts\": {\"from\": {\"id\": \"" + senderAccountId + "\"}, "
+            + "\"to\": {\"id\": \"" + recipientAccountId + "\"}}, "
+            + "\"amount\": {\"value\": \"1.00\", \"currency\": \"EUR\"}, "
+            + "\"message\": \"startup benchmark\"}";
+    }
+
+    private static int freePort() throws IOException {
+        try (var socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
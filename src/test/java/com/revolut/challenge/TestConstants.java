@@ -6,4 +6,5 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public final class TestConstants {
     public static final String INTEGRATION_TAG = "integration";
+    public static final String BENCHMARK_TAG = "benchmark";
 }
@@ -0,0 +1,110 @@
+package com.revolut.challenge.api.binary;
+
+import static com.revolut.challenge.TestConstants.INTEGRATION_TAG;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+import com.revolut.challenge.repositories.AccountFundsRepository;
+import com.revolut.challenge.service.model.AccountFunds;
+import com.revolut.challenge.service.model.Transfer;
+import com.revolut.challenge.service.model.TransferStatus;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.test.annotation.MicronautTest;
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import javax.inject.Inject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@MicronautTest(transactional = false)
+@Tag(INTEGRATION_TAG)
+@Property(name = "binary-protocol.enabled", value = "true")
+@Property(name = "binary-protocol.port", value = "0")
+class BinaryProtocolServerTest {
+
+    private final UUID senderAccountId = UUID.randomUUID();
+    private final UUID recipientAccountId = UUID.randomUUID();
+
+    @Inject
+    private BinaryProtocolServer server;
+
+    @Inject
+    private AccountFundsRepository accountFundsRepository;
+
+    private BinaryTransferClient client;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        client = new BinaryTransferClient("localhost", server.getPort());
+        createFunds(senderAccountId, "100.00");
+        createFunds(recipientAccountId, "0.00");
+    }
+
+    @AfterEach
+    void cleanUp() {
+        client.close();
+    }
+
+    @Test
+    void shouldTransferFundsAndReturnBalance() throws Exception {
+        var result = client.transfer(buildTransfer(UUID.randomUUID(), "10.01")).get();
+
+        assertThat(result.getStatus()).isEqualTo(TransferStatus.OK);
+        assertThat(result.getId()).isNotNull();
+        assertThat(client.getAccountFunds(recipientAccountId).get().getBalance())
+            .isEqualTo(new BigDecimal("10.01"));
+        assertThat(client.getAccountFunds(senderAccountId).get().getBalance())
+            .isEqualTo(new BigDecimal("89.99"));
+    }
+
+    @Test
+    void shouldMatchPipelinedResponsesByCorrelationId() {
+        var futures = IntStream.range(0, 50)
+            .mapToObj(i -> client.transfer(buildTransfer(UUID.randomUUID(), "1.00")))
+            .collect(Collectors.toList());
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+
+        assertThat(futures)
+            .extracting(future -> future.join().getStatus())
+            .containsOnly(TransferStatus.OK);
+        assertThat(futures)
+            .extracting(future -> future.join().getId())
+            .doesNotHaveDuplicates();
+    }
+
+    @Test
+    void shouldReportErrorStatus() {
+        var exception = catchThrowableOfType(
+            () -> client.getAccountFunds(UUID.randomUUID()).get(),
+            ExecutionException.class);
+
+        assertThat(exception).hasCauseInstanceOf(BinaryProtocolException.class);
+        assertThat(((BinaryProtocolException) exception.getCause()).getStatus())
+            .isEqualTo(BinaryProtocol.STATUS_NOT_FOUND);
+    }
+
+    private Transfer buildTransfer(UUID operationId, String amount) {
+        return Transfer.builder()
+            .operationId(operationId)
+            .senderAccountId(senderAccountId)
+            .recipientAccountId(recipientAccountId)
+            .currency("EUR")
+            .amount(new BigDecimal(amount))
+            .status(TransferStatus.ACCEPTED)
+            .build();
+    }
+
+    private void createFunds(UUID accountId, String balance) {
+        accountFundsRepository.save(AccountFunds.builder()
+            .accountId(accountId)
+            .currency("EUR")
+            .balance(new BigDecimal(balance))
+            .build());
+    }
+}
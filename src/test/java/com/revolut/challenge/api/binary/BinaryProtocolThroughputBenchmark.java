@@ -0,0 +1,121 @@
+package com.revolut.challenge.api.binary;
+
+import static com.revolut.challenge.TestConstants.BENCHMARK_TAG;
+
+import com.revolut.challenge.api.model.TransferAccount.TransferAccountBuilder;
+import com.revolut.challenge.api.model.TransferAccounts.TransferAccountsBuilder;
+import com.revolut.challenge.api.model.TransferAmount.TransferAmountBuilder;
+import com.revolut.challenge.api.model.TransferRequest.TransferRequestBuilder;
+import com.revolut.challenge.api.model.TransferResponse;
+import com.revolut.challenge.repositories.AccountFundsRepository;
+import com.revolut.challenge.service.model.AccountFunds;
+import com.revolut.challenge.service.model.Transfer;
+import com.revolut.challenge.service.model.TransferStatus;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.client.RxHttpClient;
+import io.micronaut.http.client.annotation.Client;
+import io.micronaut.test.annotation.MicronautTest;
+import io.reactivex.Flowable;
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import javax.inject.Inject;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the throughput of the HTTP/JSON transfer endpoint with the binary protocol when the
+ * same number of transfers is sent with the same number of concurrent requests in flight.
+ */
+@MicronautTest(transactional = false)
+@Tag(BENCHMARK_TAG)
+@Property(name = "binary-protocol.enabled", value = "true")
+@Property(name = "binary-protocol.port", value = "0")
+class BinaryProtocolThroughputBenchmark {
+
+    private static final int WARM_UP_TRANSFERS = 2_000;
+    private static final int MEASURED_TRANSFERS = 20_000;
+    private static final int CONCURRENCY = 64;
+
+    @Inject
+    private BinaryProtocolServer server;
+
+    @Inject
+    private AccountFundsRepository accountFundsRepository;
+
+    @Inject
+    @Client("/api/v1")
+    private RxHttpClient httpClient;
+
+    @Test
+    void compareHttpAndBinaryThroughput() throws Exception {
+        var senderAccountId = createFunds("1000000000.00");
+        var recipientAccountId = createFunds("0.00");
+
+        runHttp(senderAccountId, recipientAccountId, WARM_UP_TRANSFERS);
+        var httpNanos = runHttp(senderAccountId, recipientAccountId, MEASURED_TRANSFERS);
+
+        try (var binaryClient = new BinaryTransferClient("localhost", server.getPort())) {
+            runBinary(binaryClient, senderAccountId, recipientAccountId, WARM_UP_TRANSFERS);
+            var binaryNanos = runBinary(binaryClient, senderAccountId, recipientAccountId,
+                MEASURED_TRANSFERS);
+            System.out.printf("HTTP:   %,.0f transfers/s%n", throughput(httpNanos));
+            System.out.printf("Binary: %,.0f transfers/s%n", throughput(binaryNanos));
+        }
+    }
+
+    private long runHttp(UUID senderAccountId, UUID recipientAccountId, int transfers) {
+        var start = System.nanoTime();
+        Flowable.range(0, transfers)
+            .flatMap(i -> httpClient.retrieve(HttpRequest.POST("/transfer",
+                new TransferRequestBuilder()
+                    .withOperationId(UUID.randomUUID())
+                    .withAccounts(new TransferAccountsBuilder()
+                        .withFrom(new TransferAccountBuilder().withId(senderAccountId).build())
+                        .withTo(new TransferAccountBuilder().withId(recipientAccountId).build())
+                        .build())
+                    .withAmount(new TransferAmountBuilder()
+                        .withCurrency("EUR")
+                        .withValue("0.01")
+                        .build())
+                    .withMessage("benchmark")
+                    .build()), TransferResponse.class), CONCURRENCY)
+            .blockingSubscribe();
+        return System.nanoTime() - start;
+    }
+
+    private static long runBinary(BinaryTransferClient client, UUID senderAccountId,
+        UUID recipientAccountId, int transfers) throws InterruptedException {
+        var permits = new Semaphore(CONCURRENCY);
+        var start = System.nanoTime();
+        for (int i = 0; i < transfers; i++) {
+            permits.acquire();
+            client.transfer(Transfer.builder()
+                .operationId(UUID.randomUUID())
+                .senderAccountId(senderAccountId)
+                .recipientAccountId(recipientAccountId)
+                .currency("EUR")
+                .amount(new BigDecimal("0.01"))
+                .status(TransferStatus.ACCEPTED)
+                .build())
+                .whenComplete((result, error) -> permits.release());
+        }
+        permits.acquire(CONCURRENCY);
+        return System.nanoTime() - start;
+    }
+
+    private static double throughput(long nanos) {
+        return MEASURED_TRANSFERS * 1_000_000_000.0 / nanos;
+    }
+
+    private UUID createFunds(String balance) {
+        var accountId = UUID.randomUUID();
+        accountFundsRepository.save(AccountFunds.builder()
+            .accountId(accountId)
+            .currency("EUR")
+            .balance(new BigDecimal(balance))
+            .build());
+        return accountId;
+    }
+}
@@ -0,0 +1,113 @@
+package com.revolut.challenge.jfr;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.revolut.challenge.repositories.AccountFundsRepository;
+import com.revolut.challenge.repositories.TransferRepository;
+import com.revolut.challenge.service.TransferService;
+import com.revolut.challenge.service.model.AccountFunds;
+import com.revolut.challenge.service.model.Transfer;
+import com.revolut.challenge.service.model.TransferStatus;
+import io.micronaut.test.annotation.MicronautTest;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import javax.inject.Inject;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@MicronautTest(transactional = false)
+class JfrRecorderTest {
+
+    @Inject
+    private JfrRecorder jfrRecorder;
+
+    @Inject
+    private TransferService transferService;
+
+    @Inject
+    private AccountFundsRepository accountFundsRepository;
+
+    @Inject
+    private TransferRepository transferRepository;
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void cleanUp() {
+        jfrRecorder.stop();
+        transferRepository.deleteAll();
+        accountFundsRepository.deleteAll();
+    }
+
+    @Test
+    void shouldRecordTransferEvents() throws IOException {
+        var senderAccountId = createFunds("10.00");
+        var recipientAccountId = createFunds("0.00");
+        var transfer = Transfer.builder()
+            .operationId(UUID.randomUUID())
+            .senderAccountId(senderAccountId)
+            .recipientAccountId(recipientAccountId)
+            .amount(new BigDecimal("2.50"))
+            .currency("EUR")
+            .status(TransferStatus.ACCEPTED)
+            .build();
+        jfrRecorder.start();
+
+        transferService.processTransfer(transfer);
+        transferService.processTransfer(transfer);
+
+        var events = readEvents(jfrRecorder.dump());
+        assertThat(events)
+            .filteredOn(event -> isOfType(event, "Transfer"))
+            .hasSize(2)
+            .allSatisfy(event -> {
+                assertThat(event.getString("senderAccountId"))
+                    .isEqualTo(senderAccountId.toString());
+                assertThat(event.getString("amount")).isEqualTo("2.50");
+                assertThat(event.getString("outcome")).isEqualTo("OK");
+            });
+        assertThat(events)
+            .filteredOn(event -> isOfType(event, "TransferReplay"))
+            .hasSize(1);
+        assertThat(events)
+            .filteredOn(event -> isOfType(event, "AccountLock"))
+            .isNotEmpty();
+        assertThat(events)
+            .filteredOn(event -> isOfType(event, "RepositoryCall"))
+            .extracting(event -> event.getString("method"))
+            .contains("transferFunds");
+    }
+
+    @Test
+    void shouldNotDumpWithoutRecording() {
+        assertThat(jfrRecorder.dump()).isNull();
+    }
+
+    private List<RecordedEvent> readEvents(byte[] recording) throws IOException {
+        var file = directory.resolve("recording.jfr");
+        Files.write(file, recording);
+        return RecordingFile.readAllEvents(file);
+    }
+
+    private static boolean isOfType(RecordedEvent event, String name) {
+        return event.getEventType().getName().equals("com.revolut.challenge." + name);
+    }
+
+    private UUID createFunds(String balance) {
+        var accountId = UUID.randomUUID();
+        accountFundsRepository.save(AccountFunds.builder()
+            .accountId(accountId)
+            .currency("EUR")
+            .balance(new BigDecimal(balance))
+            .build());
+        return accountId;
+    }
+}
@@ -0,0 +1,60 @@
+package com.revolut.challenge.logging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class CompactJsonEncoderTest {
+
+    private final LoggerContext context = new LoggerContext();
+    private final CompactJsonEncoder encoder = new CompactJsonEncoder();
+
+    @Test
+    void shouldEncodeFormattedMessageAsSingleLine() {
+        var event = buildEvent("Transfer \"{}\"\nfailed", null, "abc");
+
+        var json = encode(event);
+
+        assertThat(json)
+            .startsWith("{\"timestamp\":\"1970-01-01T00:00:01Z\",\"level\":\"INFO\","
+                + "\"thread\":\"main\",\"logger\":\"test\",")
+            .contains("\"message\":\"Transfer \\\"abc\\\"\\nfailed\"")
+            .endsWith("}\n");
+        assertThat(json.lines()).hasSize(1);
+    }
+
+    @Test
+    void shouldWriteStructuredArgumentsAsFields() {
+        StructuredArgument argument = writer -> writer
+            .field("operationId", "op")
+            .field("latencyMicros", 42);
+        var event = buildEvent("Transfer {}", null, argument);
+
+        assertThat(encode(event))
+            .contains("\"message\":\"Transfer {}\",\"operationId\":\"op\",\"latencyMicros\":42");
+    }
+
+    @Test
+    void shouldWriteStackTrace() {
+        var event = buildEvent("Failure", new IllegalStateException("boom"));
+
+        assertThat(encode(event))
+            .contains("\"exception\":\"java.lang.IllegalStateException: boom\\n\\tat ");
+    }
+
+    private LoggingEvent buildEvent(String message, Throwable throwable, Object... arguments) {
+        var event = new LoggingEvent(CompactJsonEncoderTest.class.getName(),
+            context.getLogger("test"), Level.INFO, message, throwable, arguments);
+        event.setTimeStamp(1000);
+        event.setThreadName("main");
+        return event;
+    }
+
+    private String encode(LoggingEvent event) {
+        return new String(encoder.encode(event), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,103 @@
+package com.revolut.challenge.logging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class NonBlockingAsyncAppenderTest {
+
+    private final LoggerContext context = new LoggerContext();
+    private final CountDownLatch writing = new CountDownLatch(1);
+    private final CountDownLatch released = new CountDownLatch(1);
+    private final ListAppender<ILoggingEvent> target = new StallingListAppender();
+    private final NonBlockingAsyncAppender appender = new NonBlockingAsyncAppender();
+    private final Logger logger = context.getLogger("test");
+
+    @AfterEach
+    void tearDown() {
+        released.countDown();
+        context.stop();
+    }
+
+    @Test
+    void shouldDropEventsWhenQueueIsFull() throws InterruptedException {
+        start(DropPolicy.DROP);
+        logger.info("first");
+        //the worker is stuck writing the first event
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+
+        for (int i = 0; i < 5; i++) {
+            logger.error("event {}", i);
+        }
+        released.countDown();
+        appender.stop();
+
+        assertThat(appender.getDroppedEvents()).isEqualTo(3);
+        assertThat(target.list)
+            .extracting(ILoggingEvent::getFormattedMessage)
+            .containsExactly("first", "event 0", "event 1",
+                "Dropped 3 log events, the queue was full");
+    }
+
+    @Test
+    void shouldWaitForRoomForWarnings() throws InterruptedException {
+        start(DropPolicy.DROP_BELOW_WARN);
+        logger.info("first");
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+        logger.info("second");
+        logger.info("third");
+
+        logger.info("dropped");
+        var warning = new Thread(() -> logger.warn("warning"));
+        warning.start();
+        warning.join(100);
+        assertThat(warning.isAlive()).isTrue();
+        released.countDown();
+        warning.join(5000);
+        appender.stop();
+
+        assertThat(appender.getDroppedEvents()).isEqualTo(1);
+        assertThat(target.list)
+            .extracting(ILoggingEvent::getFormattedMessage)
+            .containsSubsequence("first", "second", "third", "warning")
+            .contains("Dropped 1 log events, the queue was full")
+            .doesNotContain("dropped");
+    }
+
+    private void start(DropPolicy dropPolicy) {
+        target.setContext(context);
+        target.start();
+        appender.setContext(context);
+        appender.setName("test");
+        appender.setCapacity(2);
+        appender.setDropPolicy(dropPolicy);
+        appender.addAppender(target);
+        appender.start();
+        logger.setAdditive(false);
+        logger.addAppender(appender);
+    }
+
+    /**
+     * Blocks on the first event until the test releases it, so that the queue fills up.
+     */
+    private class StallingListAppender extends ListAppender<ILoggingEvent> {
+
+        @Override
+        protected void append(ILoggingEvent event) {
+            super.append(event);
+            writing.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
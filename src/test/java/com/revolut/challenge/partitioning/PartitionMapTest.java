@@ -0,0 +1,54 @@
+package com.revolut.challenge.partitioning;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+import java.util.UUID;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class PartitionMapTest {
+
+    private static final String[] INSTANCES = {
+        "http://localhost:8080", "http://localhost:8082", "http://localhost:8084"
+    };
+
+    @Test
+    void shouldOwnEverythingIfDisabled() {
+        var partitionMap = new PartitionMap(false, INSTANCES, 1);
+
+        assertThat(partitionMap.isLocal(UUID.randomUUID())).isTrue();
+    }
+
+    @Test
+    void shouldSpreadAccountsEvenly() {
+        var partitionMap = new PartitionMap(true, INSTANCES, 0);
+        var accountsByOwner = new int[INSTANCES.length];
+
+        IntStream.range(0, 30_000)
+            .forEach(i -> accountsByOwner[partitionMap.ownerOf(UUID.randomUUID())]++);
+
+        for (var accounts : accountsByOwner) {
+            assertThat(accounts).isBetween(9_000, 11_000);
+        }
+    }
+
+    @Test
+    void shouldAgreeOnOwnersAcrossInstances() {
+        var firstInstance = new PartitionMap(true, INSTANCES, 0);
+        var secondInstance = new PartitionMap(true, INSTANCES, 1);
+        var accountId = UUID.randomUUID();
+
+        var owner = firstInstance.ownerOf(accountId);
+
+        assertThat(secondInstance.ownerOf(accountId)).isEqualTo(owner);
+        assertThat(firstInstance.isLocal(accountId)).isEqualTo(owner == 0);
+        assertThat(secondInstance.isLocal(accountId)).isEqualTo(owner == 1);
+    }
+
+    @Test
+    void shouldRejectInstanceIndexOutsideTheList() {
+        assertThat(catchThrowableOfType(() -> new PartitionMap(true, INSTANCES, 3),
+            IllegalArgumentException.class)).isNotNull();
+    }
+}
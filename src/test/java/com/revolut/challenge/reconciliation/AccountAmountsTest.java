@@ -0,0 +1,69 @@
+package com.revolut.challenge.reconciliation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class AccountAmountsTest {
+
+    @Test
+    void shouldSumAmountsPerAccount() {
+        var accountAmounts = new AccountAmounts();
+        var expected = new HashMap<UUID, Long>();
+
+        for (int i = 0; i < 10_000; i++) {
+            var accountId = new UUID(i % 1000, -(i % 1000));
+            accountAmounts.add(accountId.getMostSignificantBits(),
+                accountId.getLeastSignificantBits(), i);
+            expected.merge(accountId, (long) i, Long::sum);
+        }
+
+        assertThat(accountAmounts.size()).isEqualTo(1000);
+        expected.forEach((accountId, amount) -> assertThat(accountAmounts
+            .get(accountId.getMostSignificantBits(), accountId.getLeastSignificantBits()))
+            .isEqualTo(amount));
+        assertThat(accountAmounts.get(1, 1)).isZero();
+    }
+
+    @Test
+    void shouldAddAllAmountsOfAnotherMap() {
+        var first = new AccountAmounts();
+        first.add(1, 1, 100);
+        first.add(2, 2, -50);
+        var second = new AccountAmounts();
+        second.add(2, 2, 50);
+        second.add(3, 3, 7);
+
+        first.addAll(second);
+
+        assertThat(first.size()).isEqualTo(3);
+        assertThat(first.get(1, 1)).isEqualTo(100);
+        assertThat(first.get(2, 2)).isZero();
+        assertThat(first.get(3, 3)).isEqualTo(7);
+    }
+
+    @Test
+    void shouldReadWhatItHasWritten() throws IOException {
+        var accountAmounts = new AccountAmounts();
+        for (int i = 0; i < 100; i++) {
+            accountAmounts.add(i, i * 31L, i - 50);
+        }
+        var bytes = new ByteArrayOutputStream();
+        accountAmounts.writeTo(new DataOutputStream(bytes));
+
+        var readAmounts = AccountAmounts.readFrom(
+            new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertThat(readAmounts.size()).isEqualTo(100);
+        for (int i = 0; i < 100; i++) {
+            assertThat(readAmounts.get(i, i * 31L)).isEqualTo(i - 50);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.revolut.challenge.reconciliation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.revolut.challenge.repositories.AccountFundsRepository;
+import com.revolut.challenge.repositories.TransferRepository;
+import com.revolut.challenge.service.TransferService;
+import com.revolut.challenge.service.model.AccountFunds;
+import com.revolut.challenge.service.model.Transfer;
+import com.revolut.challenge.service.model.TransferStatus;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.test.annotation.MicronautTest;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+import javax.inject.Inject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+@MicronautTest(transactional = false)
+@Property(name = "reconciliation.enabled", value = "true")
+@Property(name = "reconciliation.directory", value = LedgerReconciliationTest.DIRECTORY)
+@Property(name = "reconciliation.chunk-size", value = "2")
+@Property(name = "reconciliation.max-rows-per-second", value = "0")
+class LedgerReconciliationTest {
+
+    static final String DIRECTORY = "build/reconciliation-test";
+
+    private final UUID senderAccountId = UUID.randomUUID();
+    private final UUID recipientAccountId = UUID.randomUUID();
+
+    @Inject
+    private LedgerReconciliation ledgerReconciliation;
+
+    @Inject
+    private TransferService transferService;
+
+    @Inject
+    private AccountFundsRepository accountFundsRepository;
+
+    @Inject
+    private TransferRepository transferRepository;
+
+    @AfterEach
+    void cleanUp() {
+        transferRepository.deleteAll();
+        accountFundsRepository.deleteAll();
+    }
+
+    @Test
+    void shouldAgreeWithTransfers() {
+        createFunds(senderAccountId, "10.00");
+        createFunds(recipientAccountId, "5.00");
+        for (int i = 0; i < 5; i++) {
+            transferService.processTransfer(buildTransfer("1.25"));
+        }
+        assertThat(transferService.processTransfer(buildTransfer("100.00")).getStatus())
+            .isEqualTo(TransferStatus.REJECTED);
+
+        ledgerReconciliation.reconcile();
+        var report = ledgerReconciliation.reconcile();
+
+        assertThat(report.isResumed()).isFalse();
+        assertThat(report.getTransfersScanned()).isGreaterThanOrEqualTo(5);
+        assertThat(report.getMismatches())
+            .extracting(AccountMismatch::getAccountId)
+            .doesNotContain(senderAccountId, recipientAccountId);
+    }
+
+    @Test
+    void shouldReportAccountsThatDisagreeInTwoRuns() {
+        createFunds(senderAccountId, "10.00");
+        createFunds(recipientAccountId, "5.00");
+        transferService.processTransfer(buildTransfer("2.00"));
+        accountFundsRepository.updateBalances(Map.of(recipientAccountId, new BigDecimal("0.01")));
+
+        var firstReport = ledgerReconciliation.reconcile();
+        var secondReport = ledgerReconciliation.reconcile();
+
+        assertThat(firstReport.getSuspectCount()).isPositive();
+        assertThat(firstReport.getMismatches())
+            .extracting(AccountMismatch::getAccountId)
+            .doesNotContain(recipientAccountId);
+        assertThat(secondReport.getMismatches()).contains(AccountMismatch.builder()
+            .accountId(recipientAccountId)
+            .balanceChange(new BigDecimal("2.01"))
+            .transferredAmount(new BigDecimal("2.00"))
+            .build());
+        assertThat(secondReport.getMismatches())
+            .extracting(AccountMismatch::getAccountId)
+            .doesNotContain(senderAccountId);
+    }
+
+    @Test
+    void shouldResumeFromCheckpoint() {
+        createFunds(senderAccountId, "10.00");
+        createFunds(recipientAccountId, "5.00");
+        var firstTransfer = transferService.processTransfer(buildTransfer("1.00"));
+        transferService.processTransfer(buildTransfer("2.00"));
+        ledgerReconciliation.reconcile();
+        //as if a run had been interrupted right after the first transfer
+        var movements = new AccountAmounts();
+        movements.add(senderAccountId.getMostSignificantBits(),
+            senderAccountId.getLeastSignificantBits(), -100);
+        movements.add(recipientAccountId.getMostSignificantBits(),
+            recipientAccountId.getLeastSignificantBits(), 100);
+        new ReconciliationCheckpoint(firstTransfer.getId() + 1, 1, movements)
+            .save(Path.of(DIRECTORY, "checkpoint.bin"));
+
+        var report = ledgerReconciliation.reconcile();
+
+        assertThat(report.isResumed()).isTrue();
+        assertThat(report.getTransfersScanned()).isEqualTo(2);
+        assertThat(report.getMismatches())
+            .extracting(AccountMismatch::getAccountId)
+            .doesNotContain(senderAccountId, recipientAccountId);
+        assertThat(ledgerReconciliation.reconcile().isResumed()).isFalse();
+    }
+
+    private Transfer buildTransfer(String amount) {
+        return Transfer.builder()
+            .operationId(UUID.randomUUID())
+            .senderAccountId(senderAccountId)
+            .recipientAccountId(recipientAccountId)
+            .amount(new BigDecimal(amount))
+            .currency("EUR")
+            .status(TransferStatus.ACCEPTED)
+            .build();
+    }
+
+    private void createFunds(UUID accountId, String balance) {
+        accountFundsRepository.save(AccountFunds.builder()
+            .accountId(accountId)
+            .currency("EUR")
+            .balance(new BigDecimal(balance))
+            .build());
+    }
+}
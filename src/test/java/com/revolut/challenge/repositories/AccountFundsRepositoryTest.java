@@ -6,6 +6,8 @@ import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import com.revolut.challenge.service.model.AccountFunds;
 import io.micronaut.test.annotation.MicronautTest;
 import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import javax.inject.Inject;
 import org.junit.jupiter.api.AfterEach;
@@ -69,6 +71,68 @@ class AccountFundsRepositoryTest {
         assertThat(accountBalance(recipientAccountId)).isEqualTo("0.00");
     }
 
+    @Test
+    void shouldGetAllAccountsForUpdate() {
+        createFunds(senderAccountId, "100.0");
+        createFunds(recipientAccountId, "0.0");
+        assertThat(accountFundsRepository
+            .getAllForUpdate(List.of(senderAccountId, recipientAccountId, senderAccountId))
+        ).containsOnlyKeys(senderAccountId, recipientAccountId);
+    }
+
+    @Test
+    void shouldNotGetAllAccountsForUpdateIfAnyIsNotFound() {
+        createFunds(senderAccountId, "100.0");
+        assertThatExceptionOfType(AccountFundsNotFoundException.class)
+            .isThrownBy(() ->
+                accountFundsRepository
+                    .getAllForUpdate(List.of(senderAccountId, recipientAccountId)))
+            .withMessageContaining(recipientAccountId.toString());
+    }
+
+    @Test
+    void shouldUpdateBalances() {
+        createFunds(senderAccountId, "100.0");
+        createFunds(recipientAccountId, "0.0");
+        accountFundsRepository.updateBalances(Map.of(
+            senderAccountId, new BigDecimal("-10.01"),
+            recipientAccountId, new BigDecimal("10.01")));
+        assertThat(accountBalance(senderAccountId)).isEqualTo("89.99");
+        assertThat(accountBalance(recipientAccountId)).isEqualTo("10.01");
+    }
+
+    @Test
+    void shouldTransferFundsOptimistically() {
+        createFunds(senderAccountId, "100.0");
+        createFunds(recipientAccountId, "0.0");
+        assertThat(accountFundsRepository.transferFundsOptimistically(senderAccountId,
+            recipientAccountId, new BigDecimal("60.00"), BigDecimal.ZERO)
+        ).isTrue();
+        assertThat(accountBalance(senderAccountId)).isEqualTo("40.00");
+        assertThat(accountBalance(recipientAccountId)).isEqualTo("60.00");
+        assertThat(accountFundsRepository.getById(senderAccountId).getVersion()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotTransferOptimisticallyIfSenderHasInsufficientUnreservedFunds() {
+        createFunds(senderAccountId, "100.0");
+        createFunds(recipientAccountId, "0.0");
+        assertThat(accountFundsRepository.transferFundsOptimistically(senderAccountId,
+            recipientAccountId, new BigDecimal("60.00"), new BigDecimal("40.01"))
+        ).isFalse();
+        assertThat(accountBalance(senderAccountId)).isEqualTo("100.00");
+        assertThat(accountFundsRepository.getById(senderAccountId).getVersion()).isZero();
+    }
+
+    @Test
+    void shouldIncrementVersionOnPessimisticTransfer() {
+        createFunds(senderAccountId, "100.0");
+        createFunds(recipientAccountId, "0.0");
+        accountFundsRepository
+            .transferFunds(senderAccountId, recipientAccountId, new BigDecimal("1.00"));
+        assertThat(accountFundsRepository.getById(recipientAccountId).getVersion()).isEqualTo(1);
+    }
+
     @Test
     void shouldThrowIfAccountFundsNotFound() {
         assertThatExceptionOfType(AccountFundsNotFoundException.class)
@@ -0,0 +1,106 @@
+package com.revolut.challenge.repositories.archive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.revolut.challenge.service.model.Transfer;
+import com.revolut.challenge.service.model.TransferStatus;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TransferArchiveTest {
+
+    private static final LocalDate DAY = LocalDate.of(2019, 12, 1);
+
+    private final UUID accountId = UUID.randomUUID();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldFindArchivedTransferByOperationId() {
+        var transfers = buildTransfers(1, 1000);
+        new TransferArchive(true, directory.toString()).archive(DAY, transfers);
+
+        //a new instance reads the segments from the directory
+        var archive = new TransferArchive(true, directory.toString());
+
+        assertThat(archive.findByOperationId(transfers.get(500).getOperationId()))
+            .contains(transfers.get(500));
+        assertThat(archive.findByOperationId(UUID.randomUUID())).isEmpty();
+    }
+
+    @Test
+    void shouldFindOperationIdsOnceTheArchiveOutgrowsItsFilter() {
+        var archive = new TransferArchive(true, directory.toString());
+        var transfers = new ArrayList<Transfer>();
+        for (long fromId = 1; fromId < 3000; fromId += 1000) {
+            var segment = buildTransfers(fromId, fromId + 999);
+            archive.archive(DAY, segment);
+            transfers.addAll(segment);
+        }
+        var reopenedArchive = new TransferArchive(true, directory.toString());
+
+        for (var transfer : transfers) {
+            assertThat(archive.findByOperationId(transfer.getOperationId())).contains(transfer);
+            assertThat(reopenedArchive.containsOperationId(transfer.getOperationId())).isTrue();
+        }
+        assertThat(archive.containsOperationId(UUID.randomUUID())).isFalse();
+    }
+
+    @Test
+    void shouldFindArchivedTransfersByAccountAcrossSegments() {
+        var archive = new TransferArchive(true, directory.toString());
+        var firstSegment = buildTransfers(1, 10);
+        var secondSegment = buildTransfers(11, 20);
+        archive.archive(DAY, firstSegment);
+        archive.archive(DAY.plusDays(1), secondSegment);
+
+        assertThat(archive.findByAccountId(accountId))
+            .containsExactly(firstSegment.get(0), secondSegment.get(0));
+        assertThat(archive.findByAccountId(UUID.randomUUID())).isEmpty();
+    }
+
+    @Test
+    void shouldKnowArchivedIds() {
+        var archive = new TransferArchive(true, directory.toString());
+        archive.archive(DAY, buildTransfers(5, 10));
+
+        assertThat(archive.containsId(5)).isTrue();
+        assertThat(archive.containsId(10)).isTrue();
+        assertThat(archive.containsId(11)).isFalse();
+    }
+
+    @Test
+    void shouldBeEmptyIfDisabled() {
+        new TransferArchive(true, directory.toString()).archive(DAY, buildTransfers(1, 10));
+
+        assertThat(new TransferArchive(false, directory.toString()).findByAccountId(accountId))
+            .isEmpty();
+    }
+
+    /**
+     * Only the first transfer of the range involves {@link #accountId}.
+     */
+    private List<Transfer> buildTransfers(long fromId, long toId) {
+        return LongStream.rangeClosed(fromId, toId)
+            .mapToObj(id -> Transfer.builder()
+                .id(id)
+                .operationId(UUID.randomUUID())
+                .senderAccountId(id == fromId ? accountId : UUID.randomUUID())
+                .recipientAccountId(UUID.randomUUID())
+                .currency("EUR")
+                .amount(new BigDecimal(id + ".15"))
+                .createdAt(DAY.atStartOfDay().plusSeconds(id).plusNanos(123_456_000))
+                .status(id % 2 == 0 ? TransferStatus.OK : TransferStatus.REJECTED)
+                .build())
+            .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,71 @@
+package com.revolut.challenge.repositories.faults;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import com.revolut.challenge.repositories.AccountFundsRepository;
+import com.revolut.challenge.service.model.AccountFunds;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.test.annotation.MicronautTest;
+import java.math.BigDecimal;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTimeoutException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import javax.inject.Inject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+@MicronautTest(transactional = false)
+@Property(name = "fault-injection.enabled", value = "true")
+@Property(name = "fault-injection.lock-timeout", value = "50ms")
+@Property(name = "fault-injection.select-for-update.lock-timeout-rate", value = "1")
+@Property(name = "fault-injection.update.connection-failure-rate", value = "1")
+class FaultInjectionTest {
+
+    @Inject
+    private AccountFundsRepository accountFundsRepository;
+
+    @AfterEach
+    void cleanUp() {
+        accountFundsRepository.deleteAll();
+    }
+
+    @Test
+    void shouldTimeOutLockingReadsAfterTheLockTimeout() {
+        var accountId = createFunds("10.00");
+
+        var start = System.nanoTime();
+        var error = catchThrowable(() -> accountFundsRepository.getAllForUpdate(
+            List.of(accountId)));
+
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(50_000_000);
+        assertThat(error).hasRootCauseInstanceOf(SQLTimeoutException.class);
+        //plain reads are unharmed
+        assertThat(accountFundsRepository.getById(accountId).getBalance())
+            .isEqualByComparingTo("10.00");
+    }
+
+    @Test
+    void shouldRollBackTransactionsOfBrokenConnections() {
+        var accountId = createFunds("10.00");
+
+        var error = catchThrowable(() -> accountFundsRepository.updateBalances(
+            Map.of(accountId, new BigDecimal("5.00"))));
+
+        assertThat(error).hasRootCauseInstanceOf(SQLNonTransientConnectionException.class);
+        assertThat(accountFundsRepository.getById(accountId).getBalance())
+            .isEqualByComparingTo("10.00");
+    }
+
+    private UUID createFunds(String balance) {
+        var accountId = UUID.randomUUID();
+        accountFundsRepository.save(AccountFunds.builder()
+            .accountId(accountId)
+            .currency("EUR")
+            .balance(new BigDecimal(balance))
+            .build());
+        return accountId;
+    }
+}
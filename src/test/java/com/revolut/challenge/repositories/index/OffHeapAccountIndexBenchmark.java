@@ -0,0 +1,103 @@
+package com.revolut.challenge.repositories.index;
+
+import static com.revolut.challenge.TestConstants.BENCHMARK_TAG;
+
+import com.revolut.challenge.service.model.AccountFunds;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the memory footprint and the lookup latency of the off-heap account index with a
+ * {@link HashMap} of {@link AccountFunds}. The number of accounts can be raised with the
+ * {@code benchmark.accounts} system property, 100M accounts take about 4.3 GB off heap.
+ */
+@Tag(BENCHMARK_TAG)
+class OffHeapAccountIndexBenchmark {
+
+    private static final int ACCOUNTS = Integer.getInteger("benchmark.accounts", 2_000_000);
+    private static final int LOOKUPS = 10_000_000;
+
+    @Test
+    void compareFootprintAndLookups() {
+        var seed = ThreadLocalRandom.current().nextLong();
+
+        var heapBefore = usedHeap();
+        var index = OffHeapAccountIndex.withExpectedAccounts(ACCOUNTS);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            index.putIfNewer(buildAccount(accountId(seed, i)));
+        }
+        var indexHeap = usedHeap() - heapBefore;
+        var indexNanos = lookUp(seed,
+            accountId -> index.getBalanceCents(accountId.getMostSignificantBits(),
+                accountId.getLeastSignificantBits()));
+        System.out.printf("Off-heap index: %,d bytes off heap and %,d on heap, %.1f bytes per "
+                + "account, %.1f ns per lookup%n", index.getMemoryFootprint(), indexHeap,
+            (double) (index.getMemoryFootprint() + indexHeap) / ACCOUNTS,
+            (double) indexNanos / LOOKUPS);
+
+        heapBefore = usedHeap();
+        Map<UUID, AccountFunds> map = new HashMap<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            var account = buildAccount(accountId(seed, i));
+            map.put(account.getAccountId(), account);
+        }
+        var mapHeap = usedHeap() - heapBefore;
+        var mapNanos = lookUp(seed, accountId -> map.get(accountId).getBalance().unscaledValue()
+            .longValue());
+        System.out.printf("HashMap: %,d bytes on heap, %.1f bytes per account, %.1f ns per "
+            + "lookup%n", mapHeap, (double) mapHeap / ACCOUNTS, (double) mapNanos / LOOKUPS);
+    }
+
+    private static long lookUp(long seed, BalanceLookup lookup) {
+        var random = ThreadLocalRandom.current();
+        var checksum = 0L;
+        //the first round warms up the lookup
+        var start = 0L;
+        for (int round = 0; round < 2; round++) {
+            start = System.nanoTime();
+            for (int i = 0; i < LOOKUPS; i++) {
+                checksum += lookup.getBalance(accountId(seed, random.nextInt(ACCOUNTS)));
+            }
+        }
+        var nanos = System.nanoTime() - start;
+        if (checksum == 42) {
+            System.out.println("Unlikely checksum");
+        }
+        return nanos;
+    }
+
+    /**
+     * Derives the account IDs from their numbers, so that the lookups don't need a list of IDs.
+     */
+    private static UUID accountId(long seed, long accountNumber) {
+        return new UUID(seed ^ accountNumber * 0x9e3779b97f4a7c15L, accountNumber + 1);
+    }
+
+    private static AccountFunds buildAccount(UUID accountId) {
+        return AccountFunds.builder()
+            .accountId(accountId)
+            .balance(BigDecimal.valueOf(accountId.getLeastSignificantBits() % 1_000_000, 2))
+            .currency("EUR")
+            .version(0L)
+            .build();
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        var runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @FunctionalInterface
+    private interface BalanceLookup {
+
+        long getBalance(UUID accountId);
+    }
+}
@@ -0,0 +1,96 @@
+package com.revolut.challenge.repositories.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.revolut.challenge.service.model.AccountFunds;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class OffHeapAccountIndexTest {
+
+    @Test
+    void shouldStoreAndReadAccount() {
+        var index = OffHeapAccountIndex.withExpectedAccounts(100);
+        var account = buildAccount(UUID.randomUUID(), "123.45", "GBP", 7);
+
+        assertThat(index.putIfNewer(account)).isTrue();
+
+        assertThat(index.get(account.getAccountId())).isEqualTo(account);
+        assertThat(index.getBalanceCents(account.getAccountId().getMostSignificantBits(),
+            account.getAccountId().getLeastSignificantBits())).isEqualTo(12345);
+        assertThat(index.get(UUID.randomUUID())).isNull();
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotReplaceNewerVersion() {
+        var index = OffHeapAccountIndex.withExpectedAccounts(100);
+        var accountId = UUID.randomUUID();
+        index.putIfNewer(buildAccount(accountId, "10.00", "EUR", 2));
+
+        assertThat(index.putIfNewer(buildAccount(accountId, "20.00", "EUR", 1))).isFalse();
+        assertThat(index.putIfNewer(buildAccount(accountId, "30.00", "EUR", 3))).isTrue();
+
+        assertThat(index.get(accountId).getBalance()).isEqualTo("30.00");
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldKeepCollidingAccountsReachableAfterRemoval() {
+        //a single small segment makes the probe sequences overlap
+        var index = OffHeapAccountIndex.withExpectedAccounts(48, 1);
+        var accounts = new ArrayList<AccountFunds>();
+        for (int i = 0; i < 48; i++) {
+            var account = buildAccount(UUID.randomUUID(), i + ".00", "USD", i);
+            accounts.add(account);
+            assertThat(index.putIfNewer(account)).isTrue();
+        }
+
+        for (int i = 0; i < accounts.size(); i += 2) {
+            index.remove(accounts.get(i).getAccountId());
+        }
+
+        for (int i = 0; i < accounts.size(); i++) {
+            var account = accounts.get(i);
+            assertThat(index.get(account.getAccountId())).isEqualTo(i % 2 == 0 ? null : account);
+        }
+        assertThat(index.size()).isEqualTo(24);
+    }
+
+    @Test
+    void shouldNotStoreAccountsBeyondCapacity() {
+        var index = OffHeapAccountIndex.withExpectedAccounts(48, 1);
+        for (int i = 0; i < index.getCapacity(); i++) {
+            assertThat(index.putIfNewer(buildAccount(UUID.randomUUID(), "1.00", "EUR", 0)))
+                .isTrue();
+        }
+
+        assertThat(index.putIfNewer(buildAccount(UUID.randomUUID(), "1.00", "EUR", 0))).isFalse();
+        assertThat(index.getMemoryFootprint()).isEqualTo(64 * OffHeapAccountIndex.SLOT_SIZE);
+    }
+
+    @Test
+    void shouldNotStoreAccountsThatDoNotFitIntoSlot() {
+        var index = OffHeapAccountIndex.withExpectedAccounts(100);
+
+        assertThat(index.putIfNewer(buildAccount(UUID.randomUUID(), "1.001", "EUR", 0)))
+            .isFalse();
+        assertThat(index.putIfNewer(
+            buildAccount(UUID.randomUUID(), "100000000000000000000.00", "EUR", 0))).isFalse();
+        assertThat(index.putIfNewer(buildAccount(UUID.randomUUID(), "1.00", "eur", 0))).isFalse();
+        assertThat(index.putIfNewer(buildAccount(new UUID(0, 0), "1.00", "EUR", 0))).isFalse();
+        assertThat(index.size()).isZero();
+    }
+
+    private static AccountFunds buildAccount(UUID accountId, String balance, String currency,
+        long version) {
+        return AccountFunds.builder()
+            .accountId(accountId)
+            .balance(new BigDecimal(balance))
+            .currency(currency)
+            .version(version)
+            .build();
+    }
+}
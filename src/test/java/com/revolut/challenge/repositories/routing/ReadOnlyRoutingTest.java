@@ -0,0 +1,68 @@
+package com.revolut.challenge.repositories.routing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.revolut.challenge.repositories.AccountFundsRepository;
+import com.revolut.challenge.service.model.AccountFunds;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.test.annotation.MicronautTest;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.UUID;
+import javax.inject.Inject;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+@MicronautTest(transactional = false)
+//an H2 session variable telling the connections of the read pool apart
+@Property(name = "datasources.read.connection-init-sql", value = "SET @POOL = 'read'")
+class ReadOnlyRoutingTest {
+
+    @Inject
+    private ReadOnlyRouting readOnlyRouting;
+
+    @Inject
+    private DataSource dataSource;
+
+    @Inject
+    private AccountFundsRepository accountFundsRepository;
+
+    @AfterEach
+    void cleanUp() {
+        accountFundsRepository.deleteAll();
+    }
+
+    @Test
+    void shouldTakeReadOnlyConnectionsFromTheReadPool() {
+        assertThat(readOnlyRouting.execute(this::getPool)).isEqualTo("read");
+        assertThat(getPool()).isNull();
+        //a read nested in another one is routed the same way
+        assertThat(readOnlyRouting.execute(() -> readOnlyRouting.execute(this::getPool)))
+            .isEqualTo("read");
+    }
+
+    @Test
+    void shouldReadCommittedRowsFromTheReadPool() {
+        var accountId = UUID.randomUUID();
+        accountFundsRepository.save(AccountFunds.builder()
+            .accountId(accountId)
+            .currency("EUR")
+            .balance(new BigDecimal("10.00"))
+            .build());
+
+        assertThat(readOnlyRouting.execute(() -> accountFundsRepository.getById(accountId))
+            .getBalance()).isEqualByComparingTo("10.00");
+    }
+
+    private String getPool() {
+        try (var connection = dataSource.getConnection();
+            var statement = connection.createStatement();
+            var resultSet = statement.executeQuery("SELECT @POOL")) {
+            resultSet.next();
+            return resultSet.getString(1);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
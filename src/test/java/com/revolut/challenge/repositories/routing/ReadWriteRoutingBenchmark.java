@@ -0,0 +1,168 @@
+package com.revolut.challenge.repositories.routing;
+
+import static com.revolut.challenge.TestConstants.BENCHMARK_TAG;
+
+import com.revolut.challenge.repositories.AccountFundsRepository;
+import com.revolut.challenge.repositories.TransferRepository;
+import com.revolut.challenge.service.TransferService;
+import com.revolut.challenge.service.model.AccountFunds;
+import com.revolut.challenge.service.model.Transfer;
+import com.revolut.challenge.service.model.TransferStatus;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.test.annotation.MicronautTest;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import javax.inject.Inject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the latency of balance reads taken from the pool of the transfers with reads routed
+ * to the read pool, while many more transfers than the write pool has connections for are made
+ * on a few hot accounts.
+ */
+@MicronautTest(transactional = false)
+@Tag(BENCHMARK_TAG)
+@Property(name = "datasources.default.maximum-pool-size", value = "4")
+@Property(name = "datasources.read.maximum-pool-size", value = "4")
+class ReadWriteRoutingBenchmark {
+
+    private static final int ACCOUNTS = 4;
+    private static final int WRITERS = 32;
+    private static final int READERS = 4;
+    private static final int WARM_UP_READS = 500;
+    private static final int MEASURED_READS = 5_000;
+
+    @Inject
+    private ReadOnlyRouting readOnlyRouting;
+
+    @Inject
+    private TransferService transferService;
+
+    @Inject
+    private AccountFundsRepository accountFundsRepository;
+
+    @Inject
+    private TransferRepository transferRepository;
+
+    @AfterEach
+    void cleanUp() {
+        transferRepository.deleteAll();
+        accountFundsRepository.deleteAll();
+    }
+
+    @Test
+    void compareReadLatencyUnderWriteSaturation() throws Exception {
+        var accountIds = new ArrayList<UUID>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountIds.add(createFunds());
+        }
+        var writing = new AtomicBoolean(true);
+        var writers = Executors.newFixedThreadPool(WRITERS);
+        var readers = Executors.newFixedThreadPool(READERS);
+        try {
+            for (int i = 0; i < WRITERS; i++) {
+                writers.execute(() -> {
+                    while (writing.get()) {
+                        transfer(accountIds);
+                    }
+                });
+            }
+            measureReads(readers, accountIds, WARM_UP_READS, false);
+            var sharedNanos = measureReads(readers, accountIds, MEASURED_READS, false);
+            measureReads(readers, accountIds, WARM_UP_READS, true);
+            var routedNanos = measureReads(readers, accountIds, MEASURED_READS, true);
+            print("Write pool", sharedNanos);
+            print("Read pool ", routedNanos);
+        } finally {
+            writing.set(false);
+            writers.shutdown();
+            readers.shutdown();
+            writers.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * @return the latency of every read in nanoseconds, sorted
+     */
+    private long[] measureReads(ExecutorService readers, List<UUID> accountIds, int reads,
+        boolean routed) throws Exception {
+        var futures = new ArrayList<Future<long[]>>();
+        for (int i = 0; i < READERS; i++) {
+            futures.add(readers.submit(() -> {
+                var latencies = new long[reads / READERS];
+                for (int j = 0; j < latencies.length; j++) {
+                    var accountId = accountIds.get(j % accountIds.size());
+                    Supplier<AccountFunds> read = () -> accountFundsRepository.getById(accountId);
+                    var start = System.nanoTime();
+                    if (routed) {
+                        readOnlyRouting.execute(read);
+                    } else {
+                        read.get();
+                    }
+                    latencies[j] = System.nanoTime() - start;
+                }
+                return latencies;
+            }));
+        }
+        var latencies = new long[0];
+        for (var future : futures) {
+            var readerLatencies = future.get();
+            var offset = latencies.length;
+            latencies = Arrays.copyOf(latencies, offset + readerLatencies.length);
+            System.arraycopy(readerLatencies, 0, latencies, offset, readerLatencies.length);
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private void transfer(List<UUID> accountIds) {
+        var random = ThreadLocalRandom.current();
+        var sender = random.nextInt(accountIds.size());
+        var recipient = (sender + 1 + random.nextInt(accountIds.size() - 1)) % accountIds.size();
+        try {
+            transferService.processTransfer(Transfer.builder()
+                .operationId(UUID.randomUUID())
+                .senderAccountId(accountIds.get(sender))
+                .recipientAccountId(accountIds.get(recipient))
+                .amount(new BigDecimal("0.01"))
+                .currency("EUR")
+                .status(TransferStatus.ACCEPTED)
+                .build());
+        } catch (RuntimeException e) {
+            //timeouts and shed load are part of the saturation
+        }
+    }
+
+    private static void print(String name, long[] latencies) {
+        System.out.printf("%s: p50 %,d us, p99 %,d us, max %,d us%n", name,
+            percentile(latencies, 0.5), percentile(latencies, 0.99),
+            latencies[latencies.length - 1] / 1000);
+    }
+
+    private static long percentile(long[] sortedNanos, double percentile) {
+        var index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(index, 0)] / 1000;
+    }
+
+    private UUID createFunds() {
+        var accountId = UUID.randomUUID();
+        accountFundsRepository.save(AccountFunds.builder()
+            .accountId(accountId)
+            .currency("EUR")
+            .balance(new BigDecimal("1000000000.00"))
+            .build());
+        return accountId;
+    }
+}
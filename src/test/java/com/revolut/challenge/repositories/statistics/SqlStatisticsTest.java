@@ -0,0 +1,94 @@
+package com.revolut.challenge.repositories.statistics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.revolut.challenge.repositories.AccountFundsRepository;
+import com.revolut.challenge.service.model.AccountFunds;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.test.annotation.MicronautTest;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import javax.inject.Inject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+@MicronautTest(transactional = false)
+@Property(name = "sql-statistics.slow-threshold", value = "0ms")
+@Property(name = "sql-statistics.slow-query-capacity", value = "3")
+class SqlStatisticsTest {
+
+    @Inject
+    private SqlStatistics sqlStatistics;
+
+    @Inject
+    private AccountFundsRepository accountFundsRepository;
+
+    @BeforeEach
+    void setUp() {
+        sqlStatistics.reset();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        accountFundsRepository.deleteAll();
+    }
+
+    @Test
+    void shouldCollectStatisticsByStatementShape() {
+        var accountIds = List.of(createFunds("10.00"), createFunds("0.00"), createFunds("0.00"));
+
+        accountFundsRepository.getAllForUpdate(accountIds.subList(0, 2));
+        accountFundsRepository.getAllForUpdate(accountIds);
+        accountFundsRepository.transferFunds(accountIds.get(0), accountIds.get(1),
+            new BigDecimal("1.00"));
+
+        var lookups = sqlStatistics.getStatements().stream()
+            .filter(statement -> statement.getStatement()
+                .startsWith("SELECT * FROM account_funds WHERE account_id IN (?, ...)"))
+            .findFirst()
+            .orElseThrow();
+        assertThat(lookups.getExecutions()).isEqualTo(2);
+        assertThat(lookups.getRows()).isEqualTo(5);
+        assertThat(lookups.getP99Millis()).isGreaterThanOrEqualTo(lookups.getP50Millis());
+        assertThat(sqlStatistics.getStatements())
+            .filteredOn(statement -> statement.getStatement()
+                .startsWith("UPDATE account_funds SET balance = balance"))
+            .extracting(SqlStatistics.StatementSummary::getRows)
+            .containsOnly(1L);
+    }
+
+    @Test
+    void shouldKeepOnlyLatestSlowQueries() {
+        for (int i = 0; i < 5; i++) {
+            createFunds("1.00");
+        }
+
+        assertThat(sqlStatistics.getSlowQueries())
+            .hasSize(3)
+            .allSatisfy(slowQuery -> assertThat(slowQuery.getStatement())
+                .isEqualTo("INSERT INTO account_funds "
+                    + "(account_id, balance, currency, opening_balance) VALUES (?, ...)"));
+    }
+
+    @Test
+    void shouldNormalizeStatementShapes() {
+        assertThat(SqlStatistics.toShape("SELECT *\n  FROM t WHERE id IN (?, ?,?) AND x = ?"))
+            .isEqualTo("SELECT * FROM t WHERE id IN (?, ...) AND x = ?");
+        assertThat(SqlStatistics.toShape("SELECT * FROM t1 WHERE x IN (1, 2.5) LIMIT 10"))
+            .isEqualTo("SELECT * FROM t1 WHERE x IN (?, ...) LIMIT ?");
+        assertThat(SqlStatistics.toShape("SET LOCK_TIMEOUT 1234"))
+            .isEqualTo("SET LOCK_TIMEOUT ?");
+    }
+
+    private UUID createFunds(String balance) {
+        var accountId = UUID.randomUUID();
+        accountFundsRepository.save(AccountFunds.builder()
+            .accountId(accountId)
+            .currency("EUR")
+            .balance(new BigDecimal(balance))
+            .build());
+        return accountId;
+    }
+}
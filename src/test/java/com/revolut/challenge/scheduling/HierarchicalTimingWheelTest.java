@@ -0,0 +1,63 @@
+package com.revolut.challenge.scheduling;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class HierarchicalTimingWheelTest {
+
+    private final HierarchicalTimingWheel<Long> wheel = new HierarchicalTimingWheel<>(10, 8, 0);
+
+    @Test
+    void shouldPassItemsOnOnceTheyAreDue() {
+        wheel.add(25, 25L);
+        wheel.add(5, 5L);
+
+        assertThat(advance(4)).isEmpty();
+        assertThat(advance(5)).containsExactly(5L);
+        assertThat(advance(24)).isEmpty();
+        assertThat(advance(30)).containsExactly(25L);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void shouldMoveItemsDownFromTheOverflowWheels() {
+        var random = new Random(42);
+        var dueTimes = new ArrayList<Long>();
+        for (int i = 0; i < 1_000; i++) {
+            var dueMillis = 1 + (long) random.nextInt(100_000);
+            dueTimes.add(dueMillis);
+            wheel.add(dueMillis, dueMillis);
+        }
+
+        for (long now = 0; now <= 100_000; now += 1 + random.nextInt(50)) {
+            for (var item : advance(now)) {
+                //never early, and at most one step late
+                assertThat(item).isLessThanOrEqualTo(now).isGreaterThan(now - 50);
+                dueTimes.remove(item);
+            }
+        }
+        dueTimes.removeAll(advance(100_000));
+
+        assertThat(dueTimes).isEmpty();
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void shouldRefuseItemsThatAreAlreadyDue() {
+        advance(100);
+
+        assertThat(wheel.add(100, 100L)).isFalse();
+        assertThat(wheel.add(101, 101L)).isTrue();
+        assertThat(wheel.size()).isOne();
+    }
+
+    private List<Long> advance(long nowMillis) {
+        var dueItems = new ArrayList<Long>();
+        wheel.advance(nowMillis, dueItems::add);
+        return dueItems;
+    }
+}
@@ -0,0 +1,70 @@
+package com.revolut.challenge.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micronaut.data.exceptions.DataAccessException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldRejectRequestsAboveTheLimit() {
+        var limiter = new AdaptiveConcurrencyLimiter(meterRegistry, 1, 1, 10, 3, clock::get);
+
+        var exception = catchThrowableOfType(
+            () -> limiter.execute(() -> limiter.execute(() -> "nested")),
+            ServiceOverloadedException.class);
+
+        assertThat(exception.getRetryAfterSeconds()).isEqualTo(3);
+        assertThat(meterRegistry.get("transfers.concurrency.rejected").counter().count())
+            .isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldGrowTheLimitOnlyUpToTwiceTheLoadWhileLatencyIsStable() {
+        var limiter = new AdaptiveConcurrencyLimiter(meterRegistry, 1, 1, 10, 1, clock::get);
+
+        for (int i = 0; i < 50; i++) {
+            limiter.execute(() -> clock.addAndGet(1_000_000));
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(2);
+        assertThat(meterRegistry.get("transfers.concurrency.limit").gauge().value())
+            .isEqualTo(2.0);
+    }
+
+    @Test
+    void shouldShrinkTheLimitWhenLatencyGrows() {
+        var limiter = new AdaptiveConcurrencyLimiter(meterRegistry, 50, 1, 100, 1, clock::get);
+        for (int i = 0; i < 100; i++) {
+            limiter.execute(() -> clock.addAndGet(1_000_000));
+        }
+        var stableLimit = limiter.getLimit();
+
+        for (int i = 0; i < 10; i++) {
+            limiter.execute(() -> clock.addAndGet(10_000_000));
+        }
+
+        assertThat(limiter.getLimit()).isLessThan(stableLimit);
+    }
+
+    @Test
+    void shouldBackOffOnDatabaseTimeouts() {
+        var limiter = new AdaptiveConcurrencyLimiter(meterRegistry, 10, 1, 10, 1, clock::get);
+
+        assertThatExceptionOfType(DataAccessException.class)
+            .isThrownBy(() -> limiter.execute(() -> {
+                throw new DataAccessException("Lock timeout", new SQLTimeoutException());
+            }));
+
+        assertThat(limiter.getLimit()).isEqualTo(9);
+    }
+}
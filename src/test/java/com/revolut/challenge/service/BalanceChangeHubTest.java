@@ -0,0 +1,116 @@
+package com.revolut.challenge.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.revolut.challenge.service.model.BalanceChange;
+import com.revolut.challenge.service.model.Transfer;
+import com.revolut.challenge.service.model.TransferStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.reactivex.Flowable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class BalanceChangeHubTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final BalanceChangeHub hub = new BalanceChangeHub(meterRegistry, List.of(), 2);
+    private final UUID senderAccountId = UUID.randomUUID();
+    private final UUID recipientAccountId = UUID.randomUUID();
+
+    @Test
+    void shouldFanOutChangesToSubscribersOfTheAccounts() {
+        var senderSubscriber = Flowable.fromPublisher(hub.subscribe(Set.of(senderAccountId)))
+            .test();
+        var bothSubscriber = Flowable.fromPublisher(
+            hub.subscribe(Set.of(senderAccountId, recipientAccountId))).test();
+        var otherSubscriber = Flowable.fromPublisher(hub.subscribe(Set.of(UUID.randomUUID())))
+            .test();
+
+        var transfer = buildTransfer("1.50");
+        hub.publish(transfer);
+
+        senderSubscriber.assertValues(BalanceChange.builder()
+            .accountId(senderAccountId)
+            .operationId(transfer.getOperationId())
+            .amount(new BigDecimal("-1.50"))
+            .currency("EUR")
+            .createdAt(transfer.getCreatedAt())
+            .build());
+        bothSubscriber.assertValueCount(2);
+        otherSubscriber.assertNoValues();
+    }
+
+    @Test
+    void shouldBufferChangesUntilTheyAreRequested() {
+        var subscriber = Flowable.fromPublisher(hub.subscribe(Set.of(recipientAccountId)))
+            .test(0);
+
+        hub.publish(buildTransfer("1.00"));
+        hub.publish(buildTransfer("2.00"));
+        subscriber.assertNoValues();
+
+        subscriber.requestMore(1);
+        subscriber.assertValueCount(1);
+        subscriber.requestMore(5);
+        subscriber.assertValueCount(2).assertNotComplete();
+    }
+
+    @Test
+    void shouldNotPublishWithheldChanges() {
+        var subscriber = Flowable.fromPublisher(hub.subscribe(Set.of(recipientAccountId)))
+            .test();
+
+        hub.runWithheld(() -> hub.publish(buildTransfer("1.00")));
+        subscriber.assertNoValues();
+
+        hub.publish(buildTransfer("2.00"));
+        subscriber.assertValueCount(1);
+    }
+
+    @Test
+    void shouldEvictSlowSubscribers() {
+        var slowSubscriber = Flowable.fromPublisher(hub.subscribe(Set.of(recipientAccountId)))
+            .test(0);
+        var fastSubscriber = Flowable.fromPublisher(hub.subscribe(Set.of(recipientAccountId)))
+            .test();
+
+        for (int i = 0; i < 3; i++) {
+            hub.publish(buildTransfer("1.00"));
+        }
+
+        slowSubscriber.assertNoValues().assertComplete();
+        fastSubscriber.assertValueCount(3).assertNotComplete();
+        assertThat(hub.getSubscriptionCount()).isEqualTo(1);
+        assertThat(meterRegistry.get("balance-changes.evictions").counter().count())
+            .isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldUnsubscribeCancelledSubscribers() {
+        var subscriber = Flowable.fromPublisher(hub.subscribe(Set.of(recipientAccountId)))
+            .test();
+
+        subscriber.cancel();
+        hub.publish(buildTransfer("1.00"));
+
+        subscriber.assertNoValues();
+        assertThat(hub.getSubscriptionCount()).isZero();
+    }
+
+    private Transfer buildTransfer(String amount) {
+        return Transfer.builder()
+            .operationId(UUID.randomUUID())
+            .senderAccountId(senderAccountId)
+            .recipientAccountId(recipientAccountId)
+            .amount(new BigDecimal(amount))
+            .currency("EUR")
+            .status(TransferStatus.OK)
+            .createdAt(LocalDateTime.now(ZoneOffset.UTC))
+            .build();
+    }
+}
@@ -0,0 +1,183 @@
+package com.revolut.challenge.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+import com.revolut.challenge.repositories.AccountFundsNotFoundException;
+import com.revolut.challenge.repositories.AccountFundsRepository;
+import com.revolut.challenge.repositories.TransferRepository;
+import com.revolut.challenge.service.model.AccountFunds;
+import com.revolut.challenge.service.model.BalanceChange;
+import com.revolut.challenge.service.model.Transfer;
+import com.revolut.challenge.service.model.TransferStatus;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.test.annotation.MicronautTest;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.inject.Inject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+@MicronautTest(transactional = false)
+@Property(name = "read-model.enabled", value = "true")
+@Property(name = "read-model.refresh-interval", value = "1h")
+class BalanceReadModelTest {
+
+    private final UUID senderAccountId = UUID.randomUUID();
+    private final UUID recipientAccountId = UUID.randomUUID();
+
+    @Inject
+    private BalanceReadModel balanceReadModel;
+
+    @Inject
+    private TransferService transferService;
+
+    @Inject
+    private AccountFundsRepository accountFundsRepository;
+
+    @Inject
+    private TransferRepository transferRepository;
+
+    @AfterEach
+    void cleanUp() {
+        transferRepository.deleteAll();
+        accountFundsRepository.deleteAll();
+    }
+
+    @Test
+    void shouldServeBalancesFromMemory() {
+        createFunds(senderAccountId, "10.00");
+        assertThat(balanceReadModel.getById(senderAccountId).getAccountFunds().getBalance())
+            .isEqualByComparingTo("10.00");
+
+        //not made by a transfer, so the model isn't told
+        accountFundsRepository.updateBalances(Map.of(senderAccountId, new BigDecimal("5.00")));
+
+        var balanceView = balanceReadModel.getById(senderAccountId);
+        assertThat(balanceView.getAccountFunds().getBalance()).isEqualByComparingTo("10.00");
+        assertThat(balanceView.getStalenessMillis()).isZero();
+    }
+
+    @Test
+    void shouldRefreshBalancesChangedByTransfers() {
+        createFunds(senderAccountId, "10.00");
+        createFunds(recipientAccountId, "0.00");
+        balanceReadModel.getById(senderAccountId);
+
+        assertThat(transferService.processTransfer(buildTransfer("3.00")).getStatus())
+            .isEqualTo(TransferStatus.OK);
+        assertThat(balanceReadModel.getById(senderAccountId).getAccountFunds().getBalance())
+            .isEqualByComparingTo("10.00");
+        //read for the first time after the transfer
+        assertThat(balanceReadModel.getById(recipientAccountId).getAccountFunds().getBalance())
+            .isEqualByComparingTo("3.00");
+
+        balanceReadModel.refresh();
+
+        var balanceView = balanceReadModel.getById(senderAccountId);
+        assertThat(balanceView.getAccountFunds().getBalance()).isEqualByComparingTo("7.00");
+        assertThat(balanceView.getStalenessMillis()).isZero();
+    }
+
+    @Test
+    void shouldReportStalenessUntilRefreshed() {
+        var now = new AtomicLong(1000);
+        var readModel = new BalanceReadModel(accountFundsRepository, true, 10, 100,
+            Duration.ofSeconds(10), now::get);
+        createFunds(senderAccountId, "10.00");
+        readModel.getById(senderAccountId);
+
+        now.set(1200);
+        accountFundsRepository.updateBalances(Map.of(senderAccountId, new BigDecimal("-4.00")));
+        readModel.onBalanceChange(BalanceChange.builder()
+            .accountId(senderAccountId)
+            .operationId(UUID.randomUUID())
+            .amount(new BigDecimal("-4.00"))
+            .currency("EUR")
+            .createdAt(LocalDateTime.now(ZoneOffset.UTC))
+            .build());
+        now.set(1500);
+
+        var balanceView = readModel.getById(senderAccountId);
+        assertThat(balanceView.getAccountFunds().getBalance()).isEqualByComparingTo("10.00");
+        assertThat(balanceView.getStalenessMillis()).isEqualTo(300);
+
+        readModel.refresh();
+
+        balanceView = readModel.getById(senderAccountId);
+        assertThat(balanceView.getAccountFunds().getBalance()).isEqualByComparingTo("6.00");
+        assertThat(balanceView.getStalenessMillis()).isZero();
+    }
+
+    @Test
+    void shouldEvictIdleAccounts() {
+        var now = new AtomicLong(1000);
+        var readModel = new BalanceReadModel(accountFundsRepository, true, 10, 100,
+            Duration.ofSeconds(10), now::get);
+        createFunds(senderAccountId, "10.00");
+        createFunds(recipientAccountId, "0.00");
+        readModel.getById(senderAccountId);
+        readModel.getById(recipientAccountId);
+
+        now.set(9000);
+        readModel.getById(senderAccountId);
+        now.set(12000);
+        readModel.evictIdle();
+        accountFundsRepository.updateBalances(Map.of(senderAccountId, new BigDecimal("1.00"),
+            recipientAccountId, new BigDecimal("1.00")));
+
+        //the evicted account is read again
+        assertThat(readModel.getById(senderAccountId).getAccountFunds().getBalance())
+            .isEqualByComparingTo("10.00");
+        assertThat(readModel.getById(recipientAccountId).getAccountFunds().getBalance())
+            .isEqualByComparingTo("1.00");
+    }
+
+    @Test
+    void shouldReadAccountsBeyondTheLimitFromTheDatabase() {
+        var readModel = new BalanceReadModel(accountFundsRepository, true, 10, 1,
+            Duration.ofSeconds(10), System::currentTimeMillis);
+        createFunds(senderAccountId, "10.00");
+        createFunds(recipientAccountId, "0.00");
+        readModel.getById(senderAccountId);
+        readModel.getById(recipientAccountId);
+
+        accountFundsRepository.updateBalances(Map.of(senderAccountId, new BigDecimal("1.00"),
+            recipientAccountId, new BigDecimal("1.00")));
+
+        assertThat(readModel.getById(senderAccountId).getAccountFunds().getBalance())
+            .isEqualByComparingTo("10.00");
+        assertThat(readModel.getById(recipientAccountId).getAccountFunds().getBalance())
+            .isEqualByComparingTo("1.00");
+    }
+
+    @Test
+    void shouldFailForUnknownAccount() {
+        assertThat(catchThrowableOfType(() -> balanceReadModel.getById(UUID.randomUUID()),
+            AccountFundsNotFoundException.class)).isNotNull();
+    }
+
+    private Transfer buildTransfer(String amount) {
+        return Transfer.builder()
+            .operationId(UUID.randomUUID())
+            .senderAccountId(senderAccountId)
+            .recipientAccountId(recipientAccountId)
+            .amount(new BigDecimal(amount))
+            .currency("EUR")
+            .status(TransferStatus.ACCEPTED)
+            .build();
+    }
+
+    private void createFunds(UUID accountId, String balance) {
+        accountFundsRepository.save(AccountFunds.builder()
+            .accountId(accountId)
+            .currency("EUR")
+            .balance(new BigDecimal(balance))
+            .build());
+    }
+}
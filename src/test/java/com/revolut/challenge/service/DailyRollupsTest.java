@@ -0,0 +1,125 @@
+package com.revolut.challenge.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.revolut.challenge.repositories.AccountFundsRepository;
+import com.revolut.challenge.repositories.DailyRollupRepository;
+import com.revolut.challenge.repositories.TransferRepository;
+import com.revolut.challenge.service.model.AccountFunds;
+import com.revolut.challenge.service.model.Transfer;
+import com.revolut.challenge.service.model.TransferStatus;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.test.annotation.MicronautTest;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import javax.inject.Inject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+@MicronautTest(transactional = false)
+@Property(name = "daily-rollups.enabled", value = "true")
+@Property(name = "daily-rollups.flush-interval", value = "1h")
+class DailyRollupsTest {
+
+    private final UUID senderAccountId = UUID.randomUUID();
+    private final UUID recipientAccountId = UUID.randomUUID();
+
+    @Inject
+    private DailyRollups dailyRollups;
+
+    @Inject
+    private TransferService transferService;
+
+    @Inject
+    private DailyRollupRepository dailyRollupRepository;
+
+    @Inject
+    private AccountFundsRepository accountFundsRepository;
+
+    @Inject
+    private TransferRepository transferRepository;
+
+    @AfterEach
+    void cleanUp() {
+        dailyRollupRepository.deleteAll();
+        transferRepository.deleteAll();
+        accountFundsRepository.deleteAll();
+    }
+
+    @Test
+    void shouldAddCommittedTransfersToTheDayOnFlush() {
+        createFunds(senderAccountId, "100.00");
+        createFunds(recipientAccountId, "0.00");
+        var today = LocalDate.now(ZoneOffset.UTC);
+
+        transferService.processTransfer(buildTransfer(senderAccountId, recipientAccountId, "30.00"));
+        transferService.processTransfer(buildTransfer(senderAccountId, recipientAccountId, "20.00"));
+        //rejected, so not counted
+        transferService.processTransfer(buildTransfer(senderAccountId, recipientAccountId, "80.00"));
+        assertThat(dailyRollups.getRollups(senderAccountId, today, today)).isEmpty();
+        dailyRollups.flush();
+        //updates the stored rollups
+        transferService.processTransfer(buildTransfer(recipientAccountId, senderAccountId, "5.00"));
+        dailyRollups.flush();
+
+        var senderRollups = dailyRollups.getRollups(senderAccountId, today.minusDays(7), today);
+        assertThat(senderRollups).hasSize(1);
+        assertThat(senderRollups.get(0).getDay()).isEqualTo(today);
+        assertThat(senderRollups.get(0).getInflow()).isEqualByComparingTo("5.00");
+        assertThat(senderRollups.get(0).getOutflow()).isEqualByComparingTo("50.00");
+        assertThat(senderRollups.get(0).getTransferCount()).isEqualTo(3);
+        var recipientRollups = dailyRollups.getRollups(recipientAccountId, today, today);
+        assertThat(recipientRollups).hasSize(1);
+        assertThat(recipientRollups.get(0).getInflow()).isEqualByComparingTo("50.00");
+        assertThat(recipientRollups.get(0).getOutflow()).isEqualByComparingTo("5.00");
+        assertThat(recipientRollups.get(0).getTransferCount()).isEqualTo(3);
+        assertThat(dailyRollups.getRollups(senderAccountId, today.minusDays(7),
+            today.minusDays(1))).isEmpty();
+    }
+
+    @Test
+    void shouldRebuildTheRollupsFromTheTransfers() {
+        createFunds(senderAccountId, "100.00");
+        createFunds(recipientAccountId, "0.00");
+        var today = LocalDate.now(ZoneOffset.UTC);
+        transferService.processTransfer(buildTransfer(senderAccountId, recipientAccountId, "30.00"));
+        dailyRollups.flush();
+        dailyRollupRepository.deleteAll();
+        transferService.processTransfer(buildTransfer(senderAccountId, recipientAccountId, "20.00"));
+
+        dailyRollups.rebuild(today.minusDays(1), today);
+        //the unflushed delta is part of the rebuilt rollup, so it isn't added again
+        dailyRollups.flush();
+
+        var senderRollups = dailyRollups.getRollups(senderAccountId, today, today);
+        assertThat(senderRollups).hasSize(1);
+        assertThat(senderRollups.get(0).getInflow()).isEqualByComparingTo("0.00");
+        assertThat(senderRollups.get(0).getOutflow()).isEqualByComparingTo("50.00");
+        assertThat(senderRollups.get(0).getTransferCount()).isEqualTo(2);
+        var recipientRollups = dailyRollups.getRollups(recipientAccountId, today, today);
+        assertThat(recipientRollups).hasSize(1);
+        assertThat(recipientRollups.get(0).getInflow()).isEqualByComparingTo("50.00");
+        assertThat(recipientRollups.get(0).getTransferCount()).isEqualTo(2);
+    }
+
+    private Transfer buildTransfer(UUID senderAccountId, UUID recipientAccountId, String amount) {
+        return Transfer.builder()
+            .operationId(UUID.randomUUID())
+            .senderAccountId(senderAccountId)
+            .recipientAccountId(recipientAccountId)
+            .amount(new BigDecimal(amount))
+            .currency("EUR")
+            .status(TransferStatus.ACCEPTED)
+            .build();
+    }
+
+    private void createFunds(UUID accountId, String balance) {
+        accountFundsRepository.save(AccountFunds.builder()
+            .accountId(accountId)
+            .currency("EUR")
+            .balance(new BigDecimal(balance))
+            .build());
+    }
+}
@@ -0,0 +1,168 @@
+package com.revolut.challenge.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+import com.revolut.challenge.repositories.AccountFundsRepository;
+import com.revolut.challenge.repositories.HoldRepository;
+import com.revolut.challenge.repositories.TransferRepository;
+import com.revolut.challenge.service.model.AccountFunds;
+import com.revolut.challenge.service.model.Hold;
+import com.revolut.challenge.service.model.HoldStatus;
+import com.revolut.challenge.service.model.Transfer;
+import com.revolut.challenge.service.model.TransferStatus;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.test.annotation.MicronautTest;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import javax.inject.Inject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+@MicronautTest(transactional = false)
+@Property(name = "holds.sweep-interval", value = "1h")
+@Property(name = "transfer-checks.blocked-accounts", value = HoldServiceTest.BLOCKED_ACCOUNT_ID)
+class HoldServiceTest {
+
+    static final String BLOCKED_ACCOUNT_ID = "6a3cbbb2-5cf1-4e3f-9a4c-0b7c1f0d2e11";
+
+    private final UUID accountId = UUID.randomUUID();
+    private final UUID merchantAccountId = UUID.randomUUID();
+
+    @Inject
+    private HoldService holdService;
+
+    @Inject
+    private TransferService transferService;
+
+    @Inject
+    private HoldRepository holdRepository;
+
+    @Inject
+    private AccountFundsRepository accountFundsRepository;
+
+    @Inject
+    private TransferRepository transferRepository;
+
+    @BeforeEach
+    void createFunds() {
+        createFunds(accountId, "100.00");
+        createFunds(merchantAccountId, "0.00");
+    }
+
+    @AfterEach
+    void cleanUp() {
+        holdRepository.deleteAll();
+        transferRepository.deleteAll();
+        accountFundsRepository.deleteAll();
+    }
+
+    @Test
+    void shouldSpendOnlyTheAvailableBalance() {
+        var hold = holdService.authorize(buildHold("80.00", null));
+
+        assertThat(hold.getStatus()).isEqualTo(HoldStatus.AUTHORIZED);
+        assertThat(holdService.authorize(buildHold("30.00", null)).getStatus())
+            .isEqualTo(HoldStatus.DECLINED);
+        assertThat(transferService.processTransfer(buildTransfer("30.00")).getStatus())
+            .isEqualTo(TransferStatus.REJECTED);
+        assertThat(transferService.processTransfer(buildTransfer("20.00")).getStatus())
+            .isEqualTo(TransferStatus.OK);
+        //authorizing again returns the same hold without holding more
+        assertThat(holdService.authorize(hold).getStatus()).isEqualTo(HoldStatus.AUTHORIZED);
+        assertThat(accountFundsRepository.getById(accountId).getHeld())
+            .isEqualByComparingTo("80.00");
+    }
+
+    @Test
+    void shouldTransferCapturedAmountAndReleaseTheRest() {
+        var hold = holdService.authorize(buildHold("80.00", null));
+
+        var captured = holdService.capture(hold.getHoldId(), merchantAccountId,
+            new BigDecimal("50.00")).orElseThrow();
+
+        assertThat(captured.getStatus()).isEqualTo(HoldStatus.CAPTURED);
+        var account = accountFundsRepository.getById(accountId);
+        assertThat(account.getBalance()).isEqualByComparingTo("50.00");
+        assertThat(account.getHeld()).isEqualByComparingTo("0.00");
+        assertThat(accountFundsRepository.getById(merchantAccountId).getBalance())
+            .isEqualByComparingTo("50.00");
+        //captured once
+        assertThat(holdService.capture(hold.getHoldId(), merchantAccountId,
+            new BigDecimal("50.00"))).contains(captured);
+        assertThat(catchThrowableOfType(() -> holdService.voidHold(hold.getHoldId()),
+            HoldNotAuthorizedException.class)).isNotNull();
+        assertThat(accountFundsRepository.getById(merchantAccountId).getBalance())
+            .isEqualByComparingTo("50.00");
+    }
+
+    @Test
+    void shouldReleaseVoidedAndExpiredHolds() {
+        var voided = holdService.authorize(buildHold("30.00", null));
+        var expired = holdService.authorize(buildHold("40.00",
+            LocalDateTime.now(ZoneOffset.UTC).minusMinutes(1)));
+        holdService.authorize(buildHold("20.00", null));
+
+        assertThat(holdService.voidHold(voided.getHoldId()).orElseThrow().getStatus())
+            .isEqualTo(HoldStatus.VOIDED);
+        holdService.expireHolds();
+
+        assertThat(holdService.findById(expired.getHoldId()).orElseThrow().getStatus())
+            .isEqualTo(HoldStatus.EXPIRED);
+        var account = accountFundsRepository.getById(accountId);
+        assertThat(account.getBalance()).isEqualByComparingTo("100.00");
+        assertThat(account.getAvailableBalance()).isEqualByComparingTo("80.00");
+        assertThat(catchThrowableOfType(() -> holdService.capture(expired.getHoldId(),
+            merchantAccountId, new BigDecimal("40.00")), HoldNotAuthorizedException.class))
+            .isNotNull();
+    }
+
+    @Test
+    void shouldNotHoldFundsOfBlockedAccounts() {
+        var blockedAccountId = UUID.fromString(BLOCKED_ACCOUNT_ID);
+        createFunds(blockedAccountId, "100.00");
+
+        assertThat(catchThrowableOfType(() -> holdService.authorize(
+            buildHold(blockedAccountId, "10.00", null)), TransferNotAllowedException.class))
+            .isNotNull();
+        assertThat(accountFundsRepository.getById(blockedAccountId).getHeld())
+            .isEqualByComparingTo("0.00");
+    }
+
+    private Hold buildHold(String amount, LocalDateTime expiresAt) {
+        return buildHold(accountId, amount, expiresAt);
+    }
+
+    private Hold buildHold(UUID accountId, String amount, LocalDateTime expiresAt) {
+        return Hold.builder()
+            .holdId(UUID.randomUUID())
+            .accountId(accountId)
+            .amount(new BigDecimal(amount))
+            .currency("EUR")
+            .status(HoldStatus.AUTHORIZED)
+            .expiresAt(expiresAt)
+            .build();
+    }
+
+    private Transfer buildTransfer(String amount) {
+        return Transfer.builder()
+            .operationId(UUID.randomUUID())
+            .senderAccountId(accountId)
+            .recipientAccountId(merchantAccountId)
+            .amount(new BigDecimal(amount))
+            .currency("EUR")
+            .status(TransferStatus.ACCEPTED)
+            .build();
+    }
+
+    private void createFunds(UUID accountId, String balance) {
+        accountFundsRepository.save(AccountFunds.builder()
+            .accountId(accountId)
+            .currency("EUR")
+            .balance(new BigDecimal(balance))
+            .build());
+    }
+}
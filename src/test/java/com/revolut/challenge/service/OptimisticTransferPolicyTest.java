@@ -0,0 +1,58 @@
+package com.revolut.challenge.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class OptimisticTransferPolicyTest {
+
+    private static final Duration HALF_LIFE = Duration.ofSeconds(10);
+
+    private final AtomicLong clock = new AtomicLong();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final UUID senderAccountId = UUID.randomUUID();
+    private final UUID recipientAccountId = UUID.randomUUID();
+
+    @Test
+    void shouldNotBeOptimisticIfDisabled() {
+        var policy = new OptimisticTransferPolicy(meterRegistry, false, 3, 3, HALF_LIFE,
+            clock::get);
+
+        assertThat(policy.isOptimistic(senderAccountId, recipientAccountId)).isFalse();
+    }
+
+    @Test
+    void shouldLockAccountsThatConflictOften() {
+        var policy = new OptimisticTransferPolicy(meterRegistry, true, 3, 3, HALF_LIFE,
+            clock::get);
+
+        policy.onConflict(recipientAccountId);
+        policy.onConflict(recipientAccountId);
+        assertThat(policy.isOptimistic(senderAccountId, recipientAccountId)).isTrue();
+
+        policy.onConflict(recipientAccountId);
+        assertThat(policy.isOptimistic(senderAccountId, recipientAccountId)).isFalse();
+        assertThat(policy.isOptimistic(senderAccountId, UUID.randomUUID())).isTrue();
+        assertThat(meterRegistry.get("transfers.optimistic.conflicts").counter().count())
+            .isEqualTo(3.0);
+    }
+
+    @Test
+    void shouldBeOptimisticAgainOnceTheContentionDecays() {
+        var policy = new OptimisticTransferPolicy(meterRegistry, true, 3, 3, HALF_LIFE,
+            clock::get);
+        for (int i = 0; i < 4; i++) {
+            policy.onConflict(senderAccountId);
+        }
+        assertThat(policy.isOptimistic(senderAccountId, recipientAccountId)).isFalse();
+
+        //the score of 4 halves to 2, which is below the threshold
+        clock.addAndGet(HALF_LIFE.toNanos());
+
+        assertThat(policy.isOptimistic(senderAccountId, recipientAccountId)).isTrue();
+    }
+}
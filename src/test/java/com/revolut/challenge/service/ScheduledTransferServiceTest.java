@@ -0,0 +1,163 @@
+package com.revolut.challenge.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+import com.revolut.challenge.repositories.AccountFundsRepository;
+import com.revolut.challenge.repositories.ScheduledTransferRepository;
+import com.revolut.challenge.repositories.TransferRepository;
+import com.revolut.challenge.service.model.AccountFunds;
+import com.revolut.challenge.service.model.ScheduledTransfer;
+import com.revolut.challenge.service.model.ScheduledTransferOutcome;
+import com.revolut.challenge.service.model.ScheduledTransferStatus;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.test.annotation.MicronautTest;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+import javax.inject.Inject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+@MicronautTest(transactional = false)
+@Property(name = "scheduled-transfers.tick", value = "1h")
+@Property(name = "scheduled-transfers.load-interval", value = "1h")
+@Property(name = "scheduled-transfers.max-per-second", value = "1000000")
+class ScheduledTransferServiceTest {
+
+    private final UUID senderAccountId = UUID.randomUUID();
+    private final UUID recipientAccountId = UUID.randomUUID();
+
+    @Inject
+    private ScheduledTransferService scheduledTransferService;
+
+    @Inject
+    private ScheduledTransferRepository scheduledTransferRepository;
+
+    @Inject
+    private AccountFundsRepository accountFundsRepository;
+
+    @Inject
+    private TransferRepository transferRepository;
+
+    @AfterEach
+    void cleanUp() {
+        scheduledTransferRepository.deleteAll();
+        transferRepository.deleteAll();
+        accountFundsRepository.deleteAll();
+    }
+
+    @Test
+    void shouldRunDueTransferOnce() {
+        createFunds();
+        var scheduledTransfer = buildScheduledTransfer(now().minusMinutes(1), null);
+
+        scheduledTransferService.schedule(scheduledTransfer);
+        scheduledTransferService.runDueTransfers();
+        scheduledTransferService.runDueTransfers();
+
+        var completed = scheduledTransferService.findById(scheduledTransfer.getScheduleId())
+            .orElseThrow();
+        assertThat(completed.getStatus()).isEqualTo(ScheduledTransferStatus.COMPLETED);
+        assertThat(completed.getExecutions()).isOne();
+        assertThat(completed.getLastOutcome()).isEqualTo(ScheduledTransferOutcome.OK);
+        assertThat(accountFundsRepository.getById(recipientAccountId).getBalance())
+            .isEqualByComparingTo("3.00");
+    }
+
+    @Test
+    void shouldCatchUpWithMissedRuns() {
+        createFunds();
+        var firstRunAt = now().minusDays(2).minusHours(1);
+        var scheduledTransfer = buildScheduledTransfer(firstRunAt, Period.ofDays(1));
+
+        scheduledTransferService.schedule(scheduledTransfer);
+        scheduledTransferService.runDueTransfers();
+
+        var active = scheduledTransferService.findById(scheduledTransfer.getScheduleId())
+            .orElseThrow();
+        assertThat(active.getStatus()).isEqualTo(ScheduledTransferStatus.ACTIVE);
+        assertThat(active.getExecutions()).isEqualTo(3);
+        assertThat(active.getNextRunAt()).isEqualTo(firstRunAt.plusDays(3));
+        assertThat(accountFundsRepository.getById(recipientAccountId).getBalance())
+            .isEqualByComparingTo("9.00");
+    }
+
+    @Test
+    void shouldRecoverSchedulesOnStartup() {
+        createFunds();
+        var scheduledTransfer = buildScheduledTransfer(now().minusHours(5), null);
+        //stored while the application was down
+        scheduledTransferRepository.save(scheduledTransfer);
+
+        scheduledTransferService.recover();
+        scheduledTransferService.runDueTransfers();
+
+        assertThat(scheduledTransferService.findById(scheduledTransfer.getScheduleId())
+            .orElseThrow().getStatus()).isEqualTo(ScheduledTransferStatus.COMPLETED);
+        assertThat(accountFundsRepository.getById(recipientAccountId).getBalance())
+            .isEqualByComparingTo("3.00");
+    }
+
+    @Test
+    void shouldNotRunCancelledSchedules() {
+        createFunds();
+        var scheduledTransfer = buildScheduledTransfer(now().minusMinutes(1), Period.ofDays(1));
+        scheduledTransferService.schedule(scheduledTransfer);
+
+        assertThat(scheduledTransferService.cancel(scheduledTransfer.getScheduleId())).isTrue();
+        scheduledTransferService.runDueTransfers();
+
+        assertThat(scheduledTransferService.findById(scheduledTransfer.getScheduleId())
+            .orElseThrow().getExecutions()).isZero();
+        assertThat(accountFundsRepository.getById(recipientAccountId).getBalance())
+            .isEqualByComparingTo("0.00");
+    }
+
+    @Test
+    void shouldRefuseDifferentScheduleWithTheSameId() {
+        createFunds();
+        var scheduledTransfer = buildScheduledTransfer(now().plusDays(1), null);
+        scheduledTransferService.schedule(scheduledTransfer);
+
+        assertThat(scheduledTransferService.schedule(scheduledTransfer).getScheduleId())
+            .isEqualTo(scheduledTransfer.getScheduleId());
+        assertThat(catchThrowableOfType(() -> scheduledTransferService.schedule(
+            scheduledTransfer.toBuilder().amount(new BigDecimal("4.00")).build()),
+            ConflictingTransferException.class)).isNotNull();
+    }
+
+    private ScheduledTransfer buildScheduledTransfer(LocalDateTime firstRunAt, Period recurrence) {
+        return ScheduledTransfer.builder()
+            .scheduleId(UUID.randomUUID())
+            .senderAccountId(senderAccountId)
+            .recipientAccountId(recipientAccountId)
+            .amount(new BigDecimal("3.00"))
+            .currency("EUR")
+            .firstRunAt(firstRunAt)
+            .recurrence(recurrence)
+            .nextRunAt(firstRunAt)
+            .status(ScheduledTransferStatus.ACTIVE)
+            .build();
+    }
+
+    private void createFunds() {
+        accountFundsRepository.save(AccountFunds.builder()
+            .accountId(senderAccountId)
+            .currency("EUR")
+            .balance(new BigDecimal("100.00"))
+            .build());
+        accountFundsRepository.save(AccountFunds.builder()
+            .accountId(recipientAccountId)
+            .currency("EUR")
+            .balance(new BigDecimal("0.00"))
+            .build());
+    }
+
+    private static LocalDateTime now() {
+        return LocalDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.MILLIS);
+    }
+}
@@ -2,22 +2,107 @@ package com.revolut.challenge.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
 
+import com.revolut.challenge.repositories.AccountFundsRepository;
+import com.revolut.challenge.service.model.AccountFunds;
+import io.micronaut.test.annotation.MicronautTest;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
+@MicronautTest(transactional = false)
 class TransactionHelperTest {
 
+    private final UUID accountId = UUID.randomUUID();
+
+    @Inject
+    private TransactionHelper transactionHelper;
+
+    @Inject
+    private AccountFundsRepository accountFundsRepository;
+
+    @AfterEach
+    void cleanUp() {
+        accountFundsRepository.deleteAll();
+    }
+
     @Test
     void shouldReturnTheResultOfSupplier() {
         var expectedResult = UUID.randomUUID();
-        assertThat(new TransactionHelper().getFromTransaction(() -> expectedResult))
+        assertThat(transactionHelper.getFromTransaction(() -> expectedResult))
             .isEqualTo(expectedResult);
     }
 
     @Test
     void shouldThrowIfSupplierReturnsNull() {
         assertThatExceptionOfType(IllegalStateException.class)
-            .isThrownBy(() -> new TransactionHelper().getFromTransaction(() -> null));
+            .isThrownBy(() -> transactionHelper.getFromTransaction(() -> null));
+    }
+
+    @Test
+    void shouldNotStartExpiredWork() {
+        var deadline = Deadline.after(Duration.ZERO);
+
+        var exception = catchThrowableOfType(
+            () -> transactionHelper.getFromTransaction(deadline, () -> {
+                throw new AssertionError("An expired supplier called");
+            }), DeadlineExceededException.class);
+
+        assertThat(exception.getStage()).isEqualTo(DeadlineExceededException.QUEUED);
+    }
+
+    @Test
+    void shouldStopWaitingForLocksAtTheDeadline() throws Exception {
+        accountFundsRepository.save(AccountFunds.builder()
+            .accountId(accountId)
+            .currency("EUR")
+            .balance(new BigDecimal("10.00"))
+            .build());
+        var locked = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var lockHolder = CompletableFuture.runAsync(
+            () -> transactionHelper.getFromTransaction(() -> {
+                accountFundsRepository.updateBalances(Map.of(accountId, BigDecimal.ONE));
+                locked.countDown();
+                try {
+                    return release.await(1, TimeUnit.MINUTES);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }));
+        locked.await();
+        try {
+            var startNanos = System.nanoTime();
+            var exception = catchThrowableOfType(
+                () -> transactionHelper.getFromTransaction(Deadline.after(Duration.ofMillis(200)),
+                    () -> {
+                        accountFundsRepository.updateBalances(Map.of(accountId, BigDecimal.ONE));
+                        return true;
+                    }), DeadlineExceededException.class);
+
+            assertThat(exception.getStage()).isEqualTo(DeadlineExceededException.DATABASE);
+            //well before the default lock timeout of 10 s
+            assertThat(Duration.ofNanos(System.nanoTime() - startNanos))
+                .isLessThan(Duration.ofSeconds(5));
+        } finally {
+            release.countDown();
+            lockHolder.join();
+        }
+        //the timeouts are only set for the transaction with the deadline
+        assertThat(transactionHelper.getFromTransaction(() -> {
+            accountFundsRepository.updateBalances(Map.of(accountId, BigDecimal.ONE));
+            return true;
+        })).isTrue();
+        assertThat(accountFundsRepository.getById(accountId).getBalance())
+            .isEqualByComparingTo("12.00");
     }
-}
\ No newline at end of file
+}
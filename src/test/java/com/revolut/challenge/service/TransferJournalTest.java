@@ -0,0 +1,172 @@
+package com.revolut.challenge.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+import com.revolut.challenge.repositories.AccountFundsRepository;
+import com.revolut.challenge.repositories.DuplicateOperationIdException;
+import com.revolut.challenge.repositories.TransferJournalRepository;
+import com.revolut.challenge.repositories.TransferNotFoundException;
+import com.revolut.challenge.repositories.TransferRepository;
+import com.revolut.challenge.service.model.AccountFunds;
+import com.revolut.challenge.service.model.Transfer;
+import com.revolut.challenge.service.model.TransferStatus;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.test.annotation.MicronautTest;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import javax.inject.Inject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+@MicronautTest(transactional = false)
+@Property(name = "transfer-journal.enabled", value = "true")
+@Property(name = "transfer-journal.flush-interval", value = "1h")
+@Property(name = "transfer-journal.batch-size", value = "2")
+class TransferJournalTest {
+
+    private final UUID senderAccountId = UUID.randomUUID();
+    private final UUID recipientAccountId = UUID.randomUUID();
+
+    @Inject
+    private TransferService transferService;
+
+    @Inject
+    private TransferJournal transferJournal;
+
+    @Inject
+    private TransferJournalRepository transferJournalRepository;
+
+    @Inject
+    private AccountFundsRepository accountFundsRepository;
+
+    @Inject
+    private TransferRepository transferRepository;
+
+    @AfterEach
+    void cleanUp() {
+        transferJournalRepository.deleteAll();
+        transferRepository.deleteAll();
+        accountFundsRepository.deleteAll();
+    }
+
+    @Test
+    void shouldWriteTransfersBehindTheirBalanceChanges() {
+        createFunds(senderAccountId, "10.00");
+        createFunds(recipientAccountId, "0.00");
+        var transfer = buildTransfer("3.00");
+
+        var result = transferService.processTransfer(transfer);
+
+        assertThat(result.getStatus()).isEqualTo(TransferStatus.OK);
+        assertThat(accountFundsRepository.getById(recipientAccountId).getBalance())
+            .isEqualByComparingTo("3.00");
+        assertThat(catchThrowableOfType(
+            () -> transferRepository.getByOperationId(transfer.getOperationId()),
+            TransferNotFoundException.class)).isNotNull();
+        //replayed from the journal
+        var replayedTransfer = transferService.processTransfer(transfer);
+        assertThat(replayedTransfer.getId()).isEqualTo(result.getId());
+        assertThat(replayedTransfer.getStatus()).isEqualTo(TransferStatus.OK);
+
+        transferJournal.flush();
+
+        var persistedTransfer = transferRepository.getById(result.getId());
+        assertThat(persistedTransfer.getOperationId()).isEqualTo(transfer.getOperationId());
+        assertThat(persistedTransfer.getStatus()).isEqualTo(TransferStatus.OK);
+        assertThat(transferJournalRepository.findByOperationId(transfer.getOperationId()))
+            .isEmpty();
+        assertThat(transferService.processTransfer(transfer).getId()).isEqualTo(result.getId());
+        assertThat(accountFundsRepository.getById(recipientAccountId).getBalance())
+            .isEqualByComparingTo("3.00");
+    }
+
+    @Test
+    void shouldMoveAllJournaledTransfersInBatches() {
+        createFunds(senderAccountId, "10.00");
+        createFunds(recipientAccountId, "0.00");
+        var results = List.of(
+            transferService.processTransfer(buildTransfer("1.00")),
+            transferService.processTransfer(buildTransfer("20.00")),
+            transferService.processTransfer(buildTransfer("2.00")));
+
+        transferJournal.flush();
+
+        assertThat(transferJournalRepository.getIdsAfter(0, 10)).isEmpty();
+        for (var result : results) {
+            assertThat(transferRepository.getById(result.getId()).getStatus())
+                .isEqualTo(result.getStatus());
+        }
+        assertThat(results.get(1).getStatus()).isEqualTo(TransferStatus.REJECTED);
+    }
+
+    @Test
+    void shouldKeepIdsUniqueAcrossTheJournalAndTheTransferTable() {
+        createFunds(senderAccountId, "10.00");
+        createFunds(recipientAccountId, "0.00");
+        var journaledId = transferService.processTransfer(buildTransfer("1.00")).getId();
+
+        var savedId = transferRepository.save(buildTransfer("1.00")).getId();
+
+        assertThat(savedId).isGreaterThan(journaledId);
+    }
+
+    @Test
+    void shouldNotSaveTransfersWithJournaledOperationIds() {
+        createFunds(senderAccountId, "10.00");
+        createFunds(recipientAccountId, "0.00");
+        var transfer = buildTransfer("1.00");
+        transferService.processTransfer(transfer);
+
+        assertThat(catchThrowableOfType(
+            () -> transferRepository.save(transfer.toBuilder().amount(BigDecimal.TEN).build()),
+            DuplicateOperationIdException.class)).isNotNull();
+        assertThat(catchThrowableOfType(
+            () -> transferRepository.saveAll(List.of(transfer.toBuilder()
+                .createdAt(LocalDateTime.now(ZoneId.of("UTC")))
+                .build())),
+            DuplicateOperationIdException.class)).isNotNull();
+    }
+
+    @Test
+    void shouldReadJournaledTransfersAlongWithTheTransferTable() {
+        createFunds(senderAccountId, "10.00");
+        createFunds(recipientAccountId, "0.00");
+        var savedId = transferRepository.save(buildTransfer("1.00")).getId();
+        var journaledId = transferService.processTransfer(buildTransfer("2.00")).getId();
+        var from = LocalDateTime.now(ZoneId.of("UTC")).minusMinutes(1);
+
+        assertThat(transferRepository.getMaxId()).isEqualTo(journaledId);
+        assertThat(transferRepository.getCreatedSince(from, 0, 10))
+            .extracting(Transfer::getId)
+            .containsExactly(savedId, journaledId);
+        var movedIds = new ArrayList<Long>();
+        transferRepository.forEachMovement(0, journaledId + 1,
+            (id, senderMsb, senderLsb, recipientMsb, recipientLsb, amountCents) ->
+                movedIds.add(id));
+        assertThat(movedIds).containsExactly(journaledId);
+    }
+
+    private Transfer buildTransfer(String amount) {
+        return Transfer.builder()
+            .operationId(UUID.randomUUID())
+            .senderAccountId(senderAccountId)
+            .recipientAccountId(recipientAccountId)
+            .amount(new BigDecimal(amount))
+            .currency("EUR")
+            .status(TransferStatus.ACCEPTED)
+            .build();
+    }
+
+    private void createFunds(UUID accountId, String balance) {
+        accountFundsRepository.save(AccountFunds.builder()
+            .accountId(accountId)
+            .currency("EUR")
+            .balance(new BigDecimal(balance))
+            .build());
+    }
+}
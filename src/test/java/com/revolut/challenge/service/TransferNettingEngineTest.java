@@ -0,0 +1,143 @@
+package com.revolut.challenge.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.revolut.challenge.repositories.AccountFundsRepository;
+import com.revolut.challenge.repositories.TransferRepository;
+import com.revolut.challenge.service.model.AccountFunds;
+import com.revolut.challenge.service.model.Transfer;
+import com.revolut.challenge.service.model.TransferStatus;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.test.annotation.MicronautTest;
+import java.math.BigDecimal;
+import java.util.UUID;
+import javax.inject.Inject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+@MicronautTest(transactional = false)
+@Property(name = "transfer-netting.enabled", value = "true")
+@Property(name = "transfer-netting.window", value = "1h")
+@Property(name = "transfer-netting.pairs", value = TransferNettingEngineTest.SENDER_ACCOUNT_ID
+    + ":" + TransferNettingEngineTest.RECIPIENT_ACCOUNT_ID)
+class TransferNettingEngineTest {
+
+    static final String SENDER_ACCOUNT_ID = "5d2c4a5e-2f4c-4a67-9d0e-1b7c0f2b6a11";
+    static final String RECIPIENT_ACCOUNT_ID = "8f1e7c3a-6b5d-4e2f-a1c9-3d4b5a6c7e22";
+
+    private final UUID senderAccountId = UUID.fromString(SENDER_ACCOUNT_ID);
+    private final UUID recipientAccountId = UUID.fromString(RECIPIENT_ACCOUNT_ID);
+    private final UUID otherAccountId = UUID.randomUUID();
+
+    @Inject
+    private TransferService transferService;
+
+    @Inject
+    private TransferNettingEngine nettingEngine;
+
+    @Inject
+    private AccountFundsRepository accountFundsRepository;
+
+    @Inject
+    private TransferRepository transferRepository;
+
+    @AfterEach
+    void cleanUp() {
+        nettingEngine.applyAcceptedTransfers();
+        transferRepository.deleteAll();
+        accountFundsRepository.deleteAll();
+    }
+
+    @Test
+    void shouldApplyNettedTransfersOncePerWindow() {
+        createFunds(senderAccountId, "10.00");
+        createFunds(recipientAccountId, "0.00");
+
+        var transfers = new Transfer[3];
+        for (int i = 0; i < transfers.length; i++) {
+            transfers[i] = transferService.processTransfer(
+                buildTransfer(senderAccountId, recipientAccountId, "3.00"));
+            assertThat(transfers[i].getStatus()).isEqualTo(TransferStatus.OK);
+        }
+        //the balances aren't touched until the window is applied
+        assertThat(accountBalance(senderAccountId)).isEqualTo("10.00");
+        assertThat(accountBalance(recipientAccountId)).isEqualTo("0.00");
+        assertThat(transferRepository.getById(transfers[0].getId()).getStatus())
+            .isEqualTo(TransferStatus.ACCEPTED);
+
+        nettingEngine.applyAcceptedTransfers();
+
+        assertThat(accountBalance(senderAccountId)).isEqualTo("1.00");
+        assertThat(accountBalance(recipientAccountId)).isEqualTo("9.00");
+        assertThat(transferRepository.getById(transfers[0].getId()).getStatus())
+            .isEqualTo(TransferStatus.OK);
+        assertThat(nettingEngine.getReservedFunds(senderAccountId)).isEqualTo("0");
+    }
+
+    @Test
+    void shouldRejectNettedTransferIfReservedFundsAreNotEnough() {
+        createFunds(senderAccountId, "10.00");
+        createFunds(recipientAccountId, "0.00");
+        transferService.processTransfer(
+            buildTransfer(senderAccountId, recipientAccountId, "6.00"));
+
+        var transfer = transferService.processTransfer(
+            buildTransfer(senderAccountId, recipientAccountId, "6.00"));
+
+        assertThat(transfer.getStatus()).isEqualTo(TransferStatus.REJECTED);
+        assertThat(nettingEngine.getReservedFunds(senderAccountId)).isEqualTo("6.00");
+    }
+
+    @Test
+    void shouldNotLetOtherTransfersSpendReservedFunds() {
+        createFunds(senderAccountId, "10.00");
+        createFunds(recipientAccountId, "0.00");
+        createFunds(otherAccountId, "0.00");
+        transferService.processTransfer(
+            buildTransfer(senderAccountId, recipientAccountId, "6.00"));
+
+        var transfer = transferService.processTransfer(
+            buildTransfer(senderAccountId, otherAccountId, "6.00"));
+
+        assertThat(transfer.getStatus()).isEqualTo(TransferStatus.REJECTED);
+        assertThat(accountBalance(otherAccountId)).isEqualTo("0.00");
+    }
+
+    @Test
+    void shouldReplayAcceptedNettedTransferAsSuccessful() {
+        createFunds(senderAccountId, "10.00");
+        createFunds(recipientAccountId, "0.00");
+        var transfer = buildTransfer(senderAccountId, recipientAccountId, "1.00");
+        var originalResult = transferService.processTransfer(transfer);
+
+        var result = transferService.processTransfer(transfer);
+
+        assertThat(result).isEqualTo(originalResult);
+        assertThat(result.getStatus()).isEqualTo(TransferStatus.OK);
+        assertThat(nettingEngine.getReservedFunds(senderAccountId)).isEqualTo("1.00");
+    }
+
+    private static Transfer buildTransfer(UUID senderAccountId, UUID recipientAccountId,
+        String amount) {
+        return Transfer.builder()
+            .operationId(UUID.randomUUID())
+            .senderAccountId(senderAccountId)
+            .recipientAccountId(recipientAccountId)
+            .amount(new BigDecimal(amount))
+            .currency("EUR")
+            .status(TransferStatus.ACCEPTED)
+            .build();
+    }
+
+    private void createFunds(UUID accountId, String balance) {
+        accountFundsRepository.save(AccountFunds.builder()
+            .accountId(accountId)
+            .currency("EUR")
+            .balance(new BigDecimal(balance))
+            .build());
+    }
+
+    private BigDecimal accountBalance(UUID accountId) {
+        return accountFundsRepository.getById(accountId).getBalance();
+    }
+}
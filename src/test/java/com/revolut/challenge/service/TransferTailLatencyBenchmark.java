@@ -0,0 +1,171 @@
+package com.revolut.challenge.service;
+
+import static com.revolut.challenge.TestConstants.BENCHMARK_TAG;
+
+import com.revolut.challenge.repositories.AccountFundsRepository;
+import com.revolut.challenge.service.model.AccountFunds;
+import com.revolut.challenge.service.model.Transfer;
+import com.revolut.challenge.service.model.TransferStatus;
+import io.micronaut.context.ApplicationContext;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Measures the tail latency of transfers while the database suffers injected latency, lock
+ * timeouts and broken connections, see {@code fault-injection} in application.yml. Every scenario
+ * runs in an application context and a database of its own.
+ */
+@Tag(BENCHMARK_TAG)
+class TransferTailLatencyBenchmark {
+
+    private static final int ACCOUNTS = 100;
+    private static final int CONCURRENCY = 16;
+    private static final int WARM_UP_TRANSFERS = 1_000;
+    private static final int MEASURED_TRANSFERS = 10_000;
+    private static final Duration DEADLINE = Duration.ofMillis(100);
+
+    private static final Map<String, Object> JITTER = Map.of(
+        "fault-injection.connection.median-latency", "PT0.0001S",
+        "fault-injection.connection.p99-latency", "5ms",
+        "fault-injection.select.median-latency", "PT0.0005S",
+        "fault-injection.select.p99-latency", "10ms",
+        "fault-injection.select-for-update.median-latency", "1ms",
+        "fault-injection.select-for-update.p99-latency", "25ms",
+        "fault-injection.insert.median-latency", "1ms",
+        "fault-injection.insert.p99-latency", "15ms",
+        "fault-injection.update.median-latency", "1ms",
+        "fault-injection.update.p99-latency", "15ms");
+
+    private int scenarios;
+
+    @Test
+    void measureTailLatencyUnderDatabaseFaults() throws Exception {
+        run("No faults", Map.of(), false);
+        run("Jitter", JITTER, false);
+        run("Jitter, lock timeouts", with(JITTER, Map.of(
+            "fault-injection.lock-timeout", "500ms",
+            "fault-injection.select-for-update.lock-timeout-rate", 0.002)), false);
+        run("Jitter, broken connections", with(JITTER, Map.of(
+            "fault-injection.connection.connection-failure-rate", 0.001,
+            "fault-injection.update.connection-failure-rate", 0.002)), false);
+        run("Jitter, lock timeouts, " + DEADLINE.toMillis() + "ms deadline", with(JITTER, Map.of(
+            "fault-injection.lock-timeout", "500ms",
+            "fault-injection.select-for-update.lock-timeout-rate", 0.002)), true);
+    }
+
+    private void run(String scenario, Map<String, Object> faults, boolean withDeadline)
+        throws Exception {
+        var properties = new HashMap<>(faults);
+        properties.put("fault-injection.enabled", !faults.isEmpty());
+        properties.put("datasources.default.url", "jdbc:h2:mem:tail-latency" + scenarios++
+            + ";MVCC=TRUE;LOCK_TIMEOUT=10000;DB_CLOSE_ON_EXIT=FALSE");
+        try (var context = ApplicationContext.run(properties)) {
+            var transferService = context.getBean(TransferService.class);
+            var accountIds = createAccounts(context.getBean(AccountFundsRepository.class));
+            var errors = new ConcurrentHashMap<String, LongAdder>();
+            runTransfers(transferService, accountIds, WARM_UP_TRANSFERS, withDeadline, errors);
+            errors.clear();
+            var latencies = runTransfers(transferService, accountIds, MEASURED_TRANSFERS,
+                withDeadline, errors);
+            System.out.printf("%-40s p50 %6.1f ms, p99 %6.1f ms, p999 %6.1f ms, max %6.1f ms, "
+                    + "errors %s%n", scenario, percentile(latencies, 0.5),
+                percentile(latencies, 0.99), percentile(latencies, 0.999),
+                latencies[latencies.length - 1] / 1_000_000.0, new TreeMap<>(errors));
+        }
+    }
+
+    /**
+     * @return the latencies of all the transfers, failed ones included, in nanoseconds, sorted
+     */
+    private static long[] runTransfers(TransferService transferService, List<UUID> accountIds,
+        int transfers, boolean withDeadline, Map<String, LongAdder> errors) throws Exception {
+        var executor = Executors.newFixedThreadPool(CONCURRENCY);
+        try {
+            var futures = new ArrayList<Future<long[]>>();
+            for (int i = 0; i < CONCURRENCY; i++) {
+                futures.add(executor.submit(() -> {
+                    var latencies = new long[transfers / CONCURRENCY];
+                    for (int j = 0; j < latencies.length; j++) {
+                        var transfer = buildTransfer(accountIds);
+                        var start = System.nanoTime();
+                        try {
+                            transferService.processTransfer(transfer, withDeadline
+                                ? Deadline.after(DEADLINE)
+                                : Deadline.NONE);
+                        } catch (RuntimeException e) {
+                            errors.computeIfAbsent(e.getClass().getSimpleName(),
+                                key -> new LongAdder()).increment();
+                        }
+                        latencies[j] = System.nanoTime() - start;
+                    }
+                    return latencies;
+                }));
+            }
+            var latencies = new long[0];
+            for (var future : futures) {
+                var workerLatencies = future.get();
+                var offset = latencies.length;
+                latencies = Arrays.copyOf(latencies, offset + workerLatencies.length);
+                System.arraycopy(workerLatencies, 0, latencies, offset, workerLatencies.length);
+            }
+            Arrays.sort(latencies);
+            return latencies;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static Transfer buildTransfer(List<UUID> accountIds) {
+        var random = ThreadLocalRandom.current();
+        var sender = random.nextInt(accountIds.size());
+        var recipient = (sender + 1 + random.nextInt(accountIds.size() - 1)) % accountIds.size();
+        return Transfer.builder()
+            .operationId(UUID.randomUUID())
+            .senderAccountId(accountIds.get(sender))
+            .recipientAccountId(accountIds.get(recipient))
+            .amount(new BigDecimal("0.01"))
+            .currency("EUR")
+            .status(TransferStatus.ACCEPTED)
+            .build();
+    }
+
+    private static List<UUID> createAccounts(AccountFundsRepository accountFundsRepository) {
+        var accountIds = new ArrayList<UUID>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            var accountId = UUID.randomUUID();
+            accountFundsRepository.save(AccountFunds.builder()
+                .accountId(accountId)
+                .currency("EUR")
+                .balance(new BigDecimal("1000000000.00"))
+                .build());
+            accountIds.add(accountId);
+        }
+        return accountIds;
+    }
+
+    private static double percentile(long[] sortedNanos, double percentile) {
+        var index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(index, 0)] / 1_000_000.0;
+    }
+
+    private static Map<String, Object> with(Map<String, Object> base,
+        Map<String, Object> overrides) {
+        var properties = new HashMap<>(base);
+        properties.putAll(overrides);
+        return properties;
+    }
+}
@@ -0,0 +1,141 @@
+package com.revolut.challenge.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+import com.revolut.challenge.repositories.AccountFundsNotFoundException;
+import com.revolut.challenge.repositories.AccountFundsRepository;
+import com.revolut.challenge.service.model.AccountFunds;
+import com.revolut.challenge.service.model.Transfer;
+import com.revolut.challenge.service.model.TransferStatus;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.test.annotation.MicronautTest;
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+@MicronautTest(transactional = false)
+@Property(name = "transfer-checks.blocked-accounts",
+    value = TransferValidationPipelineTest.BLOCKED_ACCOUNT_ID)
+@Property(name = "transfer-validation-pipeline-test.slow-check", value = "true")
+class TransferValidationPipelineTest {
+
+    static final String BLOCKED_ACCOUNT_ID = "3c7e1b52-9a0d-4f6e-8b21-5d4c3b2a1f00";
+
+    @Inject
+    private TransferValidationPipeline validationPipeline;
+
+    @Inject
+    private AccountFundsRepository accountFundsRepository;
+
+    @Inject
+    private SlowCheck slowCheck;
+
+    @BeforeEach
+    void setUp() {
+        slowCheck.block();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        slowCheck.release();
+        accountFundsRepository.deleteAll();
+    }
+
+    @Test
+    void shouldPassValidTransfer() {
+        var transfer = buildTransfer(createFunds(UUID.randomUUID(), "EUR"),
+            createFunds(UUID.randomUUID(), "EUR"));
+        slowCheck.release();
+
+        TransferValidationPipeline.await(validationPipeline.validate(transfer));
+    }
+
+    @Test
+    void shouldFailFastWithoutWaitingForSlowCheck() {
+        var transfer = buildTransfer(createFunds(UUID.randomUUID(), "EUR"), UUID.randomUUID());
+
+        var validation = validationPipeline.validate(transfer);
+
+        //the slow check is still running
+        assertThat(catchThrowableOfType(() -> TransferValidationPipeline.await(validation),
+            AccountFundsNotFoundException.class)).isNotNull();
+    }
+
+    @Test
+    void shouldRejectCurrencyMismatch() {
+        var transfer = buildTransfer(createFunds(UUID.randomUUID(), "EUR"),
+            createFunds(UUID.randomUUID(), "GBP"));
+        slowCheck.release();
+
+        assertThat(catchThrowableOfType(
+            () -> TransferValidationPipeline.await(validationPipeline.validate(transfer)),
+            CurrencyMismatchException.class)).isNotNull();
+    }
+
+    @Test
+    void shouldRejectBlockedAccount() {
+        var transfer = buildTransfer(createFunds(UUID.randomUUID(), "EUR"),
+            createFunds(UUID.fromString(BLOCKED_ACCOUNT_ID), "EUR"));
+
+        var exception = catchThrowableOfType(
+            () -> TransferValidationPipeline.await(validationPipeline.validate(transfer)),
+            TransferNotAllowedException.class);
+
+        assertThat(exception).hasMessageContaining(BLOCKED_ACCOUNT_ID);
+    }
+
+    private static Transfer buildTransfer(UUID senderAccountId, UUID recipientAccountId) {
+        return Transfer.builder()
+            .operationId(UUID.randomUUID())
+            .senderAccountId(senderAccountId)
+            .recipientAccountId(recipientAccountId)
+            .amount(BigDecimal.ONE)
+            .currency("EUR")
+            .status(TransferStatus.ACCEPTED)
+            .build();
+    }
+
+    private UUID createFunds(UUID accountId, String currency) {
+        accountFundsRepository.save(AccountFunds.builder()
+            .accountId(accountId)
+            .currency(currency)
+            .balance(BigDecimal.TEN)
+            .build());
+        return accountId;
+    }
+
+    /**
+     * Blocks until the test releases it, or for a minute at most.
+     */
+    @Singleton
+    @Requires(property = "transfer-validation-pipeline-test.slow-check", value = "true")
+    static class SlowCheck implements TransferCheck {
+
+        private volatile CountDownLatch released = new CountDownLatch(1);
+
+        @Override
+        public void check(Transfer transfer) {
+            try {
+                released.await(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void block() {
+            released = new CountDownLatch(1);
+        }
+
+        void release() {
+            released.countDown();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.revolut.challenge.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+import com.revolut.challenge.repositories.AccountFundsRepository;
+import com.revolut.challenge.repositories.TransferNotFoundException;
+import com.revolut.challenge.repositories.TransferRepository;
+import com.revolut.challenge.service.model.AccountFunds;
+import com.revolut.challenge.service.model.Transfer;
+import com.revolut.challenge.service.model.TransferStatus;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.test.annotation.MicronautTest;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+import javax.inject.Inject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+@MicronautTest(transactional = false)
+@Property(name = "velocity-limits.enabled", value = "true")
+@Property(name = "velocity-limits.max-transfers", value = "2")
+@Property(name = "velocity-limits.max-amount", value = "100.00")
+class VelocityLimitsTest {
+
+    private final UUID senderAccountId = UUID.randomUUID();
+    private final UUID recipientAccountId = UUID.randomUUID();
+
+    @Inject
+    private TransferService transferService;
+
+    @Inject
+    private VelocityLimits velocityLimits;
+
+    @Inject
+    private AccountFundsRepository accountFundsRepository;
+
+    @Inject
+    private TransferRepository transferRepository;
+
+    @AfterEach
+    void cleanUp() {
+        transferRepository.deleteAll();
+        accountFundsRepository.deleteAll();
+    }
+
+    @Test
+    void shouldRejectTransfersAboveTheLimit() {
+        createFunds(senderAccountId, "5.00");
+        createFunds(recipientAccountId, "0.00");
+
+        //rejected transfers don't count
+        assertThat(transferService.processTransfer(buildTransfer("10.00")).getStatus())
+            .isEqualTo(TransferStatus.REJECTED);
+        assertThat(transferService.processTransfer(buildTransfer("1.00")).getStatus())
+            .isEqualTo(TransferStatus.OK);
+        assertThat(transferService.processTransfer(buildTransfer("1.00")).getStatus())
+            .isEqualTo(TransferStatus.OK);
+
+        var transfer = buildTransfer("1.00");
+        assertThat(catchThrowableOfType(() -> transferService.processTransfer(transfer),
+            TransferNotAllowedException.class)).isNotNull();
+        assertThat(catchThrowableOfType(
+            () -> transferRepository.getByOperationId(transfer.getOperationId()),
+            TransferNotFoundException.class)).isNotNull();
+    }
+
+    @Test
+    void shouldRebuildLimitsFromStoredTransfers() {
+        createFunds(senderAccountId, "500.00");
+        createFunds(recipientAccountId, "0.00");
+        var createdAt = LocalDateTime.now(ZoneOffset.UTC).minusHours(1);
+        transferRepository.saveAll(List.of(
+            buildTransfer("60.00").toBuilder().createdAt(createdAt).build(),
+            buildTransfer("300.00").toBuilder().createdAt(createdAt)
+                .status(TransferStatus.REJECTED).build(),
+            buildTransfer("30.00").toBuilder().createdAt(createdAt.minusDays(2)).build()));
+
+        velocityLimits.rebuild();
+
+        assertThat(catchThrowableOfType(
+            () -> transferService.processTransfer(buildTransfer("40.01")),
+            TransferNotAllowedException.class)).isNotNull();
+        assertThat(transferService.processTransfer(buildTransfer("40.00")).getStatus())
+            .isEqualTo(TransferStatus.OK);
+    }
+
+    private Transfer buildTransfer(String amount) {
+        return Transfer.builder()
+            .operationId(UUID.randomUUID())
+            .senderAccountId(senderAccountId)
+            .recipientAccountId(recipientAccountId)
+            .amount(new BigDecimal(amount))
+            .currency("EUR")
+            .status(TransferStatus.ACCEPTED)
+            .build();
+    }
+
+    private void createFunds(UUID accountId, String balance) {
+        accountFundsRepository.save(AccountFunds.builder()
+            .accountId(accountId)
+            .currency("EUR")
+            .balance(new BigDecimal(balance))
+            .build());
+    }
+}
@@ -0,0 +1,87 @@
+package com.revolut.challenge.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+import java.time.Duration;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class VelocityWindowsTest {
+
+    private static final Duration WINDOW = Duration.ofHours(24);
+    private static final long HOUR_MILLIS = Duration.ofHours(1).toMillis();
+
+    private final VelocityWindows windows = new VelocityWindows(WINDOW, 24, 4, 3, 10_000);
+    private final UUID accountId = UUID.randomUUID();
+
+    @Test
+    void shouldLimitTheNumberOfTransfers() {
+        for (int i = 0; i < 3; i++) {
+            windows.tryAcquire(accountId, 100, i * HOUR_MILLIS);
+        }
+
+        var exception = catchThrowableOfType(
+            () -> windows.tryAcquire(accountId, 100, 3 * HOUR_MILLIS),
+            TransferNotAllowedException.class);
+
+        assertThat(exception).hasMessageContaining(accountId.toString());
+        //other accounts have their own windows
+        windows.tryAcquire(UUID.randomUUID(), 100, 3 * HOUR_MILLIS);
+    }
+
+    @Test
+    void shouldLimitTheTransferredAmount() {
+        windows.tryAcquire(accountId, 6_000, 0);
+
+        assertThat(catchThrowableOfType(() -> windows.tryAcquire(accountId, 4_001, 0),
+            TransferNotAllowedException.class)).isNotNull();
+        windows.tryAcquire(accountId, 4_000, 0);
+    }
+
+    @Test
+    void shouldForgetTransfersThatLeftTheWindow() {
+        windows.tryAcquire(accountId, 5_000, 0);
+        windows.tryAcquire(accountId, 5_000, 12 * HOUR_MILLIS);
+        assertThat(catchThrowableOfType(() -> windows.tryAcquire(accountId, 1, 23 * HOUR_MILLIS),
+            TransferNotAllowedException.class)).isNotNull();
+
+        //the first transfer has left the window, the second one is still in it
+        windows.tryAcquire(accountId, 5_000, 24 * HOUR_MILLIS);
+        assertThat(catchThrowableOfType(() -> windows.tryAcquire(accountId, 1, 24 * HOUR_MILLIS),
+            TransferNotAllowedException.class)).isNotNull();
+
+        //both have left it after a long pause
+        windows.tryAcquire(accountId, 10_000, 100 * HOUR_MILLIS);
+    }
+
+    @Test
+    void shouldUncountReleasedTransfers() {
+        var bucket = windows.tryAcquire(accountId, 10_000, 0);
+
+        windows.release(accountId, 10_000, bucket);
+
+        windows.tryAcquire(accountId, 10_000, HOUR_MILLIS);
+    }
+
+    @Test
+    void shouldRecordOnlyTransfersWithinTheWindow() {
+        var now = 30 * HOUR_MILLIS;
+        windows.record(accountId, 10_000, 2 * HOUR_MILLIS, now);
+        windows.record(accountId, 9_000, 20 * HOUR_MILLIS, now);
+
+        assertThat(catchThrowableOfType(() -> windows.tryAcquire(accountId, 1_001, now),
+            TransferNotAllowedException.class)).isNotNull();
+        windows.tryAcquire(accountId, 1_000, now);
+    }
+
+    @Test
+    void shouldEvictIdleAccounts() {
+        windows.tryAcquire(accountId, 100, 0);
+        windows.tryAcquire(UUID.randomUUID(), 100, 12 * HOUR_MILLIS);
+
+        windows.evictIdle(30 * HOUR_MILLIS);
+
+        assertThat(windows.size()).isEqualTo(1);
+    }
+}
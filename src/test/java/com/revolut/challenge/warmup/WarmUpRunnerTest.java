@@ -0,0 +1,45 @@
+package com.revolut.challenge.warmup;
+
+import static com.revolut.challenge.TestConstants.INTEGRATION_TAG;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micronaut.context.annotation.Property;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.client.RxHttpClient;
+import io.micronaut.http.client.annotation.Client;
+import io.micronaut.test.annotation.MicronautTest;
+import javax.inject.Inject;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@MicronautTest(transactional = false)
+@Tag(INTEGRATION_TAG)
+@Property(name = "warm-up.enabled", value = "true")
+@Property(name = "warm-up.transfers", value = "25")
+@Property(name = "warm-up.batch-size", value = "10")
+@Property(name = "velocity-limits.enabled", value = "true")
+@Property(name = "velocity-limits.max-transfers", value = "5")
+class WarmUpRunnerTest {
+
+    @Inject
+    private WarmUpRunner warmUpRunner;
+
+    @Inject
+    @Client("/")
+    private RxHttpClient client;
+
+    @Test
+    void shouldReportReadinessAfterWarmUp() {
+        assertThat(warmUpRunner.isComplete()).isTrue();
+        assertThat(warmUpRunner.getSucceededTransfers()).isEqualTo(25);
+        assertThat(client.toBlocking().exchange(HttpRequest.GET("/health")).getStatus())
+            .isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void shouldNotCountWarmUpTransfersAgainstVelocityLimits() {
+        //a batch of 10 transfers from one sender would exceed the limit of 5
+        assertThat(warmUpRunner.getSucceededTransfers()).isEqualTo(25);
+    }
+}